@@ -22,10 +22,12 @@ package com.thinkbiganalytics.spark;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.DataFrame;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.List;
 
@@ -59,6 +61,11 @@ public class DataSet16 implements DataSet {
         return new DataSet16(dataframe.filter(condition));
     }
 
+    @Override
+    public DataSet select(Column... columns) {
+        return new DataSet16(dataframe.select(columns));
+    }
+
     @Override
     public DataSet drop(String condition) {
         return new DataSet16(dataframe.drop(condition));
@@ -74,6 +81,16 @@ public class DataSet16 implements DataSet {
         return dataframe.count();
     }
 
+    @Override
+    public DataSet persist(StorageLevel level) {
+        return new DataSet16(dataframe.persist(level));
+    }
+
+    @Override
+    public DataSet unpersist() {
+        return new DataSet16(dataframe.unpersist());
+    }
+
     @Override
     public void registerTempTable(String tableName) {
         dataframe.registerTempTable(tableName);
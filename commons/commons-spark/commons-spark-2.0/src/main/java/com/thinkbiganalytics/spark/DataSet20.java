@@ -23,10 +23,12 @@ package com.thinkbiganalytics.spark;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.List;
 
@@ -60,6 +62,11 @@ public class DataSet20 implements DataSet {
         return new DataSet20(dataset.filter(condition));
     }
 
+    @Override
+    public DataSet select(Column... columns) {
+        return new DataSet20(dataset.select(columns));
+    }
+
     @Override
     public DataSet drop(String condition) {
         return new DataSet20(dataset.drop(condition));
@@ -75,6 +82,16 @@ public class DataSet20 implements DataSet {
         return dataset.count();
     }
 
+    @Override
+    public DataSet persist(StorageLevel level) {
+        return new DataSet20(dataset.persist(level));
+    }
+
+    @Override
+    public DataSet unpersist() {
+        return new DataSet20(dataset.unpersist());
+    }
+
     @Override
     public void registerTempTable(String tableName) {
         dataset.registerTempTable(tableName);
@@ -22,8 +22,10 @@ package com.thinkbiganalytics.spark;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.List;
 
@@ -54,6 +56,14 @@ public interface DataSet {
      */
     DataSet filter(String condition);
 
+    /**
+     * Selects a set of column-based expressions.
+     *
+     * @param columns the columns to select
+     * @return the data set with the selected columns
+     */
+    DataSet select(Column... columns);
+
     /**
      * Drops the specified column from this data set.
      *
@@ -76,6 +86,21 @@ public interface DataSet {
      */
     long count();
 
+    /**
+     * Persists this data set with the specified storage level.
+     *
+     * @param level the storage level
+     * @return the persisted data set
+     */
+    DataSet persist(StorageLevel level);
+
+    /**
+     * Removes all blocks for this data set from memory and disk.
+     *
+     * @return the data set
+     */
+    DataSet unpersist();
+
     /**
      * Registers this data set as a temporary table with the specified name.
      *
@@ -48,5 +48,9 @@ public interface AlertSource {
 
     Optional<Alert> getAlert(Alert.ID id);
 
+    /**
+     * Retrieves alerts matching the given criteria ordered by their created time. Alerts from multiple sources are merged by
+     * created time, so sources must honor the criteria's limit and requested order.
+     */
     Iterator<Alert> getAlerts(AlertCriteria criteria);
 }
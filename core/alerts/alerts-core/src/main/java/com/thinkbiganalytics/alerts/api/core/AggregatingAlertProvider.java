@@ -23,6 +23,8 @@ package com.thinkbiganalytics.alerts.api.core;
  * #L%
  */
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.alerts.api.Alert;
 import com.thinkbiganalytics.alerts.api.Alert.ID;
@@ -47,6 +49,7 @@ import java.lang.reflect.Proxy;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -56,8 +59,7 @@ import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -237,7 +239,7 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
     @Override
     public Iterator<? extends Alert> getAlerts(AlertCriteria criteria) {
         Map<String, AlertSource> srcs = snapshotAllSources();
-        return combineAlerts(criteria, srcs).iterator();
+        return combineAlerts(criteria, srcs);
     }
 
     /* (non-Javadoc)
@@ -276,7 +278,7 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
             final AtomicReference<DateTime> sinceTime = new AtomicReference<>(AggregatingAlertProvider.this.lastAlertsTime);
             Map<String, AlertSource> sources = snapshotAllSources();
 
-            combineAlerts(criteria().after(sinceTime.get()), sources).forEach(alert -> {
+            combineAlerts(criteria().after(sinceTime.get()), sources).forEachRemaining(alert -> {
                 LOG.debug("Alert {} received from {}", alert.getId(), alert.getSource());
 
                 notifyListeners(alert);
@@ -284,7 +286,9 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
                     notifyResponders(alert);
                 }
 
-                sinceTime.set(alert.getCreatedTime());
+                if (alert.getCreatedTime().isAfter(sinceTime.get())) {
+                    sinceTime.set(alert.getCreatedTime());
+                }
             });
 
             AggregatingAlertProvider.this.lastAlertsTime = sinceTime.get();
@@ -316,19 +320,33 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         return src.getAlert(id).map(alert -> wrapAlert(alert, src));
     }
 
-    private Stream<Alert> combineAlerts(AlertCriteria criteria, Map<String, AlertSource> srcs) {
+    /**
+     * Merges the alerts from each source, newest first. Each source returns its alerts already ordered and limited by the criteria so only the
+     * alerts that are returned are read from the sources.
+     */
+    private Iterator<Alert> combineAlerts(AlertCriteria criteria, Map<String, AlertSource> srcs) {
         Criteria critImpl = (Criteria) criteria;
+        boolean ascending = critImpl.isAscending();
 
-        return srcs.values().stream()
+        List<Iterator<Alert>> srcAlerts = srcs.values().stream()
             .map(src -> {
-                AlertCriteria srcCrit = src.criteria();
-                critImpl.transfer(srcCrit);
-                Iterable<Alert> alerts = () -> src.getAlerts(srcCrit);
-                return StreamSupport.stream(alerts.spliterator(), false);
+                AlertCriteria srcCrit = critImpl.transfer(src.criteria());
+                if (srcCrit instanceof BaseAlertCriteria) {
+                    ((BaseAlertCriteria) srcCrit).ascending(ascending);
+                }
+                return src.getAlerts(srcCrit);
             })
-            .flatMap(s -> s)
-            .map(alert -> wrapAlert(alert, alert.getSource()))
-            .sorted((a1, a2) -> a2.getCreatedTime().compareTo(a1.getCreatedTime()));
+            .collect(Collectors.toList());
+
+        Comparator<Alert> newestFirst = (a1, a2) -> a2.getCreatedTime().compareTo(a1.getCreatedTime());
+        Iterator<Alert> merged = Iterators.limit(Iterators.mergeSorted(srcAlerts, ascending ? newestFirst.reversed() : newestFirst), critImpl.getLimit());
+
+        if (ascending) {
+            // Only the next alerts after a time were requested; return them newest first like all other results
+            merged = Lists.reverse(Lists.newArrayList(merged)).iterator();
+        }
+
+        return Iterators.transform(merged, alert -> wrapAlert(alert, alert.getSource()));
     }
 
     private void notifyChanged(Alert alert) {
@@ -555,7 +573,13 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
 
     protected static class Criteria extends BaseAlertCriteria {
 
-
+        /**
+         * Indicates if the sources should return alerts oldest first. When limiting alerts newer than a time, the oldest alerts are the next ones
+         * after that time. In all other cases the newest alerts are returned.
+         */
+        protected boolean isAscending() {
+            return isAscending(getLimit() != Integer.MAX_VALUE && getAfterTime() != null && getBeforeTime() == null);
+        }
     }
 
     protected class AlertResponseWrapper implements AlertResponse {
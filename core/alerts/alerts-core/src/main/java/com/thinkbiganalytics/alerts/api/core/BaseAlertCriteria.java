@@ -54,6 +54,7 @@ public class BaseAlertCriteria implements AlertCriteria, Predicate<Alert> {
     private DateTime afterTime;
     private DateTime beforeTime;
     private boolean includeCleared = false;
+    private Boolean ascending;
 
 
     /**
@@ -177,6 +178,17 @@ public class BaseAlertCriteria implements AlertCriteria, Predicate<Alert> {
         return this;
     }
 
+    /**
+     * Sets the order in which alerts are returned by their created time. If not set, the order is AlertSource dependent.
+     *
+     * @param flag true to return the oldest alerts first, or false to return the newest alerts first
+     * @return the updated criteria
+     */
+    public BaseAlertCriteria ascending(boolean flag) {
+        this.ascending = flag;
+        return this;
+    }
+
 
     protected boolean testTypes(Alert alert) {
         return this.types.stream().anyMatch(uri -> {
@@ -237,4 +249,14 @@ public class BaseAlertCriteria implements AlertCriteria, Predicate<Alert> {
     protected boolean isIncludeCleared() {
         return includeCleared;
     }
+
+    /**
+     * Indicates if alerts should be returned oldest first.
+     *
+     * @param defaultValue the order to use if none has been set
+     * @return true for oldest first, or false for newest first
+     */
+    protected boolean isAscending(boolean defaultValue) {
+        return ascending != null ? ascending : defaultValue;
+    }
 }
@@ -63,6 +63,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  *
@@ -146,7 +147,7 @@ public class InMemoryAlertManager implements AlertManager {
 
     @Override
     public AlertCriteria criteria() {
-        return new BaseAlertCriteria();
+        return new Criteria();
     }
 
     @Override
@@ -164,12 +165,8 @@ public class InMemoryAlertManager implements AlertManager {
 
     @Override
     public Iterator<Alert> getAlerts(AlertCriteria criteria) {
-        BaseAlertCriteria predicate = (BaseAlertCriteria) (criteria == null ? criteria() : criteria);
-        // TODO Grab a partition of the map first based on before/after times of criteria
-        return this.alertsByTime.values().stream()
-            .map(ref -> (Alert) ref.get())
-            .filter(predicate)
-            .iterator();
+        Criteria critImpl = (Criteria) (criteria == null ? criteria() : criteria);
+        return critImpl.select(this.alertsByTime).iterator();
     }
 //
 //    @Override
@@ -596,4 +593,26 @@ public class InMemoryAlertManager implements AlertManager {
         }
     }
 
+    /**
+     * Criteria that selects alerts from the time-ordered map, oldest first unless otherwise specified.
+     */
+    private static class Criteria extends BaseAlertCriteria {
+
+        /**
+         * Gets the alerts matching this criteria in the requested order.
+         */
+        Stream<Alert> select(NavigableMap<DateTime, AtomicReference<GenericAlert>> alertsByTime) {
+            NavigableMap<DateTime, AtomicReference<GenericAlert>> range = alertsByTime;
+            if (getAfterTime() != null) {
+                range = range.tailMap(getAfterTime(), false);
+            }
+            if (getBeforeTime() != null) {
+                range = range.headMap(getBeforeTime(), false);
+            }
+            return (isAscending(true) ? range : range.descendingMap()).values().stream()
+                .map(ref -> (Alert) ref.get())
+                .filter(this)
+                .limit(getLimit());
+        }
+    }
 }
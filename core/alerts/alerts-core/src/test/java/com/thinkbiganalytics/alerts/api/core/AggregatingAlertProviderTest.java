@@ -207,6 +207,58 @@ public class AggregatingAlertProviderTest {
         assertThat(alerts).hasSize(2).contains(srcAlert, mgrAlert);
     }
 
+    @Test
+    public void testGetAlertsMergedWithLimit() {
+        DateTime now = DateTime.now();
+        TestAlert src1 = new TestAlert(this.source, now.minusSeconds(1));
+        TestAlert src2 = new TestAlert(this.source, now.minusSeconds(4));
+        TestAlert src3 = new TestAlert(this.source, now.minusSeconds(5));
+        TestAlert mgr1 = new TestAlert(this.manager, now.minusSeconds(2));
+        TestAlert mgr2 = new TestAlert(this.manager, now.minusSeconds(3));
+        TestAlert mgr3 = new TestAlert(this.manager, now.minusSeconds(6));
+        TestAlert mgr4 = new TestAlert(this.manager, now.minusSeconds(7));
+        BaseAlertCriteria srcCriteria = new BaseAlertCriteria();
+        Iterator<Alert> mgrAlerts = Arrays.<Alert>asList(mgr1, mgr2, mgr3, mgr4).iterator();
+
+        this.provider.addAlertSource(this.source);
+        this.provider.addAlertManager(this.manager);
+
+        when(this.source.criteria()).thenReturn(srcCriteria);
+        when(this.source.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(src1, src2, src3));
+        when(this.manager.getAlerts(any(AlertCriteria.class))).thenReturn(mgrAlerts);
+
+        Iterator<? extends Alert> results = this.provider.getAlerts(this.provider.criteria().limit(3));
+        List<Alert> alerts = Lists.newArrayList(Iterators.transform(results, providerToSourceAlertFunction()));
+
+        assertThat(alerts).containsExactly(src1, mgr1, mgr2);
+        assertThat(srcCriteria.getLimit()).isEqualTo(3);
+        assertThat(srcCriteria.isAscending(true)).isFalse();
+        assertThat(mgrAlerts.next()).isEqualTo(mgr4);
+    }
+
+    @Test
+    public void testGetAlertsAfterWithLimit() {
+        DateTime now = DateTime.now();
+        TestAlert src1 = new TestAlert(this.source, now.minusSeconds(4));
+        TestAlert src2 = new TestAlert(this.source, now.minusSeconds(1));
+        TestAlert mgr1 = new TestAlert(this.manager, now.minusSeconds(3));
+        TestAlert mgr2 = new TestAlert(this.manager, now.minusSeconds(2));
+        BaseAlertCriteria srcCriteria = new BaseAlertCriteria();
+
+        this.provider.addAlertSource(this.source);
+        this.provider.addAlertManager(this.manager);
+
+        when(this.source.criteria()).thenReturn(srcCriteria);
+        when(this.source.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(src1, src2));
+        when(this.manager.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(mgr1, mgr2));
+
+        Iterator<? extends Alert> results = this.provider.getAlerts(this.provider.criteria().after(now.minusSeconds(10)).limit(3));
+        List<Alert> alerts = Lists.newArrayList(Iterators.transform(results, providerToSourceAlertFunction()));
+
+        assertThat(alerts).containsExactly(mgr2, mgr1, src1);
+        assertThat(srcCriteria.isAscending(false)).isTrue();
+    }
+
     @Test
     public void testRespondToActionable() {
         TestAlert mgrAlert = new TestAlert(this.manager, true);
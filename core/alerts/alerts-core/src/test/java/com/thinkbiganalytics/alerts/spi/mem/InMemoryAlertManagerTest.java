@@ -23,6 +23,7 @@ package com.thinkbiganalytics.alerts.spi.mem;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.thinkbiganalytics.alerts.api.Alert;
 import com.thinkbiganalytics.alerts.api.Alert.Level;
+import com.thinkbiganalytics.alerts.api.core.BaseAlertCriteria;
 import com.thinkbiganalytics.alerts.spi.AlertDescriptor;
 import com.thinkbiganalytics.alerts.spi.AlertNotifyReceiver;
 
@@ -141,6 +142,23 @@ public class InMemoryAlertManagerTest {
         assertThat(itr.next().getLevel()).isEqualTo(Level.CRITICAL);
         assertThat(itr.hasNext()).isFalse();
     }
+
+    @Test
+    public void testGetAlertsDescendingWithLimit() throws InterruptedException {
+        this.manager.create(URI.create("urn:alert:test1"), Alert.Level.INFO, "test1", "content");
+        Thread.sleep(25);
+        this.manager.create(URI.create("urn:alert:test2"), Alert.Level.WARNING, "test2", "content");
+        Thread.sleep(25);
+        this.manager.create(URI.create("urn:alert:test3"), Alert.Level.CRITICAL, "test3", "content");
+
+        Iterator<? extends Alert> itr = this.manager.getAlerts(((BaseAlertCriteria) this.manager.criteria().limit(2)).ascending(false));
+
+        assertThat(itr.hasNext()).isTrue();
+        assertThat(itr.next().getLevel()).isEqualTo(Level.CRITICAL);
+        assertThat(itr.hasNext()).isTrue();
+        assertThat(itr.next().getLevel()).isEqualTo(Level.WARNING);
+        assertThat(itr.hasNext()).isFalse();
+    }
 //
 //    @Test
 //    public void testGetAlertsSinceID() throws InterruptedException {
@@ -506,8 +506,8 @@ public class DefaultAlertManager extends QueryDslRepositorySupport implements Al
             }
 
             // When limiting and using "after" criteria only, we need to sort ascending to get the next n values after the given id/time.
-            // In all other cases sort descending. The results will be ordered correctly when aggregated by the provider.
-            if (getLimit() != Integer.MAX_VALUE && getAfterTime() != null && getBeforeTime() == null) {
+            // In all other cases sort descending. The provider sets the order explicitly so it can merge the results of each source.
+            if (isAscending(getLimit() != Integer.MAX_VALUE && getAfterTime() != null && getBeforeTime() == null)) {
                 query.orderBy(alert.createdTime.asc());
             } else {
                 query.orderBy(alert.createdTime.desc());
@@ -28,6 +28,7 @@ import com.querydsl.core.types.dsl.StringTemplate;
 import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
 import com.thinkbiganalytics.metadata.config.RoleSetExposingSecurityExpressionRoot;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAclMembershipProjection;
 import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry;
 import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry.PrincipalType;
 import com.thinkbiganalytics.metadata.jpa.feed.security.QJpaFeedOpsAclEntry;
@@ -43,6 +44,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
@@ -54,13 +56,15 @@ import javax.persistence.criteria.Selection;
 
 /**
  * Secures queries by checking whether access to them is allowed by having matching roles for current
- * user principal in FeedAclIndex table
+ * user principal in FeedAclIndex table. When a {@link FeedOpsAclMembershipProjection} is enabled and the
+ * current user can access only a few feeds, the feeds resolved from it are matched by id instead.
  */
 public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
 
     private static final Logger LOG = LoggerFactory.getLogger(FeedAclIndexQueryAugmentor.class);
     private static final StringTemplate CONSTANT_ONE = Expressions.stringTemplate("1");
     private static final BooleanExpression ONE_EQUALS_ONE = CONSTANT_ONE.eq(CONSTANT_ONE);
+    private static final BooleanExpression ONE_EQUALS_ZERO = CONSTANT_ONE.eq(Expressions.stringTemplate("0"));
 
     protected abstract <S, T, ID extends Serializable> Path<Object> getFeedId(JpaEntityInformation<T, ID> entityInformation, Root<S> root);
 
@@ -74,6 +78,18 @@ public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
         LOG.debug("QueryAugmentor.augment");
 
         return (root, query, criteriaBuilder) -> {
+            Set<UUID> feedIds = getAccessibleFeedIds();
+            if (feedIds != null) {
+                javax.persistence.criteria.Predicate feedIdAccessible = feedIds.isEmpty() ? criteriaBuilder.disjunction() : getFeedId(entityInformation, root).get("uuid").in(feedIds);
+
+                if (spec != null) {
+                    javax.persistence.criteria.Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+                    return criteriaBuilder.and(predicate, feedIdAccessible);
+                } else {
+                    return feedIdAccessible;
+                }
+            }
+
             Root<JpaFeedOpsAclEntry> fromAcl = query.from(JpaFeedOpsAclEntry.class);
             query.distinct(true);
             if (query.getSelection() == null) {
@@ -125,6 +141,11 @@ public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
     private static BooleanExpression generateExistsExpression(QOpsManagerFeedId feedId) {
         LOG.debug("FeedAclIndexQueryAugmentor.generateExistsExpression(QOpsManagerFeedId)");
 
+        Set<UUID> feedIds = getAccessibleFeedIds();
+        if (feedIds != null) {
+            return feedIds.isEmpty() ? ONE_EQUALS_ZERO : feedId.uuid.in(feedIds);
+        }
+
         RoleSetExposingSecurityExpressionRoot userCxt = getUserContext();
         QJpaFeedOpsAclEntry aclEntry = QJpaFeedOpsAclEntry.jpaFeedOpsAclEntry;
         JPQLQuery<JpaFeedOpsAclEntry> subquery = JPAExpressions.selectFrom(aclEntry)
@@ -135,6 +156,21 @@ public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
         return subquery.exists();
     }
 
+    /**
+     * Gets the feeds accessible to the current user from the membership projection
+     *
+     * @return the accessible feed ids, or {@code null} if the query should be matched against the index
+     */
+    private static Set<UUID> getAccessibleFeedIds() {
+        FeedOpsAclMembershipProjection projection = FeedOpsAclMembershipProjection.getInstance();
+        if (projection == null) {
+            return null;
+        }
+        RoleSetExposingSecurityExpressionRoot userCxt = getUserContext();
+        Set<UUID> feedIds = projection.getAccessibleFeedIds(userCxt.getName(), userCxt.getGroups());
+        return feedIds.size() <= projection.getMaxFeeds() ? feedIds : null;
+    }
+
     public static BooleanExpression generateExistsExpression(QOpsManagerFeedId id, boolean entityAccessControlled) {
         if (entityAccessControlled) {
             return generateExistsExpression(id);
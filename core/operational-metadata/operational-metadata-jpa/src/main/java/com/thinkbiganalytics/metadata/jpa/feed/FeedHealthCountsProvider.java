@@ -0,0 +1,371 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.DateTimeUtil;
+import com.thinkbiganalytics.jpa.BaseJpaId;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobInstance;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Maintains the {@link JpaFeedHealthCounts} for each feed.
+ *
+ * The counts are adjusted as each job execution changes status, and can be rebuilt from the job history if they are ever out of sync,
+ * for example after jobs have been changed directly in the database.
+ *
+ * A rebuild locks the feed's counts before it reads the history, so a job changing status in another transaction either commits before the history is read,
+ * or waits for the rebuild to commit before adjusting the rebuilt counts.  The counts for a feed are only created while holding a lock on the feed,
+ * so two jobs starting the first time a feed is counted do not both insert them.
+ */
+@Service
+public class FeedHealthCountsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedHealthCountsProvider.class);
+
+    @Autowired
+    private JPAQueryFactory factory;
+
+    private FeedHealthCountsRepository repository;
+
+    @Autowired
+    public FeedHealthCountsProvider(FeedHealthCountsRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Find the counts for a feed
+     *
+     * @param feedId the feed id
+     * @return the counts, or {@code null} if the feed has no counts
+     */
+    public JpaFeedHealthCounts findByFeedId(OpsManagerFeed.ID feedId) {
+        return repository.findOne(uuid(feedId));
+    }
+
+    /**
+     * Create an empty set of counts for a new feed
+     *
+     * @param feedId the feed id
+     */
+    public void ensureFeed(OpsManagerFeed.ID feedId) {
+        UUID id = uuid(feedId);
+        if (!repository.exists(id)) {
+            lockCounts(id);
+        }
+    }
+
+    /**
+     * Remove the counts for a feed that is being deleted
+     *
+     * @param feedId the feed id
+     */
+    public void delete(OpsManagerFeed.ID feedId) {
+        repository.deleteForFeed(uuid(feedId));
+    }
+
+    /**
+     * Adjust the counts for a feed when one of its job executions changes status
+     *
+     * @param feedId           the feed the job belongs to
+     * @param jobExecution     the job execution with its new status
+     * @param previousStatus   the status already included in the counts, or {@code null} if the job has not been counted
+     * @param previousExitCode the exit code already included in the counts, or {@code null} if the job has not been counted
+     */
+    public void jobExecutionChanged(OpsManagerFeed.ID feedId, BatchJobExecution jobExecution, BatchJobExecution.JobStatus previousStatus,
+                                    ExecutionConstants.ExitCode previousExitCode) {
+        UUID id = uuid(feedId);
+        JobCounts delta = JobCounts.of(jobExecution.getStatus(), jobExecution.getExitCode()).minus(JobCounts.of(previousStatus, previousExitCode));
+        int updated = repository.incrementCounts(id, delta.all, delta.failed, delta.completed, delta.abandoned, delta.running, DateTimeUtil.getNowUTCTime());
+        if (updated == 0) {
+            //the feed has not been counted yet. build it from the history which will include this job.
+            //if another job for the feed creates the counts first this waits for it to commit, and the history includes both jobs
+            rebuild(feedId);
+            return;
+        }
+        if (previousStatus == null) {
+            repository.updateLatestJobExecution(id, jobExecution.getJobExecutionId());
+        }
+        if (jobExecution.getEndTime() != null) {
+            repository.updateLatestFinishedJobExecution(id, jobExecution.getJobExecutionId(), jobExecution.getEndTime());
+        }
+    }
+
+    /**
+     * Remove job executions that have been deleted from the counts for a feed.
+     * The feed is rebuilt from its remaining history if one of the deleted jobs was its latest job.
+     *
+     * @param feedId        the feed the jobs belonged to
+     * @param jobExecutions the deleted job executions with the status they were counted with
+     */
+    public void jobExecutionsDeleted(OpsManagerFeed.ID feedId, List<? extends BatchJobExecution> jobExecutions) {
+        UUID id = uuid(feedId);
+        JpaFeedHealthCounts counts = repository.findOne(id);
+        JobCounts deleted = JobCounts.NONE;
+        boolean latestDeleted = false;
+        for (BatchJobExecution jobExecution : jobExecutions) {
+            deleted = deleted.plus(JobCounts.of(jobExecution.getStatus(), jobExecution.getExitCode()));
+            latestDeleted |= counts != null && (jobExecution.getJobExecutionId().equals(counts.getLatestJobExecutionId())
+                                                || jobExecution.getJobExecutionId().equals(counts.getLatestFinishedJobExecutionId()));
+        }
+        if (counts == null || latestDeleted) {
+            rebuild(feedId);
+        } else {
+            repository.incrementCounts(id, -deleted.all, -deleted.failed, -deleted.completed, -deleted.abandoned, -deleted.running, DateTimeUtil.getNowUTCTime());
+        }
+    }
+
+    /**
+     * Rebuild the counts for a single feed from its job history
+     *
+     * @param feedId the feed id
+     */
+    public void rebuild(OpsManagerFeed.ID feedId) {
+        UUID id = uuid(feedId);
+        JpaFeedHealthCounts counts = lockCounts(id);
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        Map<UUID, JpaFeedHealthCounts> history = aggregateHistory(jobInstance.feed.id.uuid.eq(id));
+        save(counts, history.get(id));
+    }
+
+    /**
+     * Rebuild the counts for all feeds from the job history.
+     * This is intended to be run periodically to repair any drift in the counts.  The counts of every feed stay locked until the transaction ends,
+     * so to avoid holding up running jobs each feed from {@link #getFeedIds()} can instead be rebuilt in its own transaction, followed by {@link #deleteRemovedFeeds()}.
+     *
+     * @return the number of feeds rebuilt
+     */
+    public int rebuild() {
+        Set<OpsManagerFeed.ID> feedIds = getFeedIds();
+        feedIds.forEach(this::rebuild);
+        deleteRemovedFeeds();
+        log.info("Rebuilt the feed health counts for {} feeds", feedIds.size());
+        return feedIds.size();
+    }
+
+    /**
+     * @return the ids of all the feeds
+     */
+    public Set<OpsManagerFeed.ID> getFeedIds() {
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        return factory.select(feed.id.uuid).from(feed).fetch().stream().<OpsManagerFeed.ID>map(OpsManagerFeedId::new).collect(Collectors.toSet());
+    }
+
+    /**
+     * Delete the counts of feeds that no longer exist
+     *
+     * @return the number of feeds deleted
+     */
+    public int deleteRemovedFeeds() {
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        Set<UUID> feedIds = new HashSet<>(factory.select(feed.id.uuid).from(feed).fetch());
+        int deleted = 0;
+        for (JpaFeedHealthCounts counts : repository.findAll()) {
+            if (!feedIds.contains(counts.getFeedId())) {
+                repository.delete(counts);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Lock the counts for a feed until the transaction ends, first creating them if the feed has not been counted.
+     * The feed is locked while the counts are created so concurrent transactions wait for the first to commit its counts, rather than inserting them again.
+     *
+     * @param feedId the feed id
+     * @return the locked counts
+     */
+    private JpaFeedHealthCounts lockCounts(UUID feedId) {
+        JpaFeedHealthCounts counts = repository.findForUpdate(feedId);
+        if (counts == null) {
+            QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+            factory.selectFrom(feed).where(feed.id.uuid.eq(feedId)).setLockMode(LockModeType.PESSIMISTIC_WRITE).fetchOne();
+            counts = repository.findForUpdate(feedId);
+            if (counts == null) {
+                counts = new JpaFeedHealthCounts(feedId);
+                counts.setLastUpdated(DateTimeUtil.getNowUTCTime());
+                counts = repository.saveAndFlush(counts);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Replace the stored counts for a feed
+     *
+     * @param counts  the locked counts to replace
+     * @param rebuilt the counts from the history, or {@code null} if the feed has no jobs
+     */
+    private void save(JpaFeedHealthCounts counts, JpaFeedHealthCounts rebuilt) {
+        UUID feedId = counts.getFeedId();
+        if (rebuilt == null) {
+            rebuilt = new JpaFeedHealthCounts(feedId);
+        }
+        counts.setAllCount(rebuilt.getAllCount());
+        counts.setFailedCount(rebuilt.getFailedCount());
+        counts.setCompletedCount(rebuilt.getCompletedCount());
+        counts.setAbandonedCount(rebuilt.getAbandonedCount());
+        counts.setRunningCount(rebuilt.getRunningCount());
+        counts.setLatestJobExecutionId(rebuilt.getLatestJobExecutionId());
+        counts.setLatestFinishedJobExecutionId(rebuilt.getLatestFinishedJobExecutionId());
+        counts.setLatestFinishedEndTime(rebuilt.getLatestFinishedEndTime());
+        counts.setLastUpdated(DateTimeUtil.getNowUTCTime());
+        repository.save(counts);
+    }
+
+    /**
+     * Aggregate the job executions by feed using the same rules as the feed health views
+     *
+     * @param where an optional filter on the job executions
+     * @return the counts for each feed that has job executions
+     */
+    private Map<UUID, JpaFeedHealthCounts> aggregateHistory(Predicate where) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+
+        BooleanExpression notAbandoned = jobExecution.status.ne(BatchJobExecution.JobStatus.ABANDONED);
+        NumberExpression<Long> failed = count(notAbandoned.and(jobExecution.status.eq(BatchJobExecution.JobStatus.FAILED)
+                                                                   .or(jobExecution.exitCode.eq(ExecutionConstants.ExitCode.FAILED))));
+        NumberExpression<Long> completed = count(notAbandoned.and(jobExecution.exitCode.eq(ExecutionConstants.ExitCode.COMPLETED)));
+        NumberExpression<Long> abandoned = count(jobExecution.status.eq(BatchJobExecution.JobStatus.ABANDONED));
+        NumberExpression<Long> running = count(jobExecution.status.in(BatchJobExecution.JobStatus.STARTING, BatchJobExecution.JobStatus.STARTED));
+
+        JPAQuery<Tuple> query = factory.select(jobInstance.feed.id.uuid,
+                                          jobExecution.count(),
+                                          failed,
+                                          completed,
+                                          abandoned,
+                                          running,
+                                          jobExecution.jobExecutionId.max(),
+                                          jobExecution.endTimeMillis.max())
+            .from(jobExecution)
+            .innerJoin(jobInstance).on(jobExecution.jobInstance.jobInstanceId.eq(jobInstance.jobInstanceId));
+        if (where != null) {
+            query.where(where);
+        }
+        List<Tuple> rows = query.groupBy(jobInstance.feed.id.uuid).fetch();
+
+        Map<UUID, JpaFeedHealthCounts> countsByFeed = new HashMap<>();
+        for (Tuple row : rows) {
+            UUID feedId = row.get(jobInstance.feed.id.uuid);
+            if (feedId == null) {
+                continue;
+            }
+            JpaFeedHealthCounts counts = new JpaFeedHealthCounts(feedId);
+            counts.setAllCount(row.get(jobExecution.count()));
+            counts.setFailedCount(row.get(failed));
+            counts.setCompletedCount(row.get(completed));
+            counts.setAbandonedCount(row.get(abandoned));
+            counts.setRunningCount(row.get(running));
+            counts.setLatestJobExecutionId(row.get(jobExecution.jobExecutionId.max()));
+            Long latestEndTime = row.get(jobExecution.endTimeMillis.max());
+            if (latestEndTime != null) {
+                counts.setLatestFinishedEndTime(new DateTime(latestEndTime));
+                counts.setLatestFinishedJobExecutionId(factory.select(jobExecution.jobExecutionId.max())
+                                                           .from(jobExecution)
+                                                           .innerJoin(jobInstance).on(jobExecution.jobInstance.jobInstanceId.eq(jobInstance.jobInstanceId))
+                                                           .where(jobInstance.feed.id.uuid.eq(feedId)
+                                                                      .and(jobExecution.endTimeMillis.eq(latestEndTime)))
+                                                           .fetchOne());
+            }
+            countsByFeed.put(feedId, counts);
+        }
+        return countsByFeed;
+    }
+
+    private NumberExpression<Long> count(BooleanExpression condition) {
+        return new CaseBuilder().when(condition).then(1L).otherwise(0L).sum();
+    }
+
+    private UUID uuid(OpsManagerFeed.ID feedId) {
+        return ((BaseJpaId) feedId).getUuid();
+    }
+
+    /**
+     * The counts a single job execution contributes to its feed
+     */
+    static class JobCounts {
+
+        private static final JobCounts NONE = new JobCounts(0, 0, 0, 0, 0);
+
+        final long all;
+        final long failed;
+        final long completed;
+        final long abandoned;
+        final long running;
+
+        JobCounts(long all, long failed, long completed, long abandoned, long running) {
+            this.all = all;
+            this.failed = failed;
+            this.completed = completed;
+            this.abandoned = abandoned;
+            this.running = running;
+        }
+
+        /**
+         * @return the counts for a job with the given status, or no counts if the status is {@code null}
+         */
+        static JobCounts of(BatchJobExecution.JobStatus status, ExecutionConstants.ExitCode exitCode) {
+            if (status == null) {
+                return NONE;
+            }
+            boolean abandoned = BatchJobExecution.JobStatus.ABANDONED.equals(status);
+            boolean failed = !abandoned && (BatchJobExecution.JobStatus.FAILED.equals(status) || ExecutionConstants.ExitCode.FAILED.equals(exitCode));
+            boolean completed = !abandoned && ExecutionConstants.ExitCode.COMPLETED.equals(exitCode);
+            boolean running = BatchJobExecution.JobStatus.STARTING.equals(status) || BatchJobExecution.JobStatus.STARTED.equals(status);
+            return new JobCounts(1, failed ? 1 : 0, completed ? 1 : 0, abandoned ? 1 : 0, running ? 1 : 0);
+        }
+
+        JobCounts plus(JobCounts other) {
+            return new JobCounts(all + other.all, failed + other.failed, completed + other.completed, abandoned + other.abandoned, running + other.running);
+        }
+
+        JobCounts minus(JobCounts other) {
+            return new JobCounts(all - other.all, failed - other.failed, completed - other.completed, abandoned - other.abandoned, running - other.running);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.UUID;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring data repository for {@link JpaFeedHealthCounts}.
+ * The counts are changed with update statements so concurrent job executions for the same feed do not overwrite each other.
+ */
+public interface FeedHealthCountsRepository extends JpaRepository<JpaFeedHealthCounts, UUID> {
+
+    /**
+     * Find the counts for a feed, locking the row until the transaction ends so the counts can not be changed by another transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select counts from JpaFeedHealthCounts as counts where counts.feedId = :feedId")
+    JpaFeedHealthCounts findForUpdate(@Param("feedId") UUID feedId);
+
+    @Modifying
+    @Query("update JpaFeedHealthCounts as counts "
+           + "set counts.allCount = counts.allCount + :allCount, "
+           + "counts.failedCount = counts.failedCount + :failedCount, "
+           + "counts.completedCount = counts.completedCount + :completedCount, "
+           + "counts.abandonedCount = counts.abandonedCount + :abandonedCount, "
+           + "counts.runningCount = counts.runningCount + :runningCount, "
+           + "counts.lastUpdated = :lastUpdated "
+           + "where counts.feedId = :feedId")
+    int incrementCounts(@Param("feedId") UUID feedId, @Param("allCount") long allCount, @Param("failedCount") long failedCount, @Param("completedCount") long completedCount,
+                        @Param("abandonedCount") long abandonedCount, @Param("runningCount") long runningCount, @Param("lastUpdated") DateTime lastUpdated);
+
+    @Modifying
+    @Query("update JpaFeedHealthCounts as counts "
+           + "set counts.latestJobExecutionId = :jobExecutionId "
+           + "where counts.feedId = :feedId "
+           + "and (counts.latestJobExecutionId is null or counts.latestJobExecutionId < :jobExecutionId)")
+    int updateLatestJobExecution(@Param("feedId") UUID feedId, @Param("jobExecutionId") Long jobExecutionId);
+
+    @Modifying
+    @Query("update JpaFeedHealthCounts as counts "
+           + "set counts.latestFinishedJobExecutionId = :jobExecutionId, "
+           + "counts.latestFinishedEndTime = :endTime "
+           + "where counts.feedId = :feedId "
+           + "and (counts.latestFinishedEndTime is null or counts.latestFinishedEndTime < :endTime "
+           + "or (counts.latestFinishedEndTime = :endTime and counts.latestFinishedJobExecutionId < :jobExecutionId))")
+    int updateLatestFinishedJobExecution(@Param("feedId") UUID feedId, @Param("jobExecutionId") Long jobExecutionId, @Param("endTime") DateTime endTime);
+
+    @Modifying
+    @Query("delete from JpaFeedHealthCounts as counts where counts.feedId = :feedId")
+    int deleteForFeed(@Param("feedId") UUID feedId);
+}
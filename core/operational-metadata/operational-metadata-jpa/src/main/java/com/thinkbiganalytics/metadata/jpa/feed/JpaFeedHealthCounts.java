@@ -0,0 +1,161 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The job counts and latest job executions for a single feed.  This table is kept up to date as job executions change status so the feed health views
+ * ({@link JpaOpsManagerFeedHealth}, {@link JpaBatchFeedSummaryCounts} and {@link JpaLatestFeedJobExecution}) do not need to aggregate the job history.
+ * Counts are for the feed's own jobs.  Check data feeds are rolled up into the feed they check by the views.
+ */
+@Entity
+@Table(name = "FEED_HEALTH")
+public class JpaFeedHealthCounts {
+
+    @Id
+    @Column(name = "FEED_ID")
+    private UUID feedId;
+
+    @Column(name = "ALL_COUNT")
+    private Long allCount = 0L;
+
+    @Column(name = "FAILED_COUNT")
+    private Long failedCount = 0L;
+
+    @Column(name = "COMPLETED_COUNT")
+    private Long completedCount = 0L;
+
+    @Column(name = "ABANDONED_COUNT")
+    private Long abandonedCount = 0L;
+
+    @Column(name = "RUNNING_COUNT")
+    private Long runningCount = 0L;
+
+    @Column(name = "LATEST_JOB_EXECUTION_ID")
+    private Long latestJobExecutionId;
+
+    @Column(name = "LATEST_FINISHED_JOB_EXECUTION_ID")
+    private Long latestFinishedJobExecutionId;
+
+    @Type(type = "com.thinkbiganalytics.jpa.PersistentDateTimeAsMillisLong")
+    @Column(name = "LATEST_FINISHED_END_TIME")
+    private DateTime latestFinishedEndTime;
+
+    @Type(type = "com.thinkbiganalytics.jpa.PersistentDateTimeAsMillisLong")
+    @Column(name = "LAST_UPDATED")
+    private DateTime lastUpdated;
+
+    public JpaFeedHealthCounts() {
+    }
+
+    public JpaFeedHealthCounts(UUID feedId) {
+        this.feedId = feedId;
+    }
+
+    public UUID getFeedId() {
+        return feedId;
+    }
+
+    public void setFeedId(UUID feedId) {
+        this.feedId = feedId;
+    }
+
+    public Long getAllCount() {
+        return allCount;
+    }
+
+    public void setAllCount(Long allCount) {
+        this.allCount = allCount;
+    }
+
+    public Long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(Long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public Long getCompletedCount() {
+        return completedCount;
+    }
+
+    public void setCompletedCount(Long completedCount) {
+        this.completedCount = completedCount;
+    }
+
+    public Long getAbandonedCount() {
+        return abandonedCount;
+    }
+
+    public void setAbandonedCount(Long abandonedCount) {
+        this.abandonedCount = abandonedCount;
+    }
+
+    public Long getRunningCount() {
+        return runningCount;
+    }
+
+    public void setRunningCount(Long runningCount) {
+        this.runningCount = runningCount;
+    }
+
+    public Long getLatestJobExecutionId() {
+        return latestJobExecutionId;
+    }
+
+    public void setLatestJobExecutionId(Long latestJobExecutionId) {
+        this.latestJobExecutionId = latestJobExecutionId;
+    }
+
+    public Long getLatestFinishedJobExecutionId() {
+        return latestFinishedJobExecutionId;
+    }
+
+    public void setLatestFinishedJobExecutionId(Long latestFinishedJobExecutionId) {
+        this.latestFinishedJobExecutionId = latestFinishedJobExecutionId;
+    }
+
+    public DateTime getLatestFinishedEndTime() {
+        return latestFinishedEndTime;
+    }
+
+    public void setLatestFinishedEndTime(DateTime latestFinishedEndTime) {
+        this.latestFinishedEndTime = latestFinishedEndTime;
+    }
+
+    public DateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(DateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+}
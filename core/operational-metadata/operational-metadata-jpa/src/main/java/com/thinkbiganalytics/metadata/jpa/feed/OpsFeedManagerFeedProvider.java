@@ -70,6 +70,9 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
     @Inject
     private AccessController controller;
 
+    @Inject
+    private FeedHealthCountsProvider feedHealthCountsProvider;
+
     /**
      * list of delete feed listeners
      **/
@@ -114,6 +117,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
 
     public void save(List<? extends OpsManagerFeed> feeds) {
         repository.save((List<JpaOpsManagerFeed>) feeds);
+        feeds.stream().forEach(feed -> feedHealthCountsProvider.ensureFeed(feed.getId()));
     }
 
     @Override
@@ -124,6 +128,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
             ((JpaOpsManagerFeed) feed).setName(systemName);
             ((JpaOpsManagerFeed) feed).setId((OpsManagerFeedId) feedManagerId);
             repository.save((JpaOpsManagerFeed) feed);
+            feedHealthCountsProvider.ensureFeed(feedManagerId);
         }
         return feed;
     }
@@ -135,6 +140,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
             log.info("Deleting feed {} ({})  and all job executions. ", feed.getName(), feed.getId());
             //first delete all jobs for this feed
             deleteFeedJobs(FeedNameUtil.category(feed.getName()), FeedNameUtil.feed(feed.getName()));
+            feedHealthCountsProvider.delete(feed.getId());
             repository.delete(feed.getId());
             //notify the listeners
             notifyOnFeedDeleted(feed);
@@ -221,19 +227,33 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
 
     /**
      * This will call the stored procedure delete_feed_jobs and remove all data, jobs, steps for the feed.
+     * The feed health counts are rebuilt as the procedure changes the jobs directly in the database.
      */
     public void deleteFeedJobs(String category, String feed) {
         repository.deleteFeedJobs(category, feed);
+        rebuildFeedHealthCounts(findByName(FeedNameUtil.fullName(category, feed)));
     }
 
     /**
      * This will call the stored procedure abandon_feed_jobs
+     * The feed health counts are rebuilt for the feed and its check data feeds as the procedure changes the jobs directly in the database.
      */
     public void abandonFeedJobs(String feed) {
 
         String exitMessage = String.format("Job manually abandoned @ %s", DateTimeUtil.getNowFormattedWithTimeZone());
 
         repository.abandonFeedJobs(feed, exitMessage);
+        OpsManagerFeed opsManagerFeed = findByName(feed);
+        rebuildFeedHealthCounts(opsManagerFeed);
+        if (opsManagerFeed instanceof JpaOpsManagerFeed) {
+            ((JpaOpsManagerFeed) opsManagerFeed).getCheckDataFeeds().stream().forEach(checkDataFeed -> rebuildFeedHealthCounts(checkDataFeed));
+        }
+    }
+
+    private void rebuildFeedHealthCounts(OpsManagerFeed feed) {
+        if (feed != null) {
+            feedHealthCountsProvider.rebuild(feed.getId());
+        }
     }
 
 
@@ -23,6 +23,7 @@ package com.thinkbiganalytics.metadata.jpa.feed.security;
  * #L%
  */
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -38,4 +39,10 @@ public class FeedOpsAccessControlConfig {
     public FeedOpsAccessControlProvider feedOpsAccessControlProvider() {
         return new JpaFeedOpsAccessControlProvider();
     }
+
+    @Bean
+    public FeedOpsAclMembershipProjection feedOpsAclMembershipProjection(@Value("${kylo.ops.mgr.feed.acl.projection.max-principal-sets:1000}") long maxPrincipalSets,
+                                                                         @Value("${kylo.ops.mgr.feed.acl.projection.expire-seconds:300}") long expireSeconds) {
+        return new FeedOpsAclMembershipProjection(maxPrincipalSets, expireSeconds);
+    }
 }
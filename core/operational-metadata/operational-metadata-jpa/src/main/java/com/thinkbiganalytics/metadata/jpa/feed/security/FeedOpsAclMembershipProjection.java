@@ -0,0 +1,409 @@
+package com.thinkbiganalytics.metadata.jpa.feed.security;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.cluster.ClusterMessage;
+import com.thinkbiganalytics.cluster.ClusterService;
+import com.thinkbiganalytics.cluster.ClusterServiceMessageReceiver;
+import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry.PrincipalType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Materialized projection of the FEED_ACL_INDEX table from a set of principals to the ids of the feeds those principals may access.
+ * <p>
+ * Securing a query by joining it to {@link JpaFeedOpsAclEntry} matches the user name and every one of the user's groups against the index
+ * for each row of the query. The projection resolves that match once for each distinct set of principals, so secured queries only need a
+ * predicate on the feed id. A resolved set is invalidated when index entries for any of its principals change, both when the change is made
+ * and when its transaction completes. The user name and groups together form the key, so a change in group membership resolves a new set.
+ * <p>
+ * Each node holds its own projection. When a transaction changing the index completes, the principals and feeds it changed are sent to the
+ * other nodes in the cluster so they invalidate the same sets. Resolved sets also expire after {@code kylo.ops.mgr.feed.acl.projection.expire-seconds},
+ * which bounds how long a node that misses a message can keep a stale set.
+ * <p>
+ * Matching a feed id against a long list of ids costs more than the indexed join, so the projection is only used for principals that can
+ * access at most {@code kylo.ops.mgr.feed.acl.projection.max-feeds} feeds. It is disabled unless {@code kylo.ops.mgr.feed.acl.projection.enabled}
+ * is set.
+ */
+public class FeedOpsAclMembershipProjection implements ClusterServiceMessageReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedOpsAclMembershipProjection.class);
+
+    /**
+     * Cluster message type for the principals and feeds whose index entries were changed on another node
+     */
+    public static final String INVALIDATED_MESSAGE_TYPE = "FEED_ACL_PROJECTION_INVALIDATED";
+
+    /**
+     * Placeholder used when a user has no groups, so the resolving query never has an empty {@code in} clause
+     */
+    private static final Set<String> NO_GROUPS = Collections.singleton("NULL");
+
+    /**
+     * The registered projection, used by the query augmentors and index entries which are not managed by Spring
+     */
+    private static volatile FeedOpsAclMembershipProjection instance;
+
+    /**
+     * Resolved feed ids by principal set
+     */
+    private final Cache<PrincipalSet, Set<UUID>> memberships;
+
+    /**
+     * Incremented on every invalidation so that a set resolved while index entries are changing is not cached
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Inject
+    private JPAQueryFactory factory;
+
+    @Autowired(required = false)
+    private ClusterService clusterService;
+
+    @Value("${kylo.ops.mgr.feed.acl.projection.enabled:false}")
+    private boolean enabled;
+
+    @Value("${kylo.ops.mgr.feed.acl.projection.max-feeds:100}")
+    private int maxFeeds = 100;
+
+    public FeedOpsAclMembershipProjection() {
+        this(1000, 300);
+    }
+
+    public FeedOpsAclMembershipProjection(long maxPrincipalSets, long expireSeconds) {
+        this(maxPrincipalSets, expireSeconds, Ticker.systemTicker());
+    }
+
+    FeedOpsAclMembershipProjection(long maxPrincipalSets, long expireSeconds, Ticker ticker) {
+        this.memberships = CacheBuilder.newBuilder()
+            .maximumSize(maxPrincipalSets)
+            .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build();
+    }
+
+    /**
+     * Gets the projection to use for securing queries.
+     *
+     * @return the projection, or {@code null} if queries should match against the index directly
+     */
+    @Nullable
+    public static FeedOpsAclMembershipProjection getInstance() {
+        FeedOpsAclMembershipProjection projection = instance;
+        return (projection != null && projection.isEnabled()) ? projection : null;
+    }
+
+    /**
+     * Invalidates the principal sets affected by an index entry that is being added or removed.
+     *
+     * @param entryId the id of the index entry
+     */
+    public static void entryChanged(JpaFeedOpsAclEntry.EntryId entryId) {
+        FeedOpsAclMembershipProjection projection = instance;
+        if (projection != null && entryId != null) {
+            String name = entryId.getPrincipalName();
+            PrincipalType type = entryId.getPrincipalType();
+            projection.invalidate((principals, feedIds) -> principals.contains(name, type), Invalidation.ofPrincipals(Collections.singleton(name)));
+        }
+    }
+
+    /**
+     * Invalidates the principal sets containing any of the specified principals, regardless of their type.
+     *
+     * @param principalNames the names of the users or groups whose index entries have changed
+     */
+    public static void principalsChanged(Set<String> principalNames) {
+        FeedOpsAclMembershipProjection projection = instance;
+        if (projection != null) {
+            projection.invalidate((principals, feedIds) -> principals.containsAny(principalNames), Invalidation.ofPrincipals(principalNames));
+        }
+    }
+
+    /**
+     * Invalidates the principal sets with access to the specified feed.
+     *
+     * @param feedId the id of the feed whose index entries have changed
+     */
+    public static void feedChanged(UUID feedId) {
+        FeedOpsAclMembershipProjection projection = instance;
+        if (projection != null) {
+            projection.invalidate((principals, feedIds) -> feedIds.contains(feedId), Invalidation.ofFeed(feedId));
+        }
+    }
+
+    @PostConstruct
+    public void register() {
+        instance = this;
+        if (clusterService != null) {
+            clusterService.subscribe(this);
+        }
+    }
+
+    @PreDestroy
+    public void unregister() {
+        if (instance == this) {
+            instance = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the maximum number of accessible feeds for which queries should match feed ids instead of joining to the index.
+     */
+    public int getMaxFeeds() {
+        return maxFeeds;
+    }
+
+    public void setMaxFeeds(int maxFeeds) {
+        this.maxFeeds = maxFeeds;
+    }
+
+    /**
+     * Gets the ids of the feeds accessible to the specified user or any of the user's groups.
+     *
+     * @param userName the name of the user
+     * @param groups   the names of the user's groups
+     * @return the accessible feed ids
+     */
+    public Set<UUID> getAccessibleFeedIds(String userName, Set<String> groups) {
+        PrincipalSet principals = new PrincipalSet(userName, groups);
+        Set<UUID> feedIds = memberships.getIfPresent(principals);
+
+        if (feedIds == null) {
+            long resolvedGeneration = generation.get();
+            feedIds = Collections.unmodifiableSet(new HashSet<>(findFeedIds(userName, groups.isEmpty() ? NO_GROUPS : groups)));
+            log.debug("Resolved {} accessible feeds for user {} with {} groups", feedIds.size(), userName, groups.size());
+
+            synchronized (this) {
+                if (generation.get() == resolvedGeneration) {
+                    memberships.put(principals, feedIds);
+                }
+            }
+        }
+
+        return feedIds;
+    }
+
+    /**
+     * Queries the index for the feeds accessible to the specified principals.
+     */
+    List<UUID> findFeedIds(String userName, Set<String> groups) {
+        QJpaFeedOpsAclEntry acl = QJpaFeedOpsAclEntry.jpaFeedOpsAclEntry;
+        return factory.select(acl.feedId)
+            .distinct()
+            .from(acl)
+            .where(acl.principalType.eq(PrincipalType.USER).and(acl.principalName.eq(userName))
+                       .or(acl.principalType.eq(PrincipalType.GROUP).and(acl.principalName.in(groups))))
+            .fetch();
+    }
+
+    /**
+     * Removes all resolved principal sets.
+     */
+    public void invalidateAll() {
+        evict((principals, feedIds) -> true);
+    }
+
+    /**
+     * Invalidates the principal sets changed on another node in the cluster.
+     *
+     * @param from    cluster address sending the message
+     * @param message the message
+     */
+    @Override
+    public void onMessageReceived(String from, ClusterMessage message) {
+        if (INVALIDATED_MESSAGE_TYPE.equalsIgnoreCase(message.getType())) {
+            evict(((Invalidation) message.getMessage())::affects);
+        }
+    }
+
+    /**
+     * Removes the affected principal sets now and again once the current transaction completes. The second eviction drops any set resolved
+     * by another transaction before the change was committed, or any set resolved from the change if it was rolled back. The change is sent
+     * to the other nodes in the cluster once the transaction completes, together with any other changes made by the transaction.
+     */
+    private void invalidate(BiPredicate<PrincipalSet, Set<UUID>> affected, Invalidation change) {
+        evict(affected);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(affected);
+                }
+            });
+
+            if (isPublishing()) {
+                Invalidation pending = (Invalidation) TransactionSynchronizationManager.getResource(this);
+                if (pending == null) {
+                    pending = bindTransactionInvalidation();
+                }
+                pending.add(change);
+            }
+        } else if (isPublishing()) {
+            publish(change);
+        }
+    }
+
+    /**
+     * Collects the changes made by the current transaction and sends them to the cluster once it completes.
+     */
+    private Invalidation bindTransactionInvalidation() {
+        Invalidation pending = new Invalidation();
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(FeedOpsAclMembershipProjection.this);
+                publish(pending);
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Indicates whether invalidations should be sent to the other nodes in the cluster.
+     */
+    private boolean isPublishing() {
+        return enabled && clusterService != null;
+    }
+
+    /**
+     * Sends the changed principals and feeds to the other nodes in the cluster.
+     */
+    private void publish(Invalidation change) {
+        try {
+            if (clusterService.isClustered()) {
+                clusterService.sendMessageToOthers(INVALIDATED_MESSAGE_TYPE, change);
+            }
+        } catch (Exception e) {
+            log.warn("Unable to notify the cluster of changed feed ACL entries. Other nodes may use stale feed ids for up to the expiry time.", e);
+        }
+    }
+
+    private synchronized void evict(BiPredicate<PrincipalSet, Set<UUID>> affected) {
+        generation.incrementAndGet();
+        memberships.asMap().entrySet().removeIf(entry -> affected.test(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * The principals and feeds whose index entries have changed.
+     */
+    static final class Invalidation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<String> principalNames = new HashSet<>();
+        private final Set<UUID> feedIds = new HashSet<>();
+
+        static Invalidation ofPrincipals(Set<String> principalNames) {
+            Invalidation invalidation = new Invalidation();
+            invalidation.principalNames.addAll(principalNames);
+            return invalidation;
+        }
+
+        static Invalidation ofFeed(UUID feedId) {
+            Invalidation invalidation = new Invalidation();
+            invalidation.feedIds.add(feedId);
+            return invalidation;
+        }
+
+        void add(Invalidation other) {
+            principalNames.addAll(other.principalNames);
+            feedIds.addAll(other.feedIds);
+        }
+
+        boolean affects(PrincipalSet principals, Set<UUID> accessibleFeedIds) {
+            return principals.containsAny(principalNames) || feedIds.stream().anyMatch(accessibleFeedIds::contains);
+        }
+    }
+
+    /**
+     * A user name together with the names of the user's groups.
+     */
+    private static final class PrincipalSet {
+
+        private final String userName;
+        private final Set<String> groups;
+
+        PrincipalSet(String userName, Set<String> groups) {
+            this.userName = userName;
+            this.groups = new HashSet<>(groups);
+        }
+
+        boolean contains(String name, PrincipalType type) {
+            return type == PrincipalType.GROUP ? groups.contains(name) : Objects.equals(userName, name);
+        }
+
+        boolean containsAny(Set<String> names) {
+            return names.contains(userName) || names.stream().anyMatch(groups::contains);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PrincipalSet)) {
+                return false;
+            }
+            PrincipalSet that = (PrincipalSet) obj;
+            return Objects.equals(userName, that.userName) && groups.equals(that.groups);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userName, groups);
+        }
+    }
+}
@@ -110,6 +110,7 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
                         .map(Principal::getName)
                         .collect(Collectors.toSet());
         this.repository.deleteForPrincipals(principalNames);
+        FeedOpsAclMembershipProjection.principalsChanged(principalNames);
     }
 
     /* (non-Javadoc)
@@ -121,6 +122,7 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
                         .map(Principal::getName)
                         .collect(Collectors.toSet());
         this.repository.deleteForPrincipals(principalNames);
+        FeedOpsAclMembershipProjection.principalsChanged(principalNames);
     }
 
     /* (non-Javadoc)
@@ -128,7 +130,9 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
      */
     @Override
     public void revokeAllAccess(ID feedId) {
-        this.repository.deleteForFeed(UUID.fromString(feedId.toString()));
+        UUID uuid = UUID.fromString(feedId.toString());
+        this.repository.deleteForFeed(uuid);
+        FeedOpsAclMembershipProjection.feedChanged(uuid);
     }
 
     /* (non-Javadoc)
@@ -37,6 +37,8 @@ import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
 import javax.persistence.Table;
 
 import com.thinkbiganalytics.metadata.api.feed.Feed;
@@ -102,6 +104,15 @@ public class JpaFeedOpsAclEntry {
         this.feed = feed;
     }
 
+    /**
+     * Bulk deletes bypass this callback and must notify the projection themselves.
+     */
+    @PrePersist
+    @PreRemove
+    protected void invalidateMembership() {
+        FeedOpsAclMembershipProjection.entryChanged(this.id);
+    }
+
     public static class EntryId implements Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -142,6 +153,14 @@ public class JpaFeedOpsAclEntry {
             this.principalName = principalName;
         }
 
+        public PrincipalType getPrincipalType() {
+            return principalType;
+        }
+
+        public void setPrincipalType(PrincipalType principalType) {
+            this.principalType = principalType;
+        }
+
         @Override
         public int hashCode() {
             return Objects.hash(getUuid(), getPrincipalName());
@@ -0,0 +1,217 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks keyed on the job flow file id.
+ *
+ * Events for the same job always map to the same lock so they are processed one at a time, while events for unrelated jobs are spread across the stripes and can proceed concurrently.
+ *
+ * A thread that already holds a stripe will only wait for a stripe with a higher index.  If it needs a lower stripe that is in use it fails immediately with a {@link CannotAcquireLockException}
+ * rather than waiting, so two threads locking several jobs in different orders can't deadlock.
+ */
+public class JobExecutionLocks {
+
+    private final ReentrantLock[] locks;
+
+    private final long timeoutMillis;
+
+    private final LongAdder acquisitions = new LongAdder();
+
+    private final LongAdder contendedAcquisitions = new LongAdder();
+
+    private final LongAdder failedAcquisitions = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param stripes       the number of locks to spread the job flow files across
+     * @param timeoutMillis the maximum time to wait for a lock
+     */
+    public JobExecutionLocks(int stripes, long timeoutMillis) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of lock stripes must be greater than 0");
+        }
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Acquire the lock for the given job flow file, waiting up to the configured timeout if another thread holds it.
+     *
+     * @param jobFlowFileId the job flow file id
+     * @throws CannotAcquireLockException if the lock could not be acquired
+     */
+    public void lock(String jobFlowFileId) {
+        int index = indexFor(jobFlowFileId);
+        ReentrantLock lock = locks[index];
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+        contendedAcquisitions.increment();
+        if (holdsHigherStripe(index)) {
+            failedAcquisitions.increment();
+            throw new CannotAcquireLockException("Unable to lock job flow file " + jobFlowFileId + " while holding the lock for another job.");
+        }
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            recordWait(System.nanoTime() - start);
+        }
+        if (!acquired) {
+            failedAcquisitions.increment();
+            throw new CannotAcquireLockException("Timed out after " + timeoutMillis + " ms waiting to lock job flow file " + jobFlowFileId);
+        }
+    }
+
+    /**
+     * Release the lock for the given job flow file.  This must be called by the thread that acquired it.
+     *
+     * @param jobFlowFileId the job flow file id
+     */
+    public void unlock(String jobFlowFileId) {
+        locks[indexFor(jobFlowFileId)].unlock();
+    }
+
+    /**
+     * Check whether the current thread holds the lock for the given job flow file
+     *
+     * @param jobFlowFileId the job flow file id
+     * @return {@code true} if the current thread holds the lock
+     */
+    public boolean isHeldByCurrentThread(String jobFlowFileId) {
+        return locks[indexFor(jobFlowFileId)].isHeldByCurrentThread();
+    }
+
+    /**
+     * Return a snapshot of the lock contention counters
+     *
+     * @return the current statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(locks.length, acquisitions.sum(), contendedAcquisitions.sum(), failedAcquisitions.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    private int indexFor(String jobFlowFileId) {
+        int hash = jobFlowFileId != null ? jobFlowFileId.hashCode() : 0;
+        // spread the bits so similar ids don't cluster on the same stripes
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % locks.length;
+    }
+
+    private boolean holdsHigherStripe(int index) {
+        for (int i = index + 1; i < locks.length; i++) {
+            if (locks[i].isHeldByCurrentThread()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Point in time counts of how often the job locks were contended
+     */
+    public static class Statistics {
+
+        private final int stripes;
+        private final long acquisitions;
+        private final long contendedAcquisitions;
+        private final long failedAcquisitions;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        public Statistics(int stripes, long acquisitions, long contendedAcquisitions, long failedAcquisitions, long totalWaitNanos, long maxWaitNanos) {
+            this.stripes = stripes;
+            this.acquisitions = acquisitions;
+            this.contendedAcquisitions = contendedAcquisitions;
+            this.failedAcquisitions = failedAcquisitions;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        /**
+         * @return the number of times a lock was requested
+         */
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        /**
+         * @return the number of times a lock was already held by another thread when requested
+         */
+        public long getContendedAcquisitions() {
+            return contendedAcquisitions;
+        }
+
+        /**
+         * @return the number of times a lock could not be acquired
+         */
+        public long getFailedAcquisitions() {
+            return failedAcquisitions;
+        }
+
+        public long getTotalWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos);
+        }
+
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "JobExecutionLocks.Statistics{" +
+                   "stripes=" + stripes +
+                   ", acquisitions=" + acquisitions +
+                   ", contendedAcquisitions=" + contendedAcquisitions +
+                   ", failedAcquisitions=" + failedAcquisitions +
+                   ", totalWaitMillis=" + getTotalWaitMillis() +
+                   ", maxWaitMillis=" + getMaxWaitMillis() +
+                   '}';
+        }
+    }
+}
@@ -57,8 +57,10 @@ import javax.persistence.ManyToOne;
 import javax.persistence.NamedNativeQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.PostLoad;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
+import javax.persistence.Transient;
 import javax.persistence.Version;
 
 /**
@@ -174,6 +176,15 @@ public class JpaBatchJobExecution implements BatchJobExecution {
     @OneToOne(targetEntity = JpaNifiEventJobExecution.class, mappedBy = "jobExecution", cascade = CascadeType.ALL, fetch = FetchType.LAZY, optional = false)
     private NifiEventJobExecution nifiEventJobExecution;
 
+    /**
+     * The status and exit code already included in the feed health counts.  Both are {@code null} for a new job that has not been counted.
+     */
+    @Transient
+    private JobStatus countedStatus;
+
+    @Transient
+    private ExecutionConstants.ExitCode countedExitCode;
+
 
     public JpaBatchJobExecution() {
 
@@ -554,6 +565,37 @@ public class JpaBatchJobExecution implements BatchJobExecution {
 
     }
 
+    /**
+     * Jobs read from the database are already included in the feed health counts
+     */
+    @PostLoad
+    private void markLoadedStatusCounted() {
+        markStatusCounted();
+    }
+
+    /**
+     * Record the current status as being included in the feed health counts
+     */
+    public void markStatusCounted() {
+        this.countedStatus = status;
+        this.countedExitCode = exitCode;
+    }
+
+    /**
+     * @return {@code true} if the status or exit code has changed since it was included in the feed health counts
+     */
+    public boolean isCountedStatusChanged() {
+        return countedStatus == null || countedStatus != status || countedExitCode != exitCode;
+    }
+
+    public JobStatus getCountedStatus() {
+        return countedStatus;
+    }
+
+    public ExecutionConstants.ExitCode getCountedExitCode() {
+        return countedExitCode;
+    }
+
     /**
      * A job execution equals another job execution based upon its primary key of the {@link this#jobExecutionId}
      *
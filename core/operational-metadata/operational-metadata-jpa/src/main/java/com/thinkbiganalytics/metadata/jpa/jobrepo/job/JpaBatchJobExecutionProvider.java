@@ -44,6 +44,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEvent;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecutionProvider;
 import com.thinkbiganalytics.metadata.config.RoleSetExposingSecurityExpressionRoot;
 import com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentor;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedHealthCountsProvider;
 import com.thinkbiganalytics.metadata.jpa.feed.JpaOpsManagerFeed;
 import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedRepository;
 import com.thinkbiganalytics.metadata.jpa.feed.QJpaOpsManagerFeed;
@@ -68,11 +69,15 @@ import org.joda.time.ReadablePeriod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
@@ -86,6 +91,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.persistence.OptimisticLockException;
 
@@ -122,6 +128,23 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
     @Inject
     private AccessController controller;
 
+    @Inject
+    private FeedHealthCountsProvider feedHealthCountsProvider;
+
+    /**
+     * Number of locks the job flow files are spread across when creating or updating job executions
+     */
+    @Value("${kylo.ops.mgr.job.lock.stripes:64}")
+    private int jobLockStripes = 64;
+
+    /**
+     * Maximum time to wait for another thread to finish with the same job
+     */
+    @Value("${kylo.ops.mgr.job.lock.timeout.millis:30000}")
+    private long jobLockTimeoutMillis = 30000L;
+
+    private JobExecutionLocks jobExecutionLocks;
+
     @Autowired
     public JpaBatchJobExecutionProvider(BatchJobExecutionRepository jobExecutionRepository, BatchJobInstanceRepository jobInstanceRepository,
                                         NifiRelatedRootFlowFilesRepository relatedRootFlowFilesRepository,
@@ -137,6 +160,11 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     }
 
+    @PostConstruct
+    private void init() {
+        jobExecutionLocks = new JobExecutionLocks(jobLockStripes, jobLockTimeoutMillis);
+    }
+
 
     @Override
     public BatchJobInstance createJobInstance(ProvenanceEventRecordDTO event) {
@@ -362,9 +390,56 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     /**
      * Get or Create the JobExecution for a given ProvenanceEvent
+     *
+     * Events for the same job are serialized on a lock for the job flow file.  When called within a transaction the lock is held until the transaction completes so a concurrent event for
+     * the same job will see the committed job execution rather than creating a second one.
      */
     @Override
-    public synchronized JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
+    public JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
+        String jobFlowFileId = event.getJobFlowFileId();
+        try {
+            jobExecutionLocks.lock(jobFlowFileId);
+        } catch (CannotAcquireLockException e) {
+            log.warn("Unable to lock job flow file {} for event {}. Job lock statistics: {} ", jobFlowFileId, event.getEventId(), jobExecutionLocks.getStatistics());
+            throw e;
+        }
+        boolean releaseOnCompletion = false;
+        try {
+            releaseOnCompletion = releaseLockOnTransactionCompletion(jobFlowFileId);
+            return doGetOrCreateJobExecution(event);
+        } finally {
+            if (!releaseOnCompletion) {
+                jobExecutionLocks.unlock(jobFlowFileId);
+            }
+        }
+    }
+
+    /**
+     * If a transaction is active, release the job flow file lock once it has committed or rolled back
+     *
+     * @return {@code true} if the lock will be released when the transaction completes, {@code false} if the caller needs to release it
+     */
+    private boolean releaseLockOnTransactionCompletion(String jobFlowFileId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    jobExecutionLocks.unlock(jobFlowFileId);
+                }
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the contention counters for the locks taken when creating and updating job executions
+     */
+    public JobExecutionLocks.Statistics getJobExecutionLockStatistics() {
+        return jobExecutionLocks.getStatistics();
+    }
+
+    private JpaBatchJobExecution doGetOrCreateJobExecution(ProvenanceEventRecordDTO event) {
         JpaBatchJobExecution jobExecution = null;
         boolean isNew = false;
         try {
@@ -403,10 +478,27 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         }
         if (save) {
             jobExecutionRepository.save(jobExecution);
+            updateFeedHealthCounts(jobExecution);
         }
         return jobExecution;
     }
 
+    /**
+     * Apply a change in the status of a job to the health counts of its feed.  This is done in the same transaction as the job execution is saved.
+     *
+     * @param jobExecution the job execution that was saved
+     */
+    private void updateFeedHealthCounts(JpaBatchJobExecution jobExecution) {
+        if (!jobExecution.isCountedStatusChanged()) {
+            return;
+        }
+        OpsManagerFeed feed = jobExecution.getJobInstance() != null ? jobExecution.getJobInstance().getFeed() : null;
+        if (feed != null) {
+            feedHealthCountsProvider.jobExecutionChanged(feed.getId(), jobExecution, jobExecution.getCountedStatus(), jobExecution.getCountedExitCode());
+        }
+        jobExecution.markStatusCounted();
+    }
+
     @Override
     public BatchJobExecution save(BatchJobExecution jobExecution, ProvenanceEventRecordDTO event, NifiEvent nifiEvent) {
         if (jobExecution == null) {
@@ -441,7 +533,13 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
      */
     @Override
     public BatchJobExecution save(BatchJobExecution jobExecution) {
-        return jobExecutionRepository.save((JpaBatchJobExecution) jobExecution);
+        JpaBatchJobExecution savedJobExecution = jobExecutionRepository.save((JpaBatchJobExecution) jobExecution);
+        updateFeedHealthCounts((JpaBatchJobExecution) jobExecution);
+        if (savedJobExecution != jobExecution) {
+            //a detached job was merged into a new instance
+            savedJobExecution.markStatusCounted();
+        }
+        return savedJobExecution;
     }
 
     @Override
@@ -26,6 +26,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEvent;
 import org.hibernate.annotations.Parameter;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
+import org.springframework.data.domain.Persistable;
 
 import java.io.Serializable;
 
@@ -34,13 +35,14 @@ import javax.persistence.Embeddable;
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 /**
  * Entity to store the NiFi Provenance Events
  */
 @Entity
 @Table(name = "NIFI_EVENT")
-public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent {
+public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent, Persistable<JpaNifiEvent.NiFiEventPK> {
 
     @Column(name = "CLUSTER_NODE_ID")
     protected String clusterNodeId;
@@ -104,6 +106,12 @@ public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent {
     @Column(name = "FLOW_FILE_ID", insertable = false, updatable = false)
     private String flowFileId;
 
+    /**
+     * flag indicating this event has not been stored yet and should be inserted without first checking for an existing row
+     */
+    @Transient
+    private boolean newEvent;
+
 
     public JpaNifiEvent() {
 
@@ -117,6 +125,23 @@ public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent {
         this.eventPK = eventPK;
     }
 
+    @Override
+    public NiFiEventPK getId() {
+        return eventPK;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEvent;
+    }
+
+    /**
+     * Mark this event as one that does not exist yet so saving it will insert rather than merge
+     */
+    public void markNew() {
+        this.newEvent = true;
+    }
+
     @Override
     public Long getEventId() {
         return eventPK.getEventId();
@@ -93,6 +93,9 @@ public class JpaNifiFeedProcessorStats implements NifiFeedProcessorStats {
     private DateTime collectionTime;
     @Column(name = "COLLECTION_ID")
     private String collectionId;
+    @Type(type = "yes_no")
+    @Column(name = "ROLLED_UP")
+    private boolean rolledUp;
 
 
     public JpaNifiFeedProcessorStats(String feedName, String processorId) {
@@ -345,4 +348,15 @@ public class JpaNifiFeedProcessorStats implements NifiFeedProcessorStats {
     public void setClusterNodeAddress(String clusterNodeAddress) {
         this.clusterNodeAddress = clusterNodeAddress;
     }
+
+    /**
+     * @return true if these stats have been added to the minute rollup buckets
+     */
+    public boolean isRolledUp() {
+        return rolledUp;
+    }
+
+    public void setRolledUp(boolean rolledUp) {
+        this.rolledUp = rolledUp;
+    }
 }
@@ -0,0 +1,372 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * {@link JpaNifiFeedProcessorStats} summed for a feed and processor over a minute, hour or day.
+ * Raw stats are assigned to the bucket containing their min event time.  Hours are rolled up from minutes and days from hours.
+ */
+@Entity
+@Table(name = "NIFI_FEED_PROCESSOR_STATS_ROLLUP")
+public class JpaNifiFeedProcessorStatsRollup {
+
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @Column(name = "ID", unique = true)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ROLLUP_LEVEL")
+    private Level level;
+
+    @Type(type = "com.thinkbiganalytics.jpa.PersistentDateTimeAsMillisLong")
+    @Column(name = "BUCKET_START")
+    private DateTime bucketStart;
+
+    @Column(name = "FM_FEED_NAME")
+    private String feedName;
+
+    @Column(name = "NIFI_PROCESSOR_ID")
+    private String processorId;
+
+    @Column(name = "PROCESSOR_NAME")
+    private String processorName;
+
+    @Column(name = "TOTAL_EVENTS")
+    private Long totalCount = 0L;
+
+    @Column(name = "DURATION_MILLIS")
+    private Long duration = 0L;
+
+    @Column(name = "BYTES_IN")
+    private Long bytesIn = 0L;
+
+    @Column(name = "BYTES_OUT")
+    private Long bytesOut = 0L;
+
+    @Type(type = "com.thinkbiganalytics.jpa.PersistentDateTimeAsMillisLong")
+    @Column(name = "MIN_EVENT_TIME")
+    private DateTime minEventTime;
+
+    @Type(type = "com.thinkbiganalytics.jpa.PersistentDateTimeAsMillisLong")
+    @Column(name = "MAX_EVENT_TIME")
+    private DateTime maxEventTime;
+
+    @Column(name = "JOBS_STARTED")
+    private Long jobsStarted = 0L;
+
+    @Column(name = "JOBS_FINISHED")
+    private Long jobsFinished = 0L;
+
+    @Column(name = "JOBS_FAILED")
+    private Long jobsFailed = 0L;
+
+    @Column(name = "JOB_DURATION")
+    private Long jobDuration = 0L;
+
+    @Column(name = "SUCCESSFUL_JOB_DURATION")
+    private Long successfulJobDuration = 0L;
+
+    @Column(name = "PROCESSORS_FAILED")
+    private Long processorsFailed = 0L;
+
+    @Column(name = "FLOW_FILES_STARTED")
+    private Long flowFilesStarted = 0L;
+
+    @Column(name = "FLOW_FILES_FINISHED")
+    private Long flowFilesFinished = 0L;
+
+    @Column(name = "MAX_EVENT_ID")
+    private Long maxEventId = 0L;
+
+    public JpaNifiFeedProcessorStatsRollup() {
+    }
+
+    public JpaNifiFeedProcessorStatsRollup(Level level, DateTime bucketStart, String feedName, String processorId, String processorName) {
+        this.level = level;
+        this.bucketStart = bucketStart;
+        this.feedName = feedName;
+        this.processorId = processorId;
+        this.processorName = processorName;
+    }
+
+    /**
+     * Add the stats to this bucket
+     *
+     * @param stats raw stats, or a rollup from a finer level, that fall within this bucket
+     */
+    public void add(NifiFeedProcessorStats stats) {
+        totalCount += value(stats.getTotalCount());
+        duration += value(stats.getDuration());
+        bytesIn += value(stats.getBytesIn());
+        bytesOut += value(stats.getBytesOut());
+        jobsStarted += value(stats.getJobsStarted());
+        jobsFinished += value(stats.getJobsFinished());
+        jobsFailed += value(stats.getJobsFailed());
+        jobDuration += value(stats.getJobDuration());
+        successfulJobDuration += value(stats.getSuccessfulJobDuration());
+        processorsFailed += value(stats.getProcessorsFailed());
+        flowFilesStarted += value(stats.getFlowFilesStarted());
+        flowFilesFinished += value(stats.getFlowFilesFinished());
+        maxEventId = Math.max(maxEventId, value(stats.getMaxEventId()));
+        if (stats.getMinEventTime() != null && (minEventTime == null || stats.getMinEventTime().isBefore(minEventTime))) {
+            minEventTime = stats.getMinEventTime();
+        }
+        if (stats.getMaxEventTime() != null && (maxEventTime == null || stats.getMaxEventTime().isAfter(maxEventTime))) {
+            maxEventTime = stats.getMaxEventTime();
+        }
+    }
+
+    private static long value(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public DateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(DateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public String getFeedName() {
+        return feedName;
+    }
+
+    public void setFeedName(String feedName) {
+        this.feedName = feedName;
+    }
+
+    public String getProcessorId() {
+        return processorId;
+    }
+
+    public void setProcessorId(String processorId) {
+        this.processorId = processorId;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public void setProcessorName(String processorName) {
+        this.processorName = processorName;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Long duration) {
+        this.duration = duration;
+    }
+
+    public Long getBytesIn() {
+        return bytesIn;
+    }
+
+    public void setBytesIn(Long bytesIn) {
+        this.bytesIn = bytesIn;
+    }
+
+    public Long getBytesOut() {
+        return bytesOut;
+    }
+
+    public void setBytesOut(Long bytesOut) {
+        this.bytesOut = bytesOut;
+    }
+
+    public DateTime getMinEventTime() {
+        return minEventTime;
+    }
+
+    public void setMinEventTime(DateTime minEventTime) {
+        this.minEventTime = minEventTime;
+    }
+
+    public DateTime getMaxEventTime() {
+        return maxEventTime;
+    }
+
+    public void setMaxEventTime(DateTime maxEventTime) {
+        this.maxEventTime = maxEventTime;
+    }
+
+    public Long getJobsStarted() {
+        return jobsStarted;
+    }
+
+    public void setJobsStarted(Long jobsStarted) {
+        this.jobsStarted = jobsStarted;
+    }
+
+    public Long getJobsFinished() {
+        return jobsFinished;
+    }
+
+    public void setJobsFinished(Long jobsFinished) {
+        this.jobsFinished = jobsFinished;
+    }
+
+    public Long getJobsFailed() {
+        return jobsFailed;
+    }
+
+    public void setJobsFailed(Long jobsFailed) {
+        this.jobsFailed = jobsFailed;
+    }
+
+    public Long getJobDuration() {
+        return jobDuration;
+    }
+
+    public void setJobDuration(Long jobDuration) {
+        this.jobDuration = jobDuration;
+    }
+
+    public Long getSuccessfulJobDuration() {
+        return successfulJobDuration;
+    }
+
+    public void setSuccessfulJobDuration(Long successfulJobDuration) {
+        this.successfulJobDuration = successfulJobDuration;
+    }
+
+    public Long getProcessorsFailed() {
+        return processorsFailed;
+    }
+
+    public void setProcessorsFailed(Long processorsFailed) {
+        this.processorsFailed = processorsFailed;
+    }
+
+    public Long getFlowFilesStarted() {
+        return flowFilesStarted;
+    }
+
+    public void setFlowFilesStarted(Long flowFilesStarted) {
+        this.flowFilesStarted = flowFilesStarted;
+    }
+
+    public Long getFlowFilesFinished() {
+        return flowFilesFinished;
+    }
+
+    public void setFlowFilesFinished(Long flowFilesFinished) {
+        this.flowFilesFinished = flowFilesFinished;
+    }
+
+    public Long getMaxEventId() {
+        return maxEventId;
+    }
+
+    public void setMaxEventId(Long maxEventId) {
+        this.maxEventId = maxEventId;
+    }
+
+    /**
+     * The size of a rollup bucket.  Buckets are aligned to UTC.
+     */
+    public enum Level {
+        MINUTE(60 * 1000L), HOUR(MINUTE.millis * 60), DAY(HOUR.millis * 24);
+
+        private final long millis;
+
+        Level(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return the next finer level, or null if stats finer than this level are the raw stats
+         */
+        public Level finer() {
+            return ordinal() == 0 ? null : values()[ordinal() - 1];
+        }
+
+        /**
+         * @return the next coarser level, or null if this is the coarsest level
+         */
+        public Level coarser() {
+            return ordinal() + 1 < values().length ? values()[ordinal() + 1] : null;
+        }
+
+        /**
+         * @return the start of the bucket containing the time
+         */
+        public DateTime floor(DateTime time) {
+            long t = time.getMillis();
+            return new DateTime(t - Math.floorMod(t, millis), DateTimeZone.UTC);
+        }
+
+        /**
+         * @return the start of the first bucket at or after the time
+         */
+        public DateTime ceiling(DateTime time) {
+            DateTime floor = floor(time);
+            return floor.getMillis() == time.getMillis() ? floor : floor.plus(millis);
+        }
+    }
+}
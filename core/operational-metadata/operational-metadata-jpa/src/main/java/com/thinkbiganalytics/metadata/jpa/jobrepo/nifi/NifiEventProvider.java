@@ -20,6 +20,8 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
  * #L%
  */
 
+import com.google.common.collect.Lists;
+import com.querydsl.core.Tuple;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
 import com.thinkbiganalytics.metadata.api.common.ItemLastModified;
@@ -31,6 +33,16 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import javax.inject.Inject;
 
 /**
@@ -41,6 +53,11 @@ public class NifiEventProvider {
 
     public static String ITEM_LAST_MODIFIED_KEY = "NIFI_EVENT";
 
+    /**
+     * Maximum number of event ids to put in a single IN clause when checking for existing events
+     */
+    private static final int EXISTS_QUERY_PARTITION_SIZE = 500;
+
     @Autowired
     private JPAQueryFactory factory;
 
@@ -92,10 +109,57 @@ public class NifiEventProvider {
         return this.create(toNifiEvent(t));
     }
 
+    /**
+     * Persist a group of new events.
+     * The events are inserted directly rather than merged, so callers should first remove any events that already exist using {@link #findExistingEvents(Collection)}.
+     * The last processed event id is updated once per cluster node rather than once per event.
+     *
+     * @param events the events to persist
+     * @return the persisted events, in the same order as the supplied events
+     */
+    public List<NifiEvent> createAll(List<ProvenanceEventRecordDTO> events) {
+        List<NifiEvent> nifiEvents = new ArrayList<>(events.size());
+        Map<String, Long> lastEventIds = new HashMap<>();
+        for (ProvenanceEventRecordDTO event : events) {
+            JpaNifiEvent nifiEvent = (JpaNifiEvent) toNifiEvent(event);
+            nifiEvent.markNew();
+            nifiEvents.add(repository.save(nifiEvent));
+            lastEventIds.merge(getLastModifiedKey(event.getClusterNodeId()), event.getEventId(), Math::max);
+        }
+        lastEventIds.forEach((key, eventId) -> itemLastModifiedProvider.update(key, eventId.toString()));
+        return nifiEvents;
+    }
+
     public boolean exists(ProvenanceEventRecordDTO eventRecordDTO) {
         return repository.exists(new JpaNifiEvent.NiFiEventPK(eventRecordDTO.getEventId(), eventRecordDTO.getFlowFileUuid()));
     }
 
+    /**
+     * Find the events in the supplied collection that have already been persisted.
+     * This queries by event id in bulk instead of checking each event individually.
+     *
+     * @param events the events to check
+     * @return the primary keys of the events that already exist
+     */
+    public Set<JpaNifiEvent.NiFiEventPK> findExistingEvents(Collection<ProvenanceEventRecordDTO> events) {
+        if (events == null || events.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> eventIds = events.stream().map(ProvenanceEventRecordDTO::getEventId).distinct().collect(Collectors.toList());
+        QJpaNifiEvent nifiEvent = QJpaNifiEvent.jpaNifiEvent;
+        Set<JpaNifiEvent.NiFiEventPK> existing = new HashSet<>();
+        for (List<Long> ids : Lists.partition(eventIds, EXISTS_QUERY_PARTITION_SIZE)) {
+            List<Tuple> rows = factory.select(nifiEvent.eventId, nifiEvent.flowFileId)
+                .from(nifiEvent)
+                .where(nifiEvent.eventId.in(ids))
+                .fetch();
+            for (Tuple row : rows) {
+                existing.add(new JpaNifiEvent.NiFiEventPK(row.get(nifiEvent.eventId), row.get(nifiEvent.flowFileId)));
+            }
+        }
+        return existing;
+    }
+
 
 
     private String getLastModifiedKey(String clusterId) {
@@ -21,8 +21,14 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
  */
 
 import com.google.common.collect.Lists;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.thinkbiganalytics.metadata.api.common.ItemLastModified;
@@ -30,6 +36,7 @@ import com.thinkbiganalytics.metadata.api.common.ItemLastModifiedProvider;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
 import com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentor;
 import com.thinkbiganalytics.metadata.jpa.feed.QJpaOpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Level;
 import com.thinkbiganalytics.security.AccessController;
 
 import org.apache.commons.lang3.StringUtils;
@@ -37,7 +44,13 @@ import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -65,6 +78,9 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     @Inject
     private AccessController controller;
 
+    @Inject
+    private NifiFeedProcessorStatisticsRollupProvider rollupProvider;
+
     @Autowired
     public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiEventRepository nifiEventRepository) {
         this.statisticsRepository = repository;
@@ -142,87 +158,179 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, DateTime start, DateTime end) {
-        QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
-        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
-        JPAQuery
-            query = factory.select(
-            Projections.bean(JpaNifiFeedProcessorStats.class,
-                             stats.feedName, stats.processorId, stats.processorName,
-                             stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
-                             stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
-                             stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"), stats.totalCount.sum().as("totalCount"),
-                             stats.maxEventTime.max().as("maxEventTime"), stats.minEventTime.min().as("minEventTime"), stats.jobsFailed.sum().as("jobsFailed"),
-                             stats.count().as("resultSetCount"))
-        )
-            .from(stats)
-            .innerJoin(feed).on(feed.name.eq(stats.feedName))
-            .where(stats.feedName.eq(feedName)
-                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled()))
-                       .and(stats.minEventTime.goe(start)
-                                .and(stats.maxEventTime.loe(end))))
-            .groupBy(stats.feedName, stats.processorId, stats.processorName)
-            .orderBy(stats.processorName.asc());
-
-        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+        return findStatistics(feedName, start, end, Grouping.PROCESSOR_ID);
     }
 
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorName(String feedName, DateTime start, DateTime end) {
-        QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+        return findStatistics(feedName, start, end, Grouping.PROCESSOR_NAME);
+    }
 
-        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+    public List<? extends JpaNifiFeedProcessorStats> findForFeedStatisticsGroupedByTime(String feedName, DateTime start, DateTime end) {
+        return findStatistics(feedName, start, end, Grouping.TIME);
+    }
 
-        JPAQuery
-            query = factory.select(
-            Projections.bean(JpaNifiFeedProcessorStats.class,
-                             stats.feedName, stats.processorName,
-                             stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
-                             stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
-                             stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"), stats.totalCount.sum().as("totalCount"),
-                             stats.maxEventTime.max().as("maxEventTime"), stats.minEventTime.min().as("minEventTime"), stats.jobsFailed.sum().as("jobsFailed"),
-                             stats.count().as("resultSetCount"))
-        )
-            .from(stats)
-            .innerJoin(feed).on(feed.name.eq(stats.feedName))
-            .where(stats.feedName.eq(feedName)
-                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled()))
-                       .and(stats.minEventTime.goe(start)
-                                .and(stats.maxEventTime.loe(end))))
-            .groupBy(stats.feedName, stats.processorName)
-            .orderBy(stats.processorName.asc());
+    /**
+     * Find the stats for a feed using the coarsest rollup level suitable for the time window.
+     * The window is split into the whole buckets available in that level, with the partial buckets at either end read from the finer levels.
+     */
+    private List<JpaNifiFeedProcessorStats> findStatistics(String feedName, DateTime start, DateTime end, Grouping grouping) {
+        List<StatsSegment> segments = new ArrayList<>();
+        addSegments(segments, rollupLevelFor(start, end), start, end, true, new HashMap<>());
 
-        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+        List<JpaNifiFeedProcessorStats> results = new ArrayList<>();
+        for (StatsSegment segment : segments) {
+            results.addAll(findStatistics(feedName, segment, grouping));
+        }
+        if (segments.size() == 1 || grouping == Grouping.TIME) {
+            return results;
+        }
+
+        Map<List<String>, JpaNifiFeedProcessorStats> merged = new LinkedHashMap<>();
+        for (JpaNifiFeedProcessorStats stats : results) {
+            List<String> key = Arrays.asList(stats.getProcessorId(), stats.getProcessorName());
+            JpaNifiFeedProcessorStats existing = merged.get(key);
+            if (existing == null) {
+                merged.put(key, stats);
+            } else {
+                merge(existing, stats);
+            }
+        }
+        List<JpaNifiFeedProcessorStats> mergedResults = new ArrayList<>(merged.values());
+        mergedResults.sort(Comparator.comparing(JpaNifiFeedProcessorStats::getProcessorName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return mergedResults;
     }
 
-    public List<? extends JpaNifiFeedProcessorStats> findForFeedStatisticsGroupedByTime(String feedName, DateTime start, DateTime end) {
-        QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+    /**
+     * Raw stats are used for windows up to an hour, minutes up to a day, hours up to a month, and days beyond that.
+     * A coarser level is used if the stats at the start of the window have been purged from the finer level.
+     */
+    private Level rollupLevelFor(DateTime start, DateTime end) {
+        long millis = end.getMillis() - start.getMillis();
+        Level level;
+        if (millis <= Level.HOUR.getMillis()) {
+            level = null;
+        } else if (millis <= Level.DAY.getMillis()) {
+            level = Level.MINUTE;
+        } else if (millis <= Level.DAY.getMillis() * 31) {
+            level = Level.HOUR;
+        } else {
+            level = Level.DAY;
+        }
+
+        DateTime purgedBefore = rollupProvider.getPurgedBefore(level);
+        while (level != Level.DAY && purgedBefore != null && start.isBefore(purgedBefore)) {
+            level = level == null ? Level.MINUTE : level.coarser();
+            purgedBefore = rollupProvider.getPurgedBefore(level);
+        }
+        return level;
+    }
 
+    /**
+     * Split the window into segments read from the given level, falling back to the finer levels for the parts of the window not covered by whole buckets.
+     * Raw stats belong to the bucket containing their min event time so each stat is counted in exactly one segment.
+     */
+    private void addSegments(List<StatsSegment> segments, Level level, DateTime start, DateTime end, boolean endInclusive, Map<Level, DateTime> rolledUpTo) {
+        if (level == null) {
+            segments.add(new StatsSegment(null, start, end, endInclusive));
+            return;
+        }
+        if (!rolledUpTo.containsKey(level)) {
+            rolledUpTo.put(level, rollupProvider.getRolledUpTo(level));
+        }
+        DateTime levelEnd = rolledUpTo.get(level);
+        DateTime bucketStart = level.ceiling(start);
+        DateTime bucketEnd = level.floor(end);
+        if (levelEnd == null || !bucketStart.isBefore(bucketEnd) || !bucketStart.isBefore(levelEnd)) {
+            addSegments(segments, level.finer(), start, end, endInclusive, rolledUpTo);
+            return;
+        }
+        if (levelEnd.isBefore(bucketEnd)) {
+            bucketEnd = levelEnd;
+        }
+
+        if (start.isBefore(bucketStart)) {
+            addSegments(segments, level.finer(), start, bucketStart, false, rolledUpTo);
+        }
+        segments.add(new StatsSegment(level, bucketStart, bucketEnd, false));
+        if (bucketEnd.isBefore(end) || endInclusive) {
+            addSegments(segments, level.finer(), bucketEnd, end, endInclusive, rolledUpTo);
+        }
+    }
+
+    private List<JpaNifiFeedProcessorStats> findStatistics(String feedName, StatsSegment segment, Grouping grouping) {
+        StatsPaths stats = segment.level == null ? StatsPaths.RAW : StatsPaths.ROLLUP;
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
 
-        JPAQuery
-            query = factory.select(
-            Projections.bean(JpaNifiFeedProcessorStats.class,
-                             stats.feedName,
-                             stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
-                             stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
-                             stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"),
-                             stats.maxEventTime,
-                             //stats.maxEventTime,
-                             stats.jobsFailed.sum().as("jobsFailed"), stats.totalCount.sum().as("totalCount"),
-                             stats.count().as("resultSetCount"))
-        )
-            .from(stats)
+        List<Expression<?>> select = new ArrayList<>();
+        List<Expression<?>> groupBy = new ArrayList<>();
+        select.add(stats.feedName);
+        groupBy.add(stats.feedName);
+        if (grouping == Grouping.PROCESSOR_ID) {
+            select.add(stats.processorId);
+            groupBy.add(stats.processorId);
+        }
+        if (grouping != Grouping.TIME) {
+            select.add(stats.processorName);
+            groupBy.add(stats.processorName);
+        }
+        select.addAll(Arrays.asList(stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
+                                    stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
+                                    stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"),
+                                    stats.totalCount.sum().as("totalCount"), stats.jobsFailed.sum().as("jobsFailed")));
+        OrderSpecifier<?> orderBy;
+        if (grouping == Grouping.TIME) {
+            //raw stats are grouped by their event time, rollups by their bucket
+            if (segment.level == null) {
+                select.add(stats.maxEventTime);
+                groupBy.add(stats.maxEventTime);
+                orderBy = stats.maxEventTime.asc();
+            } else {
+                select.add(stats.maxEventTime.max().as("maxEventTime"));
+                groupBy.add(stats.bucketStart);
+                orderBy = stats.bucketStart.asc();
+            }
+        } else {
+            select.add(stats.maxEventTime.max().as("maxEventTime"));
+            select.add(stats.minEventTime.min().as("minEventTime"));
+            orderBy = stats.processorName.asc();
+        }
+
+        JPAQuery<JpaNifiFeedProcessorStats>
+            query = factory.select(Projections.bean(JpaNifiFeedProcessorStats.class, select.toArray(new Expression<?>[select.size()])))
+            .from(stats.entity)
             .innerJoin(feed).on(feed.name.eq(stats.feedName))
             .where(stats.feedName.eq(feedName)
                        .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled()))
-                       .and(stats.minEventTime.goe(start)
-                                .and(stats.maxEventTime.loe(end))))
+                       .and(stats.within(segment)))
+            .groupBy(groupBy.toArray(new Expression<?>[groupBy.size()]))
+            .orderBy(orderBy);
 
-            .groupBy(stats.feedName, stats.maxEventTime)
-            .orderBy(stats.maxEventTime.asc());
+        return query.fetch();
+    }
+
+    private static void merge(JpaNifiFeedProcessorStats stats, JpaNifiFeedProcessorStats other) {
+        stats.setBytesIn(sum(stats.getBytesIn(), other.getBytesIn()));
+        stats.setBytesOut(sum(stats.getBytesOut(), other.getBytesOut()));
+        stats.setDuration(sum(stats.getDuration(), other.getDuration()));
+        stats.setJobsStarted(sum(stats.getJobsStarted(), other.getJobsStarted()));
+        stats.setJobsFinished(sum(stats.getJobsFinished(), other.getJobsFinished()));
+        stats.setJobDuration(sum(stats.getJobDuration(), other.getJobDuration()));
+        stats.setFlowFilesStarted(sum(stats.getFlowFilesStarted(), other.getFlowFilesStarted()));
+        stats.setFlowFilesFinished(sum(stats.getFlowFilesFinished(), other.getFlowFilesFinished()));
+        stats.setTotalCount(sum(stats.getTotalCount(), other.getTotalCount()));
+        stats.setJobsFailed(sum(stats.getJobsFailed(), other.getJobsFailed()));
+        if (other.getMinEventTime() != null && (stats.getMinEventTime() == null || other.getMinEventTime().isBefore(stats.getMinEventTime()))) {
+            stats.setMinEventTime(other.getMinEventTime());
+        }
+        if (other.getMaxEventTime() != null && (stats.getMaxEventTime() == null || other.getMaxEventTime().isAfter(stats.getMaxEventTime()))) {
+            stats.setMaxEventTime(other.getMaxEventTime());
+        }
+    }
 
-        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    private static Long sum(Long a, Long b) {
+        return (a != null ? a : 0L) + (b != null ? b : 0L);
     }
 
     public Long findLastProcessedEventId() {
@@ -271,4 +379,110 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         ItemLastModified lastModified =  itemLastModifiedProvider.update(getLastModifiedKey(clusterNodeId),"0");
         return lastModified != null ? Long.parseLong(lastModified.getValue()) : null;
     }
+
+    private enum Grouping {
+        PROCESSOR_ID, PROCESSOR_NAME, TIME
+    }
+
+    /**
+     * A part of the query window read from a single rollup level, or from the raw stats if the level is null
+     */
+    private static class StatsSegment {
+
+        private final Level level;
+        private final DateTime start;
+        private final DateTime end;
+        private final boolean endInclusive;
+
+        StatsSegment(Level level, DateTime start, DateTime end, boolean endInclusive) {
+            this.level = level;
+            this.start = start;
+            this.end = end;
+            this.endInclusive = endInclusive;
+        }
+    }
+
+    /**
+     * The columns shared by the raw stats and the rollup tables
+     */
+    private static class StatsPaths {
+
+        private static final StatsPaths RAW = new StatsPaths(QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats);
+        private static final StatsPaths ROLLUP = new StatsPaths(QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup);
+
+        private final EntityPath<?> entity;
+        private final QJpaNifiFeedProcessorStatsRollup rollup;
+        private final StringPath feedName;
+        private final StringPath processorId;
+        private final StringPath processorName;
+        private final NumberPath<Long> bytesIn;
+        private final NumberPath<Long> bytesOut;
+        private final NumberPath<Long> duration;
+        private final NumberPath<Long> jobsStarted;
+        private final NumberPath<Long> jobsFinished;
+        private final NumberPath<Long> jobDuration;
+        private final NumberPath<Long> flowFilesStarted;
+        private final NumberPath<Long> flowFilesFinished;
+        private final NumberPath<Long> totalCount;
+        private final NumberPath<Long> jobsFailed;
+        private final DateTimePath<DateTime> minEventTime;
+        private final DateTimePath<DateTime> maxEventTime;
+        private final DateTimePath<DateTime> bucketStart;
+
+        StatsPaths(QJpaNifiFeedProcessorStats stats) {
+            this.entity = stats;
+            this.rollup = null;
+            this.feedName = stats.feedName;
+            this.processorId = stats.processorId;
+            this.processorName = stats.processorName;
+            this.bytesIn = stats.bytesIn;
+            this.bytesOut = stats.bytesOut;
+            this.duration = stats.duration;
+            this.jobsStarted = stats.jobsStarted;
+            this.jobsFinished = stats.jobsFinished;
+            this.jobDuration = stats.jobDuration;
+            this.flowFilesStarted = stats.flowFilesStarted;
+            this.flowFilesFinished = stats.flowFilesFinished;
+            this.totalCount = stats.totalCount;
+            this.jobsFailed = stats.jobsFailed;
+            this.minEventTime = stats.minEventTime;
+            this.maxEventTime = stats.maxEventTime;
+            this.bucketStart = null;
+        }
+
+        StatsPaths(QJpaNifiFeedProcessorStatsRollup rollup) {
+            this.entity = rollup;
+            this.rollup = rollup;
+            this.feedName = rollup.feedName;
+            this.processorId = rollup.processorId;
+            this.processorName = rollup.processorName;
+            this.bytesIn = rollup.bytesIn;
+            this.bytesOut = rollup.bytesOut;
+            this.duration = rollup.duration;
+            this.jobsStarted = rollup.jobsStarted;
+            this.jobsFinished = rollup.jobsFinished;
+            this.jobDuration = rollup.jobDuration;
+            this.flowFilesStarted = rollup.flowFilesStarted;
+            this.flowFilesFinished = rollup.flowFilesFinished;
+            this.totalCount = rollup.totalCount;
+            this.jobsFailed = rollup.jobsFailed;
+            this.minEventTime = rollup.minEventTime;
+            this.maxEventTime = rollup.maxEventTime;
+            this.bucketStart = rollup.bucketStart;
+        }
+
+        /**
+         * A window read entirely from the raw stats keeps the original min/max event time filter.
+         * Otherwise raw stats are assigned by their min event time, the same as the rollup job.
+         */
+        Predicate within(StatsSegment segment) {
+            if (rollup != null) {
+                return rollup.level.eq(segment.level).and(bucketStart.goe(segment.start)).and(bucketStart.lt(segment.end));
+            } else if (segment.endInclusive) {
+                return minEventTime.goe(segment.start).and(maxEventTime.loe(segment.end));
+            } else {
+                return minEventTime.goe(segment.start).and(minEventTime.lt(segment.end));
+            }
+        }
+    }
 }
@@ -24,10 +24,12 @@ import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAccessControlRepo
 
 import org.joda.time.DateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -48,4 +50,12 @@ public interface NifiFeedProcessorStatisticsRepository extends JpaRepository<Jpa
     @Query(value = "select max(stats.maxEventId) from JpaNifiFeedProcessorStats as stats where stats.clusterNodeId = :clusterNodeId")
     Long findMaxEventId(@Param("clusterNodeId") String clusterNodeId);
 
+    @Modifying
+    @Query(value = "update JpaNifiFeedProcessorStats as stats set stats.rolledUp = :rolledUp where stats.id in :ids")
+    int updateRolledUp(@Param("ids") Collection<String> ids, @Param("rolledUp") boolean rolledUp);
+
+    @Modifying
+    @Query(value = "delete from JpaNifiFeedProcessorStats as stats where stats.minEventTime < :before and stats.rolledUp = :rolledUp")
+    int deleteBefore(@Param("before") DateTime before, @Param("rolledUp") boolean rolledUp);
+
 }
@@ -0,0 +1,348 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Lists;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.common.ItemLastModified;
+import com.thinkbiganalytics.metadata.api.common.ItemLastModifiedProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Level;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+/**
+ * Compacts the raw {@link JpaNifiFeedProcessorStats} into minute, hour and day {@link JpaNifiFeedProcessorStatsRollup} buckets.
+ *
+ * Each level keeps the time it has been rolled up to in the {@link ItemLastModifiedProvider}.  Every bucket before that time is complete, and newer stats are read from
+ * the next finer level.  Minutes are rolled up from the raw stats, hours from the minutes and days from the hours.
+ *
+ * Raw stats are flagged once they are in a minute bucket.  Stats that arrive from NiFi after their minute has been rolled up are added to the buckets already
+ * written for that minute and for any hour and day containing it, so the rollups never lose stats that arrive late.
+ */
+@Service
+public class NifiFeedProcessorStatisticsRollupProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(NifiFeedProcessorStatisticsRollupProvider.class);
+
+    public static final String ROLLED_UP_TO_KEY_PREFIX = "NIFI_FEED_PROCESSOR_STATS_ROLLUP_";
+
+    public static final String PURGED_BEFORE_KEY_PREFIX = "NIFI_FEED_PROCESSOR_STATS_PURGED_";
+
+    /**
+     * Number of buckets rolled up in a single call to {@link #rollup(Level, DateTime)}
+     */
+    private static final int BUCKETS_PER_ROLLUP = 60;
+
+    /**
+     * Number of late raw stats added to existing buckets in a single call to {@link #rollup(Level, DateTime)}
+     */
+    private static final int LATE_STATS_PER_ROLLUP = 1000;
+
+    /**
+     * Number of raw stats flagged as rolled up in a single update
+     */
+    private static final int ROLLED_UP_BATCH_SIZE = 500;
+
+    private static final DateTime EPOCH = new DateTime(0L, DateTimeZone.UTC);
+
+    @Autowired
+    private JPAQueryFactory factory;
+
+    @Inject
+    private ItemLastModifiedProvider itemLastModifiedProvider;
+
+    private NifiFeedProcessorStatisticsRepository statisticsRepository;
+
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
+    @Autowired
+    public NifiFeedProcessorStatisticsRollupProvider(NifiFeedProcessorStatisticsRepository statisticsRepository, NifiFeedProcessorStatsRollupRepository rollupRepository) {
+        this.statisticsRepository = statisticsRepository;
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Find the time the level has been rolled up to.  All stats before this time are in the level's buckets.
+     *
+     * @param level the rollup level
+     * @return the end of the last complete bucket, or null if the level has not been rolled up yet
+     */
+    public DateTime getRolledUpTo(Level level) {
+        return findTime(ROLLED_UP_TO_KEY_PREFIX + level.name());
+    }
+
+    /**
+     * Find the time the level has been purged up to.  Stats before this time have been deleted.
+     *
+     * @param level the rollup level, or null for the raw stats
+     * @return the time stats were deleted before, or null if the level has not been purged
+     */
+    public DateTime getPurgedBefore(Level level) {
+        return findTime(PURGED_BEFORE_KEY_PREFIX + (level != null ? level.name() : "RAW"));
+    }
+
+    /**
+     * Roll up the next set of buckets for the level.  Buckets are only written once they are complete in the next finer level.  Rolling up minutes first adds
+     * any late raw stats to the buckets already written.
+     *
+     * @param level the level to roll up
+     * @param until stats at or after this time are not rolled up
+     * @return true if buckets were rolled up and there may be more to do, false if the level is up to date
+     */
+    public boolean rollup(Level level, DateTime until) {
+        Level finer = level.finer();
+        if (finer == null && rollupLateStats()) {
+            return true;
+        }
+
+        DateTime limit = level.floor(until);
+        if (finer != null) {
+            DateTime finerRolledUpTo = getRolledUpTo(finer);
+            if (finerRolledUpTo == null) {
+                return false;
+            }
+            limit = earliest(limit, level.floor(finerRolledUpTo));
+        }
+
+        DateTime from = getRolledUpTo(level);
+        if (from == null) {
+            DateTime first = findFirstSourceTime(finer, EPOCH);
+            if (first == null) {
+                return false;
+            }
+            from = level.floor(first);
+        }
+        if (!from.isBefore(limit)) {
+            return false;
+        }
+
+        DateTime to = earliest(limit, from.plus(level.getMillis() * BUCKETS_PER_ROLLUP));
+        List<JpaNifiFeedProcessorStats> source = findSource(finer, from, to);
+        Map<List<Object>, JpaNifiFeedProcessorStatsRollup> buckets = new LinkedHashMap<>();
+        for (JpaNifiFeedProcessorStats stats : source) {
+            DateTime bucketStart = level.floor(stats.getMinEventTime());
+            List<Object> key = Arrays.asList(bucketStart.getMillis(), stats.getFeedName(), stats.getProcessorId(), stats.getProcessorName());
+            buckets.computeIfAbsent(key, k -> new JpaNifiFeedProcessorStatsRollup(level, bucketStart, stats.getFeedName(), stats.getProcessorId(), stats.getProcessorName()))
+                .add(stats);
+        }
+        rollupRepository.save(buckets.values());
+        if (finer == null) {
+            markRolledUp(source);
+        }
+
+        if (source.isEmpty()) {
+            //skip ahead over any gap in the stats
+            DateTime next = findFirstSourceTime(finer, to);
+            to = next != null ? earliest(limit, level.floor(next)) : limit;
+        }
+        updateTime(ROLLED_UP_TO_KEY_PREFIX + level.name(), to);
+        return true;
+    }
+
+    /**
+     * Delete the buckets for a level that are older than the given time.  Buckets not yet rolled up into the next coarser level are kept.
+     *
+     * @param level  the level to purge
+     * @param before delete buckets that start before this time
+     * @return the number of buckets deleted
+     */
+    public int purge(Level level, DateTime before) {
+        Level coarser = level.coarser();
+        DateTime limit = before;
+        if (coarser != null) {
+            DateTime coarserRolledUpTo = getRolledUpTo(coarser);
+            if (coarserRolledUpTo == null) {
+                return 0;
+            }
+            limit = earliest(limit, coarserRolledUpTo);
+        }
+        updateTime(PURGED_BEFORE_KEY_PREFIX + level.name(), limit);
+        return rollupRepository.deleteBefore(level, limit);
+    }
+
+    /**
+     * Delete the raw stats that are older than the given time.  Stats not yet rolled up into minutes, including any that arrived late, are kept.
+     *
+     * @param before delete stats with a min event time before this time
+     * @return the number of stats deleted
+     */
+    public int purgeRaw(DateTime before) {
+        DateTime rolledUpTo = getRolledUpTo(Level.MINUTE);
+        if (rolledUpTo == null) {
+            return 0;
+        }
+        DateTime limit = earliest(before, rolledUpTo);
+        updateTime(PURGED_BEFORE_KEY_PREFIX + "RAW", limit);
+        return statisticsRepository.deleteBefore(limit, true);
+    }
+
+    /**
+     * Add the raw stats that arrived after their minute was rolled up to the buckets already written for each level.
+     *
+     * @return true if late stats were rolled up and there may be more, false if there were none
+     */
+    private boolean rollupLateStats() {
+        DateTime minutesRolledUpTo = getRolledUpTo(Level.MINUTE);
+        if (minutesRolledUpTo == null) {
+            return false;
+        }
+
+        QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+        List<JpaNifiFeedProcessorStats> late = selectRawStats(stats)
+            .where(stats.rolledUp.isFalse().and(stats.minEventTime.lt(minutesRolledUpTo)))
+            .limit(LATE_STATS_PER_ROLLUP)
+            .fetch();
+        if (late.isEmpty()) {
+            return false;
+        }
+
+        Map<Level, DateTime> rolledUpTo = new EnumMap<>(Level.class);
+        for (Level level : Level.values()) {
+            DateTime time = getRolledUpTo(level);
+            if (time != null) {
+                rolledUpTo.put(level, time);
+            }
+        }
+
+        Map<List<Object>, JpaNifiFeedProcessorStatsRollup> buckets = new LinkedHashMap<>();
+        for (JpaNifiFeedProcessorStats lateStats : late) {
+            for (Level level : Level.values()) {
+                DateTime levelRolledUpTo = rolledUpTo.get(level);
+                DateTime bucketStart = level.floor(lateStats.getMinEventTime());
+                if (levelRolledUpTo == null || !bucketStart.isBefore(levelRolledUpTo)) {
+                    //the coarser levels will pick the stats up from this level when they are rolled up
+                    break;
+                }
+                List<Object> key = Arrays.asList(level, bucketStart.getMillis(), lateStats.getFeedName(), lateStats.getProcessorId(), lateStats.getProcessorName());
+                buckets.computeIfAbsent(key, k -> findBucket(level, bucketStart, lateStats.getFeedName(), lateStats.getProcessorId(), lateStats.getProcessorName()))
+                    .add(lateStats);
+            }
+        }
+        rollupRepository.save(buckets.values());
+        markRolledUp(late);
+        log.debug("Added {} late NiFi stats to {} rollup buckets", late.size(), buckets.size());
+        return true;
+    }
+
+    /**
+     * Find the bucket for the feed and processor in the level, or create a new one if there is none
+     */
+    private JpaNifiFeedProcessorStatsRollup findBucket(Level level, DateTime bucketStart, String feedName, String processorId, String processorName) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        JpaNifiFeedProcessorStatsRollup bucket = factory.selectFrom(rollup)
+            .where(rollup.level.eq(level), rollup.bucketStart.eq(bucketStart), rollup.feedName.eq(feedName), eqOrNull(rollup.processorId, processorId),
+                   eqOrNull(rollup.processorName, processorName))
+            .fetchFirst();
+        return bucket != null ? bucket : new JpaNifiFeedProcessorStatsRollup(level, bucketStart, feedName, processorId, processorName);
+    }
+
+    /**
+     * Flag the raw stats as rolled up so they are not rolled up again, and can be purged
+     */
+    private void markRolledUp(List<JpaNifiFeedProcessorStats> stats) {
+        List<String> ids = stats.stream().map(JpaNifiFeedProcessorStats::getId).collect(Collectors.toList());
+        for (List<String> batch : Lists.partition(ids, ROLLED_UP_BATCH_SIZE)) {
+            statisticsRepository.updateRolledUp(batch, true);
+        }
+    }
+
+    /**
+     * Find the first stats time at or after the given time in the raw stats, or in the given level
+     */
+    private DateTime findFirstSourceTime(Level level, DateTime after) {
+        if (level == null) {
+            QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+            return factory.select(stats.minEventTime.min()).from(stats).where(stats.minEventTime.goe(after)).fetchOne();
+        } else {
+            QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+            return factory.select(rollup.bucketStart.min()).from(rollup).where(rollup.level.eq(level).and(rollup.bucketStart.goe(after))).fetchOne();
+        }
+    }
+
+    /**
+     * Find the raw stats, or the buckets in the given level, between the start (inclusive) and end (exclusive)
+     */
+    private List<JpaNifiFeedProcessorStats> findSource(Level level, DateTime start, DateTime end) {
+        if (level == null) {
+            QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+            return selectRawStats(stats)
+                .where(stats.rolledUp.isFalse().and(stats.minEventTime.goe(start)).and(stats.minEventTime.lt(end)))
+                .fetch();
+        } else {
+            QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+            return factory.select(
+                Projections.bean(JpaNifiFeedProcessorStats.class,
+                                 rollup.feedName, rollup.processorId, rollup.processorName, rollup.totalCount, rollup.duration, rollup.bytesIn, rollup.bytesOut,
+                                 rollup.minEventTime, rollup.maxEventTime, rollup.jobsStarted, rollup.jobsFinished, rollup.jobsFailed, rollup.jobDuration,
+                                 rollup.successfulJobDuration, rollup.processorsFailed, rollup.flowFilesStarted, rollup.flowFilesFinished, rollup.maxEventId))
+                .from(rollup)
+                .where(rollup.level.eq(level).and(rollup.bucketStart.goe(start)).and(rollup.bucketStart.lt(end)))
+                .fetch();
+        }
+    }
+
+    /**
+     * Select the raw stats along with their ids so they can be flagged once rolled up
+     */
+    private JPAQuery<JpaNifiFeedProcessorStats> selectRawStats(QJpaNifiFeedProcessorStats stats) {
+        return factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             stats.id, stats.feedName, stats.processorId, stats.processorName, stats.totalCount, stats.duration, stats.bytesIn, stats.bytesOut,
+                             stats.minEventTime, stats.maxEventTime, stats.jobsStarted, stats.jobsFinished, stats.jobsFailed, stats.jobDuration,
+                             stats.successfulJobDuration, stats.processorsFailed, stats.flowFilesStarted, stats.flowFilesFinished, stats.maxEventId))
+            .from(stats);
+    }
+
+    private static Predicate eqOrNull(StringPath path, String value) {
+        return value != null ? path.eq(value) : path.isNull();
+    }
+
+    private DateTime findTime(String key) {
+        ItemLastModified lastModified = itemLastModifiedProvider.findByKey(key);
+        return lastModified != null ? new DateTime(Long.parseLong(lastModified.getValue()), DateTimeZone.UTC) : null;
+    }
+
+    private void updateTime(String key, DateTime time) {
+        itemLastModifiedProvider.update(key, Long.toString(time.getMillis()));
+    }
+
+    private static DateTime earliest(DateTime a, DateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,366 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedHealthCountsProvider;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedId;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecutionContextValue;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecutionParameter;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobInstance;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiEvent;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiEventJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiEventStepExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiRelatedRootFlowFiles;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.step.QJpaBatchStepExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.step.QJpaBatchStepExecutionContextValue;
+
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+/**
+ * Deletes, and optionally archives, old job executions and NiFi events one chunk at a time.
+ * Each chunk is selected by its time index and then deleted by primary key so the deletes only lock the rows in the chunk.
+ * Callers are expected to run each chunk in its own transaction.
+ *
+ * @see JobRepositoryRetentionService
+ */
+@Service
+public class JobRepositoryRetentionProvider {
+
+    @Autowired
+    private JPAQueryFactory factory;
+
+    @Inject
+    private FeedHealthCountsProvider feedHealthCountsProvider;
+
+    /**
+     * Delete the oldest finished job executions that started before the cutoff, along with their steps, context, parameters and NiFi job relations.
+     *
+     * @param policy        the policy to apply.  If the policy has no feed name it applies to all feeds except the excluded feeds
+     * @param excludedFeeds the feeds with their own policy
+     * @param cutoff        job executions that started before this time are deleted
+     * @param chunkSize     the maximum number of job executions to delete
+     * @param archiveWriter writer to archive the job executions once their delete commits, or null to only delete them
+     * @return the number of rows deleted from each table
+     */
+    public JobChunkResult deleteJobChunk(RetentionPolicy policy, Collection<String> excludedFeeds, DateTime cutoff, int chunkSize, RetentionArchiveWriter archiveWriter) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+
+        List<Tuple> rows = factory.select(jobExecution.jobExecutionId,
+                                          jobExecution.status,
+                                          jobExecution.exitCode,
+                                          jobExecution.exitMessage,
+                                          jobExecution.startTimeMillis,
+                                          jobExecution.endTimeMillis,
+                                          jobInstance.jobInstanceId,
+                                          jobInstance.jobName,
+                                          jobInstance.feed.id.uuid)
+            .from(jobExecution)
+            .innerJoin(jobInstance).on(jobExecution.jobInstance.jobInstanceId.eq(jobInstance.jobInstanceId))
+            .where(jobExecution.startTimeMillis.lt(cutoff.getMillis())
+                       .and(jobExecution.endTimeMillis.isNotNull())
+                       .and(feedScope(jobInstance.jobName, policy, excludedFeeds)))
+            .orderBy(jobExecution.startTimeMillis.asc())
+            .limit(chunkSize)
+            .fetch();
+
+        JobChunkResult result = new JobChunkResult();
+        if (rows.isEmpty()) {
+            return result;
+        }
+
+        List<Long> jobExecutionIds = new ArrayList<>();
+        Set<Long> jobInstanceIds = new HashSet<>();
+        Map<UUID, List<JpaBatchJobExecution>> deletedByFeed = new HashMap<>();
+        for (Tuple row : rows) {
+            Long jobExecutionId = row.get(jobExecution.jobExecutionId);
+            jobExecutionIds.add(jobExecutionId);
+            jobInstanceIds.add(row.get(jobInstance.jobInstanceId));
+
+            UUID feedId = row.get(jobInstance.feed.id.uuid);
+            if (feedId != null) {
+                JpaBatchJobExecution deleted = new JpaBatchJobExecution();
+                deleted.setJobExecutionId(jobExecutionId);
+                deleted.setStatus(row.get(jobExecution.status));
+                deleted.setExitCode(row.get(jobExecution.exitCode));
+                deletedByFeed.computeIfAbsent(feedId, id -> new ArrayList<>()).add(deleted);
+            }
+        }
+
+        if (archiveWriter != null) {
+            archiveWriter.write("job-executions", jobExecutionIds.get(0), jobArchiveRecords(rows, jobExecutionIds));
+            result.archivedRecords = rows.size();
+        }
+
+        QJpaNifiEventStepExecution nifiStep = QJpaNifiEventStepExecution.jpaNifiEventStepExecution;
+        QJpaBatchStepExecutionContextValue stepContext = QJpaBatchStepExecutionContextValue.jpaBatchStepExecutionContextValue;
+        QJpaBatchStepExecution stepExecution = QJpaBatchStepExecution.jpaBatchStepExecution;
+        QJpaBatchJobExecutionContextValue jobContext = QJpaBatchJobExecutionContextValue.jpaBatchJobExecutionContextValue;
+        QJpaBatchJobExecutionParameter jobParameter = QJpaBatchJobExecutionParameter.jpaBatchJobExecutionParameter;
+        QJpaNifiEventJobExecution nifiJob = QJpaNifiEventJobExecution.jpaNifiEventJobExecution;
+        QJpaNifiRelatedRootFlowFiles relatedFlowFiles = QJpaNifiRelatedRootFlowFiles.jpaNifiRelatedRootFlowFiles;
+
+        factory.delete(nifiStep).where(nifiStep.jobExecution.jobExecutionId.in(jobExecutionIds)).execute();
+        result.executionContextValues += factory.delete(stepContext).where(stepContext.jobExecutionId.in(jobExecutionIds)).execute();
+        result.stepExecutions = factory.delete(stepExecution).where(stepExecution.jobExecution.jobExecutionId.in(jobExecutionIds)).execute();
+        result.executionContextValues += factory.delete(jobContext).where(jobContext.jobExecutionId.in(jobExecutionIds)).execute();
+        result.jobParameters = factory.delete(jobParameter).where(jobParameter.jobExecutionParametersPK.jobExecutionId.in(jobExecutionIds)).execute();
+
+        List<String> flowFileIds = factory.select(nifiJob.flowFileId).from(nifiJob).where(nifiJob.jobExecution.jobExecutionId.in(jobExecutionIds)).fetch();
+        if (!flowFileIds.isEmpty()) {
+            factory.delete(relatedFlowFiles).where(relatedFlowFiles.relatedFlowFilesPK.flowFileId.in(flowFileIds)).execute();
+        }
+        factory.delete(nifiJob).where(nifiJob.jobExecution.jobExecutionId.in(jobExecutionIds)).execute();
+        result.jobExecutions = factory.delete(jobExecution).where(jobExecution.jobExecutionId.in(jobExecutionIds)).execute();
+
+        // only remove the job instances that have no job executions left
+        jobInstanceIds.removeAll(factory.select(jobExecution.jobInstance.jobInstanceId).distinct()
+                                     .from(jobExecution)
+                                     .where(jobExecution.jobInstance.jobInstanceId.in(jobInstanceIds))
+                                     .fetch());
+        if (!jobInstanceIds.isEmpty()) {
+            result.jobInstances = factory.delete(jobInstance).where(jobInstance.jobInstanceId.in(jobInstanceIds)).execute();
+        }
+
+        for (Map.Entry<UUID, List<JpaBatchJobExecution>> deleted : deletedByFeed.entrySet()) {
+            feedHealthCountsProvider.jobExecutionsDeleted(new OpsManagerFeedId(deleted.getKey()), deleted.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Delete the oldest NiFi events that occurred before the cutoff, along with the related root flow files that reference them.
+     *
+     * @param policy        the policy to apply.  If the policy has no feed name it applies to all events except those of the excluded feeds
+     * @param excludedFeeds the feeds with their own policy
+     * @param cutoff        events that occurred before this time are deleted
+     * @param chunkSize     the maximum number of events to delete
+     * @param archiveWriter writer to archive the events once their delete commits, or null to only delete them
+     * @return the number of events deleted
+     */
+    public EventChunkResult deleteEventChunk(RetentionPolicy policy, Collection<String> excludedFeeds, DateTime cutoff, int chunkSize, RetentionArchiveWriter archiveWriter) {
+        QJpaNifiEvent event = QJpaNifiEvent.jpaNifiEvent;
+        BooleanExpression eligible = event.eventTime.lt(cutoff).and(feedScope(event.feedName, policy, excludedFeeds));
+
+        EventChunkResult result = new EventChunkResult();
+        List<Long> eventIds = factory.select(event.eventId)
+            .from(event)
+            .where(eligible)
+            .orderBy(event.eventTime.asc())
+            .limit(chunkSize)
+            .fetch();
+        if (eventIds.isEmpty()) {
+            return result;
+        }
+
+        if (archiveWriter != null) {
+            List<Tuple> rows = factory.select(event.eventId, event.flowFileId, event.feedName, event.eventTime, event.eventType, event.eventDuration,
+                                              event.processorId, event.processorName, event.jobFlowFileId, event.fileSizeBytes, event.isFailure,
+                                              event.eventDetails, event.attributesJson)
+                .from(event)
+                .where(event.eventId.in(eventIds).and(eligible))
+                .fetch();
+            List<Map<String, Object>> records = new ArrayList<>();
+            for (Tuple row : rows) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("eventId", row.get(event.eventId));
+                record.put("flowFileId", row.get(event.flowFileId));
+                record.put("feedName", row.get(event.feedName));
+                record.put("eventTime", millis(row.get(event.eventTime)));
+                record.put("eventType", row.get(event.eventType));
+                record.put("eventDuration", row.get(event.eventDuration));
+                record.put("processorId", row.get(event.processorId));
+                record.put("processorName", row.get(event.processorName));
+                record.put("jobFlowFileId", row.get(event.jobFlowFileId));
+                record.put("fileSizeBytes", row.get(event.fileSizeBytes));
+                record.put("isFailure", row.get(event.isFailure));
+                record.put("eventDetails", row.get(event.eventDetails));
+                record.put("attributesJson", row.get(event.attributesJson));
+                records.add(record);
+            }
+            archiveWriter.write("nifi-events", eventIds.get(0), records);
+            result.archivedRecords = records.size();
+        }
+
+        QJpaNifiRelatedRootFlowFiles relatedFlowFiles = QJpaNifiRelatedRootFlowFiles.jpaNifiRelatedRootFlowFiles;
+        List<String> relatedFlowFileIds = factory.select(relatedFlowFiles.relatedFlowFilesPK.flowFileId)
+            .from(relatedFlowFiles)
+            .where(relatedFlowFiles.event.eventId.in(eventIds))
+            .fetch();
+        if (!relatedFlowFileIds.isEmpty()) {
+            factory.delete(relatedFlowFiles).where(relatedFlowFiles.relatedFlowFilesPK.flowFileId.in(relatedFlowFileIds)).execute();
+        }
+        result.nifiEvents = factory.delete(event).where(event.eventId.in(eventIds).and(eligible)).execute();
+        return result;
+    }
+
+    /**
+     * Limit a query to the feed of the policy, or to every feed without its own policy if the policy is the default one
+     */
+    private BooleanExpression feedScope(StringPath feedName, RetentionPolicy policy, Collection<String> excludedFeeds) {
+        if (policy.getFeedName() != null) {
+            return feedName.eq(policy.getFeedName());
+        } else if (excludedFeeds == null || excludedFeeds.isEmpty()) {
+            return null;
+        } else {
+            return feedName.isNull().or(feedName.notIn(excludedFeeds));
+        }
+    }
+
+    /**
+     * Build the archive records for a chunk of job executions including their parameters and steps
+     */
+    private List<Map<String, Object>> jobArchiveRecords(List<Tuple> rows, List<Long> jobExecutionIds) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        QJpaBatchJobExecutionParameter jobParameter = QJpaBatchJobExecutionParameter.jpaBatchJobExecutionParameter;
+        QJpaBatchStepExecution stepExecution = QJpaBatchStepExecution.jpaBatchStepExecution;
+
+        Map<Long, Map<String, Object>> parametersByJob = new HashMap<>();
+        for (Tuple row : factory.select(jobParameter.jobExecutionParametersPK.jobExecutionId, jobParameter.jobExecutionParametersPK.keyName, jobParameter.stringVal)
+            .from(jobParameter)
+            .where(jobParameter.jobExecutionParametersPK.jobExecutionId.in(jobExecutionIds))
+            .fetch()) {
+            parametersByJob.computeIfAbsent(row.get(jobParameter.jobExecutionParametersPK.jobExecutionId), id -> new LinkedHashMap<>())
+                .put(row.get(jobParameter.jobExecutionParametersPK.keyName), row.get(jobParameter.stringVal));
+        }
+
+        Map<Long, List<Map<String, Object>>> stepsByJob = new HashMap<>();
+        for (Tuple row : factory.select(stepExecution.jobExecution.jobExecutionId, stepExecution.stepName, stepExecution.status, stepExecution.exitCode,
+                                        stepExecution.startTime, stepExecution.endTime)
+            .from(stepExecution)
+            .where(stepExecution.jobExecution.jobExecutionId.in(jobExecutionIds))
+            .fetch()) {
+            Map<String, Object> step = new LinkedHashMap<>();
+            step.put("stepName", row.get(stepExecution.stepName));
+            step.put("status", row.get(stepExecution.status));
+            step.put("exitCode", row.get(stepExecution.exitCode));
+            step.put("startTime", millis(row.get(stepExecution.startTime)));
+            step.put("endTime", millis(row.get(stepExecution.endTime)));
+            stepsByJob.computeIfAbsent(row.get(stepExecution.jobExecution.jobExecutionId), id -> new ArrayList<>()).add(step);
+        }
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (Tuple row : rows) {
+            Long jobExecutionId = row.get(jobExecution.jobExecutionId);
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("jobExecutionId", jobExecutionId);
+            record.put("feedName", row.get(jobInstance.jobName));
+            record.put("status", row.get(jobExecution.status));
+            record.put("exitCode", row.get(jobExecution.exitCode));
+            record.put("exitMessage", row.get(jobExecution.exitMessage));
+            record.put("startTime", row.get(jobExecution.startTimeMillis));
+            record.put("endTime", row.get(jobExecution.endTimeMillis));
+            record.put("parameters", parametersByJob.get(jobExecutionId));
+            record.put("steps", stepsByJob.get(jobExecutionId));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private Long millis(DateTime time) {
+        return time != null ? time.getMillis() : null;
+    }
+
+    /**
+     * The rows deleted for a chunk of job executions
+     */
+    public static class JobChunkResult {
+
+        private long jobExecutions;
+        private long stepExecutions;
+        private long executionContextValues;
+        private long jobParameters;
+        private long jobInstances;
+        private long archivedRecords;
+
+        public boolean isEmpty() {
+            return jobExecutions == 0;
+        }
+
+        public long getJobExecutions() {
+            return jobExecutions;
+        }
+
+        public long getStepExecutions() {
+            return stepExecutions;
+        }
+
+        public long getExecutionContextValues() {
+            return executionContextValues;
+        }
+
+        public long getJobParameters() {
+            return jobParameters;
+        }
+
+        public long getJobInstances() {
+            return jobInstances;
+        }
+
+        public long getArchivedRecords() {
+            return archivedRecords;
+        }
+    }
+
+    /**
+     * The rows deleted for a chunk of NiFi events
+     */
+    public static class EventChunkResult {
+
+        private long nifiEvents;
+        private long archivedRecords;
+
+        public boolean isEmpty() {
+            return nifiEvents == 0;
+        }
+
+        public long getNifiEvents() {
+            return nifiEvents;
+        }
+
+        public long getArchivedRecords() {
+            return archivedRecords;
+        }
+    }
+}
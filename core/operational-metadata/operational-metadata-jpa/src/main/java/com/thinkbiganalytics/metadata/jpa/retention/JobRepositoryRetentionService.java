@@ -0,0 +1,180 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+/**
+ * Applies the retention policies to the job repository, deleting or archiving the job executions and NiFi events that have expired.
+ * <p>
+ * Records are removed in chunks, each in its own transaction, with a pause between chunks so the purge never holds locks on these tables
+ * for long while the provenance events are being written.  The pause is at least as long as the previous chunk took.
+ * <p>
+ * Feed processor stats are purged by the stats rollup using the {@code kylo.ops.mgr.stats.retention.*} properties.
+ */
+@Service
+public class JobRepositoryRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRepositoryRetentionService.class);
+
+    @Value("${kylo.ops.mgr.retention.jobs.days:0}")
+    private int jobRetentionDays = 0;
+
+    @Value("${kylo.ops.mgr.retention.events.days:0}")
+    private int eventRetentionDays = 0;
+
+    /**
+     * Per feed policies in the form category.feed:days
+     */
+    @Value("${kylo.ops.mgr.retention.feed.policies:}")
+    private String feedPolicies;
+
+    @Value("${kylo.ops.mgr.retention.chunk.size:500}")
+    private int chunkSize = 500;
+
+    @Value("${kylo.ops.mgr.retention.chunk.pause.millis:250}")
+    private long chunkPauseMillis = 250;
+
+    /**
+     * Directory to archive the records to before they are deleted.  Records are not archived if this is blank.
+     */
+    @Value("${kylo.ops.mgr.retention.archive.dir:}")
+    private String archiveDir;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private JobRepositoryRetentionProvider retentionProvider;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final RetentionProgress progress = new RetentionProgress();
+
+    /**
+     * Apply the configured retention policies
+     *
+     * @return true if the policies were applied, false if a purge is already running
+     */
+    public boolean purge() {
+        return purge(new RetentionPolicy(null, jobRetentionDays, eventRetentionDays), RetentionPolicy.parseFeedPolicies(feedPolicies), DateTime.now());
+    }
+
+    /**
+     * Apply the feed policies, then the default policy to all the other feeds
+     *
+     * @param defaultPolicy the policy for feeds without their own policy
+     * @param feedPolicies  the per feed policies
+     * @param now           the time the retention periods are measured from
+     * @return true if the policies were applied, false if a purge is already running
+     */
+    public boolean purge(RetentionPolicy defaultPolicy, List<RetentionPolicy> feedPolicies, DateTime now) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("The job repository retention purge is already running");
+            return false;
+        }
+        progress.started(now);
+        String error = null;
+        try {
+            RetentionArchiveWriter archiveWriter = StringUtils.isNotBlank(archiveDir) ? new RetentionArchiveWriter(new File(archiveDir)) : null;
+            Set<String> feedsWithPolicies = feedPolicies.stream().map(RetentionPolicy::getFeedName).collect(Collectors.toSet());
+            for (RetentionPolicy policy : feedPolicies) {
+                purge(policy, null, now, archiveWriter);
+            }
+            purge(defaultPolicy, feedsWithPolicies, now, archiveWriter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted";
+        } catch (RuntimeException e) {
+            log.error("The job repository retention purge failed", e);
+            error = e.getMessage();
+        } finally {
+            progress.finished(DateTime.now(), error);
+            running.set(false);
+        }
+        log.info("Finished the job repository retention purge {}", progress);
+        return true;
+    }
+
+    /**
+     * @return the progress of the current or last purge
+     */
+    public RetentionProgress getProgress() {
+        return progress;
+    }
+
+    private void purge(RetentionPolicy policy, Set<String> excludedFeeds, DateTime now, RetentionArchiveWriter archiveWriter) throws InterruptedException {
+        DateTime jobCutoff = policy.getJobCutoff(now);
+        if (jobCutoff != null) {
+            boolean more = true;
+            while (more) {
+                long start = System.currentTimeMillis();
+                JobRepositoryRetentionProvider.JobChunkResult result = metadataAccess.commit(
+                    () -> retentionProvider.deleteJobChunk(policy, excludedFeeds, jobCutoff, chunkSize, archiveWriter), MetadataAccess.SERVICE);
+                more = !result.isEmpty();
+                if (more) {
+                    progress.jobChunkDeleted(result);
+                    pause(System.currentTimeMillis() - start);
+                }
+            }
+        }
+
+        DateTime eventCutoff = policy.getEventCutoff(now);
+        if (eventCutoff != null) {
+            boolean more = true;
+            while (more) {
+                long start = System.currentTimeMillis();
+                JobRepositoryRetentionProvider.EventChunkResult result = metadataAccess.commit(
+                    () -> retentionProvider.deleteEventChunk(policy, excludedFeeds, eventCutoff, chunkSize, archiveWriter), MetadataAccess.SERVICE);
+                more = !result.isEmpty();
+                if (more) {
+                    progress.eventChunkDeleted(result);
+                    pause(System.currentTimeMillis() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Give other writers a chance at the tables between chunks
+     */
+    private void pause(long chunkMillis) throws InterruptedException {
+        long pauseMillis = Math.max(chunkPauseMillis, chunkMillis);
+        if (pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+}
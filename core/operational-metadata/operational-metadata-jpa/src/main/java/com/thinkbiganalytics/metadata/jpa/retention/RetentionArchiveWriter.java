@@ -0,0 +1,122 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.json.ObjectMapperSerializer;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes records that are about to be purged to gzip compressed files of JSON lines.
+ * Each chunk is written to its own temporary file before it is deleted, and the file is only given its archive name once the transaction deleting the chunk commits.
+ * If the delete is rolled back the temporary file is removed, and the chunk is archived again by the next run.  A temporary file left by a crash between the commit
+ * and the rename holds the only copy of its chunk.
+ */
+public class RetentionArchiveWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionArchiveWriter.class);
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormat.forPattern("yyyyMMdd-HHmmss-SSS").withZone(DateTimeZone.UTC);
+
+    private final File archiveDir;
+
+    public RetentionArchiveWriter(File archiveDir) {
+        this.archiveDir = archiveDir;
+    }
+
+    /**
+     * Write a chunk of records to a new archive file.  If a transaction is active the file is only moved to its archive name once the transaction commits.
+     *
+     * @param type    the type of record, used as the file name prefix
+     * @param firstId the id of the first record in the chunk, used to keep file names unique
+     * @param records the records to write
+     * @return the archive file
+     */
+    public File write(String type, Object firstId, List<?> records) {
+        if (!archiveDir.isDirectory() && !archiveDir.mkdirs()) {
+            throw new IllegalStateException("Unable to create the retention archive directory " + archiveDir);
+        }
+        File file = new File(archiveDir, type + "-" + FILE_TIME.print(DateTime.now()) + "-" + firstId + ".json.gz");
+        File tempFile = new File(archiveDir, file.getName() + TEMP_SUFFIX);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+            for (Object record : records) {
+                writer.write(ObjectMapperSerializer.serialize(record));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw new IllegalStateException("Unable to write the retention archive " + file, e);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        commit(tempFile, file);
+                    } else if (!tempFile.delete()) {
+                        log.warn("Unable to delete the retention archive {} of a chunk that was not deleted", tempFile);
+                    }
+                }
+            });
+        } else {
+            commit(tempFile, file);
+        }
+        return file;
+    }
+
+    /**
+     * Give a written archive its final name.  This runs after the chunk is deleted, so a failure is logged rather than thrown and the temporary file is kept.
+     */
+    private void commit(File tempFile, File file) {
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Unable to rename the retention archive {} to {}. The archived records are kept in {}", tempFile, file, tempFile, e);
+        }
+    }
+
+    public File getArchiveDir() {
+        return archiveDir;
+    }
+}
@@ -0,0 +1,95 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How long to keep the job history and NiFi events for a feed, or for every feed without its own policy.
+ * A retention of 0 days or less keeps the history forever.
+ */
+public class RetentionPolicy {
+
+    private final String feedName;
+
+    private final int jobRetentionDays;
+
+    private final int eventRetentionDays;
+
+    public RetentionPolicy(String feedName, int jobRetentionDays, int eventRetentionDays) {
+        this.feedName = feedName;
+        this.jobRetentionDays = jobRetentionDays;
+        this.eventRetentionDays = eventRetentionDays;
+    }
+
+    /**
+     * Parse the per feed policies in the form {@code category.feed:days,category.other_feed:days}.
+     * The days apply to both the job history and the NiFi events of the feed.
+     *
+     * @param policies the policies, may be blank
+     * @return the policy for each feed
+     */
+    public static List<RetentionPolicy> parseFeedPolicies(String policies) {
+        List<RetentionPolicy> feedPolicies = new ArrayList<>();
+        for (String policy : StringUtils.split(StringUtils.defaultString(policies), ',')) {
+            String feedName = StringUtils.trim(StringUtils.substringBeforeLast(policy, ":"));
+            String days = StringUtils.trim(StringUtils.substringAfterLast(policy, ":"));
+            if (StringUtils.isBlank(feedName) || !StringUtils.isNumeric(days)) {
+                throw new IllegalArgumentException("Invalid feed retention policy '" + policy + "'. Expected category.feed:days");
+            }
+            feedPolicies.add(new RetentionPolicy(feedName, Integer.parseInt(days), Integer.parseInt(days)));
+        }
+        return feedPolicies;
+    }
+
+    /**
+     * @return the feed name, or null if this is the policy for all other feeds
+     */
+    public String getFeedName() {
+        return feedName;
+    }
+
+    public int getJobRetentionDays() {
+        return jobRetentionDays;
+    }
+
+    public int getEventRetentionDays() {
+        return eventRetentionDays;
+    }
+
+    /**
+     * @return the time job executions must have started before to be deleted, or null if they are kept forever
+     */
+    public DateTime getJobCutoff(DateTime now) {
+        return jobRetentionDays > 0 ? now.minusDays(jobRetentionDays) : null;
+    }
+
+    /**
+     * @return the time NiFi events must have occurred before to be deleted, or null if they are kept forever
+     */
+    public DateTime getEventCutoff(DateTime now) {
+        return eventRetentionDays > 0 ? now.minusDays(eventRetentionDays) : null;
+    }
+}
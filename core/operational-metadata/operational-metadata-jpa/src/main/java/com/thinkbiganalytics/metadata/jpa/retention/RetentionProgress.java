@@ -0,0 +1,162 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the current or last run of the {@link JobRepositoryRetentionService}.
+ * The counts are updated as each chunk is committed so they can be read while a run is in progress.
+ */
+public class RetentionProgress {
+
+    private volatile boolean running;
+
+    private volatile DateTime startTime;
+
+    private volatile DateTime endTime;
+
+    private volatile String error;
+
+    private final AtomicLong chunks = new AtomicLong();
+
+    private final AtomicLong jobExecutions = new AtomicLong();
+
+    private final AtomicLong stepExecutions = new AtomicLong();
+
+    private final AtomicLong executionContextValues = new AtomicLong();
+
+    private final AtomicLong jobParameters = new AtomicLong();
+
+    private final AtomicLong jobInstances = new AtomicLong();
+
+    private final AtomicLong nifiEvents = new AtomicLong();
+
+    private final AtomicLong archivedRecords = new AtomicLong();
+
+    void started(DateTime startTime) {
+        this.startTime = startTime;
+        this.endTime = null;
+        this.error = null;
+        this.running = true;
+        chunks.set(0);
+        jobExecutions.set(0);
+        stepExecutions.set(0);
+        executionContextValues.set(0);
+        jobParameters.set(0);
+        jobInstances.set(0);
+        nifiEvents.set(0);
+        archivedRecords.set(0);
+    }
+
+    void finished(DateTime endTime, String error) {
+        this.endTime = endTime;
+        this.error = error;
+        this.running = false;
+    }
+
+    void jobChunkDeleted(JobRepositoryRetentionProvider.JobChunkResult result) {
+        chunks.incrementAndGet();
+        jobExecutions.addAndGet(result.getJobExecutions());
+        stepExecutions.addAndGet(result.getStepExecutions());
+        executionContextValues.addAndGet(result.getExecutionContextValues());
+        jobParameters.addAndGet(result.getJobParameters());
+        jobInstances.addAndGet(result.getJobInstances());
+        archivedRecords.addAndGet(result.getArchivedRecords());
+    }
+
+    void eventChunkDeleted(JobRepositoryRetentionProvider.EventChunkResult result) {
+        chunks.incrementAndGet();
+        nifiEvents.addAndGet(result.getNifiEvents());
+        archivedRecords.addAndGet(result.getArchivedRecords());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public DateTime getStartTime() {
+        return startTime;
+    }
+
+    public DateTime getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return the error that stopped the last run, or null if it finished
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getChunks() {
+        return chunks.get();
+    }
+
+    public long getJobExecutions() {
+        return jobExecutions.get();
+    }
+
+    public long getStepExecutions() {
+        return stepExecutions.get();
+    }
+
+    public long getExecutionContextValues() {
+        return executionContextValues.get();
+    }
+
+    public long getJobParameters() {
+        return jobParameters.get();
+    }
+
+    public long getJobInstances() {
+        return jobInstances.get();
+    }
+
+    public long getNifiEvents() {
+        return nifiEvents.get();
+    }
+
+    public long getArchivedRecords() {
+        return archivedRecords.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionProgress{" +
+               "running=" + running +
+               ", startTime=" + startTime +
+               ", endTime=" + endTime +
+               ", chunks=" + chunks +
+               ", jobExecutions=" + jobExecutions +
+               ", stepExecutions=" + stepExecutions +
+               ", executionContextValues=" + executionContextValues +
+               ", jobParameters=" + jobParameters +
+               ", jobInstances=" + jobInstances +
+               ", nifiEvents=" + nifiEvents +
+               ", archivedRecords=" + archivedRecords +
+               (error != null ? ", error='" + error + '\'' : "") +
+               '}';
+    }
+}
@@ -0,0 +1,178 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.core.types.Predicate;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.core.feed.BaseFeed;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAccessControlRepository;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAclMembershipProjection;
+import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry;
+import com.thinkbiganalytics.security.AccessController;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.mockito.Mockito;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares securing a paged feed listing by joining to the FEED_ACL_INDEX table against matching the feed ids resolved by the
+ * {@link FeedOpsAclMembershipProjection}, for 10,000 feeds and a user in 1 or 50 groups. Both the Criteria API and QueryDSL paths are measured,
+ * and the projection is used regardless of how many feeds the user can access.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentorBenchmark -Dexec.classpathScope=test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FeedAclIndexQueryAugmentorBenchmark {
+
+    private static final int FEEDS = 10000;
+    private static final int GROUPS = 500;
+    private static final PageRequest PAGE = new PageRequest(0, 20);
+    private static final Predicate NAMED = QJpaOpsManagerFeed.jpaOpsManagerFeed.name.isNotNull();
+
+    /**
+     * Number of groups the user belongs to, each giving access to 40 feeds
+     */
+    @Param({"1", "50"})
+    private int userGroups;
+
+    private ConfigurableApplicationContext context;
+    private OpsManagerFeedRepository feedRepository;
+    private FeedOpsAclMembershipProjection projection;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FeedAclIndexQueryAugmentorBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class, BenchmarkConfiguration.class)
+            .run("--spring.config.name=test-application", "--spring.jpa.show-sql=false", "--debug=false");
+
+        // The test logging configuration traces every statement and bound parameter
+        for (String logger : new String[]{"org.hibernate.SQL", "org.hibernate.type", "com.thinkbiganalytics"}) {
+            LogManager.getLogger(logger).setLevel(Level.WARN);
+        }
+        feedRepository = context.getBean(OpsManagerFeedRepository.class);
+        projection = context.getBean(FeedOpsAclMembershipProjection.class);
+        projection.setMaxFeeds(Integer.MAX_VALUE);
+
+        // Each feed is accessible to its owner and two of the groups, so the user's groups match about a fifth of the feeds
+        List<JpaOpsManagerFeed> feeds = new ArrayList<>();
+        List<JpaFeedOpsAclEntry> entries = new ArrayList<>();
+        for (int i = 0; i < FEEDS; ++i) {
+            JpaOpsManagerFeed feed = new JpaOpsManagerFeed(OpsManagerFeedId.create(), "feed-" + i);
+            BaseFeed.FeedId feedId = new BaseFeed.FeedId(feed.getId().getUuid());
+            feeds.add(feed);
+            entries.add(new JpaFeedOpsAclEntry(feedId, "owner-" + i, JpaFeedOpsAclEntry.PrincipalType.USER));
+            entries.add(new JpaFeedOpsAclEntry(feedId, "group-" + (i % GROUPS), JpaFeedOpsAclEntry.PrincipalType.GROUP));
+            entries.add(new JpaFeedOpsAclEntry(feedId, "group-" + ((i + GROUPS / 2) % GROUPS), JpaFeedOpsAclEntry.PrincipalType.GROUP));
+        }
+        feedRepository.save(feeds);
+        context.getBean(FeedOpsAccessControlRepository.class).save(entries);
+
+        List<GrantedAuthority> groups = new ArrayList<>();
+        for (int i = 0; i < userGroups; ++i) {
+            groups.add(new SimpleGrantedAuthority("group-" + i));
+        }
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("dladmin", "secret", groups));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<JpaOpsManagerFeed> aclIndexJoin() {
+        projection.setEnabled(false);
+        return feedRepository.findAll(PAGE);
+    }
+
+    @Benchmark
+    public Page<JpaOpsManagerFeed> membershipProjection() {
+        projection.setEnabled(true);
+        return feedRepository.findAll(PAGE);
+    }
+
+    @Benchmark
+    public Page<JpaOpsManagerFeed> aclIndexExists() {
+        projection.setEnabled(false);
+        return feedRepository.findAll(NAMED, PAGE);
+    }
+
+    @Benchmark
+    public Page<JpaOpsManagerFeed> membershipProjectionPredicate() {
+        projection.setEnabled(true);
+        return feedRepository.findAll(NAMED, PAGE);
+    }
+
+    /**
+     * Enables entity access control so the feed repository is secured. Not annotated, so it is only picked up by this benchmark.
+     */
+    public static class BenchmarkConfiguration {
+
+        @Bean
+        @Primary
+        public AccessController benchmarkAccessController() {
+            AccessController mock = Mockito.mock(AccessController.class);
+            Mockito.when(mock.isEntityAccessControlled()).thenReturn(true);
+            return mock;
+        }
+    }
+}
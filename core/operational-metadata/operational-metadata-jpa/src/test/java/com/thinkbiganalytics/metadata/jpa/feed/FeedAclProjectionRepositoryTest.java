@@ -0,0 +1,121 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.core.feed.BaseFeed;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAccessControlRepository;
+import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry;
+import com.thinkbiganalytics.security.AccessController;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+import com.thinkbiganalytics.test.security.WithMockJaasUser;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tests secured feed queries that match feed ids from the ACL membership projection instead of joining to the index.
+ */
+@SuppressWarnings("SpringJavaAutowiringInspection")
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties", properties = "kylo.ops.mgr.feed.acl.projection.enabled=true")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class, FeedAclProjectionRepositoryTest.class})
+@Transactional
+@Configuration
+public class FeedAclProjectionRepositoryTest {
+
+    @Bean
+    public AccessController accessController() {
+        AccessController mock = Mockito.mock(AccessController.class);
+        Mockito.when(mock.isEntityAccessControlled()).thenReturn(true);
+        return mock;
+    }
+
+    @Autowired
+    TestOpsManagerFeedRepository repo;
+
+    @Autowired
+    FeedOpsAccessControlRepository aclRepo;
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void findAll_AclEntryAddedAfterQuery() throws Exception {
+        JpaOpsManagerFeed feed = new JpaOpsManagerFeed(OpsManagerFeedId.create(), "feed-name");
+        repo.save(feed);
+        Assert.assertEquals(0, repo.count());
+
+        BaseFeed.FeedId feedId = new BaseFeed.FeedId(feed.getId().getUuid());
+        aclRepo.save(new JpaFeedOpsAclEntry(feedId, "admin", JpaFeedOpsAclEntry.PrincipalType.GROUP));
+
+        Assert.assertEquals(1, repo.count());
+    }
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void findAll_AclEntryRemovedAfterQuery() throws Exception {
+        JpaOpsManagerFeed feed = new JpaOpsManagerFeed(OpsManagerFeedId.create(), "feed-name");
+        repo.save(feed);
+
+        BaseFeed.FeedId feedId = new BaseFeed.FeedId(feed.getId().getUuid());
+        JpaFeedOpsAclEntry adminGroupAcl = aclRepo.save(new JpaFeedOpsAclEntry(feedId, "admin", JpaFeedOpsAclEntry.PrincipalType.GROUP));
+        JpaFeedOpsAclEntry userGroupAcl = aclRepo.save(new JpaFeedOpsAclEntry(feedId, "user", JpaFeedOpsAclEntry.PrincipalType.GROUP));
+        Assert.assertEquals(1, repo.count());
+
+        aclRepo.delete(adminGroupAcl);
+        Assert.assertEquals(1, repo.count());
+
+        aclRepo.delete(userGroupAcl);
+        Assert.assertEquals(0, repo.count());
+    }
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void findAll_GroupMembershipChanged() throws Exception {
+        JpaOpsManagerFeed feed = new JpaOpsManagerFeed(OpsManagerFeedId.create(), "feed-name");
+        repo.save(feed);
+
+        BaseFeed.FeedId feedId = new BaseFeed.FeedId(feed.getId().getUuid());
+        aclRepo.save(new JpaFeedOpsAclEntry(feedId, "admin", JpaFeedOpsAclEntry.PrincipalType.GROUP));
+        Assert.assertEquals(1, repo.count());
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("dladmin", "secret", AuthorityUtils.createAuthorityList("user")));
+        Assert.assertEquals(0, repo.count());
+    }
+}
@@ -0,0 +1,255 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Ensures the feed health counts are kept in step with the job executions
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class FeedHealthCountsProviderTest {
+
+    private static final AtomicLong eventIds = new AtomicLong(900000L);
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private OpsFeedManagerFeedProvider feedProvider;
+
+    @Inject
+    private FeedHealthCountsProvider feedHealthCountsProvider;
+
+    @Inject
+    private MetadataAccess operationalMetadataAccess;
+
+    private String feedName;
+
+    private OpsManagerFeed.ID feedId;
+
+    @Before
+    public void setUp() {
+        feedName = "health.feed_" + UUID.randomUUID().toString().replace("-", "");
+        feedId = OpsManagerFeedId.create();
+        operationalMetadataAccess.commit(() -> feedProvider.save(feedId, feedName), MetadataAccess.SERVICE);
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String jobFlowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFeedName(feedName);
+        event.setEventType("CREATE");
+        event.setEventTime(DateTime.now());
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setIsBatchJob(true);
+        return event;
+    }
+
+    private Long startJob(String jobFlowFileId) {
+        ProvenanceEventRecordDTO event = newEvent(jobFlowFileId);
+        event.setIsStartOfJob(true);
+        return operationalMetadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(event).getJobExecutionId(), MetadataAccess.SERVICE);
+    }
+
+    private Long finishJob(String jobFlowFileId, boolean failed) {
+        ProvenanceEventRecordDTO event = newEvent(jobFlowFileId);
+        event.setIsEndOfJob(true);
+        event.setHasFailedEvents(failed);
+        return operationalMetadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(event).getJobExecutionId(), MetadataAccess.SERVICE);
+    }
+
+    private JpaFeedHealthCounts getCounts() {
+        return operationalMetadataAccess.read(() -> feedHealthCountsProvider.findByFeedId(feedId), MetadataAccess.SERVICE);
+    }
+
+    private void assertCounts(long all, long failed, long completed, long abandoned, long running) {
+        JpaFeedHealthCounts counts = getCounts();
+        Assert.assertNotNull(counts);
+        Assert.assertEquals("all", all, counts.getAllCount().longValue());
+        Assert.assertEquals("failed", failed, counts.getFailedCount().longValue());
+        Assert.assertEquals("completed", completed, counts.getCompletedCount().longValue());
+        Assert.assertEquals("abandoned", abandoned, counts.getAbandonedCount().longValue());
+        Assert.assertEquals("running", running, counts.getRunningCount().longValue());
+    }
+
+    @Test
+    public void testCountsFollowJobStatus() {
+        assertCounts(0, 0, 0, 0, 0);
+
+        String firstJob = UUID.randomUUID().toString();
+        Long firstJobId = startJob(firstJob);
+        assertCounts(1, 0, 0, 0, 1);
+        Assert.assertEquals(firstJobId, getCounts().getLatestJobExecutionId());
+        Assert.assertNull(getCounts().getLatestFinishedJobExecutionId());
+
+        finishJob(firstJob, false);
+        assertCounts(1, 0, 1, 0, 0);
+        Assert.assertEquals(firstJobId, getCounts().getLatestFinishedJobExecutionId());
+
+        String secondJob = UUID.randomUUID().toString();
+        Long secondJobId = startJob(secondJob);
+        assertCounts(2, 0, 1, 0, 1);
+        Assert.assertEquals(secondJobId, getCounts().getLatestJobExecutionId());
+
+        finishJob(secondJob, true);
+        assertCounts(2, 1, 1, 0, 0);
+        Assert.assertEquals(secondJobId, getCounts().getLatestFinishedJobExecutionId());
+
+        //abandon the failed job
+        operationalMetadataAccess.commit(() -> {
+            BatchJobExecution jobExecution = jobExecutionProvider.findByJobExecutionId(secondJobId);
+            jobExecution.setStatus(BatchJobExecution.JobStatus.ABANDONED);
+            return jobExecutionProvider.save(jobExecution);
+        }, MetadataAccess.SERVICE);
+        assertCounts(2, 0, 1, 1, 0);
+
+        //saving again without a status change leaves the counts alone
+        operationalMetadataAccess.commit(() -> jobExecutionProvider.save(jobExecutionProvider.findByJobExecutionId(secondJobId)), MetadataAccess.SERVICE);
+        assertCounts(2, 0, 1, 1, 0);
+    }
+
+    @Test
+    public void testRebuildRepairsCounts() {
+        String job = UUID.randomUUID().toString();
+        Long jobId = startJob(job);
+        finishJob(job, true);
+        startJob(UUID.randomUUID().toString());
+        assertCounts(2, 1, 0, 0, 1);
+
+        //drift the counts as if the jobs were changed outside of the provider
+        operationalMetadataAccess.commit(() -> {
+            JpaFeedHealthCounts counts = feedHealthCountsProvider.findByFeedId(feedId);
+            counts.setAllCount(100L);
+            counts.setFailedCount(0L);
+            counts.setLatestFinishedJobExecutionId(null);
+            return counts;
+        }, MetadataAccess.SERVICE);
+        assertCounts(100, 0, 0, 0, 1);
+
+        Integer feeds = operationalMetadataAccess.commit(() -> feedHealthCountsProvider.rebuild(), MetadataAccess.SERVICE);
+        Assert.assertTrue(feeds >= 1);
+        assertCounts(2, 1, 0, 0, 1);
+        Assert.assertEquals(jobId, getCounts().getLatestFinishedJobExecutionId());
+    }
+
+    @Test
+    public void testJobWaitsForRebuild() throws Exception {
+        startJob(UUID.randomUUID().toString());
+        assertCounts(1, 0, 0, 0, 1);
+
+        //hold the rebuilt counts uncommitted while another job starts
+        CountDownLatch rebuilt = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuild = executor.submit(() -> operationalMetadataAccess.commit(() -> {
+                feedHealthCountsProvider.rebuild(feedId);
+                rebuilt.countDown();
+                Thread.sleep(300);
+                return null;
+            }, MetadataAccess.SERVICE));
+            Assert.assertTrue(rebuilt.await(10, TimeUnit.SECONDS));
+            startJob(UUID.randomUUID().toString());
+            rebuild.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertCounts(2, 0, 0, 0, 2);
+    }
+
+    @Test
+    public void testConcurrentFirstJobs() throws Exception {
+        //the feed has not been counted, so each job tries to create its counts
+        operationalMetadataAccess.commit(() -> feedHealthCountsProvider.delete(feedId), MetadataAccess.SERVICE);
+        Assert.assertNull(getCounts());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch ready = new CountDownLatch(2);
+            List<Future<Long>> jobs = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                jobs.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    return startJob(UUID.randomUUID().toString());
+                }));
+            }
+            for (Future<Long> job : jobs) {
+                Assert.assertNotNull(job.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertCounts(2, 0, 0, 0, 2);
+    }
+
+    @Test
+    public void testJobCounts() {
+        FeedHealthCountsProvider.JobCounts started = FeedHealthCountsProvider.JobCounts.of(BatchJobExecution.JobStatus.STARTED, null);
+        Assert.assertEquals(1, started.all);
+        Assert.assertEquals(1, started.running);
+
+        FeedHealthCountsProvider.JobCounts abandoned = FeedHealthCountsProvider.JobCounts.of(BatchJobExecution.JobStatus.ABANDONED,
+                                                                                             ExecutionConstants.ExitCode.FAILED);
+        Assert.assertEquals(0, abandoned.failed);
+        Assert.assertEquals(1, abandoned.abandoned);
+
+        FeedHealthCountsProvider.JobCounts delta = abandoned.minus(started);
+        Assert.assertEquals(0, delta.all);
+        Assert.assertEquals(-1, delta.running);
+        Assert.assertEquals(1, delta.abandoned);
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * 
+ */
+package com.thinkbiganalytics.metadata.jpa.feed.security;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import com.thinkbiganalytics.cluster.ClusterService;
+import com.thinkbiganalytics.cluster.StandardClusterMessage;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the caching and invalidation of resolved principal sets without a database.
+ */
+public class FeedOpsAclMembershipProjectionTest {
+
+    private static final UUID FEED1 = UUID.randomUUID();
+    private static final UUID FEED2 = UUID.randomUUID();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private final ClusterService clusterService = Mockito.mock(ClusterService.class);
+
+    private TestProjection projection;
+
+    @Before
+    public void setUp() {
+        Mockito.when(clusterService.isClustered()).thenReturn(true);
+
+        projection = new TestProjection();
+        projection.feedIds.put("user1", Collections.singletonList(FEED1));
+        projection.feedIds.put("user2", Collections.singletonList(FEED2));
+        Whitebox.setInternalState(projection, "clusterService", clusterService);
+        projection.setEnabled(true);
+        projection.register();
+    }
+
+    @After
+    public void tearDown() {
+        projection.unregister();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testResolvedSetCached() {
+        Assert.assertEquals(Collections.singleton(FEED1), projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1")));
+        Assert.assertEquals(Collections.singleton(FEED1), projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1")));
+        Assert.assertEquals(1, projection.lookups.size());
+
+        // A different group set is resolved separately
+        projection.getAccessibleFeedIds("user1", Collections.emptySet());
+        Assert.assertEquals(2, projection.lookups.size());
+    }
+
+    @Test
+    public void testSetResolvedDuringInvalidationNotCached() {
+        projection.onLookup = () -> FeedOpsAclMembershipProjection.principalsChanged(Collections.singleton("group1"));
+        Assert.assertEquals(Collections.singleton(FEED1), projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1")));
+
+        projection.onLookup = null;
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        Assert.assertEquals(2, projection.lookups.size());
+    }
+
+    @Test
+    public void testPrincipalsChangedEvictsAffectedSets() {
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        projection.getAccessibleFeedIds("user2", ImmutableSet.of("group2"));
+
+        FeedOpsAclMembershipProjection.principalsChanged(Collections.singleton("group1"));
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        projection.getAccessibleFeedIds("user2", ImmutableSet.of("group2"));
+
+        Assert.assertEquals(3, projection.lookups.size());
+        Assert.assertEquals("user1", projection.lookups.get(2));
+    }
+
+    @Test
+    public void testFeedChangedEvictsSetsWithFeed() {
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        projection.getAccessibleFeedIds("user2", ImmutableSet.of("group2"));
+
+        FeedOpsAclMembershipProjection.feedChanged(FEED2);
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        projection.getAccessibleFeedIds("user2", ImmutableSet.of("group2"));
+
+        Assert.assertEquals(3, projection.lookups.size());
+        Assert.assertEquals("user2", projection.lookups.get(2));
+    }
+
+    @Test
+    public void testResolvedSetExpires() {
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        Assert.assertEquals(1, projection.lookups.size());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        projection.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        Assert.assertEquals(2, projection.lookups.size());
+    }
+
+    @Test
+    public void testChangesSentToClusterWhenTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        FeedOpsAclMembershipProjection.principalsChanged(Collections.singleton("group1"));
+        FeedOpsAclMembershipProjection.feedChanged(FEED2);
+        Mockito.verify(clusterService, Mockito.never()).sendMessageToOthers(Mockito.anyString(), Mockito.any(Serializable.class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        Assert.assertFalse(TransactionSynchronizationManager.hasResource(projection));
+
+        // Both changes are sent together
+        ArgumentCaptor<Serializable> message = ArgumentCaptor.forClass(Serializable.class);
+        Mockito.verify(clusterService).sendMessageToOthers(Mockito.eq(FeedOpsAclMembershipProjection.INVALIDATED_MESSAGE_TYPE), message.capture());
+
+        // Another node evicts the sets affected by either change
+        TestProjection other = new TestProjection();
+        other.feedIds.putAll(projection.feedIds);
+        other.feedIds.put("user3", Collections.emptyList());
+        other.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        other.getAccessibleFeedIds("user2", ImmutableSet.of("group2"));
+        other.getAccessibleFeedIds("user3", ImmutableSet.of("group3"));
+
+        other.onMessageReceived("other", new StandardClusterMessage(FeedOpsAclMembershipProjection.INVALIDATED_MESSAGE_TYPE, message.getValue()));
+        other.getAccessibleFeedIds("user1", ImmutableSet.of("group1"));
+        other.getAccessibleFeedIds("user2", ImmutableSet.of("group2"));
+        other.getAccessibleFeedIds("user3", ImmutableSet.of("group3"));
+        Assert.assertEquals(5, other.lookups.size());
+    }
+
+    @Test
+    public void testChangesNotSentWhenDisabled() {
+        projection.setEnabled(false);
+        FeedOpsAclMembershipProjection.principalsChanged(Collections.singleton("group1"));
+        Mockito.verify(clusterService, Mockito.never()).sendMessageToOthers(Mockito.anyString(), Mockito.any(Serializable.class));
+    }
+
+    /**
+     * Resolves feed ids by user name instead of querying the index, recording each lookup
+     */
+    private class TestProjection extends FeedOpsAclMembershipProjection {
+
+        final Map<String, List<UUID>> feedIds = new HashMap<>();
+        final List<String> lookups = new ArrayList<>();
+        Runnable onLookup;
+
+        TestProjection() {
+            super(100, 60, ticker);
+        }
+
+        @Override
+        List<UUID> findFeedIds(String userName, Set<String> groups) {
+            lookups.add(userName);
+            if (onLookup != null) {
+                onLookup.run();
+            }
+            return feedIds.get(userName);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JobExecutionLocks;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded tests for the {@link JobExecutionLocks}
+ */
+public class JobExecutionLocksTest {
+
+    /**
+     * Find a job flow file id that maps to a different lock than the supplied one
+     */
+    private String keyOnAnotherStripe(JobExecutionLocks locks, String jobFlowFileId) {
+        locks.lock(jobFlowFileId);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                String candidate = "job-" + i;
+                if (!locks.isHeldByCurrentThread(candidate)) {
+                    return candidate;
+                }
+            }
+        } finally {
+            locks.unlock(jobFlowFileId);
+        }
+        throw new IllegalStateException("Unable to find a job flow file on another stripe");
+    }
+
+    @Test
+    public void testSameJobIsSerialized() throws Exception {
+        JobExecutionLocks locks = new JobExecutionLocks(16, 10000L);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        int threads = 8;
+        int iterations = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < iterations; i++) {
+                        locks.lock("job-flow-file");
+                        try {
+                            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            Thread.yield();
+                            inside.decrementAndGet();
+                        } finally {
+                            locks.unlock("job-flow-file");
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, maxInside.get());
+        JobExecutionLocks.Statistics statistics = locks.getStatistics();
+        Assert.assertEquals(threads * iterations, statistics.getAcquisitions());
+        Assert.assertEquals(0, statistics.getFailedAcquisitions());
+    }
+
+    @Test
+    public void testUnrelatedJobsRunConcurrently() throws Exception {
+        JobExecutionLocks locks = new JobExecutionLocks(64, 10000L);
+        String job1 = "job-flow-file";
+        String job2 = keyOnAnotherStripe(locks, job1);
+        // both threads must be inside their locks at the same time to pass the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String job : new String[]{job1, job2}) {
+                futures.add(executor.submit(() -> {
+                    locks.lock(job);
+                    try {
+                        barrier.await(5, TimeUnit.SECONDS);
+                    } finally {
+                        locks.unlock(job);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(0, locks.getStatistics().getContendedAcquisitions());
+    }
+
+    @Test
+    public void testOpposingLockOrderDoesNotDeadlock() throws Exception {
+        JobExecutionLocks locks = new JobExecutionLocks(64, 20000L);
+        String job1 = "job-flow-file";
+        String job2 = keyOnAnotherStripe(locks, job1);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        long start = System.currentTimeMillis();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String[] order : new String[][]{{job1, job2}, {job2, job1}}) {
+                futures.add(executor.submit(() -> {
+                    locks.lock(order[0]);
+                    try {
+                        barrier.await(5, TimeUnit.SECONDS);
+                        locks.lock(order[1]);
+                        locks.unlock(order[1]);
+                    } catch (CannotAcquireLockException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        locks.unlock(order[0]);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(15, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // one thread backs off straight away rather than both waiting for the timeout
+        Assert.assertEquals(1, failures.get());
+        Assert.assertTrue(System.currentTimeMillis() - start < 10000L);
+        Assert.assertEquals(1, locks.getStatistics().getFailedAcquisitions());
+    }
+}
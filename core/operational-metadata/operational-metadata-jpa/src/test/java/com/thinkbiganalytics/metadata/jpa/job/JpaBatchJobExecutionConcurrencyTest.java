@@ -0,0 +1,127 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiEventJobExecution;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Ensures concurrent events for the same job create a single job execution
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class JpaBatchJobExecutionConcurrencyTest {
+
+    private static final AtomicLong eventIds = new AtomicLong(500000L);
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private MetadataAccess operationalMetadataAccess;
+
+    @Inject
+    private JPAQueryFactory factory;
+
+    private ProvenanceEventRecordDTO newEvent(String jobFlowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFeedName("category.feed");
+        event.setEventType("CREATE");
+        event.setEventTime(DateTime.now());
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setIsBatchJob(true);
+        return event;
+    }
+
+    private long countJobExecutions(String jobFlowFileId) {
+        QJpaNifiEventJobExecution nifiEventJobExecution = QJpaNifiEventJobExecution.jpaNifiEventJobExecution;
+        return operationalMetadataAccess.read(() -> factory.selectFrom(nifiEventJobExecution).where(nifiEventJobExecution.flowFileId.eq(jobFlowFileId)).fetchCount(),
+                                              MetadataAccess.SERVICE);
+    }
+
+    @Test
+    public void testConcurrentEventsCreateOneJobExecution() throws Exception {
+        // create a job up front so the key generator rows exist before the threads start
+        ProvenanceEventRecordDTO firstEvent = newEvent(UUID.randomUUID().toString());
+        operationalMetadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(firstEvent), MetadataAccess.SERVICE);
+
+        List<String> jobFlowFiles = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            jobFlowFiles.add(UUID.randomUUID().toString());
+        }
+        int eventsPerJob = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(jobFlowFiles.size() * eventsPerJob);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (String jobFlowFile : jobFlowFiles) {
+                for (int i = 0; i < eventsPerJob; i++) {
+                    ProvenanceEventRecordDTO event = newEvent(jobFlowFile);
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return operationalMetadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(event).getJobExecutionId(), MetadataAccess.SERVICE);
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<Long> future : futures) {
+                Assert.assertNotNull(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (String jobFlowFile : jobFlowFiles) {
+            Assert.assertEquals(1L, countJobExecutions(jobFlowFile));
+        }
+        Assert.assertEquals(0, jobExecutionProvider.getJobExecutionLockStatistics().getFailedAcquisitions());
+    }
+}
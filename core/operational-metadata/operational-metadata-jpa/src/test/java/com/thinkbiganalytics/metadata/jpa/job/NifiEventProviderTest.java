@@ -0,0 +1,101 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEvent;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiEvent;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiEventProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+/**
+ * Tests the bulk create and existence checks of the {@link NifiEventProvider}
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class NifiEventProviderTest {
+
+    @Inject
+    private NifiEventProvider nifiEventProvider;
+
+    @Inject
+    private MetadataAccess operationalMetadataAccess;
+
+    private ProvenanceEventRecordDTO newEvent(long eventId, String flowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setFlowFileUuid(flowFileId);
+        event.setJobFlowFileId(flowFileId);
+        event.setFeedName("category.feed");
+        event.setEventType("CREATE");
+        event.setEventTime(DateTime.now());
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setClusterNodeId("node1");
+        return event;
+    }
+
+    @Test
+    public void testCreateAllAndFindExisting() {
+        String flowFileId = UUID.randomUUID().toString();
+        long firstEventId = 900000L;
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            events.add(newEvent(firstEventId + i, flowFileId));
+        }
+
+        List<NifiEvent> created = operationalMetadataAccess.commit(() -> nifiEventProvider.createAll(events), MetadataAccess.SERVICE);
+        Assert.assertEquals(5, created.size());
+
+        // same event ids but different flow files should not be reported as existing
+        ProvenanceEventRecordDTO otherFlowFile = newEvent(firstEventId, UUID.randomUUID().toString());
+        ProvenanceEventRecordDTO notSaved = newEvent(firstEventId + 100, flowFileId);
+        List<ProvenanceEventRecordDTO> toCheck = new ArrayList<>(events);
+        toCheck.addAll(Arrays.asList(otherFlowFile, notSaved));
+
+        Set<JpaNifiEvent.NiFiEventPK> existing = operationalMetadataAccess.read(() -> nifiEventProvider.findExistingEvents(toCheck), MetadataAccess.SERVICE);
+        Assert.assertEquals(5, existing.size());
+        events.forEach(event -> Assert.assertTrue(existing.contains(new JpaNifiEvent.NiFiEventPK(event.getEventId(), event.getFlowFileUuid()))));
+        Assert.assertFalse(existing.contains(new JpaNifiEvent.NiFiEventPK(otherFlowFile.getEventId(), otherFlowFile.getFlowFileUuid())));
+
+        Long lastEventId = operationalMetadataAccess.read(() -> nifiEventProvider.findLastProcessedEventId("node1"), MetadataAccess.SERVICE);
+        Assert.assertEquals(Long.valueOf(firstEventId + 4), lastEventId);
+    }
+}
@@ -0,0 +1,209 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsFeedManagerFeedProvider;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedId;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Level;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiFeedProcessorStatisticsProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiFeedProcessorStatisticsRollupProvider;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+/**
+ * Ensures the stats queries return the same totals whether they are read from the raw stats or stitched together from the rollups
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+public class NifiFeedProcessorStatisticsRollupTest {
+
+    private static final DateTime BASE = new DateTime(2017, 3, 1, 10, 0, DateTimeZone.UTC);
+
+    @Inject
+    private NifiFeedProcessorStatisticsProvider statisticsProvider;
+
+    @Inject
+    private NifiFeedProcessorStatisticsRollupProvider rollupProvider;
+
+    @Inject
+    private OpsFeedManagerFeedProvider feedProvider;
+
+    @Inject
+    private MetadataAccess operationalMetadataAccess;
+
+    private JpaNifiFeedProcessorStats newStats(String feedName, String processorName, DateTime eventTime, long bytesIn) {
+        JpaNifiFeedProcessorStats stats = new JpaNifiFeedProcessorStats(feedName, processorName + "-id");
+        stats.setProcessorName(processorName);
+        stats.setMinEventTime(eventTime);
+        stats.setMaxEventTime(eventTime.plusSeconds(5));
+        stats.setBytesIn(bytesIn);
+        stats.setTotalCount(1L);
+        stats.setJobsStarted(1L);
+        stats.setMaxEventId(eventTime.getMillis());
+        stats.setClusterNodeId("node1");
+        return stats;
+    }
+
+    private void assertTotals(List<? extends JpaNifiFeedProcessorStats> results, long bytesA, long countA, long bytesB, long countB) {
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals("A", results.get(0).getProcessorName());
+        Assert.assertEquals(Long.valueOf(bytesA), results.get(0).getBytesIn());
+        Assert.assertEquals(Long.valueOf(countA), results.get(0).getTotalCount());
+        Assert.assertEquals("B", results.get(1).getProcessorName());
+        Assert.assertEquals(Long.valueOf(bytesB), results.get(1).getBytesIn());
+        Assert.assertEquals(Long.valueOf(countB), results.get(1).getTotalCount());
+    }
+
+    @Test
+    public void testRollupAndStitchedQueries() {
+        String feedName = "stats.feed_" + UUID.randomUUID().toString().replace("-", "");
+        operationalMetadataAccess.commit(() -> feedProvider.save(OpsManagerFeedId.create(), feedName), MetadataAccess.SERVICE);
+        operationalMetadataAccess.commit(() -> {
+            statisticsProvider.create(newStats(feedName, "A", BASE.plusSeconds(10), 10L));
+            statisticsProvider.create(newStats(feedName, "A", BASE.plusSeconds(30), 20L));
+            statisticsProvider.create(newStats(feedName, "B", BASE.plusMinutes(61), 100L));
+            statisticsProvider.create(newStats(feedName, "A", BASE.plusDays(1).plusHours(2).plusSeconds(15), 40L));
+            return null;
+        }, MetadataAccess.SERVICE);
+
+        DateTime start = BASE.minusMinutes(30);
+        DateTime end = BASE.plusDays(2);
+        //nothing rolled up yet so everything comes from the raw stats
+        assertTotals(operationalMetadataAccess.read(() -> statisticsProvider.findFeedProcessorStatisticsByProcessorName(feedName, start, end), MetadataAccess.SERVICE),
+                     70L, 3L, 100L, 1L);
+
+        DateTime until = end.plusHours(1);
+        for (Level level : Level.values()) {
+            while (operationalMetadataAccess.commit(() -> rollupProvider.rollup(level, until), MetadataAccess.SERVICE)) {
+            }
+        }
+        Assert.assertEquals(until, operationalMetadataAccess.read(() -> rollupProvider.getRolledUpTo(Level.MINUTE), MetadataAccess.SERVICE));
+        Assert.assertEquals(until, operationalMetadataAccess.read(() -> rollupProvider.getRolledUpTo(Level.HOUR), MetadataAccess.SERVICE));
+        Assert.assertEquals(Level.DAY.floor(until), operationalMetadataAccess.read(() -> rollupProvider.getRolledUpTo(Level.DAY), MetadataAccess.SERVICE));
+
+        //the same totals when read from the hour buckets with the partial hours read from the minutes
+        assertTotals(operationalMetadataAccess.read(() -> statisticsProvider.findFeedProcessorStatisticsByProcessorName(feedName, start, end), MetadataAccess.SERVICE),
+                     70L, 3L, 100L, 1L);
+        List<? extends JpaNifiFeedProcessorStats> byId = operationalMetadataAccess.read(() -> statisticsProvider.findFeedProcessorStatisticsByProcessorId(feedName, start, end),
+                                                                                          MetadataAccess.SERVICE);
+        assertTotals(byId, 70L, 3L, 100L, 1L);
+        Assert.assertEquals("A-id", byId.get(0).getProcessorId());
+
+        //a window starting part way through the first minute only includes the stats after the start
+        DateTime lateStart = BASE.plusSeconds(20);
+        assertTotals(operationalMetadataAccess.read(() -> statisticsProvider.findFeedProcessorStatisticsByProcessorName(feedName, lateStart, end), MetadataAccess.SERVICE),
+                     60L, 2L, 100L, 1L);
+
+        //one point per minute bucket over a day
+        List<? extends JpaNifiFeedProcessorStats> byTime = operationalMetadataAccess.read(
+            () -> statisticsProvider.findForFeedStatisticsGroupedByTime(feedName, BASE.minusHours(1), BASE.plusHours(3)), MetadataAccess.SERVICE);
+        Assert.assertEquals(2, byTime.size());
+        Assert.assertEquals(Long.valueOf(30L), byTime.get(0).getBytesIn());
+        Assert.assertEquals(Long.valueOf(100L), byTime.get(1).getBytesIn());
+
+        //once the raw stats are purged the totals come from the rollups alone
+        Assert.assertEquals(Integer.valueOf(4), operationalMetadataAccess.commit(() -> rollupProvider.purgeRaw(until), MetadataAccess.SERVICE));
+        assertTotals(operationalMetadataAccess.read(() -> statisticsProvider.findFeedProcessorStatisticsByProcessorName(feedName, BASE, end), MetadataAccess.SERVICE),
+                     70L, 3L, 100L, 1L);
+        List<? extends JpaNifiFeedProcessorStats> shortWindow = operationalMetadataAccess.read(
+            () -> statisticsProvider.findFeedProcessorStatisticsByProcessorName(feedName, BASE, BASE.plusMinutes(30)), MetadataAccess.SERVICE);
+        Assert.assertEquals(1, shortWindow.size());
+        Assert.assertEquals(Long.valueOf(30L), shortWindow.get(0).getBytesIn());
+    }
+
+    @Test
+    public void testLateStatsAddedToRolledUpBuckets() {
+        String feedName = "stats.feed_" + UUID.randomUUID().toString().replace("-", "");
+        operationalMetadataAccess.commit(() -> feedProvider.save(OpsManagerFeedId.create(), feedName), MetadataAccess.SERVICE);
+        operationalMetadataAccess.commit(() -> statisticsProvider.create(newStats(feedName, "A", BASE.plusSeconds(10), 10L)), MetadataAccess.SERVICE);
+
+        DateTime until = BASE.plusDays(2);
+        rollupAll(until);
+        assertBytes(feedName, BASE.minusDays(60), until, 10L, 1L);
+
+        //stats for the first minute arrive after every level has been rolled up past it
+        operationalMetadataAccess.commit(() -> statisticsProvider.create(newStats(feedName, "A", BASE.plusSeconds(40), 5L)), MetadataAccess.SERVICE);
+
+        //the late stats are not purged before they are rolled up
+        Assert.assertEquals(Integer.valueOf(1), operationalMetadataAccess.commit(() -> rollupProvider.purgeRaw(until), MetadataAccess.SERVICE));
+
+        rollupAll(until);
+        Assert.assertEquals(until, operationalMetadataAccess.read(() -> rollupProvider.getRolledUpTo(Level.MINUTE), MetadataAccess.SERVICE));
+
+        //the minute, hour and day buckets all include the late stats
+        assertBytes(feedName, BASE.minusHours(2), BASE.plusHours(2), 15L, 2L);
+        assertBytes(feedName, BASE.minusDays(1), until, 15L, 2L);
+        assertBytes(feedName, BASE.minusDays(60), until, 15L, 2L);
+
+        Assert.assertEquals(Integer.valueOf(1), operationalMetadataAccess.commit(() -> rollupProvider.purgeRaw(until), MetadataAccess.SERVICE));
+        assertBytes(feedName, BASE.minusDays(1), until, 15L, 2L);
+    }
+
+    private void rollupAll(DateTime until) {
+        for (Level level : Level.values()) {
+            while (operationalMetadataAccess.commit(() -> rollupProvider.rollup(level, until), MetadataAccess.SERVICE)) {
+            }
+        }
+    }
+
+    private void assertBytes(String feedName, DateTime start, DateTime end, long bytes, long count) {
+        List<? extends JpaNifiFeedProcessorStats> results = operationalMetadataAccess.read(
+            () -> statisticsProvider.findFeedProcessorStatisticsByProcessorName(feedName, start, end), MetadataAccess.SERVICE);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(Long.valueOf(bytes), results.get(0).getBytesIn());
+        Assert.assertEquals(Long.valueOf(count), results.get(0).getTotalCount());
+    }
+
+    @Test
+    public void testLevelBuckets() {
+        DateTime time = new DateTime(2017, 3, 1, 10, 15, 30, 500, DateTimeZone.UTC);
+        Assert.assertEquals(new DateTime(2017, 3, 1, 10, 15, DateTimeZone.UTC), Level.MINUTE.floor(time));
+        Assert.assertEquals(new DateTime(2017, 3, 1, 10, 16, DateTimeZone.UTC), Level.MINUTE.ceiling(time));
+        Assert.assertEquals(new DateTime(2017, 3, 1, 10, 0, DateTimeZone.UTC), Level.HOUR.floor(time));
+        Assert.assertEquals(new DateTime(2017, 3, 2, 0, 0, DateTimeZone.UTC), Level.DAY.ceiling(time));
+        Assert.assertEquals(Level.HOUR.floor(time), Level.HOUR.ceiling(Level.HOUR.floor(time)));
+        Assert.assertEquals(Level.MINUTE, Level.HOUR.finer());
+        Assert.assertNull(Level.MINUTE.finer());
+        Assert.assertEquals(Level.DAY, Level.HOUR.coarser());
+        Assert.assertNull(Level.DAY.coarser());
+    }
+}
@@ -0,0 +1,212 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedHealthCountsProvider;
+import com.thinkbiganalytics.metadata.jpa.feed.JpaFeedHealthCounts;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsFeedManagerFeedProvider;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedId;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobInstance;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiEventProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiEvent;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Ensures the retention policies purge the expired job history in chunks and keep the feed health counts in step
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties",
+                    properties = {"kylo.ops.mgr.retention.chunk.size=2", "kylo.ops.mgr.retention.chunk.pause.millis=0",
+                                  "kylo.ops.mgr.retention.archive.dir=target/retention-archive"})
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class JobRepositoryRetentionTest {
+
+    private static final AtomicLong eventIds = new AtomicLong(700000L);
+
+    @Inject
+    private JobRepositoryRetentionService retentionService;
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private NifiEventProvider nifiEventProvider;
+
+    @Inject
+    private OpsFeedManagerFeedProvider feedProvider;
+
+    @Inject
+    private FeedHealthCountsProvider feedHealthCountsProvider;
+
+    @Inject
+    private JPAQueryFactory factory;
+
+    @Inject
+    private MetadataAccess operationalMetadataAccess;
+
+    private OpsManagerFeed.ID createFeed(String feedName) {
+        OpsManagerFeed.ID feedId = OpsManagerFeedId.create();
+        operationalMetadataAccess.commit(() -> feedProvider.save(feedId, feedName), MetadataAccess.SERVICE);
+        return feedId;
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String feedName, String jobFlowFileId, DateTime eventTime) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFeedName(feedName);
+        event.setEventType("CREATE");
+        event.setEventTime(eventTime);
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setIsBatchJob(true);
+        return event;
+    }
+
+    /**
+     * Run a job from start to finish with its events, ending the given number of days ago
+     */
+    private Long runJob(String feedName, int daysAgo) {
+        String jobFlowFileId = UUID.randomUUID().toString();
+        DateTime time = DateTime.now().minusDays(daysAgo);
+        ProvenanceEventRecordDTO start = newEvent(feedName, jobFlowFileId, time);
+        start.setIsStartOfJob(true);
+        ProvenanceEventRecordDTO end = newEvent(feedName, jobFlowFileId, time);
+        end.setIsEndOfJob(true);
+        return operationalMetadataAccess.commit(() -> {
+            nifiEventProvider.create(start);
+            nifiEventProvider.create(end);
+            jobExecutionProvider.getOrCreateJobExecution(start);
+            JpaBatchJobExecution jobExecution = (JpaBatchJobExecution) jobExecutionProvider.getOrCreateJobExecution(end);
+            jobExecution.setStartTime(time);
+            jobExecution.setEndTime(time);
+            jobExecutionProvider.save(jobExecution);
+            return jobExecution.getJobExecutionId();
+        }, MetadataAccess.SERVICE);
+    }
+
+    private List<Long> findJobExecutionIds(String feedName) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        return operationalMetadataAccess.read(() -> factory.select(jobExecution.jobExecutionId)
+            .from(jobExecution)
+            .innerJoin(jobInstance).on(jobExecution.jobInstance.jobInstanceId.eq(jobInstance.jobInstanceId))
+            .where(jobInstance.jobName.eq(feedName))
+            .fetch(), MetadataAccess.SERVICE);
+    }
+
+    private long countEvents(String feedName) {
+        QJpaNifiEvent event = QJpaNifiEvent.jpaNifiEvent;
+        return operationalMetadataAccess.read(() -> factory.selectFrom(event).where(event.feedName.eq(feedName)).fetchCount(), MetadataAccess.SERVICE);
+    }
+
+    private JpaFeedHealthCounts getCounts(OpsManagerFeed.ID feedId) {
+        return operationalMetadataAccess.read(() -> feedHealthCountsProvider.findByFeedId(feedId), MetadataAccess.SERVICE);
+    }
+
+    @Test
+    public void testDefaultPolicy() {
+        String feedName = "retention.feed_" + UUID.randomUUID().toString().replace("-", "");
+        OpsManagerFeed.ID feedId = createFeed(feedName);
+        runJob(feedName, 30);
+        runJob(feedName, 20);
+        runJob(feedName, 10);
+        Long recentJobId = runJob(feedName, 0);
+        Assert.assertEquals(4, findJobExecutionIds(feedName).size());
+        Assert.assertEquals(8, countEvents(feedName));
+
+        Assert.assertTrue(retentionService.purge(new RetentionPolicy(null, 5, 5), Collections.emptyList(), DateTime.now()));
+
+        RetentionProgress progress = retentionService.getProgress();
+        Assert.assertFalse(progress.isRunning());
+        Assert.assertNull(progress.getError());
+        Assert.assertTrue(progress.getJobExecutions() >= 3);
+        Assert.assertTrue(progress.getNifiEvents() >= 6);
+        Assert.assertTrue("the purge should take more than one chunk", progress.getChunks() >= 4);
+        Assert.assertEquals(progress.getJobExecutions() + progress.getNifiEvents(), progress.getArchivedRecords());
+
+        Assert.assertEquals(Collections.singletonList(recentJobId), findJobExecutionIds(feedName));
+        Assert.assertEquals(2, countEvents(feedName));
+        File[] archives = new File("target/retention-archive").listFiles();
+        Assert.assertNotNull(archives);
+        Assert.assertTrue(archives.length >= 4);
+        for (File archive : archives) {
+            Assert.assertTrue("only archives of committed chunks are kept: " + archive, archive.getName().endsWith(".json.gz"));
+        }
+
+        JpaFeedHealthCounts counts = getCounts(feedId);
+        Assert.assertEquals(1L, counts.getAllCount().longValue());
+        Assert.assertEquals(1L, counts.getCompletedCount().longValue());
+        Assert.assertEquals(recentJobId, counts.getLatestJobExecutionId());
+    }
+
+    @Test
+    public void testFeedPolicy() {
+        String keptFeedName = "retention.kept_" + UUID.randomUUID().toString().replace("-", "");
+        String purgedFeedName = "retention.purged_" + UUID.randomUUID().toString().replace("-", "");
+        createFeed(keptFeedName);
+        OpsManagerFeed.ID purgedFeedId = createFeed(purgedFeedName);
+        runJob(keptFeedName, 10);
+        runJob(purgedFeedName, 10);
+
+        // the default policy keeps everything, the feed policy purges all of its feed's history
+        retentionService.purge(new RetentionPolicy(null, 0, 0), RetentionPolicy.parseFeedPolicies(purgedFeedName + ":5"), DateTime.now());
+
+        Assert.assertEquals(1, findJobExecutionIds(keptFeedName).size());
+        Assert.assertEquals(2, countEvents(keptFeedName));
+        Assert.assertTrue(findJobExecutionIds(purgedFeedName).isEmpty());
+        Assert.assertEquals(0, countEvents(purgedFeedName));
+
+        JpaFeedHealthCounts counts = getCounts(purgedFeedId);
+        Assert.assertEquals(0L, counts.getAllCount().longValue());
+        Assert.assertNull(counts.getLatestJobExecutionId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFeedPolicy() {
+        RetentionPolicy.parseFeedPolicies("category.feed");
+    }
+}
@@ -0,0 +1,99 @@
+package com.thinkbiganalytics.metadata.jpa.retention;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ensures a chunk is only given its archive name once the transaction deleting it commits
+ */
+public class RetentionArchiveWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testWriteWithoutTransaction() throws Exception {
+        RetentionArchiveWriter writer = new RetentionArchiveWriter(folder.getRoot());
+
+        File file = writer.write("job-executions", 1L, Arrays.asList(Collections.singletonMap("id", 1), Collections.singletonMap("id", 2)));
+
+        Assert.assertEquals(Collections.singletonList(file), Arrays.asList(folder.getRoot().listFiles()));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            Assert.assertEquals("{\"id\":1}", reader.readLine());
+            Assert.assertEquals("{\"id\":2}", reader.readLine());
+            Assert.assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testWriteCommitted() throws Exception {
+        RetentionArchiveWriter writer = new RetentionArchiveWriter(folder.getRoot());
+        TransactionSynchronizationManager.initSynchronization();
+
+        File file = writer.write("nifi-events", 1L, Collections.singletonList(Collections.singletonMap("id", 1)));
+        Assert.assertFalse("the archive is not named until the transaction commits", file.exists());
+        Assert.assertTrue(new File(file.getPath() + RetentionArchiveWriter.TEMP_SUFFIX).exists());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        Assert.assertEquals(Collections.singletonList(file), Arrays.asList(folder.getRoot().listFiles()));
+    }
+
+    @Test
+    public void testWriteRolledBack() throws Exception {
+        RetentionArchiveWriter writer = new RetentionArchiveWriter(folder.getRoot());
+        TransactionSynchronizationManager.initSynchronization();
+
+        File file = writer.write("nifi-events", 1L, Collections.singletonList(Collections.singletonMap("id", 1)));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assert.assertFalse(file.exists());
+        Assert.assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    private void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+}
@@ -30,16 +30,16 @@ import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.sql.JDBCType;
 import java.sql.Types;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Provides utility methods useful for writing parsers
@@ -55,36 +55,72 @@ public class ParserHelper {
 
     protected static int MAX_ROWS = 1000;
 
+    /**
+     * Derive the data types of fields in parallel once there are at least this many fields
+     */
+    protected static int PARALLEL_FIELDS = 256;
+
+    /**
+     * Number of fields each parallel task derives the data types of
+     */
+    protected static int FIELDS_PER_TASK = 64;
+
+    /**
+     * Pool deriving the data types of wide schemas
+     */
+    private static final ForkJoinPool DERIVE_POOL = new ForkJoinPool();
+
     /**
      * Extracts the given number of rows from the file and returns a new reader for the sample.
-     * This method protects memory in the case where a large file can be submitted with no delimiters.
+     * The stream is read until the given number of lines or {@link #MAX_CHARS} characters is reached, protecting memory in the case where a large file can be submitted with no delimiters.
+     * A line cut off by the character limit is not included in the sample.
      */
     public static String extractSampleLines(InputStream is, Charset charset, int rows) throws IOException {
 
-        StringWriter sw = new StringWriter();
         Validate.notNull(is, "empty input stream");
         Validate.notNull(charset, "charset cannot be null");
         Validate.exclusiveBetween(1, MAX_ROWS, rows, "invalid number of sample rows");
 
-        // Sample the file in case there are no newlines
-        StringWriter swBlock = new StringWriter();
-        IOUtils.copyLarge(new InputStreamReader(is, charset), swBlock, -1, MAX_CHARS);
-        try (BufferedReader br = new BufferedReader(new StringReader(swBlock.toString()))) {
-            IOUtils.closeQuietly(swBlock);
-            String line = br.readLine();
-            int linesRead = 0;
-            for (int i = 1; i <= rows && line != null; i++) {
-                sw.write(line);
-                sw.write("\n");
-                linesRead++;
-                line = br.readLine();
+        StringBuilder sample = new StringBuilder();
+        Reader reader = new InputStreamReader(is, charset);
+        char[] buffer = new char[8192];
+        int linesRead = 0;
+        int lineStart = 0;
+        boolean carriageReturn = false;
+        boolean endOfStream = false;
+
+        while (linesRead < rows && sample.length() < MAX_CHARS) {
+            int read = reader.read(buffer, 0, Math.min(buffer.length, MAX_CHARS - sample.length()));
+            if (read < 0) {
+                endOfStream = true;
+                break;
             }
-            if (linesRead <= 1 && sw.toString().length() >= MAX_CHARS) {
-                throw new IOException("Failed to detect newlines for sample file.");
+            for (int i = 0; i < read && linesRead < rows; i++) {
+                char c = buffer[i];
+                if (c == '\n' && carriageReturn) {
+                    carriageReturn = false;
+                } else if (c == '\r' || c == '\n') {
+                    sample.append('\n');
+                    linesRead++;
+                    lineStart = sample.length();
+                    carriageReturn = (c == '\r');
+                } else {
+                    sample.append(c);
+                    carriageReturn = false;
+                }
             }
         }
 
-        return sw.toString();
+        if (linesRead < rows && sample.length() > lineStart) {
+            if (endOfStream) {
+                sample.append('\n');
+            } else if (linesRead == 0) {
+                throw new IOException("Failed to detect newlines for sample file.");
+            } else {
+                sample.setLength(lineStart);
+            }
+        }
+        return sample.toString();
     }
 
     public static String sqlTypeToHiveType(Integer type) {
@@ -138,6 +174,9 @@ public class ParserHelper {
         if (values != null) {
             for (String v : values) {
                 if (!StringUtils.isEmpty(v)) {
+                    if (!isNumericCandidate(v)) {
+                        return JDBCType.VARCHAR;
+                    }
                     JDBCType currentPass;
                     try {
                         Integer.parseInt(v);
@@ -162,34 +201,60 @@ public class ParserHelper {
     }
 
     /**
-     * Derive data types
+     * Determine if the value could be parsed as a number by checking its first character, avoiding the cost of a {@link NumberFormatException} for most non-numeric values
+     */
+    private static boolean isNumericCandidate(String value) {
+        int i = 0;
+        while (i < value.length() && value.charAt(i) <= ' ') {
+            i++;
+        }
+        if (i == value.length()) {
+            return false;
+        }
+        char c = value.charAt(i);
+        return Character.isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'N' || c == 'I';
+    }
+
+    /**
+     * Derive data types.  Wide schemas are split into groups of fields that are derived in parallel.
      *
      * @param type   the target database platform
      * @param fields the fields
      */
     public static void deriveDataTypes(TableSchemaType type, List<? extends Field> fields) {
-        for (Field field : fields) {
-            if (StringUtils.isEmpty(field.getDerivedDataType())) {
-                JDBCType jdbcType = JDBCType.VARCHAR;
-                try {
-                    if (!StringUtils.isEmpty(field.getNativeDataType())) {
-                        jdbcType = JDBCType.valueOf(field.getNativeDataType());
-                    } else {
-                        jdbcType = deriveJDBCDataType(field.getSampleValues());
-                    }
-                } catch (IllegalArgumentException e) {
-                    log.warn("Unable to convert data type [?] will be converted to VARCHAR", field.getNativeDataType());
-                }
+        if (fields.size() < PARALLEL_FIELDS) {
+            for (Field field : fields) {
+                deriveDataType(type, field);
+            }
+        } else {
+            DERIVE_POOL.invoke(new DeriveDataTypesTask(type, fields));
+        }
+    }
 
-                switch (type) {
-                    case HIVE:
-                        String hiveType = sqlTypeToHiveType(jdbcType);
-                        field.setDerivedDataType(hiveType);
-                        field.setDataTypeDescriptor(hiveTypeToDescriptor(hiveType));
-                        break;
-                    case RDBMS:
-                        field.setDerivedDataType(jdbcType.getName());
+    /**
+     * Derive the data type of a field from its native data type or sample values
+     */
+    private static void deriveDataType(TableSchemaType type, Field field) {
+        if (StringUtils.isEmpty(field.getDerivedDataType())) {
+            JDBCType jdbcType = JDBCType.VARCHAR;
+            try {
+                if (!StringUtils.isEmpty(field.getNativeDataType())) {
+                    jdbcType = JDBCType.valueOf(field.getNativeDataType());
+                } else {
+                    jdbcType = deriveJDBCDataType(field.getSampleValues());
                 }
+            } catch (IllegalArgumentException e) {
+                log.warn("Unable to convert data type [?] will be converted to VARCHAR", field.getNativeDataType());
+            }
+
+            switch (type) {
+                case HIVE:
+                    String hiveType = sqlTypeToHiveType(jdbcType);
+                    field.setDerivedDataType(hiveType);
+                    field.setDataTypeDescriptor(hiveTypeToDescriptor(hiveType));
+                    break;
+                case RDBMS:
+                    field.setDerivedDataType(jdbcType.getName());
             }
         }
     }
@@ -231,6 +296,34 @@ public class ParserHelper {
         return JDBCType.valueOf(dataType).getName();
     }
 
+    /**
+     * Derives the data types of a list of fields, splitting the list until each task has at most {@link #FIELDS_PER_TASK} fields
+     */
+    static class DeriveDataTypesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TableSchemaType type;
+        private final List<? extends Field> fields;
+
+        DeriveDataTypesTask(TableSchemaType type, List<? extends Field> fields) {
+            this.type = type;
+            this.fields = fields;
+        }
+
+        @Override
+        protected void compute() {
+            if (fields.size() <= FIELDS_PER_TASK) {
+                for (Field field : fields) {
+                    deriveDataType(type, field);
+                }
+            } else {
+                int middle = fields.size() / 2;
+                invokeAll(new DeriveDataTypesTask(type, fields.subList(0, middle)), new DeriveDataTypesTask(type, fields.subList(middle, fields.size())));
+            }
+        }
+    }
+
     static class HiveDataTypeDescriptor implements DataTypeDescriptor {
 
         @JsonProperty("date")
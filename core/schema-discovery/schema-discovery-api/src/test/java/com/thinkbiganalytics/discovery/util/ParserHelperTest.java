@@ -74,6 +74,28 @@ public class ParserHelperTest {
     }
 
 
+    @Test
+    public void testExtractDropsLineCutOffByMaxChars() throws Exception {
+        String line = StringUtils.repeat('x', 1499);
+        String text = StringUtils.repeat(line + "\n", 100);
+        try (InputStream is = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))) {
+            String value = ParserHelper.extractSampleLines(is, StandardCharsets.UTF_8, 500);
+            int completeLines = ParserHelper.MAX_CHARS / (line.length() + 1);
+            assertEquals(StringUtils.repeat(line + "\n", completeLines), value);
+        }
+    }
+
+    @Test
+    public void testExtractCrLfSplitAcrossReads() throws Exception {
+        // The carriage return is the last character of the first 8K read and the line feed the first of the next
+        String first = StringUtils.repeat('x', 8191);
+        String text = first + "\r\nv1,v2\r\n";
+        try (InputStream is = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))) {
+            String value = ParserHelper.extractSampleLines(is, StandardCharsets.UTF_8, 10);
+            assertEquals(first + "\nv1,v2\n", value);
+        }
+    }
+
     @Test
     public void testDeriveJDBCDataType() throws Exception {
         assertEquals("DOUBLE", ParserHelper.deriveJDBCDataType(Arrays.asList("1.0", "20000", "-64.2001")).getName());
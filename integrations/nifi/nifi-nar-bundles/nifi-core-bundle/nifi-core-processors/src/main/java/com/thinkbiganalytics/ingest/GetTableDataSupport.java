@@ -28,11 +28,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Provides support for incremental
@@ -41,6 +44,11 @@ public class GetTableDataSupport {
 
     public static Logger logger = LoggerFactory.getLogger(GetTableDataSupport.class);
 
+    /**
+     * Number of rows to fetch per round trip for drivers whose default is too small
+     */
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
     private Connection conn;
 
     private int timeout;
@@ -68,6 +76,43 @@ public class GetTableDataSupport {
         return fromDate;
     }
 
+    /**
+     * Returns the fetch size hint for the specified database, or 0 to use the driver default.
+     *
+     * MySQL buffers the entire result in memory unless the fetch size is {@link Integer#MIN_VALUE}, which streams rows one at a time. Oracle fetches 10 rows per round trip by default, and
+     * PostgreSQL, DB2, SQL Server and Teradata benefit from a larger batch when exporting whole tables.
+     *
+     * @param databaseProductName the name from {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+     * @return the fetch size
+     */
+    protected static int fetchSizeFor(String databaseProductName) {
+        if (databaseProductName == null) {
+            return 0;
+        }
+        final String name = databaseProductName.toLowerCase();
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return Integer.MIN_VALUE;
+        } else if (name.contains("oracle") || name.contains("postgresql") || name.startsWith("db2") || name.contains("sql server") || name.contains("teradata")) {
+            return DEFAULT_FETCH_SIZE;
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the fetch size hint for the connection's database on the statement
+     */
+    private void applyFetchSize(Statement st) {
+        try {
+            final DatabaseMetaData metaData = conn.getMetaData();
+            final int fetchSize = fetchSizeFor(metaData != null ? metaData.getDatabaseProductName() : null);
+            if (fetchSize != 0) {
+                st.setFetchSize(fetchSize);
+            }
+        } catch (SQLException e) {
+            logger.debug("Unable to set the fetch size, using the driver default", e);
+        }
+    }
+
     private String selectStatement(String[] selectFields) {
         return StringUtils.join(selectFields, ",");
     }
@@ -78,6 +123,7 @@ public class GetTableDataSupport {
     public ResultSet selectFullLoad(String tableName, String[] selectFields) throws SQLException {
         final Statement st = conn.createStatement();
         st.setQueryTimeout(timeout);
+        applyFetchSize(st);
         String select = selectStatement(selectFields);
         StringBuffer sb = new StringBuffer();
         sb.append("SELECT ").append(select).append(" FROM ").append(tableName);
@@ -88,6 +134,29 @@ public class GetTableDataSupport {
         return st.executeQuery(sb.toString());
     }
 
+    /**
+     * Performs a full extract of one range of the data for the specified table
+     *
+     * @param tableName    the table
+     * @param selectFields the fields to select
+     * @param partition    the range of rows to select
+     */
+    public ResultSet selectFullLoad(String tableName, String[] selectFields, RangePartition partition) throws SQLException {
+        if (partition.getPredicate() == null) {
+            return selectFullLoad(tableName, selectFields);
+        }
+        StringBuffer sb = new StringBuffer();
+        sb.append("SELECT ").append(selectStatement(selectFields)).append(" FROM ").append(tableName).append(" WHERE ").append(partition.getPredicate());
+
+        final PreparedStatement ps = conn.prepareStatement(sb.toString());
+        ps.setQueryTimeout(timeout);
+        applyFetchSize(ps);
+        partition.bind(ps, 1);
+
+        logger.info("Executing full GetTableData query {} for {}", sb.toString(), partition);
+        return ps.executeQuery();
+    }
+
     /**
      * Provides an incremental select based on a date field and last status. The overlap time will be subtracted from
      * the last load date. This will cause duplicate records but also pickup records that were missed on the last scan
@@ -99,11 +168,26 @@ public class GetTableDataSupport {
      * @param lastLoadDate the last batch load date
      */
     public ResultSet selectIncremental(String tableName, String[] selectFields, String dateField, int overlapTime, Date lastLoadDate, int backoffTime, UnitSizes unit) throws SQLException {
+        final Date now = new Date(DateTimeUtils.currentTimeMillis());
+        return selectIncremental(tableName, selectFields, dateField, overlapTime, lastLoadDate, backoffTime, unit, now, null);
+    }
+
+    /**
+     * Provides an incremental select of one range of the table. All ranges of the same load should use the same current date so they select the same load range.
+     *
+     * @param tableName    the table
+     * @param dateField    the name of the field containing last modified date used to perform the incremental load
+     * @param overlapTime  the number of seconds to overlap with the last load status
+     * @param lastLoadDate the last batch load date
+     * @param now          the current date
+     * @param partition    the range of rows to select, or {@code null} for all rows
+     */
+    public ResultSet selectIncremental(String tableName, String[] selectFields, String dateField, int overlapTime, Date lastLoadDate, int backoffTime, UnitSizes unit, Date now,
+                                       RangePartition partition) throws SQLException {
         ResultSet rs = null;
 
         logger.info("selectIncremental tableName {} dateField {} overlapTime {} lastLoadDate {} backoffTime {} unit {}", tableName, dateField, overlapTime, lastLoadDate, backoffTime, unit.toString());
 
-        final Date now = new Date(DateTimeUtils.currentTimeMillis());
         DateRange range = new DateRange(lastLoadDate, now, overlapTime, backoffTime, unit);
 
         logger.info("Load range with min {} max {}", range.getMinDate(), range.getMaxDate());
@@ -111,12 +195,19 @@ public class GetTableDataSupport {
         StringBuffer sb = new StringBuffer();
         String select = selectStatement(selectFields);
         sb.append("select ").append(select).append(" from ").append(tableName).append(" WHERE " + dateField + " > ? and " + dateField + " < ?");
+        if (partition != null && partition.getPredicate() != null) {
+            sb.append(" and (").append(partition.getPredicate()).append(")");
+        }
 
         if (range.getMinDate().before(range.getMaxDate())) {
             PreparedStatement ps = conn.prepareStatement(sb.toString());
             ps.setQueryTimeout(timeout);
+            applyFetchSize(ps);
             ps.setTimestamp(1, new java.sql.Timestamp(range.getMinDate().getTime()));
             ps.setTimestamp(2, new java.sql.Timestamp(range.getMaxDate().getTime()));
+            if (partition != null) {
+                partition.bind(ps, 3);
+            }
 
             logger.info("Executing incremental GetTableData query {}", ps);
             rs = ps.executeQuery();
@@ -124,6 +215,65 @@ public class GetTableDataSupport {
         return rs;
     }
 
+    /**
+     * Splits the specified table into ranges that can be extracted concurrently.
+     *
+     * If a partition column is specified then the values between its minimum and maximum are divided into ranges of equal width. The column must be numeric, a date, or a timestamp. Otherwise
+     * Oracle tables are divided by a hash of the ROWID, and other databases are not supported.
+     *
+     * @param tableName       the table
+     * @param partitionColumn the column to split the table by, or {@code null} to use the ROWID
+     * @param partitions      the maximum number of ranges
+     * @return the ranges
+     * @throws SQLException             if the column range cannot be queried
+     * @throws IllegalArgumentException if the table cannot be split by the column
+     */
+    public List<RangePartition> selectPartitions(String tableName, String partitionColumn, int partitions) throws SQLException {
+        if (partitions <= 1) {
+            return RangePartition.all();
+        }
+        if (StringUtils.isBlank(partitionColumn)) {
+            final DatabaseMetaData metaData = conn.getMetaData();
+            final String productName = (metaData != null) ? metaData.getDatabaseProductName() : null;
+            if (productName != null && productName.toLowerCase().contains("oracle")) {
+                return RangePartition.oracleRowIdHash(partitions);
+            }
+            throw new IllegalArgumentException("A partition column is required to split tables in " + productName + " into ranges");
+        }
+
+        final String query = "SELECT MIN(" + partitionColumn + "), MAX(" + partitionColumn + ") FROM " + tableName;
+        logger.info("Selecting partition ranges with query {}", query);
+
+        try (Statement st = conn.createStatement()) {
+            st.setQueryTimeout(timeout);
+            try (ResultSet rs = st.executeQuery(query)) {
+                if (!rs.next()) {
+                    return RangePartition.all();
+                }
+                final int columnType = rs.getMetaData().getColumnType(1);
+                switch (columnType) {
+                    case Types.BIGINT:
+                    case Types.DECIMAL:
+                    case Types.DOUBLE:
+                    case Types.FLOAT:
+                    case Types.INTEGER:
+                    case Types.NUMERIC:
+                    case Types.REAL:
+                    case Types.SMALLINT:
+                    case Types.TINYINT:
+                        return RangePartition.numeric(partitionColumn, rs.getBigDecimal(1), rs.getBigDecimal(2), partitions);
+
+                    case Types.DATE:
+                    case Types.TIMESTAMP:
+                        return RangePartition.timestamp(partitionColumn, rs.getTimestamp(1), rs.getTimestamp(2), partitions);
+
+                    default:
+                        throw new IllegalArgumentException("Partition column " + partitionColumn + " must be numeric, a date, or a timestamp but has SQL type " + columnType);
+                }
+            }
+        }
+    }
+
     /**
      * Output format for table rows.
      */
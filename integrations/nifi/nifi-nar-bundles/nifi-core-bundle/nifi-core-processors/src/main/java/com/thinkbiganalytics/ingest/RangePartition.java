@@ -0,0 +1,204 @@
+package com.thinkbiganalytics.ingest;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.Validate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One of the ranges that a table is split into so it can be extracted by several queries at once.
+ *
+ * The first and last ranges are open ended so rows outside the minimum and maximum values seen when the ranges were calculated are still extracted, and {@code NULL} values are included in
+ * the first range.
+ */
+public class RangePartition {
+
+    /**
+     * Position of this range, starting at 0
+     */
+    private final int index;
+
+    /**
+     * Total number of ranges
+     */
+    private final int count;
+
+    /**
+     * Condition selecting the rows in this range, or {@code null} for all rows
+     */
+    private final String predicate;
+
+    /**
+     * Values for the parameters in the predicate
+     */
+    private final List<Object> parameters;
+
+    private RangePartition(int index, int count, String predicate, List<Object> parameters) {
+        this.index = index;
+        this.count = count;
+        this.predicate = predicate;
+        this.parameters = parameters;
+    }
+
+    /**
+     * A single range containing the entire table
+     */
+    public static List<RangePartition> all() {
+        return Collections.singletonList(new RangePartition(0, 1, null, Collections.emptyList()));
+    }
+
+    /**
+     * Divides the values of a numeric column into ranges of equal width.
+     *
+     * @param column     the partition column
+     * @param min        the minimum value of the column
+     * @param max        the maximum value of the column
+     * @param partitions the number of ranges
+     * @return the ranges, fewer than requested if there are not enough distinct values
+     */
+    public static List<RangePartition> numeric(String column, BigDecimal min, BigDecimal max, int partitions) {
+        Validate.isTrue(partitions > 0, "The number of partitions must be greater than 0");
+        if (min == null || max == null || min.compareTo(max) >= 0) {
+            return all();
+        }
+        final boolean integral = min.scale() <= 0 && max.scale() <= 0;
+        final BigDecimal width = max.subtract(min).divide(BigDecimal.valueOf(partitions), MathContext.DECIMAL64);
+        final List<Object> boundaries = new ArrayList<>();
+        BigDecimal last = min;
+        for (int i = 1; i < partitions; i++) {
+            BigDecimal boundary = min.add(width.multiply(BigDecimal.valueOf(i)));
+            if (integral) {
+                boundary = boundary.setScale(0, RoundingMode.CEILING);
+            }
+            if (boundary.compareTo(last) > 0 && boundary.compareTo(max) <= 0) {
+                boundaries.add(boundary);
+                last = boundary;
+            }
+        }
+        return between(column, boundaries);
+    }
+
+    /**
+     * Divides the values of a date or timestamp column into ranges of equal duration.
+     *
+     * @param column     the partition column
+     * @param min        the earliest value of the column
+     * @param max        the latest value of the column
+     * @param partitions the number of ranges
+     * @return the ranges, fewer than requested if the values are less than a millisecond apart
+     */
+    public static List<RangePartition> timestamp(String column, Timestamp min, Timestamp max, int partitions) {
+        Validate.isTrue(partitions > 0, "The number of partitions must be greater than 0");
+        if (min == null || max == null || !min.before(max)) {
+            return all();
+        }
+        final long start = min.getTime();
+        final long width = (max.getTime() - start) / partitions;
+        final List<Object> boundaries = new ArrayList<>();
+        for (int i = 1; i < partitions && width > 0; i++) {
+            boundaries.add(new Timestamp(start + width * i));
+        }
+        return between(column, boundaries);
+    }
+
+    /**
+     * Divides an Oracle table by a hash of the ROWID. This doesn't need a partition column, but each query still reads the entire table.
+     *
+     * @param partitions the number of ranges
+     * @return the ranges
+     */
+    public static List<RangePartition> oracleRowIdHash(int partitions) {
+        Validate.isTrue(partitions > 0, "The number of partitions must be greater than 0");
+        if (partitions == 1) {
+            return all();
+        }
+        final List<RangePartition> ranges = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            ranges.add(new RangePartition(i, partitions, "ORA_HASH(ROWID, " + (partitions - 1) + ") = " + i, Collections.emptyList()));
+        }
+        return ranges;
+    }
+
+    /**
+     * Creates the ranges separated by the specified boundaries
+     */
+    private static List<RangePartition> between(String column, List<Object> boundaries) {
+        Validate.notEmpty(column);
+        if (boundaries.isEmpty()) {
+            return all();
+        }
+        final int count = boundaries.size() + 1;
+        final List<RangePartition> ranges = new ArrayList<>(count);
+        ranges.add(new RangePartition(0, count, "(" + column + " < ? OR " + column + " IS NULL)", Collections.singletonList(boundaries.get(0))));
+        for (int i = 1; i < boundaries.size(); i++) {
+            ranges.add(new RangePartition(i, count, column + " >= ? AND " + column + " < ?", Collections.unmodifiableList(boundaries.subList(i - 1, i + 1))));
+        }
+        ranges.add(new RangePartition(count - 1, count, column + " >= ?", Collections.singletonList(boundaries.get(boundaries.size() - 1))));
+        return ranges;
+    }
+
+    /**
+     * Sets the values of the predicate parameters on the statement.
+     *
+     * @param statement      the statement
+     * @param parameterIndex the index of the first predicate parameter
+     * @throws SQLException if a parameter cannot be set
+     */
+    public void bind(PreparedStatement statement, int parameterIndex) throws SQLException {
+        for (Object parameter : parameters) {
+            if (parameter instanceof Timestamp) {
+                statement.setTimestamp(parameterIndex++, (Timestamp) parameter);
+            } else {
+                statement.setBigDecimal(parameterIndex++, (BigDecimal) parameter);
+            }
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public String getPredicate() {
+        return predicate;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return "RangePartition{" + (index + 1) + " of " + count + (predicate != null ? ": " + predicate + " " + parameters : "") + "}";
+    }
+}
@@ -20,7 +20,9 @@ package com.thinkbiganalytics.nifi.v2.ingest;
  * #L%
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.ingest.GetTableDataSupport;
+import com.thinkbiganalytics.ingest.RangePartition;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProviderService;
 import com.thinkbiganalytics.nifi.processor.AbstractNiFiProcessor;
 import com.thinkbiganalytics.nifi.thrift.api.AbstractRowVisitor;
@@ -38,11 +40,14 @@ import org.apache.nifi.annotation.behavior.WritesAttribute;
 import org.apache.nifi.annotation.behavior.WritesAttributes;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnScheduled;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.components.PropertyValue;
 import org.apache.nifi.components.Validator;
 import org.apache.nifi.dbcp.DBCPService;
 import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
 import org.apache.nifi.logging.ComponentLog;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
@@ -51,9 +56,13 @@ import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.io.OutputStreamCallback;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.util.StopWatch;
+import org.joda.time.DateTimeUtils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -63,12 +72,20 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.thinkbiganalytics.nifi.v2.common.CommonProperties.FEED_CATEGORY;
 import static com.thinkbiganalytics.nifi.v2.common.CommonProperties.FEED_NAME;
@@ -84,7 +101,12 @@ import static com.thinkbiganalytics.nifi.v2.ingest.IngestProperties.REL_SUCCESS;
     "Extracts data from a JDBC source table and can optional extract incremental data if provided criteria. Query result will be converted to a delimited format, or to Avro if specified. Streaming is used so arbitrarily large result sets are supported. This processor can be scheduled to run on a timer, or cron expression, using the standard scheduling methods, or it can be triggered by an incoming FlowFile. If it is triggered by an incoming FlowFile, then attributes of that FlowFile will be available when evaluating the select query. FlowFile attribute \'source.row.count\' indicates how many rows were selected.")
 @WritesAttributes({
         @WritesAttribute(attribute = "db.table.output.format", description = "Output format for database table ingested"),
-        @WritesAttribute(attribute = "db.table.avro.schema", description = "Avro schema for the database table ingested")
+        @WritesAttribute(attribute = "db.table.avro.schema", description = "Avro schema for the database table ingested"),
+        @WritesAttribute(attribute = "fragment.identifier", description = "When the table is extracted in ranges, all flow files from the same extract have the same identifier"),
+        @WritesAttribute(attribute = "fragment.index", description = "When the table is extracted in ranges, the position of the range starting at 0"),
+        @WritesAttribute(attribute = "fragment.count", description = "When the table is extracted in ranges, the number of flow files from the same extract"),
+        @WritesAttribute(attribute = "segment.original.filename", description = "When the table is extracted in ranges, the filename of the incoming flow file"),
+        @WritesAttribute(attribute = "source.total.row.count", description = "When the table is extracted in ranges, the number of rows in all of the ranges")
     })
 
 // Implements strategies outlined by https://thebibackend.wordpress.com/2011/05/18/incremental-load-part-i-overview/
@@ -93,6 +115,11 @@ public class GetTableData extends AbstractNiFiProcessor {
 
     public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ISO_DATE_TIME;
     public static final String RESULT_ROW_COUNT = "source.row.count";
+    public static final String TOTAL_ROW_COUNT = "source.total.row.count";
+    public static final String FRAGMENT_ID = "fragment.identifier";
+    public static final String FRAGMENT_INDEX = "fragment.index";
+    public static final String FRAGMENT_COUNT = "fragment.count";
+    public static final String SEGMENT_ORIGINAL_FILENAME = "segment.original.filename";
     public static final String EMPTY_STRING = "";
 
     public static final Relationship REL_NO_DATA = new Relationship.Builder()
@@ -196,9 +223,49 @@ public class GetTableData extends AbstractNiFiProcessor {
         .defaultValue(",")
         .expressionLanguageSupported(true)
         .build();
+    public static final PropertyDescriptor PARTITION_COUNT = new PropertyDescriptor.Builder()
+        .name("Partition Count")
+        .description("Number of ranges to split the table into. Up to the Max Concurrent Ranges are read at once, each using its own connection from the Source Database Connection, "
+                     + "and each range is written to its own flow file. The flow files have fragment attributes so they can be merged downstream, and are only transferred once every range "
+                     + "has been read. A value of 1 reads the table with a single query. Ranges are first written to files in the Temporary Directory and then copied into the content "
+                     + "repository, so a partitioned extract needs free space for the whole extract in both.")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+    public static final PropertyDescriptor PARTITION_COLUMN = new PropertyDescriptor.Builder()
+        .name("Partition Column")
+        .description("Numeric, date, or timestamp column used to split the table into ranges of equal width when the Partition Count is greater than 1. "
+                     + "If empty, Oracle tables are split by a hash of the ROWID. Other databases require a column.")
+        .required(false)
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+    public static final PropertyDescriptor MAX_CONCURRENT_RANGES = new PropertyDescriptor.Builder()
+        .name("Max Concurrent Ranges")
+        .description("Maximum number of ranges read at once when the Partition Count is greater than 1, shared by all tasks of this processor. Each range being read holds a connection, "
+                     + "so this should not be more than the maximum number of connections of the Source Database Connection.")
+        .required(true)
+        .defaultValue("4")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor TEMP_DIRECTORY = new PropertyDescriptor.Builder()
+        .name("Temporary Directory")
+        .description("Directory the ranges are written to before they are copied into the content repository when the Partition Count is greater than 1. "
+                     + "If empty, the java.io.tmpdir directory is used.")
+        .required(false)
+        .addValidator(StandardValidators.createDirectoryExistsValidator(true, false))
+        .expressionLanguageSupported(true)
+        .build();
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
+    /**
+     * Reads the ranges of partitioned extracts, limited to the Max Concurrent Ranges
+     */
+    private volatile ExecutorService rangeExecutor;
+
     public GetTableData() {
         HashSet<Relationship> r = new HashSet<>();
         r.add(REL_SUCCESS);
@@ -222,6 +289,10 @@ public class GetTableData extends AbstractNiFiProcessor {
         pds.add(UNIT_SIZE);
         pds.add(OUTPUT_TYPE);
         pds.add(OUTPUT_DELIMITER);
+        pds.add(PARTITION_COUNT);
+        pds.add(PARTITION_COLUMN);
+        pds.add(MAX_CONCURRENT_RANGES);
+        pds.add(TEMP_DIRECTORY);
         this.propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -253,6 +324,29 @@ public class GetTableData extends AbstractNiFiProcessor {
         return relationships;
     }
 
+    /**
+     * Creates the executor for reading ranges.  Its threads are only started when a partitioned extract runs, and stop again once idle.
+     */
+    @OnScheduled
+    public void createRangeExecutor(final ProcessContext context) {
+        final int maxConcurrentRanges = context.getProperty(MAX_CONCURRENT_RANGES).asInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrentRanges, maxConcurrentRanges, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                                   new ThreadFactoryBuilder().setDaemon(true).setNameFormat("GetTableData-" + getIdentifier() + "-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        rangeExecutor = executor;
+    }
+
+    /**
+     * Stops the executor for reading ranges.
+     */
+    @OnStopped
+    public void shutdownRangeExecutor() {
+        if (rangeExecutor != null) {
+            rangeExecutor.shutdownNow();
+            rangeExecutor = null;
+        }
+    }
+
     @Override
     protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
         return propDescriptors;
@@ -298,84 +392,69 @@ public class GetTableData extends AbstractNiFiProcessor {
         final LoadStrategy strategy = LoadStrategy.valueOf(loadStrategy);
         final StopWatch stopWatch = new StopWatch(true);
 
-        try (final Connection conn = dbcpService.getConnection()) {
+        try {
+            final TableExtract extract = new TableExtract(tableName, selectFields, strategy, dateField, queryTimeout, overlapTime, backoffTime, GetTableDataSupport.UnitSizes.valueOf(unitSize),
+                                                          GetTableDataSupport.OutputType.valueOf(outputType), delimiter);
+            if (strategy == LoadStrategy.INCREMENTAL) {
+                String waterMarkValue = getIncrementalWaterMarkValue(incoming, waterMarkPropName);
+                LocalDateTime waterMarkTime = LocalDateTime.parse(waterMarkValue, DATE_TIME_FORMAT);
+                extract.lastLoadDate = toDate(waterMarkTime);
+            }
 
-            FlowFile outgoing = (incoming == null ? session.create() : incoming);
-            final AtomicLong nrOfRows = new AtomicLong(0L);
-            final LastFieldVisitor visitor = new LastFieldVisitor(dateField, null);
-            final FlowFile current = outgoing;
+            final Integer partitionCount = context.getProperty(PARTITION_COUNT).evaluateAttributeExpressions(incoming).asInteger();
+            if (partitionCount != null && partitionCount > 1) {
+                final String partitionColumn = context.getProperty(PARTITION_COLUMN).evaluateAttributeExpressions(incoming).getValue();
+                final String tempDirectory = context.getProperty(TEMP_DIRECTORY).evaluateAttributeExpressions(incoming).getValue();
+                extractPartitions(session, incoming, dbcpService, extract, partitionColumn, partitionCount, tempDirectory, waterMarkPropName, feedName, stopWatch);
+                return;
+            }
 
-            outgoing = session.write(outgoing, new OutputStreamCallback() {
-                @Override
-                public void process(final OutputStream out) throws IOException {
-                    ResultSet rs = null;
-                    try {
-                        GetTableDataSupport support = new GetTableDataSupport(conn, queryTimeout);
-                        if (strategy == LoadStrategy.FULL_LOAD) {
-                            rs = support.selectFullLoad(tableName, selectFields);
-                        } else if (strategy == LoadStrategy.INCREMENTAL) {
-                            String waterMarkValue = getIncrementalWaterMarkValue(current, waterMarkPropName);
-                            LocalDateTime waterMarkTime = LocalDateTime.parse(waterMarkValue, DATE_TIME_FORMAT);
-                            Date lastLoadDate = toDate(waterMarkTime);
-                            visitor.setLastModifyDate(lastLoadDate);
-                            rs = support.selectIncremental(tableName, selectFields, dateField, overlapTime, lastLoadDate, backoffTime, GetTableDataSupport.UnitSizes.valueOf(unitSize));
-                        } else {
-                            throw new RuntimeException("Unsupported loadStrategy [" + loadStrategy + "]");
-                        }
+            try (final Connection conn = dbcpService.getConnection()) {
 
-                        if (GetTableDataSupport.OutputType.DELIMITED.equals(GetTableDataSupport.OutputType.valueOf(outputType))) {
-                            nrOfRows.set(JdbcCommon.convertToDelimitedStream(rs, out, (strategy == LoadStrategy.INCREMENTAL ? visitor : null), delimiter));
-                        } else if (GetTableDataSupport.OutputType.AVRO.equals(GetTableDataSupport.OutputType.valueOf(outputType))){
-                            avroSchema = JdbcCommon.createSchema(rs);
-                            nrOfRows.set(JdbcCommon.convertToAvroStream(rs, out, (strategy == LoadStrategy.INCREMENTAL ? visitor : null), avroSchema));
-                        } else {
-                            throw new RuntimeException("Unsupported output format type [" + outputType + "]");
-                        }
-                    } catch (final SQLException e) {
-                        throw new IOException("SQL execution failure", e);
-                    } finally {
-                        if (rs != null) {
-                            try {
-                                if (rs.getStatement() != null) {
-                                    rs.getStatement().close();
-                                }
-                                rs.close();
-                            } catch (SQLException e) {
-                                getLog().error("Error closing sql statement and resultset");
-                            }
+                FlowFile outgoing = (incoming == null ? session.create() : incoming);
+                final AtomicReference<ExtractResult> result = new AtomicReference<>();
+
+                outgoing = session.write(outgoing, new OutputStreamCallback() {
+                    @Override
+                    public void process(final OutputStream out) throws IOException {
+                        try {
+                            result.set(extract.extract(conn, out, null));
+                        } catch (final SQLException e) {
+                            throw new IOException("SQL execution failure", e);
                         }
                     }
-                }
-            });
+                });
+                final long nrOfRows = result.get().getRows();
+                avroSchema = result.get().getAvroSchema();
 
-            // set attribute how many rows were selected
-            outgoing = session.putAttribute(outgoing, RESULT_ROW_COUNT, Long.toString(nrOfRows.get()));
+                // set attribute how many rows were selected
+                outgoing = session.putAttribute(outgoing, RESULT_ROW_COUNT, Long.toString(nrOfRows));
 
-            //set output format type and avro schema for feed setup, if available
-            outgoing = session.putAttribute(outgoing, "db.table.output.format", outputType);
-            String avroSchemaForFeedSetup = (avroSchema != null) ? JdbcCommon.getAvroSchemaForFeedSetup(avroSchema) : EMPTY_STRING;
-            outgoing = session.putAttribute(outgoing, "db.table.avro.schema", avroSchemaForFeedSetup);
+                //set output format type and avro schema for feed setup, if available
+                outgoing = session.putAttribute(outgoing, "db.table.output.format", outputType);
+                String avroSchemaForFeedSetup = (avroSchema != null) ? JdbcCommon.getAvroSchemaForFeedSetup(avroSchema) : EMPTY_STRING;
+                outgoing = session.putAttribute(outgoing, "db.table.avro.schema", avroSchemaForFeedSetup);
 
-            session.getProvenanceReporter().modifyContent(outgoing, "Retrieved " + nrOfRows.get() + " rows", stopWatch.getElapsed(TimeUnit.MILLISECONDS));
+                session.getProvenanceReporter().modifyContent(outgoing, "Retrieved " + nrOfRows + " rows", stopWatch.getElapsed(TimeUnit.MILLISECONDS));
 
-            // Terminate flow file if no work
-            Long rowcount = nrOfRows.get();
-            outgoing = session.putAttribute(outgoing, ComponentAttributes.NUM_SOURCE_RECORDS.key(), String.valueOf(rowcount));
+                // Terminate flow file if no work
+                outgoing = session.putAttribute(outgoing, ComponentAttributes.NUM_SOURCE_RECORDS.key(), String.valueOf(nrOfRows));
 
-            if (nrOfRows.get() == 0L) {
-                logger.info("{} contains no data; transferring to 'nodata'", new Object[]{outgoing});
-                session.transfer(outgoing, REL_NO_DATA);
-            } else {
+                if (nrOfRows == 0L) {
+                    logger.info("{} contains no data; transferring to 'nodata'", new Object[]{outgoing});
+                    session.transfer(outgoing, REL_NO_DATA);
+                } else {
 
-                logger.info("{} contains {} records; transferring to 'success'", new Object[]{outgoing, nrOfRows.get()});
+                    logger.info("{} contains {} records; transferring to 'success'", new Object[]{outgoing, nrOfRows});
 
-                if (strategy == LoadStrategy.INCREMENTAL) {
-                    String newWaterMarkStr = format(visitor.getLastModifyDate());
-                    outgoing = setIncrementalWaterMarkValue(session, outgoing, waterMarkPropName, newWaterMarkStr);
+                    if (strategy == LoadStrategy.INCREMENTAL) {
+                        String newWaterMarkStr = format(result.get().getLastModifyDate());
+                        outgoing = setIncrementalWaterMarkValue(session, outgoing, waterMarkPropName, newWaterMarkStr);
 
-                    logger.info("Recorded load status feed {} date {}", new Object[]{feedName, newWaterMarkStr});
+                        logger.info("Recorded load status feed {} date {}", new Object[]{feedName, newWaterMarkStr});
+                    }
+                    session.transfer(outgoing, REL_SUCCESS);
                 }
-                session.transfer(outgoing, REL_SUCCESS);
             }
         } catch (final Exception e) {
             if (incoming == null) {
@@ -387,6 +466,146 @@ public class GetTableData extends AbstractNiFiProcessor {
         }
     }
 
+    /**
+     * Extracts the table as several ranges, each read concurrently using its own connection and written to its own flow file.
+     *
+     * The ranges are written to temporary files because the session can only be used by one thread, and each file is removed by the session once it has been imported and committed.
+     * The flow files are created, and the high-water mark is set on them, only after every range has been read successfully.  If any range fails then the other ranges are cancelled,
+     * nothing is transferred to success and the exception is thrown.
+     */
+    private void extractPartitions(final ProcessSession session, final FlowFile incoming, final DBCPService dbcpService, final TableExtract extract, final String partitionColumn,
+                                   final int partitionCount, final String tempDirectory, final PropertyValue waterMarkPropName, final String feedName, final StopWatch stopWatch)
+        throws Exception {
+        final ComponentLog logger = getLog();
+
+        final List<RangePartition> partitions;
+        try (final Connection conn = dbcpService.getConnection()) {
+            partitions = new GetTableDataSupport(conn, extract.queryTimeout).selectPartitions(extract.tableName, partitionColumn, partitionCount);
+        }
+        logger.info("Extracting {} in {} ranges", new Object[]{extract.tableName, partitions.size()});
+
+        final ExecutorService executor = rangeExecutor;
+        if (executor == null) {
+            throw new ProcessException("GetTableData is not scheduled");
+        }
+        final List<Future<ExtractResult>> futures = new ArrayList<>(partitions.size());
+        final List<Path> files = new ArrayList<>(partitions.size());
+        final Set<Path> imported = new HashSet<>();
+        boolean transferred = false;
+        try {
+            for (final RangePartition partition : partitions) {
+                final Path file = StringUtils.isBlank(tempDirectory) ? Files.createTempFile("GetTableData-", ".part")
+                                                                     : Files.createTempFile(Paths.get(tempDirectory), "GetTableData-", ".part");
+                files.add(file);
+                futures.add(executor.submit(() -> {
+                    try (final Connection conn = dbcpService.getConnection();
+                         final OutputStream out = Files.newOutputStream(file)) {
+                        return extract.extract(conn, out, partition);
+                    }
+                }));
+            }
+
+            // Wait for every range before creating any flow files
+            final List<ExtractResult> results = new ArrayList<>(partitions.size());
+            long nrOfRows = 0;
+            Date lastModifyDate = extract.lastLoadDate;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    final ExtractResult result = futures.get(i).get();
+                    results.add(result);
+                    nrOfRows += result.getRows();
+                    if (lastModifyDate == null || (result.getLastModifyDate() != null && result.getLastModifyDate().after(lastModifyDate))) {
+                        lastModifyDate = result.getLastModifyDate();
+                    }
+                } catch (final ExecutionException e) {
+                    throw new ProcessException("Failed to extract " + partitions.get(i), e.getCause());
+                }
+            }
+            avroSchema = results.get(0).getAvroSchema();
+            final String avroSchemaForFeedSetup = (avroSchema != null) ? JdbcCommon.getAvroSchemaForFeedSetup(avroSchema) : EMPTY_STRING;
+
+            if (nrOfRows == 0L) {
+                FlowFile outgoing = (incoming == null ? session.create() : incoming);
+                outgoing = importRange(session, files.get(0), imported, outgoing);
+                outgoing = session.putAttribute(outgoing, RESULT_ROW_COUNT, "0");
+                outgoing = session.putAttribute(outgoing, ComponentAttributes.NUM_SOURCE_RECORDS.key(), "0");
+                outgoing = session.putAttribute(outgoing, "db.table.output.format", extract.outputType.toString());
+                outgoing = session.putAttribute(outgoing, "db.table.avro.schema", avroSchemaForFeedSetup);
+                logger.info("{} contains no data; transferring to 'nodata'", new Object[]{outgoing});
+                session.transfer(outgoing, REL_NO_DATA);
+                transferred = true;
+                return;
+            }
+
+            final String fragmentId = UUID.randomUUID().toString();
+            final String originalFilename = (incoming != null) ? incoming.getAttribute(CoreAttributes.FILENAME.key()) : fragmentId;
+            final String newWaterMarkStr = (extract.strategy == LoadStrategy.INCREMENTAL) ? format(lastModifyDate) : null;
+            final List<FlowFile> fragments = new ArrayList<>(results.size());
+            try {
+                for (int i = 0; i < results.size(); i++) {
+                    FlowFile outgoing = (incoming == null ? session.create() : session.create(incoming));
+                    fragments.add(outgoing);
+                    outgoing = importRange(session, files.get(i), imported, outgoing);
+
+                    final Map<String, String> attributes = new HashMap<>();
+                    attributes.put(RESULT_ROW_COUNT, Long.toString(results.get(i).getRows()));
+                    attributes.put(ComponentAttributes.NUM_SOURCE_RECORDS.key(), Long.toString(results.get(i).getRows()));
+                    attributes.put("db.table.output.format", extract.outputType.toString());
+                    attributes.put("db.table.avro.schema", avroSchemaForFeedSetup);
+                    attributes.put(FRAGMENT_ID, fragmentId);
+                    attributes.put(FRAGMENT_INDEX, Integer.toString(i));
+                    attributes.put(FRAGMENT_COUNT, Integer.toString(results.size()));
+                    attributes.put(SEGMENT_ORIGINAL_FILENAME, originalFilename);
+                    attributes.put(TOTAL_ROW_COUNT, Long.toString(nrOfRows));
+                    outgoing = session.putAllAttributes(outgoing, attributes);
+
+                    if (newWaterMarkStr != null) {
+                        outgoing = setIncrementalWaterMarkValue(session, outgoing, waterMarkPropName, newWaterMarkStr);
+                    }
+                    session.getProvenanceReporter().modifyContent(outgoing, "Retrieved " + results.get(i).getRows() + " rows from " + partitions.get(i), stopWatch.getElapsed(TimeUnit.MILLISECONDS));
+                    fragments.set(i, outgoing);
+                }
+            } catch (final Exception e) {
+                session.remove(fragments);
+                throw e;
+            }
+
+            session.transfer(fragments, REL_SUCCESS);
+            if (incoming != null) {
+                session.remove(incoming);
+            }
+            transferred = true;
+
+            logger.info("{} contains {} records in {} ranges; transferring to 'success'", new Object[]{extract.tableName, nrOfRows, results.size()});
+            if (newWaterMarkStr != null) {
+                logger.info("Recorded load status feed {} date {}", new Object[]{feedName, newWaterMarkStr});
+            }
+        } finally {
+            for (final Future<ExtractResult> future : futures) {
+                future.cancel(true);
+            }
+            for (final Path file : files) {
+                if (transferred && imported.contains(file)) {
+                    continue;  // removed by the session when it commits
+                }
+                try {
+                    Files.deleteIfExists(file);
+                } catch (final IOException e) {
+                    logger.warn("Unable to delete temporary file {}", new Object[]{file, e});
+                }
+            }
+        }
+    }
+
+    /**
+     * Imports a range into the content of a flow file.  The session removes the temporary file when it commits.
+     */
+    private FlowFile importRange(final ProcessSession session, final Path file, final Set<Path> imported, final FlowFile flowFile) {
+        final FlowFile outgoing = session.importFrom(file, false, flowFile);
+        imported.add(file);
+        return outgoing;
+    }
+
     private String getIncrementalWaterMarkValue(FlowFile ff, PropertyValue waterMarkPropName) {
         if (!waterMarkPropName.isSet()) {
             // TODO validate when scheduled?
@@ -399,7 +618,7 @@ public class GetTableData extends AbstractNiFiProcessor {
                 throw new IllegalArgumentException("The processor is configured for incremental load but the "
                                                    + "property 'High-Water Mark Value Property Name' does not have a value");
             } else {
-                String value = ff.getAttribute(propName);
+                String value = (ff != null) ? ff.getAttribute(propName) : null;
 
                 // This can happen if the feed does not have an initial water mark, and the water mark
                 // load processor was not configure with a default value.  In this case default to the epoch.
@@ -473,4 +692,121 @@ public class GetTableData extends AbstractNiFiProcessor {
             lastModifyDate = date;
         }
     }
+
+    /**
+     * Reads rows from the source table and writes them to an output stream
+     */
+    class TableExtract {
+
+        final String tableName;
+        final String[] selectFields;
+        final LoadStrategy strategy;
+        final String dateField;
+        final int queryTimeout;
+        final int overlapTime;
+        final int backoffTime;
+        final GetTableDataSupport.UnitSizes unitSize;
+        final GetTableDataSupport.OutputType outputType;
+        final String delimiter;
+
+        /**
+         * The current date, shared by all ranges so they select the same incremental load range
+         */
+        final Date now = new Date(DateTimeUtils.currentTimeMillis());
+
+        /**
+         * The high-water mark of the previous incremental load
+         */
+        Date lastLoadDate;
+
+        TableExtract(String tableName, String[] selectFields, LoadStrategy strategy, String dateField, int queryTimeout, int overlapTime, int backoffTime, GetTableDataSupport.UnitSizes unitSize,
+                     GetTableDataSupport.OutputType outputType, String delimiter) {
+            this.tableName = tableName;
+            this.selectFields = selectFields;
+            this.strategy = strategy;
+            this.dateField = dateField;
+            this.queryTimeout = queryTimeout;
+            this.overlapTime = overlapTime;
+            this.backoffTime = backoffTime;
+            this.unitSize = unitSize;
+            this.outputType = outputType;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Reads the specified range of rows and writes them to the output stream. Delimited output only includes the header for the first range, so the ranges can be concatenated in order.
+         *
+         * @param conn      the database connection
+         * @param out       the output stream
+         * @param partition the range of rows to read, or {@code null} for the entire table
+         * @return the number of rows written and the latest modified date seen
+         */
+        ExtractResult extract(Connection conn, OutputStream out, RangePartition partition) throws SQLException, IOException {
+            final LastFieldVisitor visitor = new LastFieldVisitor(dateField, lastLoadDate);
+            ResultSet rs = null;
+            try {
+                GetTableDataSupport support = new GetTableDataSupport(conn, queryTimeout);
+                if (strategy == LoadStrategy.FULL_LOAD) {
+                    rs = (partition == null) ? support.selectFullLoad(tableName, selectFields) : support.selectFullLoad(tableName, selectFields, partition);
+                } else if (strategy == LoadStrategy.INCREMENTAL) {
+                    rs = (partition == null) ? support.selectIncremental(tableName, selectFields, dateField, overlapTime, lastLoadDate, backoffTime, unitSize)
+                                             : support.selectIncremental(tableName, selectFields, dateField, overlapTime, lastLoadDate, backoffTime, unitSize, now, partition);
+                } else {
+                    throw new RuntimeException("Unsupported loadStrategy [" + strategy + "]");
+                }
+
+                final long nrOfRows;
+                Schema avroSchema = null;
+                if (GetTableDataSupport.OutputType.DELIMITED.equals(outputType)) {
+                    final boolean includeHeader = (partition == null || partition.getIndex() == 0);
+                    nrOfRows = JdbcCommon.convertToDelimitedStream(rs, out, (strategy == LoadStrategy.INCREMENTAL ? visitor : null), delimiter, includeHeader);
+                } else if (GetTableDataSupport.OutputType.AVRO.equals(outputType)) {
+                    avroSchema = JdbcCommon.createSchema(rs);
+                    nrOfRows = JdbcCommon.convertToAvroStream(rs, out, (strategy == LoadStrategy.INCREMENTAL ? visitor : null), avroSchema);
+                } else {
+                    throw new RuntimeException("Unsupported output format type [" + outputType + "]");
+                }
+                return new ExtractResult(nrOfRows, visitor.getLastModifyDate(), avroSchema);
+            } finally {
+                if (rs != null) {
+                    try {
+                        if (rs.getStatement() != null) {
+                            rs.getStatement().close();
+                        }
+                        rs.close();
+                    } catch (SQLException e) {
+                        getLog().error("Error closing sql statement and resultset");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The outcome of reading a range of rows
+     */
+    static class ExtractResult {
+
+        private final long rows;
+        private final Date lastModifyDate;
+        private final Schema avroSchema;
+
+        ExtractResult(long rows, Date lastModifyDate, Schema avroSchema) {
+            this.rows = rows;
+            this.lastModifyDate = lastModifyDate;
+            this.avroSchema = avroSchema;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public Date getLastModifyDate() {
+            return lastModifyDate;
+        }
+
+        public Schema getAvroSchema() {
+            return avroSchema;
+        }
+    }
 }
@@ -0,0 +1,141 @@
+package com.thinkbiganalytics.util;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Prints epoch milliseconds in the same UTC format as {@link ISODateTimeFormat#dateTime()} and {@link ISODateTimeFormat#time()} directly into a caller supplied buffer.
+ *
+ * Exporting a table prints a date for every row, so this avoids the {@code DateTime} and {@code String} that the Joda formatters create for each value.  Years outside 0000-9999 are rare and
+ * fall back to the Joda formatters.
+ */
+final class IsoDateTimePrinter {
+
+    /**
+     * The minimum size of the buffer passed to the print methods
+     */
+    static final int MAX_LENGTH = 24;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    private static final DateTimeFormatter TIME_FORMATTER = ISODateTimeFormat.time().withZoneUTC();
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * 0000-01-01T00:00:00.000Z
+     */
+    private static final long MIN_MILLIS = -62167219200000L;
+
+    /**
+     * 10000-01-01T00:00:00.000Z
+     */
+    private static final long MAX_MILLIS = 253402300800000L;
+
+    private IsoDateTimePrinter() {
+    }
+
+    /**
+     * Print the instant as {@code yyyy-MM-dd'T'HH:mm:ss.SSS'Z'}.
+     *
+     * @param millis the epoch milliseconds
+     * @param buffer the buffer to print to, at least {@link #MAX_LENGTH} long
+     * @return the number of characters printed, or -1 if the year can't be printed by this class
+     */
+    static int printDateTime(long millis, char[] buffer) {
+        if (millis < MIN_MILLIS || millis >= MAX_MILLIS) {
+            return -1;
+        }
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+        // civil date from days since the epoch in the proleptic Gregorian calendar, matching the ISO chronology
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        print4(year, buffer, 0);
+        buffer[4] = '-';
+        print2(month, buffer, 5);
+        buffer[7] = '-';
+        print2(day, buffer, 8);
+        buffer[10] = 'T';
+        return 11 + printTimeOfDay(millisOfDay, buffer, 11);
+    }
+
+    /**
+     * Print the time of day of the instant as {@code HH:mm:ss.SSS'Z'}.
+     *
+     * @param millis the epoch milliseconds
+     * @param buffer the buffer to print to, at least {@link #MAX_LENGTH} long
+     * @return the number of characters printed
+     */
+    static int printTime(long millis, char[] buffer) {
+        return printTimeOfDay((int) Math.floorMod(millis, MILLIS_PER_DAY), buffer, 0);
+    }
+
+    /**
+     * Format the instant with {@link ISODateTimeFormat#dateTime()} in UTC
+     */
+    static String formatDateTime(long millis) {
+        return DATE_TIME_FORMATTER.print(millis);
+    }
+
+    /**
+     * Format the instant with {@link ISODateTimeFormat#time()} in UTC
+     */
+    static String formatTime(long millis) {
+        return TIME_FORMATTER.print(millis);
+    }
+
+    private static int printTimeOfDay(int millisOfDay, char[] buffer, int offset) {
+        int seconds = millisOfDay / 1000;
+        print2(seconds / 3600, buffer, offset);
+        buffer[offset + 2] = ':';
+        print2((seconds / 60) % 60, buffer, offset + 3);
+        buffer[offset + 5] = ':';
+        print2(seconds % 60, buffer, offset + 6);
+        buffer[offset + 8] = '.';
+        int fraction = millisOfDay % 1000;
+        buffer[offset + 9] = (char) ('0' + fraction / 100);
+        print2(fraction % 100, buffer, offset + 10);
+        buffer[offset + 12] = 'Z';
+        return 13;
+    }
+
+    private static void print2(int value, char[] buffer, int offset) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void print4(int value, char[] buffer, int offset) {
+        print2(value / 100, buffer, offset);
+        print2(value % 100, buffer, offset + 2);
+    }
+}
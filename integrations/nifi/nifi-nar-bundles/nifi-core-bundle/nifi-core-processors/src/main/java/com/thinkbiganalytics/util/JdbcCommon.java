@@ -29,15 +29,14 @@ import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.util.Utf8;
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -91,6 +90,11 @@ public class JdbcCommon {
 
     public static Logger logger = LoggerFactory.getLogger(JdbcCommon.class);
 
+    /**
+     * Size of the buffer between the delimited text writer and the output stream
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Converts the specified SQL result set to a delimited text file written to the specified output stream.
      *
@@ -103,6 +107,23 @@ public class JdbcCommon {
      * @throws IOException  if an I/O error occurs while writing to the output stream
      */
     public static long convertToDelimitedStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor, String delimiter) throws SQLException, IOException {
+        return convertToDelimitedStream(rs, outStream, visitor, delimiter, true);
+    }
+
+    /**
+     * Converts the specified SQL result set to a delimited text file written to the specified output stream.
+     *
+     * @param rs            the SQL result set
+     * @param outStream     the output stream for the delimited text file
+     * @param visitor       records position of the result set
+     * @param delimiter     the column delimiter for the delimited text file
+     * @param includeHeader {@code true} to write the column names as the first line
+     * @return the number of rows written
+     * @throws SQLException if a SQL error occurs while reading the result set
+     * @throws IOException  if an I/O error occurs while writing to the output stream
+     */
+    public static long convertToDelimitedStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor, String delimiter, boolean includeHeader)
+        throws SQLException, IOException {
         // avoid overflowing log with redundant messages
         int dateConversionWarning = 0;
 
@@ -110,79 +131,107 @@ public class JdbcCommon {
             logger.warn("Received empty resultset or no metadata.");
             return 0;
         }
-        OutputStreamWriter writer = new OutputStreamWriter(outStream);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outStream), WRITE_BUFFER_SIZE);
         final ResultSetMetaData meta = rs.getMetaData();
         final DelimiterEscaper escaper = new DelimiterEscaper(delimiter);
 
-        // Write header
+        // Look up the column metadata once instead of for every value
         final int nrOfColumns = meta.getColumnCount();
-        StringBuffer sb = new StringBuffer();
-        for (int i = 1; i <= nrOfColumns; i++) {
-            String columnName = meta.getColumnName(i);
-            sb.append(escaper.translate(columnName));
-            if (i != nrOfColumns) {
-                sb.append(delimiter);
-            } else {
-                sb.append("\n");
+        final String[] columnNames = getColumnNames(meta);
+        final int[] columnTypes = getColumnTypes(meta);
+
+        // Write header
+        if (includeHeader) {
+            for (int i = 0; i < nrOfColumns; i++) {
+                escaper.escape(columnNames[i], writer);
+                writeSeparator(writer, delimiter, i, nrOfColumns);
             }
         }
-        writer.append(sb.toString());
+
+        final char[] dateBuffer = new char[IsoDateTimePrinter.MAX_LENGTH];
         long nrOfRows = 0;
         while (rs.next()) {
             if (visitor != null) {
                 visitor.visitRow(rs);
             }
-            sb = new StringBuffer();
             nrOfRows++;
-            for (int i = 1; i <= nrOfColumns; i++) {
-                String val = null;
-
-                int colType = meta.getColumnType(i);
+            for (int i = 0; i < nrOfColumns; i++) {
+                final int column = i + 1;
+                final int colType = columnTypes[i];
                 if (colType == Types.DATE || colType == Types.TIMESTAMP) {
                     Timestamp sqlDate = null;
                     try {
                         // Extract timestamp
-                        sqlDate = extractSqlDate(rs, i);
+                        sqlDate = extractSqlDate(rs, column);
                     } catch (Exception e) {
                         // Still failed, maybe exotic date type
                         if (dateConversionWarning++ < 10) {
-                            logger.warn("{} is not convertible to timestamp or date", rs.getMetaData().getColumnName(i));
+                            logger.warn("{} is not convertible to timestamp or date", columnNames[i]);
                         }
                     }
 
                     if (visitor != null) {
-                        visitor.visitColumn(rs.getMetaData().getColumnName(i), colType, sqlDate);
+                        visitor.visitColumn(columnNames[i], colType, sqlDate);
                     }
                     if (sqlDate != null) {
-                        DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-                        val = formatter.print(new DateTime(sqlDate.getTime()));
+                        final int length = IsoDateTimePrinter.printDateTime(sqlDate.getTime(), dateBuffer);
+                        if (length >= 0) {
+                            writer.write(dateBuffer, 0, length);
+                        } else {
+                            writer.write(IsoDateTimePrinter.formatDateTime(sqlDate.getTime()));
+                        }
                     }
                 } else if (colType == Types.TIME) {
-                    Time time = rs.getTime(i);
+                    Time time = rs.getTime(column);
                     if (visitor != null) {
-                        visitor.visitColumn(rs.getMetaData().getColumnName(i), colType, time);
+                        visitor.visitColumn(columnNames[i], colType, time);
+                    }
+                    if (time != null) {
+                        writer.write(dateBuffer, 0, IsoDateTimePrinter.printTime(time.getTime(), dateBuffer));
                     }
-                    DateTimeFormatter formatter = ISODateTimeFormat.time().withZoneUTC();
-                    val = formatter.print(new DateTime(time.getTime()));
                 } else {
-                    val = rs.getString(i);
+                    String val = rs.getString(column);
                     if (visitor != null) {
-                        visitor.visitColumn(rs.getMetaData().getColumnName(i), colType, val);
+                        visitor.visitColumn(columnNames[i], colType, val);
+                    }
+                    if (val != null) {
+                        escaper.escape(val, writer);
                     }
                 }
-                sb.append((val == null ? "" : escaper.translate(val)));
-                if (i != nrOfColumns) {
-                    sb.append(delimiter);
-                } else {
-                    sb.append("\n");
-                }
+                writeSeparator(writer, delimiter, i, nrOfColumns);
             }
-            writer.append(sb.toString());
         }
         writer.flush();
         return nrOfRows;
     }
 
+    /**
+     * Writes the delimiter after a value, or a newline after the last value in a row
+     */
+    private static void writeSeparator(Writer writer, String delimiter, int index, int nrOfColumns) throws IOException {
+        if (index != nrOfColumns - 1) {
+            writer.write(delimiter);
+        } else {
+            writer.write('\n');
+        }
+    }
+
+    private static String[] getColumnNames(ResultSetMetaData meta) throws SQLException {
+        final String[] names = new String[meta.getColumnCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = meta.getColumnName(i + 1);
+        }
+        return names;
+    }
+
+    private static int[] getColumnTypes(ResultSetMetaData meta) throws SQLException {
+        final int[] types = new int[meta.getColumnCount()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = meta.getColumnType(i + 1);
+        }
+        return types;
+    }
+
 
     /**
      * Extracts a resultset col to a SQL timestamp
@@ -214,13 +263,23 @@ public class JdbcCommon {
 
             final ResultSetMetaData meta = rs.getMetaData();
             final int nrOfColumns = meta.getColumnCount();
+            final String[] columnNames = getColumnNames(meta);
+            final int[] columnTypes = getColumnTypes(meta);
+
+            // Dates are printed into a buffer per column that the record holds until it is appended
+            final char[] dateBuffer = new char[IsoDateTimePrinter.MAX_LENGTH];
+            final Utf8[] dateValues = new Utf8[nrOfColumns];
+            for (int i = 0; i < nrOfColumns; i++) {
+                dateValues[i] = new Utf8(new byte[IsoDateTimePrinter.MAX_LENGTH]);
+            }
+
             long nrOfRows = 0;
             while (rs.next()) {
                 if (visitor != null) {
                     visitor.visitRow(rs);
                 }
                 for (int i = 1; i <= nrOfColumns; i++) {
-                    final int javaSqlType = meta.getColumnType(i);
+                    final int javaSqlType = columnTypes[i - 1];
                     final Object value = rs.getObject(i);
 
                     if (value == null) {
@@ -248,16 +307,13 @@ public class JdbcCommon {
                         rec.put(i - 1, value);
 
                     } else if (value instanceof Date) {
-                        final DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-                        rec.put(i - 1, formatter.print(new DateTime(((Date) value).getTime())));
+                        rec.put(i - 1, toDateTimeValue(((Date) value).getTime(), dateBuffer, dateValues[i - 1]));
 
                     } else if (value instanceof Time) {
-                        final DateTimeFormatter formatter = ISODateTimeFormat.time().withZoneUTC();
-                        rec.put(i - 1, formatter.print(new DateTime(((Time) value).getTime())));
+                        rec.put(i - 1, toUtf8(dateBuffer, IsoDateTimePrinter.printTime(((Time) value).getTime(), dateBuffer), dateValues[i - 1]));
 
                     } else if (value instanceof Timestamp) {
-                        final DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-                        rec.put(i - 1, formatter.print(new DateTime(((Timestamp) value).getTime())));
+                        rec.put(i - 1, toDateTimeValue(((Timestamp) value).getTime(), dateBuffer, dateValues[i - 1]));
 
                     } else {
                         // The different types that we support are numbers (int, long, double, float),
@@ -268,6 +324,9 @@ public class JdbcCommon {
                     }
 
                     //notify the visitor
+                    if (visitor == null) {
+                        continue;
+                    }
                     if (javaSqlType == Types.DATE || javaSqlType == Types.TIMESTAMP) {
                         Timestamp sqlDate = null;
                         try {
@@ -276,22 +335,15 @@ public class JdbcCommon {
 
                         } catch (Exception e) {
                             if (dateConversionWarning++ < 10) {
-                                logger.warn("{} is not convertible to timestamp or date", rs.getMetaData().getColumnName(i));
+                                logger.warn("{} is not convertible to timestamp or date", columnNames[i - 1]);
                             }
                         }
 
-                        if (visitor != null) {
-                            visitor.visitColumn(rs.getMetaData().getColumnName(i), javaSqlType, sqlDate);
-                        }
+                        visitor.visitColumn(columnNames[i - 1], javaSqlType, sqlDate);
                     } else if (javaSqlType == Types.TIME) {
-                        Time time = rs.getTime(i);
-                        if (visitor != null) {
-                            visitor.visitColumn(rs.getMetaData().getColumnName(i), javaSqlType, time);
-                        }
+                        visitor.visitColumn(columnNames[i - 1], javaSqlType, rs.getTime(i));
                     } else {
-                        if (visitor != null) {
-                            visitor.visitColumn(rs.getMetaData().getColumnName(i), javaSqlType, (value != null) ? value.toString() : null);
-                        }
+                        visitor.visitColumn(columnNames[i - 1], javaSqlType, (value != null) ? value.toString() : null);
                     }
                 }
                 dataFileWriter.append(rec);
@@ -302,6 +354,26 @@ public class JdbcCommon {
         }
     }
 
+    /**
+     * Prints the instant into the reusable value, or formats a new string if the year is out of range
+     */
+    private static CharSequence toDateTimeValue(long millis, char[] buffer, Utf8 value) {
+        final int length = IsoDateTimePrinter.printDateTime(millis, buffer);
+        return (length >= 0) ? toUtf8(buffer, length, value) : IsoDateTimePrinter.formatDateTime(millis);
+    }
+
+    /**
+     * Copies the ASCII characters printed to the buffer into the reusable value
+     */
+    private static Utf8 toUtf8(char[] buffer, int length, Utf8 value) {
+        value.setByteLength(length);
+        final byte[] bytes = value.getBytes();
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) buffer[i];
+        }
+        return value;
+    }
+
     public static Schema createSchema(final ResultSet rs) throws SQLException {
         final ResultSetMetaData meta = rs.getMetaData();
         final int nrOfColumns = meta.getColumnCount();
@@ -420,6 +492,11 @@ public class JdbcCommon {
          */
         private static final String BACKSLASH_STR = String.valueOf(BACKSLASH);
 
+        /**
+         * The column delimiter
+         */
+        private final String delimiter;
+
         /**
          * Strings that, if found, require a value to be escaped
          */
@@ -438,21 +515,47 @@ public class JdbcCommon {
         DelimiterEscaper(@Nonnull final String delimiter) {
             searchStrings = new String[]{delimiter, QUOTE_STR, Character.toString('\n'), Character.toString('\r') };
             replacementStrings = new String[]{delimiter, BACKSLASH_STR+QUOTE_STR, "\\\\n", "\\\\r"};
+            this.delimiter = delimiter;
         }
 
         @Override
         public int translate(@Nonnull final CharSequence input, final int index, @Nonnull final Writer out) throws IOException {
             Preconditions.checkState(index == 0, "Unsupported translation index %d", index);
-            String inputString = input.toString();
-            if (StringUtils.containsAny(inputString, searchStrings)) {
+            escape(input.toString(), out);
+            return Character.codePointCount(input, 0, input.length());
+        }
+
+        /**
+         * Writes the value to the writer, quoting and escaping it if necessary. Values that don't need escaping are written as is without creating a copy.
+         *
+         * @param value the value to write
+         * @param out   the writer
+         * @throws IOException if the value cannot be written
+         */
+        void escape(@Nonnull final String value, @Nonnull final Writer out) throws IOException {
+            if (requiresEscaping(value)) {
                 out.write(QUOTE);
-                out.write(StringUtils.replaceEach(inputString, searchStrings, replacementStrings));
+                out.write(StringUtils.replaceEach(value, searchStrings, replacementStrings));
                 out.write(QUOTE);
             } else {
-                out.write(input.toString());
+                out.write(value);
             }
+        }
 
-            return Character.codePointCount(input, 0, input.length());
+        /**
+         * Same as {@code StringUtils.containsAny(value, searchStrings)} without the intermediate strings
+         */
+        private boolean requiresEscaping(@Nonnull final String value) {
+            if (value.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == QUOTE || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return value.contains(delimiter);
         }
     }
 
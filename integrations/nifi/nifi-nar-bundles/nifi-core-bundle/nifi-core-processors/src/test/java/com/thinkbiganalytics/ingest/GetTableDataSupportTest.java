@@ -26,6 +26,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
@@ -68,6 +69,26 @@ public class GetTableDataSupportTest {
         tableDataSupport.selectFullLoad("testTable", new String[]{"col1", "col2"});
     }
 
+    @Test
+    public void testSelectFullLoadFetchSize() throws Exception {
+        DatabaseMetaData metaData = Mockito.mock(DatabaseMetaData.class);
+        Statement st = Mockito.mock(Statement.class);
+        Mockito.when(metaData.getDatabaseProductName()).thenReturn("Oracle");
+        Mockito.when(conn.getMetaData()).thenReturn(metaData);
+        Mockito.when(conn.createStatement()).thenReturn(st);
+        tableDataSupport.selectFullLoad("testTable", new String[]{"col1", "col2"});
+        Mockito.verify(st).setFetchSize(GetTableDataSupport.DEFAULT_FETCH_SIZE);
+    }
+
+    @Test
+    public void testFetchSizeFor() throws Exception {
+        assertEquals(Integer.MIN_VALUE, GetTableDataSupport.fetchSizeFor("MySQL"));
+        assertEquals(GetTableDataSupport.DEFAULT_FETCH_SIZE, GetTableDataSupport.fetchSizeFor("PostgreSQL"));
+        assertEquals(GetTableDataSupport.DEFAULT_FETCH_SIZE, GetTableDataSupport.fetchSizeFor("Microsoft SQL Server"));
+        assertEquals(0, GetTableDataSupport.fetchSizeFor("H2"));
+        assertEquals(0, GetTableDataSupport.fetchSizeFor(null));
+    }
+
     @Test
     public void testRangeNoLastLoad() throws Exception {
         GetTableDataSupport.DateRange range = new GetTableDataSupport.DateRange(null, testDate, 0, 0, GetTableDataSupport.UnitSizes.NONE);
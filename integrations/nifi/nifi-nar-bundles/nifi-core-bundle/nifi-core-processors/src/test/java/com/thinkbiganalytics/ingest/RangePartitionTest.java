@@ -0,0 +1,89 @@
+package com.thinkbiganalytics.ingest;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RangePartitionTest {
+
+    /**
+     * Verify integer ranges are split on whole numbers with open ends.
+     */
+    @Test
+    public void numeric() {
+        final List<RangePartition> ranges = RangePartition.numeric("id", BigDecimal.ONE, BigDecimal.valueOf(100), 4);
+        Assert.assertEquals(4, ranges.size());
+
+        Assert.assertEquals("(id < ? OR id IS NULL)", ranges.get(0).getPredicate());
+        Assert.assertEquals(Collections.singletonList(new BigDecimal(26)), ranges.get(0).getParameters());
+        Assert.assertEquals("id >= ? AND id < ?", ranges.get(1).getPredicate());
+        Assert.assertEquals(Arrays.asList(new BigDecimal(26), new BigDecimal(51)), ranges.get(1).getParameters());
+        Assert.assertEquals(Arrays.asList(new BigDecimal(51), new BigDecimal(76)), ranges.get(2).getParameters());
+        Assert.assertEquals("id >= ?", ranges.get(3).getPredicate());
+        Assert.assertEquals(Collections.singletonList(new BigDecimal(76)), ranges.get(3).getParameters());
+
+        for (int i = 0; i < ranges.size(); i++) {
+            Assert.assertEquals(i, ranges.get(i).getIndex());
+            Assert.assertEquals(4, ranges.get(i).getCount());
+        }
+    }
+
+    /**
+     * Verify fewer ranges are returned when there are not enough distinct values.
+     */
+    @Test
+    public void numericFewValues() {
+        Assert.assertEquals(3, RangePartition.numeric("id", BigDecimal.ONE, BigDecimal.valueOf(3), 8).size());
+        Assert.assertEquals(1, RangePartition.numeric("id", BigDecimal.ONE, BigDecimal.ONE, 8).size());
+        Assert.assertNull(RangePartition.numeric("id", null, null, 8).get(0).getPredicate());
+    }
+
+    /**
+     * Verify timestamp ranges have equal durations.
+     */
+    @Test
+    public void timestamp() {
+        final List<RangePartition> ranges = RangePartition.timestamp("updated", new Timestamp(0L), new Timestamp(3000L), 3);
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertEquals(Collections.singletonList(new Timestamp(1000L)), ranges.get(0).getParameters());
+        Assert.assertEquals(Arrays.asList(new Timestamp(1000L), new Timestamp(2000L)), ranges.get(1).getParameters());
+        Assert.assertEquals(Collections.singletonList(new Timestamp(2000L)), ranges.get(2).getParameters());
+    }
+
+    /**
+     * Verify Oracle tables are split by a hash of the ROWID.
+     */
+    @Test
+    public void oracleRowIdHash() {
+        final List<RangePartition> ranges = RangePartition.oracleRowIdHash(3);
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertEquals("ORA_HASH(ROWID, 2) = 0", ranges.get(0).getPredicate());
+        Assert.assertEquals("ORA_HASH(ROWID, 2) = 2", ranges.get(2).getPredicate());
+        Assert.assertTrue(ranges.get(1).getParameters().isEmpty());
+    }
+}
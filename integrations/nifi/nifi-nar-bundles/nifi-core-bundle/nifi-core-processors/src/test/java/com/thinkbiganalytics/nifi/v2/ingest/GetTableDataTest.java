@@ -48,10 +48,14 @@ import org.joda.time.DateTimeUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -64,9 +68,11 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -90,6 +96,12 @@ public class GetTableDataTest {
      */
     private final TestRunner runner = TestRunners.newTestRunner(GetTableData.class);
 
+    /**
+     * Directory for temporary files
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     /**
      * Initialize instance variables
      */
@@ -290,6 +302,79 @@ public class GetTableDataTest {
                                              + "2|Jon|Stephens|Jon.Stephens@sakilastaff.com|2006-02-15T03:57:16.000Z\n");
     }
 
+    /**
+     * Verify a full load split into ranges.
+     */
+    @Test
+    public void testPartitionedFullLoad() {
+        runner.setProperty(GetTableData.PARTITION_COUNT, "2");
+        runner.setProperty(GetTableData.PARTITION_COLUMN, "id");
+        runner.enqueue(new byte[0], Collections.singletonMap("filename", "extract"));
+        runner.run();
+
+        List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS);
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(GetTableData.REL_NO_DATA).size());
+        Assert.assertEquals(2, flowFiles.size());
+
+        flowFiles.sort(Comparator.comparing(flowFile -> flowFile.getAttribute(GetTableData.FRAGMENT_INDEX)));
+        Assert.assertEquals(flowFiles.get(0).getAttribute(GetTableData.FRAGMENT_ID), flowFiles.get(1).getAttribute(GetTableData.FRAGMENT_ID));
+        for (int i = 0; i < flowFiles.size(); i++) {
+            Assert.assertEquals(Integer.toString(i), flowFiles.get(i).getAttribute(GetTableData.FRAGMENT_INDEX));
+            Assert.assertEquals("2", flowFiles.get(i).getAttribute(GetTableData.FRAGMENT_COUNT));
+            Assert.assertEquals("extract", flowFiles.get(i).getAttribute(GetTableData.SEGMENT_ORIGINAL_FILENAME));
+            Assert.assertEquals("1", flowFiles.get(i).getAttribute(GetTableData.RESULT_ROW_COUNT));
+            Assert.assertEquals("2", flowFiles.get(i).getAttribute(GetTableData.TOTAL_ROW_COUNT));
+        }
+        flowFiles.get(0).assertContentEquals("id,first_name,last_name,email,last_updated\n"
+                                             + "1,Mike,Hillyer,Mike.Hillyer@sakilastaff.com,2006-02-15T03:57:16.000Z\n");
+        flowFiles.get(1).assertContentEquals("2,Jon,Stephens,Jon.Stephens@sakilastaff.com,2006-02-15T03:57:16.000Z\n");
+    }
+
+    /**
+     * Verify the ranges can be read one at a time through a configured temporary directory.
+     */
+    @Test
+    public void testPartitionedSequential() throws Exception {
+        final File tempDirectory = tempFolder.newFolder();
+        runner.setProperty(GetTableData.PARTITION_COUNT, "2");
+        runner.setProperty(GetTableData.PARTITION_COLUMN, "id");
+        runner.setProperty(GetTableData.MAX_CONCURRENT_RANGES, "1");
+        runner.setProperty(GetTableData.TEMP_DIRECTORY, tempDirectory.getAbsolutePath());
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        final List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS);
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(2, flowFiles.size());
+        Assert.assertEquals(2, flowFiles.stream().mapToInt(flowFile -> Integer.parseInt(flowFile.getAttribute(GetTableData.RESULT_ROW_COUNT))).sum());
+    }
+
+    /**
+     * Verify the temporary directory must exist.
+     */
+    @Test
+    public void testInvalidTempDirectory() {
+        runner.setProperty(GetTableData.TEMP_DIRECTORY, new File(tempFolder.getRoot(), "missing").getAbsolutePath());
+        runner.assertNotValid();
+    }
+
+    /**
+     * Verify nothing is transferred to success if any range fails.
+     */
+    @Test
+    public void testPartitionedFailure() {
+        runner.setProperty(GetTableData.TABLE_NAME, "broken");
+        runner.setProperty(GetTableData.PARTITION_COUNT, "2");
+        runner.setProperty(GetTableData.PARTITION_COLUMN, "id");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(GetTableData.REL_NO_DATA).size());
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+    }
+
     /**
      * A mock implementation of {@link DBCPService} for unit testing.
      */
@@ -315,6 +400,18 @@ public class GetTableDataTest {
 
             Mockito.when(statement.executeQuery("SELECT id,email FROM empty")).then(invocation -> getEmptyResults());
             Mockito.when(statement.executeQuery("SELECT id,first_name,last_name,email,last_updated FROM mytable")).then(invocation -> getSimpleResults());
+
+            // Partitioned queries
+            Mockito.when(statement.executeQuery("SELECT MIN(id), MAX(id) FROM mytable")).then(invocation -> getRangeResults());
+            Mockito.when(statement.executeQuery("SELECT MIN(id), MAX(id) FROM broken")).then(invocation -> getRangeResults());
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM mytable WHERE (id < ? OR id IS NULL)"))
+                .then(invocation -> getPartitionStatement(getSimpleResults(row -> (Integer) row[0] < 2)));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM mytable WHERE id >= ?"))
+                .then(invocation -> getPartitionStatement(getSimpleResults(row -> (Integer) row[0] >= 2)));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM broken WHERE (id < ? OR id IS NULL)"))
+                .then(invocation -> getPartitionStatement(getSimpleResults(row -> (Integer) row[0] < 2)));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM broken WHERE id >= ?"))
+                .thenThrow(new SQLException("Connection reset"));
         }
 
         @Override
@@ -450,6 +547,17 @@ public class GetTableDataTest {
          * @throws SQLException never
          */
         ResultSet getSimpleResults() throws SQLException {
+            return getSimpleResults(row -> true);
+        }
+
+        /**
+         * Creates a simple result set containing only the matching rows.
+         *
+         * @param filter selects the rows to include
+         * @return a new result set
+         * @throws SQLException never
+         */
+        ResultSet getSimpleResults(@Nonnull final Predicate<Object[]> filter) throws SQLException {
             final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
             Mockito.when(metadata.getColumnCount()).thenReturn(5);
             Mockito.when(metadata.getColumnName(1)).thenReturn("id");
@@ -469,7 +577,38 @@ public class GetTableDataTest {
                 new Object[]{2, "Jon", "Stephens", "Jon.Stephens@sakilastaff.com", new Timestamp(1139975836000L)}
             };
 
-            return getResultSet(metadata, rows);
+            return getResultSet(metadata, Stream.of(rows).filter(filter).toArray(Object[][]::new));
+        }
+
+        /**
+         * Creates a result set with the minimum and maximum id of the simple results.
+         *
+         * @return a new result set
+         * @throws SQLException never
+         */
+        ResultSet getRangeResults() throws SQLException {
+            final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metadata.getColumnType(1)).thenReturn(Types.INTEGER);
+
+            final ResultSet results = Mockito.mock(ResultSet.class);
+            Mockito.when(results.next()).thenReturn(true);
+            Mockito.when(results.getMetaData()).thenReturn(metadata);
+            Mockito.when(results.getBigDecimal(1)).thenReturn(BigDecimal.ONE);
+            Mockito.when(results.getBigDecimal(2)).thenReturn(BigDecimal.valueOf(2));
+            return results;
+        }
+
+        /**
+         * Creates a prepared statement returning the specified results.
+         *
+         * @param results the result set
+         * @return a new prepared statement
+         * @throws SQLException never
+         */
+        PreparedStatement getPartitionStatement(@Nonnull final ResultSet results) throws SQLException {
+            final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.when(preparedStatement.executeQuery()).thenReturn(results);
+            return preparedStatement;
         }
     }
 
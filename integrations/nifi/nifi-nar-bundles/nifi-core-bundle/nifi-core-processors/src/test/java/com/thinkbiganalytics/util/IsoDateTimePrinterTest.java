@@ -0,0 +1,63 @@
+package com.thinkbiganalytics.util;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class IsoDateTimePrinterTest {
+
+    /**
+     * Verify dates and times are printed the same as the Joda ISO formatters.
+     */
+    @Test
+    public void matchesJoda() {
+        final char[] buffer = new char[IsoDateTimePrinter.MAX_LENGTH];
+        final long[] samples = {0L, -1L, 1L, 951782400000L, 951868799999L, 1483703400000L, -62167219200000L, 253402300799999L, -2208988800001L};
+        for (long millis : samples) {
+            assertMatches(millis, buffer);
+        }
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            assertMatches(-62167219200000L + (long) (random.nextDouble() * (253402300800000L + 62167219200000L)), buffer);
+        }
+    }
+
+    /**
+     * Verify years that cannot be printed are reported.
+     */
+    @Test
+    public void outOfRange() {
+        final char[] buffer = new char[IsoDateTimePrinter.MAX_LENGTH];
+        Assert.assertEquals(-1, IsoDateTimePrinter.printDateTime(-62167219200001L, buffer));
+        Assert.assertEquals(-1, IsoDateTimePrinter.printDateTime(253402300800000L, buffer));
+        Assert.assertEquals("10000-01-01T00:00:00.000Z", IsoDateTimePrinter.formatDateTime(253402300800000L));
+    }
+
+    private void assertMatches(long millis, char[] buffer) {
+        Assert.assertEquals(ISODateTimeFormat.dateTime().withZoneUTC().print(millis), new String(buffer, 0, IsoDateTimePrinter.printDateTime(millis, buffer)));
+        Assert.assertEquals(ISODateTimeFormat.time().withZoneUTC().print(millis), new String(buffer, 0, IsoDateTimePrinter.printTime(millis, buffer)));
+    }
+}
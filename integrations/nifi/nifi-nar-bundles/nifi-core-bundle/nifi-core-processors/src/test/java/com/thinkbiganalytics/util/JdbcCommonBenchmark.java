@@ -0,0 +1,149 @@
+package com.thinkbiganalytics.util;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.avro.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures exporting a table with {@link JdbcCommon} from an in-memory result set, so only the conversion and not the driver is measured.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.thinkbiganalytics.util.JdbcCommonBenchmark -Dexec.classpathScope=test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JdbcCommonBenchmark {
+
+    private static final String[] COLUMN_NAMES = {"id", "name", "description", "amount", "created", "updated"};
+
+    private static final int[] COLUMN_TYPES = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.DECIMAL, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    @Param({"10000"})
+    private int rows;
+
+    private Object[][] data;
+
+    private ResultSetMetaData metaData;
+
+    private Schema schema;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024 * 1024);
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JdbcCommonBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() throws SQLException {
+        data = new Object[rows][];
+        final long start = 1483660800000L;
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{
+                (long) i,
+                "name " + i,
+                (i % 10 == 0) ? "a \"quoted\", multi\nline value" : "plain description for row " + i,
+                new BigDecimal(i).movePointLeft(2),
+                new Timestamp(start + i * 1000L),
+                (i % 3 == 0) ? null : new Timestamp(start + i * 60000L)
+            };
+        }
+        metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return COLUMN_NAMES.length;
+                case "getColumnName":
+                    return COLUMN_NAMES[(Integer) args[0] - 1];
+                case "getColumnType":
+                    return COLUMN_TYPES[(Integer) args[0] - 1];
+                case "getTableName":
+                    return "benchmark";
+                case "isSigned":
+                    return true;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        schema = JdbcCommon.createSchema(newResultSet());
+    }
+
+    @Benchmark
+    public long delimited() throws SQLException, IOException {
+        out.reset();
+        return JdbcCommon.convertToDelimitedStream(newResultSet(), out, null, ",");
+    }
+
+    @Benchmark
+    public long avro() throws SQLException, IOException {
+        out.reset();
+        return JdbcCommon.convertToAvroStream(newResultSet(), out, null, schema);
+    }
+
+    /**
+     * Creates a forward only result set over the generated rows
+     */
+    private ResultSet newResultSet() {
+        final int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] < data.length;
+                case "getMetaData":
+                    return metaData;
+                case "getObject":
+                case "getTimestamp":
+                    return data[row[0]][(Integer) args[0] - 1];
+                case "getString":
+                    final Object value = data[row[0]][(Integer) args[0] - 1];
+                    return (value != null) ? value.toString() : null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -231,6 +231,36 @@ public class JdbcCommonTest {
         assertEquals("event empty date time timestamp custom\n\"Fun Friday\"  2017-01-06T00:00:00.000Z 11:50:00.000Z 2017-01-06T11:50:00.000Z \n", new String(out.toByteArray(), "UTF-8"));
     }
 
+    /**
+     * Verify escaping values and {@code null} times in delimited text.
+     */
+    @Test
+    public void convertToDelimitedStreamEscapesValues() throws Exception {
+        // Mock result set metadata
+        final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metadata.getColumnCount()).thenReturn(3);
+        Mockito.when(metadata.getColumnName(1)).thenReturn("event");
+        Mockito.when(metadata.getColumnName(2)).thenReturn("a,b");
+        Mockito.when(metadata.getColumnName(3)).thenReturn("time");
+        Mockito.when(metadata.getColumnType(1)).thenReturn(Types.VARCHAR);
+        Mockito.when(metadata.getColumnType(2)).thenReturn(Types.VARCHAR);
+        Mockito.when(metadata.getColumnType(3)).thenReturn(Types.TIME);
+
+        // Mock result set
+        final ResultSet results = Mockito.mock(ResultSet.class);
+        Mockito.when(results.getMetaData()).thenReturn(metadata);
+        Mockito.when(results.getString(1)).thenReturn("say \"hi\"\r\n", "plain");
+        Mockito.when(results.getString(2)).thenReturn("1,2", "");
+        Mockito.when(results.getTime(3)).thenReturn(null, new Time(42600000L));
+        Mockito.when(results.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+
+        // Test converting to delimited text
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2L, JdbcCommon.convertToDelimitedStream(results, out, null, ","));
+        assertEquals("event,\"a,b\",time\n\"say \\\"hi\\\"\\\\r\\\\n\",\"1,2\",\nplain,,11:50:00.000Z\n", new String(out.toByteArray(), "UTF-8"));
+        Mockito.verify(metadata, Mockito.times(1)).getColumnType(1);
+    }
+
     /**
      * Verify row count for a {@code null} result set.
      */
@@ -0,0 +1,343 @@
+package com.thinkbiganalytics.nifi.v2.elasticsearch;
+
+/*-
+ * #%L
+ * thinkbig-nifi-elasticsearch-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streams a JSON array of documents into Elasticsearch using bounded bulk requests.
+ *
+ * <p>Documents are parsed one at a time and grouped into bulk requests limited by both document count and size. Up to
+ * {@code concurrentRequests} bulk requests are in flight at once. Items rejected with a retryable status are resent,
+ * individually re-batched, until {@code maxRetries} is reached.</p>
+ *
+ * <p>Documents in bulk requests that have already been sent stay indexed if a later part of the stream can not be parsed. Call
+ * {@link #validate(InputStream, String)} first to reject a malformed stream before anything is indexed.</p>
+ */
+class ElasticSearchBulkIndexer {
+
+    /**
+     * Maximum number of failure messages kept in the result
+     */
+    private static final int MAX_FAILURE_MESSAGES = 10;
+
+    private final Client client;
+    private final int maxBulkActions;
+    private final long maxBulkBytes;
+    private final int concurrentRequests;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+
+    /**
+     * Constructs a {@code ElasticSearchBulkIndexer}.
+     *
+     * @param client             the Elasticsearch client
+     * @param maxBulkActions     maximum number of documents per bulk request
+     * @param maxBulkBytes       maximum estimated size of a bulk request in bytes
+     * @param concurrentRequests maximum number of bulk requests in flight
+     * @param maxRetries         maximum number of times a rejected document is resent
+     * @param retryBackoffMillis base delay before each retry, multiplied by the attempt number
+     */
+    ElasticSearchBulkIndexer(final Client client, final int maxBulkActions, final long maxBulkBytes, final int concurrentRequests, final int maxRetries,
+                             final long retryBackoffMillis) {
+        this.client = client;
+        this.maxBulkActions = maxBulkActions;
+        this.maxBulkBytes = maxBulkBytes;
+        this.concurrentRequests = concurrentRequests;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    /**
+     * Checks that the specified stream is a JSON array of objects that each have the id field, without indexing anything.
+     *
+     * @param in      the JSON array
+     * @param idField the field containing the document id, or {@code null} if ids are generated
+     * @return the number of documents
+     * @throws IOException if the stream is not a JSON array of objects, or a document is missing the id field
+     */
+    int validate(final InputStream in, final String idField) throws IOException {
+        final int[] documents = new int[1];
+        readDocuments(in, document -> {
+            getId(document, idField);
+            ++documents[0];
+        });
+        return documents[0];
+    }
+
+    /**
+     * Indexes each object of the JSON array in the specified stream.
+     *
+     * @param in      the JSON array
+     * @param index   the index name
+     * @param type    the document type
+     * @param idField the field containing the document id, or {@code null} to generate ids
+     * @return the indexing result
+     * @throws IOException if the stream is not a JSON array of objects
+     */
+    Result index(final InputStream in, final String index, final String type, final String idField) throws IOException {
+        final Run run = new Run();
+        final long start = System.nanoTime();
+
+        // Stream documents into bounded bulk requests
+        readDocuments(in, document -> run.add(toIndexRequest(document, index, type, idField), 0));
+        run.flush(0);
+        run.drain();
+
+        // Resend rejected documents
+        for (int attempt = 1; attempt <= maxRetries && !run.retries.isEmpty(); ++attempt) {
+            try {
+                Thread.sleep(retryBackoffMillis * attempt);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to retry failed documents", e);
+            }
+            final List<ActionRequest> requests = new ArrayList<>(run.retries);
+            run.result.retried += requests.size();
+            run.retries.clear();
+            for (final ActionRequest request : requests) {
+                run.add(request, attempt);
+            }
+            run.flush(attempt);
+            run.drain();
+        }
+
+        run.result.durationMillis = (System.nanoTime() - start) / 1000000L;
+        return run.result;
+    }
+
+    /**
+     * Parses each object of the JSON array in the specified stream and passes it to the handler.
+     */
+    private void readDocuments(final InputStream in, final DocumentHandler handler) throws IOException {
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(in)) {
+            if (parser.nextToken() != XContentParser.Token.START_ARRAY) {
+                throw new IOException("Expected a JSON array of documents");
+            }
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                if (token != XContentParser.Token.START_OBJECT) {
+                    throw new IOException("Expected a JSON object but found: " + token);
+                }
+                handler.accept(parser.mapOrdered());
+            }
+        }
+    }
+
+    /**
+     * Gets the id of the specified document, or generates one if there is no id field.
+     */
+    private static String getId(final Map<String, Object> document, final String idField) throws IOException {
+        if (idField != null && idField.length() > 0) {
+            final Object value = document.get(idField);
+            if (value == null) {
+                throw new IOException("Document is missing id field: " + idField);
+            }
+            return value.toString();
+        } else {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    /**
+     * Creates an index request for the specified document.
+     */
+    private IndexRequest toIndexRequest(final Map<String, Object> document, final String index, final String type, final String idField)
+        throws IOException {
+        final String id = getId(document, idField);
+        document.put("post_date", String.valueOf(System.currentTimeMillis()));
+
+        final XContentBuilder source = XContentFactory.jsonBuilder().map(document);
+        return new IndexRequest(index, type, id).source(source);
+    }
+
+    /**
+     * Indicates if a failed item may succeed when resent.
+     */
+    private static boolean isRetryable(final BulkItemResponse item) {
+        final RestStatus status = item.getFailure().getStatus();
+        return status == RestStatus.TOO_MANY_REQUESTS || status == RestStatus.SERVICE_UNAVAILABLE || status == RestStatus.GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Receives each document parsed from a JSON array.
+     */
+    private interface DocumentHandler {
+
+        void accept(Map<String, Object> document) throws IOException;
+    }
+
+    /**
+     * Statistics for indexing a single JSON array.
+     */
+    static class Result {
+
+        /**
+         * Number of bulk requests sent, including retries
+         */
+        int bulkRequests;
+
+        /**
+         * Estimated number of bytes sent, including retries
+         */
+        long bytes;
+
+        /**
+         * Number of documents read from the stream
+         */
+        int documents;
+
+        /**
+         * Total time in milliseconds
+         */
+        long durationMillis;
+
+        /**
+         * Number of documents that could not be indexed
+         */
+        int failed;
+
+        /**
+         * Sample of the failure messages
+         */
+        final List<String> failureMessages = new ArrayList<>();
+
+        /**
+         * Number of documents resent after being rejected
+         */
+        int retried;
+
+        /**
+         * Gets the documents indexed per second.
+         */
+        long getDocumentsPerSecond() {
+            return (durationMillis > 0) ? (documents * 1000L / durationMillis) : documents * 1000L;
+        }
+    }
+
+    /**
+     * A bulk request that has been sent but not completed.
+     */
+    private static class Pending {
+
+        final int attempt;
+        final ActionFuture<BulkResponse> future;
+        final BulkRequest request;
+
+        Pending(final BulkRequest request, final ActionFuture<BulkResponse> future, final int attempt) {
+            this.attempt = attempt;
+            this.future = future;
+            this.request = request;
+        }
+    }
+
+    /**
+     * State for a single call to {@link #index(InputStream, String, String, String)}.
+     */
+    private class Run {
+
+        final Deque<Pending> inFlight = new ArrayDeque<>();
+        final Result result = new Result();
+        final List<ActionRequest> retries = new ArrayList<>();
+        BulkRequest current = new BulkRequest();
+
+        /**
+         * Adds a request to the current bulk request, sending it when full.
+         */
+        void add(final ActionRequest request, final int attempt) {
+            current.add(request);
+            if (attempt == 0) {
+                ++result.documents;
+            }
+            if (current.numberOfActions() >= maxBulkActions || current.estimatedSizeInBytes() >= maxBulkBytes) {
+                flush(attempt);
+            }
+        }
+
+        /**
+         * Sends the current bulk request, first waiting for the oldest request if too many are in flight.
+         */
+        void flush(final int attempt) {
+            if (current.numberOfActions() == 0) {
+                return;
+            }
+            while (inFlight.size() >= concurrentRequests) {
+                complete(inFlight.removeFirst());
+            }
+            ++result.bulkRequests;
+            result.bytes += current.estimatedSizeInBytes();
+            inFlight.addLast(new Pending(current, client.bulk(current), attempt));
+            current = new BulkRequest();
+        }
+
+        /**
+         * Waits for all in-flight bulk requests.
+         */
+        void drain() {
+            while (!inFlight.isEmpty()) {
+                complete(inFlight.removeFirst());
+            }
+        }
+
+        /**
+         * Waits for the specified bulk request and records its failed items.
+         */
+        void complete(final Pending pending) {
+            final BulkResponse response = pending.future.actionGet();
+            if (!response.hasFailures()) {
+                return;
+            }
+            for (final BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    continue;
+                }
+                if (isRetryable(item) && pending.attempt < maxRetries) {
+                    retries.add(pending.request.requests().get(item.getItemId()));
+                } else {
+                    ++result.failed;
+                    if (result.failureMessages.size() < MAX_FAILURE_MESSAGES) {
+                        result.failureMessages.add(item.getId() + ": " + item.getFailureMessage());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.thinkbiganalytics.nifi.v2.elasticsearch;
+
+/*-
+ * #%L
+ * thinkbig-nifi-elasticsearch-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.controller.ControllerService;
+import org.elasticsearch.client.Client;
+
+/**
+ * Provides a long-lived Elasticsearch client that is shared by processors.
+ */
+@Tags({"elasticsearch", "thinkbig", "client"})
+@CapabilityDescription("Provides a shared Elasticsearch transport client")
+public interface ElasticSearchClientService extends ControllerService {
+
+    /**
+     * Gets the Elasticsearch client. The client is owned by this service and must not be closed by callers.
+     *
+     * @return the client
+     */
+    Client getClient();
+}
@@ -22,45 +22,46 @@ package com.thinkbiganalytics.nifi.v2.elasticsearch;
 
 import com.thinkbiganalytics.nifi.processor.AbstractNiFiProcessor;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.nifi.annotation.behavior.InputRequirement;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.flowfile.FlowFile;
 import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.processor.DataUnit;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.io.InputStreamCallback;
 import org.apache.nifi.processor.util.StandardValidators;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONObject;
-import org.elasticsearch.action.bulk.BulkRequestBuilder;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
-import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.transport.InetSocketTransportAddress;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.InetAddress;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This processor indexes json data in elasticsearch
  */
 @InputRequirement(InputRequirement.Requirement.INPUT_REQUIRED)
 @Tags({"elasticsearch", "thinkbig"})
-@CapabilityDescription("Write FlowFile from a JSON array to Elasticsearch (V2)")
+@CapabilityDescription("Write FlowFile from a JSON array to Elasticsearch (V2). The array is streamed into bulk requests bounded by document count and size. "
+                       + "The flow file is read twice: once to validate the array so malformed JSON is not partly indexed, and once to index it.")
 public class IndexElasticSearch extends AbstractNiFiProcessor {
 
     /**
@@ -107,8 +108,8 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
      */
     public static final PropertyDescriptor HOST_NAME = new PropertyDescriptor.Builder()
         .name("HostName")
-        .description("Elasticsearch host")
-        .required(true)
+        .description("Elasticsearch host. Required if no Elasticsearch Client Service is specified.")
+        .required(false)
         .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
@@ -118,8 +119,8 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
      */
     public static final PropertyDescriptor CLUSTER_NAME = new PropertyDescriptor.Builder()
         .name("ClusterName")
-        .description("Elasticsearch cluster")
-        .required(true)
+        .description("Elasticsearch cluster. Required if no Elasticsearch Client Service is specified.")
+        .required(false)
         .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
@@ -134,6 +135,111 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+    /**
+     * Property for the shared elastic search client
+     */
+    public static final PropertyDescriptor CLIENT_SERVICE = new PropertyDescriptor.Builder()
+        .name("Elasticsearch Client Service")
+        .description("Service providing a shared Elasticsearch client. If not specified then a client is created from the HostName and ClusterName properties and kept until the processor is stopped.")
+        .required(false)
+        .identifiesControllerService(ElasticSearchClientService.class)
+        .build();
+
+    /**
+     * Property for the maximum number of documents in a bulk request
+     */
+    public static final PropertyDescriptor BULK_ACTIONS = new PropertyDescriptor.Builder()
+        .name("Bulk Actions")
+        .description("Maximum number of documents sent in a single bulk request")
+        .required(true)
+        .defaultValue("1000")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the maximum size of a bulk request
+     */
+    public static final PropertyDescriptor BULK_SIZE = new PropertyDescriptor.Builder()
+        .name("Bulk Size")
+        .description("Maximum size of a single bulk request")
+        .required(true)
+        .defaultValue("5 MB")
+        .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the number of concurrent bulk requests
+     */
+    public static final PropertyDescriptor CONCURRENT_REQUESTS = new PropertyDescriptor.Builder()
+        .name("Concurrent Requests")
+        .description("Maximum number of bulk requests in flight for a single flow file")
+        .required(true)
+        .defaultValue("2")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the number of retries for rejected documents
+     */
+    public static final PropertyDescriptor MAX_RETRIES = new PropertyDescriptor.Builder()
+        .name("Max Retries")
+        .description("Maximum number of times a document rejected by Elasticsearch, such as when its bulk queue is full, is resent. Other failures are not retried.")
+        .required(true)
+        .defaultValue("3")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the delay between retries
+     */
+    public static final PropertyDescriptor RETRY_BACKOFF = new PropertyDescriptor.Builder()
+        .name("Retry Backoff")
+        .description("Delay before resending rejected documents. The delay is multiplied by the retry attempt.")
+        .required(true)
+        .defaultValue("100 ms")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .build();
+
+    /**
+     * Flow file attribute for the number of documents read
+     */
+    public static final String DOCUMENTS_ATTRIBUTE = "es.index.documents";
+
+    /**
+     * Flow file attribute for the number of documents that failed to index
+     */
+    public static final String FAILED_ATTRIBUTE = "es.index.failed";
+
+    /**
+     * Flow file attribute for the number of documents resent
+     */
+    public static final String RETRIED_ATTRIBUTE = "es.index.retried";
+
+    /**
+     * Flow file attribute for the number of bulk requests sent
+     */
+    public static final String BULK_REQUESTS_ATTRIBUTE = "es.index.bulk.requests";
+
+    /**
+     * Flow file attribute for the estimated number of bytes sent
+     */
+    public static final String BYTES_ATTRIBUTE = "es.index.bytes";
+
+    /**
+     * Flow file attribute for the indexing time in milliseconds
+     */
+    public static final String DURATION_ATTRIBUTE = "es.index.duration.millis";
+
+    /**
+     * Flow file attribute for the indexing throughput
+     */
+    public static final String DOCUMENTS_PER_SECOND_ATTRIBUTE = "es.index.documents.per.second";
+
+    /**
+     * Clients created from the HostName and ClusterName properties, keyed by host and cluster
+     */
+    private final ConcurrentMap<String, TransportClient> clients = new ConcurrentHashMap<>();
+
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
@@ -152,6 +258,12 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         pds.add(HOST_NAME);
         pds.add(CLUSTER_NAME);
         pds.add(ID_FIELD);
+        pds.add(CLIENT_SERVICE);
+        pds.add(BULK_ACTIONS);
+        pds.add(BULK_SIZE);
+        pds.add(CONCURRENT_REQUESTS);
+        pds.add(MAX_RETRIES);
+        pds.add(RETRY_BACKOFF);
         propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -165,6 +277,34 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         return propDescriptors;
     }
 
+    @Override
+    protected Collection<ValidationResult> customValidate(final ValidationContext context) {
+        final List<ValidationResult> results = new ArrayList<>(super.customValidate(context));
+        if (!context.getProperty(CLIENT_SERVICE).isSet()) {
+            for (final PropertyDescriptor property : new PropertyDescriptor[]{HOST_NAME, CLUSTER_NAME}) {
+                if (!context.getProperty(property).isSet()) {
+                    results.add(new ValidationResult.Builder()
+                                    .subject(property.getName())
+                                    .valid(false)
+                                    .explanation(property.getName() + " is required if " + CLIENT_SERVICE.getName() + " is not specified")
+                                    .build());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Closes the clients created by this processor.
+     */
+    @OnStopped
+    public void closeClients() {
+        for (final TransportClient client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+    }
+
     @Override
     public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
         final ComponentLog logger = getLog();
@@ -173,33 +313,44 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
             return;
         }
         try {
-              /* Configuration parameters for spark launcher */
-            String indexName = context.getProperty(INDEX_NAME).evaluateAttributeExpressions(flowFile).getValue();
-            String type = context.getProperty(TYPE).evaluateAttributeExpressions(flowFile).getValue();
-            String hostName = context.getProperty(HOST_NAME).evaluateAttributeExpressions(flowFile).getValue();
-            String clusterName = context.getProperty(CLUSTER_NAME).evaluateAttributeExpressions(flowFile).getValue();
-            String idField = context.getProperty(ID_FIELD).evaluateAttributeExpressions(flowFile).getValue();
-
-            final StringBuffer sb = new StringBuffer();
+            final String indexName = context.getProperty(INDEX_NAME).evaluateAttributeExpressions(flowFile).getValue();
+            final String type = context.getProperty(TYPE).evaluateAttributeExpressions(flowFile).getValue();
+            final String idField = context.getProperty(ID_FIELD).evaluateAttributeExpressions(flowFile).getValue();
+            final ElasticSearchBulkIndexer indexer = new ElasticSearchBulkIndexer(getClient(context, flowFile),
+                                                                                  context.getProperty(BULK_ACTIONS).asInteger(),
+                                                                                  context.getProperty(BULK_SIZE).asDataSize(DataUnit.B).longValue(),
+                                                                                  context.getProperty(CONCURRENT_REQUESTS).asInteger(),
+                                                                                  context.getProperty(MAX_RETRIES).asInteger(),
+                                                                                  context.getProperty(RETRY_BACKOFF).asTimePeriod(TimeUnit.MILLISECONDS));
+
+            // Validate the whole array first so a malformed flow file is not partly indexed
             session.read(flowFile, new InputStreamCallback() {
 
                 @Override
                 public void process(InputStream in) throws IOException {
-                    sb.append(IOUtils.toString(in, Charset.defaultCharset()));
+                    indexer.validate(in, idField);
                 }
 
             });
 
-            logger.debug("The json that was received is: " + sb.toString());
+            final ElasticSearchBulkIndexer.Result[] result = new ElasticSearchBulkIndexer.Result[1];
+            session.read(flowFile, new InputStreamCallback() {
+
+                @Override
+                public void process(InputStream in) throws IOException {
+                    result[0] = indexer.index(in, indexName, type, idField);
+                }
+
+            });
 
-            boolean success = sendToElasticSearch(sb.toString(), hostName, indexName, type, clusterName, idField);
+            flowFile = session.putAllAttributes(flowFile, toAttributes(result[0]));
+            session.getProvenanceReporter().send(flowFile, "elasticsearch://" + indexName + "/" + type, result[0].durationMillis);
 
-             /* Wait for job completion */
-            if (!success) {
-                logger.info("*** Completed with failed status ");
+            if (result[0].failed > 0) {
+                logger.error("Failed to index {} of {} documents from {}: {}", new Object[]{result[0].failed, result[0].documents, flowFile, result[0].failureMessages});
                 session.transfer(flowFile, REL_FAILURE);
             } else {
-                logger.info("*** Completed with status ");
+                logger.info("Indexed {} documents from {} in {} ms", new Object[]{result[0].documents, flowFile, result[0].durationMillis});
                 session.transfer(flowFile, REL_SUCCESS);
             }
         } catch (final Exception e) {
@@ -209,34 +360,43 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
 
     }
 
-    private boolean sendToElasticSearch(String json, String hostName, String index, String type, String clusterName, String idField) throws Exception {
-        final ComponentLog logger = getLog();
-        Settings settings = Settings.settingsBuilder()
-            .put("cluster.name", clusterName).build();
-        Client client = TransportClient.builder().settings(settings).build()
-            .addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName(hostName), 9300));
-
-        JSONArray array = new JSONArray(json);
-        BulkRequestBuilder bulkRequest = client.prepareBulk();
-
-        for (int i = 0; i < array.length(); i++) {
-            JSONObject jsonObj = array.getJSONObject(i);
-            String id;
-            if (idField != null && idField.length() > 0) {
-                id = jsonObj.getString(idField);
+    /**
+     * Gets the client from the client service, or the client for the HostName and ClusterName properties.
+     */
+    private Client getClient(final ProcessContext context, final FlowFile flowFile) throws Exception {
+        final ElasticSearchClientService clientService = context.getProperty(CLIENT_SERVICE).asControllerService(ElasticSearchClientService.class);
+        if (clientService != null) {
+            return clientService.getClient();
+        }
+
+        final String hostName = context.getProperty(HOST_NAME).evaluateAttributeExpressions(flowFile).getValue();
+        final String clusterName = context.getProperty(CLUSTER_NAME).evaluateAttributeExpressions(flowFile).getValue();
+        final String key = clusterName + "@" + hostName;
+        TransportClient client = clients.get(key);
+        if (client == null) {
+            final TransportClient newClient = StandardElasticSearchClientService.createClient(hostName, clusterName);
+            client = clients.putIfAbsent(key, newClient);
+            if (client == null) {
+                client = newClient;
             } else {
-                id = UUID.randomUUID().toString();
+                newClient.close();
             }
-            jsonObj.put("post_date", String.valueOf(System.currentTimeMillis()));
-            bulkRequest.add(client.prepareIndex(index, type, id)
-                                .setSource(jsonObj.toString())
-            );
         }
-        BulkResponse bulkResponse = bulkRequest.get();
-        if (bulkResponse.hasFailures()) {
-            logger.error("Error occurred while batch updating" + bulkResponse.buildFailureMessage());
-            return false;
-        }
-        return true;
+        return client;
+    }
+
+    /**
+     * Converts the indexing statistics to flow file attributes.
+     */
+    private Map<String, String> toAttributes(final ElasticSearchBulkIndexer.Result result) {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(DOCUMENTS_ATTRIBUTE, Integer.toString(result.documents));
+        attributes.put(FAILED_ATTRIBUTE, Integer.toString(result.failed));
+        attributes.put(RETRIED_ATTRIBUTE, Integer.toString(result.retried));
+        attributes.put(BULK_REQUESTS_ATTRIBUTE, Integer.toString(result.bulkRequests));
+        attributes.put(BYTES_ATTRIBUTE, Long.toString(result.bytes));
+        attributes.put(DURATION_ATTRIBUTE, Long.toString(result.durationMillis));
+        attributes.put(DOCUMENTS_PER_SECOND_ATTRIBUTE, Long.toString(result.getDocumentsPerSecond()));
+        return attributes;
     }
 }
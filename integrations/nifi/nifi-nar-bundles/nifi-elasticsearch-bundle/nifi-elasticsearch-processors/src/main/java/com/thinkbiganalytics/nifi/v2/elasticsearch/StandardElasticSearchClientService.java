@@ -0,0 +1,157 @@
+package com.thinkbiganalytics.nifi.v2.elasticsearch;
+
+/*-
+ * #%L
+ * thinkbig-nifi-elasticsearch-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnDisabled;
+import org.apache.nifi.annotation.lifecycle.OnEnabled;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.controller.AbstractControllerService;
+import org.apache.nifi.controller.ConfigurationContext;
+import org.apache.nifi.processor.util.StandardValidators;
+import org.apache.nifi.reporting.InitializationException;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An implementation of {@link ElasticSearchClientService} that opens a single {@link TransportClient} when enabled and closes it when disabled.
+ */
+@Tags({"elasticsearch", "thinkbig", "client"})
+@CapabilityDescription("Provides a shared Elasticsearch transport client that is opened when the service is enabled and closed when it is disabled")
+public class StandardElasticSearchClientService extends AbstractControllerService implements ElasticSearchClientService {
+
+    /**
+     * Default transport port for Elasticsearch nodes
+     */
+    static final int DEFAULT_PORT = 9300;
+
+    /**
+     * Property for the elastic search hosts
+     */
+    public static final PropertyDescriptor HOST_NAMES = new PropertyDescriptor.Builder()
+        .name("HostNames")
+        .description("Comma-separated list of Elasticsearch hosts. Each host may include a transport port, which defaults to " + DEFAULT_PORT)
+        .required(true)
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+
+    /**
+     * Property for the elastic search cluster name
+     */
+    public static final PropertyDescriptor CLUSTER_NAME = new PropertyDescriptor.Builder()
+        .name("ClusterName")
+        .description("Elasticsearch cluster")
+        .required(true)
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+
+    private static final List<PropertyDescriptor> properties;
+
+    static {
+        final List<PropertyDescriptor> pds = new ArrayList<>();
+        pds.add(HOST_NAMES);
+        pds.add(CLUSTER_NAME);
+        properties = Collections.unmodifiableList(pds);
+    }
+
+    /**
+     * The shared client, or {@code null} if the service is disabled
+     */
+    private volatile TransportClient client;
+
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        return properties;
+    }
+
+    /**
+     * Opens the client using the configured hosts and cluster name.
+     *
+     * @param context the configuration context
+     * @throws InitializationException if a host cannot be resolved
+     */
+    @OnEnabled
+    public void onEnabled(final ConfigurationContext context) throws InitializationException {
+        final String hostNames = context.getProperty(HOST_NAMES).evaluateAttributeExpressions().getValue();
+        final String clusterName = context.getProperty(CLUSTER_NAME).evaluateAttributeExpressions().getValue();
+        try {
+            client = createClient(hostNames, clusterName);
+        } catch (final Exception e) {
+            throw new InitializationException("Unable to create Elasticsearch client for " + hostNames, e);
+        }
+    }
+
+    /**
+     * Closes the client.
+     */
+    @OnDisabled
+    public void onDisabled() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
+    @Override
+    public Client getClient() {
+        final Client current = client;
+        if (current == null) {
+            throw new IllegalStateException("Elasticsearch client service is not enabled");
+        }
+        return current;
+    }
+
+    /**
+     * Creates a transport client connected to the specified hosts.
+     *
+     * @param hostNames   comma-separated list of hosts with optional ports
+     * @param clusterName the Elasticsearch cluster name
+     * @return the transport client
+     * @throws Exception if a host cannot be resolved
+     */
+    static TransportClient createClient(final String hostNames, final String clusterName) throws Exception {
+        final Settings settings = Settings.settingsBuilder()
+            .put("cluster.name", clusterName).build();
+        final TransportClient client = TransportClient.builder().settings(settings).build();
+        try {
+            for (final String hostName : StringUtils.split(hostNames, ',')) {
+                final String host = StringUtils.substringBefore(hostName.trim(), ":");
+                final String port = StringUtils.substringAfter(hostName.trim(), ":");
+                client.addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName(host), port.isEmpty() ? DEFAULT_PORT : Integer.parseInt(port)));
+            }
+        } catch (final Exception e) {
+            client.close();
+            throw e;
+        }
+        return client;
+    }
+}
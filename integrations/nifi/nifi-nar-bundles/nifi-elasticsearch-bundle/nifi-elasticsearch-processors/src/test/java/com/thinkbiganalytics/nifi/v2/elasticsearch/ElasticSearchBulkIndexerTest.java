@@ -0,0 +1,246 @@
+package com.thinkbiganalytics.nifi.v2.elasticsearch;
+
+/*-
+ * #%L
+ * thinkbig-nifi-elasticsearch-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ElasticSearchBulkIndexerTest {
+
+    /**
+     * Bulk requests sent to the mock client
+     */
+    private final List<BulkRequest> requests = new ArrayList<>();
+
+    /**
+     * Number of times each document id is rejected before succeeding
+     */
+    private final Map<String, Integer> rejections = new HashMap<>();
+
+    /**
+     * Status returned for rejected documents
+     */
+    private RestStatus rejectStatus = RestStatus.TOO_MANY_REQUESTS;
+
+    /**
+     * Mock Elasticsearch client
+     */
+    private Client client;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        client = Mockito.mock(Client.class);
+        Mockito.when(client.bulk(Mockito.any(BulkRequest.class))).then(new Answer<ActionFuture<BulkResponse>>() {
+            @Override
+            public ActionFuture<BulkResponse> answer(InvocationOnMock invocation) throws Throwable {
+                final BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+                requests.add(request);
+
+                final BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+                for (int i = 0; i < items.length; ++i) {
+                    final IndexRequest item = (IndexRequest) request.requests().get(i);
+                    final Integer remaining = rejections.get(item.id());
+                    if (remaining != null && remaining > 0) {
+                        rejections.put(item.id(), remaining - 1);
+                        items[i] = new BulkItemResponse(i, "index", new BulkItemResponse.Failure(item.index(), item.type(), item.id(), new RejectedException(rejectStatus)));
+                    } else {
+                        items[i] = new BulkItemResponse(i, "index", new IndexResponse(item.index(), item.type(), item.id(), 1, true));
+                    }
+                }
+
+                final ActionFuture<BulkResponse> future = Mockito.mock(ActionFuture.class);
+                Mockito.when(future.actionGet()).thenReturn(new BulkResponse(items, 1));
+                return future;
+            }
+        });
+    }
+
+    /**
+     * Verify documents are split into bulk requests by count.
+     */
+    @Test
+    public void indexBatches() throws Exception {
+        final ElasticSearchBulkIndexer.Result result = new ElasticSearchBulkIndexer(client, 2, 1024 * 1024, 2, 3, 0).index(documents(5), "index", "type", "id");
+
+        Assert.assertEquals(5, result.documents);
+        Assert.assertEquals(0, result.failed);
+        Assert.assertEquals(3, result.bulkRequests);
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(2, requests.get(0).numberOfActions());
+        Assert.assertEquals(1, requests.get(2).numberOfActions());
+
+        final IndexRequest first = (IndexRequest) requests.get(0).requests().get(0);
+        Assert.assertEquals("0", first.id());
+        Assert.assertEquals("index", first.index());
+        Assert.assertEquals("type", first.type());
+        Assert.assertEquals("name0", first.sourceAsMap().get("name"));
+        Assert.assertNotNull(first.sourceAsMap().get("post_date"));
+    }
+
+    /**
+     * Verify bulk requests are split by size.
+     */
+    @Test
+    public void indexBySize() throws Exception {
+        final ElasticSearchBulkIndexer.Result result = new ElasticSearchBulkIndexer(client, 1000, 1, 1, 3, 0).index(documents(3), "index", "type", null);
+
+        Assert.assertEquals(3, result.documents);
+        Assert.assertEquals(3, result.bulkRequests);
+        Assert.assertTrue(result.bytes > 0);
+    }
+
+    /**
+     * Verify only the rejected documents are resent.
+     */
+    @Test
+    public void indexRetriesRejected() throws Exception {
+        rejections.put("1", 2);
+
+        final ElasticSearchBulkIndexer.Result result = new ElasticSearchBulkIndexer(client, 10, 1024 * 1024, 1, 3, 0).index(documents(3), "index", "type", "id");
+
+        Assert.assertEquals(3, result.documents);
+        Assert.assertEquals(0, result.failed);
+        Assert.assertEquals(2, result.retried);
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(1, requests.get(1).numberOfActions());
+        Assert.assertEquals("1", ((IndexRequest) requests.get(1).requests().get(0)).id());
+    }
+
+    /**
+     * Verify documents are failed after the maximum retries.
+     */
+    @Test
+    public void indexExhaustsRetries() throws Exception {
+        rejections.put("2", 10);
+
+        final ElasticSearchBulkIndexer.Result result = new ElasticSearchBulkIndexer(client, 10, 1024 * 1024, 1, 2, 0).index(documents(3), "index", "type", "id");
+
+        Assert.assertEquals(1, result.failed);
+        Assert.assertEquals(2, result.retried);
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(1, result.failureMessages.size());
+    }
+
+    /**
+     * Verify documents failing with a non-retryable status are not resent.
+     */
+    @Test
+    public void indexDoesNotRetryBadRequest() throws Exception {
+        rejectStatus = RestStatus.BAD_REQUEST;
+        rejections.put("0", 1);
+
+        final ElasticSearchBulkIndexer.Result result = new ElasticSearchBulkIndexer(client, 10, 1024 * 1024, 1, 3, 0).index(documents(2), "index", "type", "id");
+
+        Assert.assertEquals(1, result.failed);
+        Assert.assertEquals(0, result.retried);
+        Assert.assertEquals(1, requests.size());
+    }
+
+    /**
+     * Verify a missing id field is an error.
+     */
+    @Test(expected = IOException.class)
+    public void indexMissingId() throws Exception {
+        new ElasticSearchBulkIndexer(client, 10, 1024 * 1024, 1, 3, 0).index(documents(2), "index", "type", "missing");
+    }
+
+    /**
+     * Verify validation counts the documents without sending a bulk request.
+     */
+    @Test
+    public void validate() throws Exception {
+        Assert.assertEquals(5, new ElasticSearchBulkIndexer(client, 2, 1024 * 1024, 2, 3, 0).validate(documents(5), "id"));
+        Assert.assertTrue(requests.isEmpty());
+    }
+
+    /**
+     * Verify validation rejects an array that can not be parsed after the documents that fill a bulk request.
+     */
+    @Test
+    public void validateMalformed() throws Exception {
+        final InputStream in = new ByteArrayInputStream("[{\"id\":1},{\"id\":2},{\"id\":3},4]".getBytes(StandardCharsets.UTF_8));
+        try {
+            new ElasticSearchBulkIndexer(client, 2, 1024 * 1024, 2, 3, 0).validate(in, "id");
+            Assert.fail("Expected IOException");
+        } catch (final IOException e) {
+            Assert.assertTrue(requests.isEmpty());
+        }
+    }
+
+    /**
+     * Verify validation rejects a document missing the id field.
+     */
+    @Test(expected = IOException.class)
+    public void validateMissingId() throws Exception {
+        new ElasticSearchBulkIndexer(client, 10, 1024 * 1024, 1, 3, 0).validate(documents(2), "missing");
+    }
+
+    /**
+     * Creates a JSON array with the specified number of documents.
+     */
+    private InputStream documents(final int count) {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; ++i) {
+            json.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"name").append(i).append("\"}");
+        }
+        return new ByteArrayInputStream(json.append("]").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Exception with a specific REST status.
+     */
+    private static class RejectedException extends org.elasticsearch.ElasticsearchException {
+
+        private final RestStatus status;
+
+        RejectedException(final RestStatus status) {
+            super("rejected");
+            this.status = status;
+        }
+
+        @Override
+        public RestStatus status() {
+            return status;
+        }
+    }
+}
@@ -43,6 +43,8 @@ import org.apache.nifi.processor.util.StandardValidators;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
@@ -115,6 +117,35 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
         .expressionLanguageSupported(true)
         .build();
 
+    /**
+     * The number of files to compute checksums for at once
+     */
+    public static final PropertyDescriptor PARALLELISM = new PropertyDescriptor.Builder()
+        .name("parallelism")
+        .description("The number of files to compute checksums for at once. With 1 the files are checked in order and the flow " +
+                     "fails on the first wrong checksum. With more than 1 every file is checked and all wrong checksums and " +
+                     "missing files are reported together")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * The number of times to retry computing a checksum after a transient HDFS error
+     */
+    public static final PropertyDescriptor MAX_RETRIES = new PropertyDescriptor.Builder()
+        .name("max.retries")
+        .description("The number of times to retry computing the checksum of a file after an HDFS error. Missing files are not retried")
+        .required(true)
+        .defaultValue("0")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * The wait before the first retry, doubled for each retry after it
+     */
+    static final long RETRY_BACKOFF_MILLIS = 1000L;
+
     /**
      * Output paths to other NiFi processors
      */
@@ -128,7 +159,7 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
     @Override
     protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
         return ImmutableList.<PropertyDescriptor>builder().addAll(super.getSupportedPropertyDescriptors()).
-            add(DIRECTORY).add(FAIL_IF_INCORRECT_CHECKSUM).add(FILES).build();
+            add(DIRECTORY).add(FAIL_IF_INCORRECT_CHECKSUM).add(FILES).add(PARALLELISM).add(MAX_RETRIES).build();
     }
 
     /**
@@ -157,6 +188,9 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
         String absolutePath = context.getProperty(DIRECTORY).evaluateAttributeExpressions(flowFile).getValue();
         Boolean failIfWrongChecksum = context.getProperty(FAIL_IF_INCORRECT_CHECKSUM).
             evaluateAttributeExpressions(flowFile).asBoolean();
+        int parallelism = context.getProperty(PARALLELISM).asInteger();
+        int maxRetries = context.getProperty(MAX_RETRIES).asInteger();
+        boolean failFast = parallelism <= 1;
         Gson jsonParser = new Gson();
         File[] filesList;
         try {
@@ -164,41 +198,72 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
             if (filesList == null) {
                 filesList = new File[0];
             }
-
-            for (File f : filesList) {
-                String name = f.getName();
-                Path filePath;
-                if (absolutePath == null || absolutePath.isEmpty()) {
-                    filePath = new Path(name);
-                } else {
-                    filePath = new Path(absolutePath, name);
-                }
-                FileChecksum computed_checksum = fs.getFileChecksum(filePath);
-                String b64_checksum = Base64.getEncoder().encodeToString(computed_checksum.getBytes());
-                f.setComputedChecksum(new Checksum(b64_checksum.length(), b64_checksum,
-                                                   computed_checksum.getAlgorithmName()));
-                if (failIfWrongChecksum && !Objects.equals(b64_checksum, f.getChecksum().getValue())) {
-                    getLog().error("Checksums don't match! File: " + filePath.toString() + " checksum provided: " +
-                                   f.getChecksum().getValue() + " checksum computed: " + b64_checksum);
-                    session.transfer(flowFile, REL_FAILURE);
-                    return;
-                }
-            }
         } catch (JsonSyntaxException e) {
             getLog().error("Files list attribute does not contain a proper JSON array");
             session.transfer(flowFile, REL_FAILURE);
             return;
-        } catch (FileNotFoundException e) {
-            getLog().error("One of the provided files not found.\n" + e.getMessage());
+        }
+
+        // In the fail fast mode stop at the first problem, otherwise check every file so they can all be reported at once
+        HDFSOperationScheduler scheduler = new HDFSOperationScheduler(parallelism, maxRetries, RETRY_BACKOFF_MILLIS);
+        List<HDFSOperationScheduler.Outcome<File, String>> outcomes =
+            scheduler.run(Arrays.asList(filesList), f -> computeChecksum(fs, getPath(absolutePath, f), f),
+                          outcome -> outcome.isFailed() ? (failFast || !(outcome.getException() instanceof FileNotFoundException))
+                                                        : failFast && failIfWrongChecksum && isWrongChecksum(outcome));
+
+        List<String> failedFiles = new ArrayList<>();
+        for (HDFSOperationScheduler.Outcome<File, String> outcome : outcomes) {
+            File f = outcome.getItem();
+            Path filePath = getPath(absolutePath, f);
+            if (outcome.getException() instanceof FileNotFoundException) {
+                getLog().error("One of the provided files not found.\n" + outcome.getException().getMessage());
+                failedFiles.add(filePath.toString());
+            } else if (outcome.isFailed()) {
+                throw new ProcessException(outcome.getException());
+            } else if (failIfWrongChecksum && isWrongChecksum(outcome)) {
+                getLog().error("Checksums don't match! File: " + filePath.toString() + " checksum provided: " +
+                               f.getChecksum().getValue() + " checksum computed: " + outcome.getResult());
+                failedFiles.add(filePath.toString());
+            }
+        }
+        if (!failedFiles.isEmpty()) {
+            if (!failFast) {
+                getLog().error(failedFiles.size() + " of " + filesList.length + " files failed checksum verification: " + failedFiles);
+            }
             session.transfer(flowFile, REL_FAILURE);
             return;
-        } catch (IOException e) {
-            throw new ProcessException(e);
         }
         flowFile = session.putAttribute(flowFile, FILES.getName(), jsonParser.toJson(filesList));
         session.transfer(flowFile, REL_SUCCESS);
     }
 
+    /**
+     * Resolves the path of a file in the {@link #FILES} list
+     */
+    private Path getPath(String absolutePath, File f) {
+        if (absolutePath == null || absolutePath.isEmpty()) {
+            return new Path(f.getName());
+        } else {
+            return new Path(absolutePath, f.getName());
+        }
+    }
+
+    /**
+     * Computes the checksum of a file and records it as the computed checksum of the entry
+     *
+     * @return the Base64 encoded checksum
+     */
+    private String computeChecksum(FileSystem fs, Path filePath, File f) throws IOException {
+        FileChecksum computed_checksum = fs.getFileChecksum(filePath);
+        String b64_checksum = Base64.getEncoder().encodeToString(computed_checksum.getBytes());
+        f.setComputedChecksum(new Checksum(b64_checksum.length(), b64_checksum, computed_checksum.getAlgorithmName()));
+        return b64_checksum;
+    }
+
+    private boolean isWrongChecksum(HDFSOperationScheduler.Outcome<File, String> outcome) {
+        return !Objects.equals(outcome.getResult(), outcome.getItem().getChecksum().getValue());
+    }
+
     class File {
 
         private String name;
@@ -237,6 +302,11 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
         public void setChecksum(Checksum checksum) {
             this.checksum = checksum;
         }
+
+        @Override
+        public String toString() {
+            return name;
+        }
     }
 
     class Checksum {
@@ -44,6 +44,7 @@ import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.util.StandardValidators;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -114,6 +115,34 @@ public class DistCopyHDFS extends AbstractHadoopProcessor {
         .expressionLanguageSupported(true)
         .build();
 
+    /**
+     * The number of DistCp jobs the paths may be split across
+     */
+    public static final PropertyDescriptor MAX_CONCURRENT_JOBS = new PropertyDescriptor.Builder()
+        .name("max.concurrent.jobs")
+        .description("The maximum number of DistCp jobs to split the 'files' across and run at once. Each job copies at least two " +
+                     "files so a long list of files does not wait on a single job")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * The number of times to retry a DistCp job after a transient HDFS error
+     */
+    public static final PropertyDescriptor MAX_RETRIES = new PropertyDescriptor.Builder()
+        .name("max.retries")
+        .description("The number of times to retry submitting a DistCp job after an HDFS error")
+        .required(true)
+        .defaultValue("0")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * The wait before the first retry, doubled for each retry after it
+     */
+    static final long RETRY_BACKOFF_MILLIS = 1000L;
+
     /**
      * Output paths to other NiFi processors
      */
@@ -122,7 +151,7 @@ public class DistCopyHDFS extends AbstractHadoopProcessor {
     @Override
     protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
         return ImmutableList.<PropertyDescriptor>builder().addAll(super.getSupportedPropertyDescriptors()).
-            add(DESTINATION).add(SOURCE).add(FILES).build();
+            add(DESTINATION).add(SOURCE).add(FILES).add(MAX_CONCURRENT_JOBS).add(MAX_RETRIES).build();
     }
 
     /**
@@ -185,9 +214,23 @@ public class DistCopyHDFS extends AbstractHadoopProcessor {
                 }
                 pathsList.add(new Path(source));
             }
-            DistCp distCp = getDistCp(pathsList, new Path(destination));
-            Job job = distCp.execute();
-            job.waitForCompletion(false);
+            Path destinationPath = new Path(destination);
+            List<List<Path>> batches = partition(pathsList, context.getProperty(MAX_CONCURRENT_JOBS).asInteger());
+            if (batches.size() > 1) {
+                // every job copies into the destination so create it up front rather than having the jobs race to
+                fs.mkdirs(destinationPath);
+            }
+            HDFSOperationScheduler scheduler = new HDFSOperationScheduler(batches.size(), context.getProperty(MAX_RETRIES).asInteger(), RETRY_BACKOFF_MILLIS);
+            List<HDFSOperationScheduler.Outcome<List<Path>, Boolean>> outcomes = scheduler.run(batches, batch -> {
+                DistCp distCp = getDistCp(batch, destinationPath);
+                Job job = distCp.execute();
+                return job.waitForCompletion(false);
+            }, HDFSOperationScheduler.Outcome::isFailed);
+            for (HDFSOperationScheduler.Outcome<List<Path>, Boolean> outcome : outcomes) {
+                if (outcome.isFailed()) {
+                    throw outcome.getException();
+                }
+            }
         } catch (JsonSyntaxException e) {
             getLog().error("Files list attribute does not contain a proper JSON array");
             session.transfer(flowFile, REL_FAILURE);
@@ -200,6 +243,29 @@ public class DistCopyHDFS extends AbstractHadoopProcessor {
         session.transfer(flowFile, REL_SUCCESS);
     }
 
+    /**
+     * Splits the paths round robin across at most {@code maxJobs} lists of at least two paths each.  DistCp treats a single source path as
+     * the copy of the destination itself rather than a file to copy into it, so a job is never given just one path out of several.
+     *
+     * @param pathsList the paths to copy
+     * @param maxJobs   the maximum number of lists
+     * @return the paths for each DistCp job
+     */
+    static List<List<Path>> partition(List<Path> pathsList, int maxJobs) {
+        int jobs = Math.max(1, Math.min(maxJobs, pathsList.size() / 2));
+        if (jobs == 1) {
+            return Collections.singletonList(pathsList);
+        }
+        List<List<Path>> batches = new ArrayList<>(jobs);
+        for (int i = 0; i < jobs; i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (int i = 0; i < pathsList.size(); i++) {
+            batches.get(i % jobs).add(pathsList.get(i));
+        }
+        return batches;
+    }
+
     /**
      * method to construct a new DistCp object to perform the distcp
      *
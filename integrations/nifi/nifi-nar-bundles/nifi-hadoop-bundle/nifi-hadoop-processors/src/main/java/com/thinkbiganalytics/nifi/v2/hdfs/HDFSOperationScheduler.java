@@ -0,0 +1,189 @@
+package com.thinkbiganalytics.nifi.v2.hdfs;
+
+/*-
+ * #%L
+ * thinkbig-nifi-hadoop-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.hadoop.security.AccessControlException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Runs an HDFS operation over a list of items with bounded parallelism, retrying transient I/O failures.
+ * With a parallelism of one the items run in order on the calling thread.
+ */
+public class HDFSOperationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(HDFSOperationScheduler.class);
+
+    private final int parallelism;
+
+    private final int maxRetries;
+
+    private final long retryBackoffMillis;
+
+    /**
+     * @param parallelism        the maximum number of items to run at once
+     * @param maxRetries         the number of times to retry an item after a transient I/O failure
+     * @param retryBackoffMillis the wait before the first retry, doubled for each retry after it
+     */
+    public HDFSOperationScheduler(int parallelism, int maxRetries, long retryBackoffMillis) {
+        this.parallelism = Math.max(1, parallelism);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMillis = Math.max(0, retryBackoffMillis);
+    }
+
+    /**
+     * Runs the operation for each item.  Once an outcome matches {@code stop} no more items are started, items already running are allowed to finish.
+     *
+     * @param items     the items to run the operation for
+     * @param operation the operation
+     * @param stop      the outcomes that stop the remaining items from running
+     * @return the outcomes of the items that were run, in the order of the items
+     */
+    public <T, R> List<Outcome<T, R>> run(List<T> items, Operation<T, R> operation, Predicate<Outcome<T, R>> stop) {
+        List<Outcome<T, R>> outcomes = new ArrayList<>(items.size());
+        if (parallelism == 1 || items.size() <= 1) {
+            for (T item : items) {
+                Outcome<T, R> outcome = runWithRetries(item, operation);
+                outcomes.add(outcome);
+                if (stop.test(outcome)) {
+                    break;
+                }
+            }
+            return outcomes;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()),
+                                                                new ThreadFactoryBuilder().setNameFormat("hdfs-operation-%d").setDaemon(true).build());
+        try {
+            AtomicBoolean stopped = new AtomicBoolean(false);
+            List<Future<Outcome<T, R>>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    if (stopped.get()) {
+                        return null;
+                    }
+                    Outcome<T, R> outcome = runWithRetries(item, operation);
+                    if (stop.test(outcome)) {
+                        stopped.set(true);
+                    }
+                    return outcome;
+                }));
+            }
+            for (Future<Outcome<T, R>> future : futures) {
+                Outcome<T, R> outcome = future.get();
+                if (outcome != null) {
+                    outcomes.add(outcome);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for HDFS operations", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("HDFS operation failed unexpectedly", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return outcomes;
+    }
+
+    private <T, R> Outcome<T, R> runWithRetries(T item, Operation<T, R> operation) {
+        int attempt = 0;
+        while (true) {
+            try {
+                return new Outcome<>(item, operation.apply(item), null);
+            } catch (Exception e) {
+                if (attempt >= maxRetries || !isRetryable(e)) {
+                    return new Outcome<>(item, null, e);
+                }
+                long backoff = retryBackoffMillis << Math.min(attempt, 16);
+                attempt++;
+                logger.warn("Retrying HDFS operation for {} in {} ms, attempt {} of {}: {}", item, backoff, attempt, maxRetries, e.toString());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return new Outcome<>(item, null, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Missing files and permission errors will not change by retrying
+     */
+    private boolean isRetryable(Exception e) {
+        return e instanceof IOException && !(e instanceof FileNotFoundException) && !(e instanceof AccessControlException);
+    }
+
+    /**
+     * An operation on a single item
+     */
+    @FunctionalInterface
+    public interface Operation<T, R> {
+
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * The result, or the exception of the last attempt, of running an operation for an item
+     */
+    public static class Outcome<T, R> {
+
+        private final T item;
+        private final R result;
+        private final Exception exception;
+
+        public Outcome(T item, R result, Exception exception) {
+            this.item = item;
+            this.result = result;
+            this.exception = exception;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public R getResult() {
+            return result;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        public boolean isFailed() {
+            return exception != null;
+        }
+    }
+}
@@ -321,6 +321,63 @@ public class ComputeHDFSChecksumsTest {
         verifyGetFileChecksumCall(fileName);
     }
 
+    @Test
+    public void testParallelReportsAllFailures() throws Exception {
+        String fileName = "000000_0";
+        String fileName2 = "000000_1";
+        String fileName3 = "000000_2";
+        String fileName4 = "000000_3";
+
+        Mockito.when(fileSystem.getFileChecksum(any(Path.class)))
+            .thenReturn(new MD5MD5CRC32FileChecksum(0, 512, new MD5Hash("112233445566778899aabbccddeeff00")));
+        Mockito.doThrow(new FileNotFoundException()).when(fileSystem).getFileChecksum(new Path(fileName4));
+
+        runner.setProperty(ComputeHDFSChecksums.FAIL_IF_INCORRECT_CHECKSUM, "True");
+        runner.setProperty(ComputeHDFSChecksums.PARALLELISM, "4");
+        runner.setProperty(ComputeHDFSChecksums.FILES,
+                           String.format("[" + fileEntry + "," + fileEntry + "," + fileEntry + "," + fileEntry + "]",
+                                         fileName, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AQAAAAA=",
+                                         fileName2, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA=",
+                                         fileName3, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AgAAAAA=",
+                                         fileName4, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA="));
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+
+        // Every file is checked even though the first one is wrong
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName));
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName2));
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName3));
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName4));
+
+        // Two wrong checksums, one missing file and the summary
+        Assert.assertEquals(4, runner.getLogger().getErrorMessages().size());
+    }
+
+    @Test
+    public void testRetryTransientError() throws Exception {
+        String fileName = "000000_0";
+
+        Mockito.when(fileSystem.getFileChecksum(any(Path.class)))
+            .thenThrow(new IOException("connection reset"))
+            .thenReturn(new MD5MD5CRC32FileChecksum(0, 512, new MD5Hash("112233445566778899aabbccddeeff00")));
+
+        runner.setProperty(ComputeHDFSChecksums.FAIL_IF_INCORRECT_CHECKSUM, "True");
+        runner.setProperty(ComputeHDFSChecksums.MAX_RETRIES, "1");
+        runner.setProperty(ComputeHDFSChecksums.FILES, String.format("[" + fileEntry + "]", fileName,
+                                                                     "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA="));
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+        Mockito.verify(fileSystem, Mockito.times(2)).getFileChecksum(new Path(fileName));
+    }
+
     /**
      * Enqueues a {@code FlowFile} and validates its properties.
      *
@@ -215,6 +215,35 @@ public class DistCopyHDFSTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testFilesSplitAcrossJobs() throws Exception {
+        runner.setProperty(DistCopyHDFS.DESTINATION, "/dropzone");
+        runner.setProperty(DistCopyHDFS.SOURCE, "/var");
+        runner.setProperty(DistCopyHDFS.MAX_CONCURRENT_JOBS, "2");
+        runner.setProperty(DistCopyHDFS.FILES, String.format("[" + fileEntry + "," + fileEntry + "," + fileEntry + "," + fileEntry + "]",
+                                                             "a", "b", "c", "d"));
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(DistCopyHDFS.REL_FAILURE).size());
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(DistCopyHDFS.REL_SUCCESS).size());
+
+        // One job for each half of the files into a destination created up front
+        Mockito.verify(distCp, Mockito.times(2)).execute();
+        Mockito.verify(fileSystem).mkdirs(new Path("/dropzone"));
+    }
+
+    @Test
+    public void testPartition() {
+        List<Path> paths = Arrays.asList(new Path("/a"), new Path("/b"), new Path("/c"), new Path("/d"), new Path("/e"));
+
+        Assert.assertEquals(Arrays.asList(paths), DistCopyHDFS.partition(paths, 1));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(new Path("/a"), new Path("/c"), new Path("/e")), Arrays.asList(new Path("/b"), new Path("/d"))),
+                            DistCopyHDFS.partition(paths, 4));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(new Path("/a"))), DistCopyHDFS.partition(Arrays.asList(new Path("/a")), 4));
+    }
+
     /**
      * Enqueues a {@code FlowFile} and validates its properties.
      *
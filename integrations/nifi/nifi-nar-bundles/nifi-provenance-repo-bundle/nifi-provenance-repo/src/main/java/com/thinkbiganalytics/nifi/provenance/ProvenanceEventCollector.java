@@ -125,6 +125,7 @@ public class ProvenanceEventCollector {
                         FeedFlowFile feedFlowFile = event.getFeedFlowFile();
                         if (feedFlowFile != null) {
                             feedFlowFile.checkAndMarkComplete(event);
+                            cacheUtil.flowFileUpdated(feedFlowFile);
                         }
                         event.getFeedFlowFile().incrementFailedEvents();
                     }
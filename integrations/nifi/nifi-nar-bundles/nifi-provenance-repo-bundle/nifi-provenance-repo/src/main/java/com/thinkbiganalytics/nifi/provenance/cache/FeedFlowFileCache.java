@@ -0,0 +1,421 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.reporting.KyloProvenanceEventReportingTask;
+
+import org.apache.nifi.controller.ConfigurationContext;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * As a feed runs through NiFi the root {@link FeedFlowFile} keeps track of its progress and the status of its child flow files {@link FeedFlowFile#activeChildFlowFiles} and last processed
+ * ProvenanceEvent {@link FeedFlowFile#flowFileLastEventTime}.
+ *
+ * When a root {@link FeedFlowFile} is updated via {@link #flowFileUpdated(FeedFlowFile)} it is marked dirty, and once it is complete {@link FeedFlowFile#isFeedComplete()} it is added to a completion
+ * index so the {@link #expire()} thread only visits the flow files that are ready to be removed.
+ *
+ * The dirty root flow files are appended to a memory mapped {@link FeedFlowFileJournal} by {@link #checkpoint()} after each batch of events is processed by the {@link
+ * KyloProvenanceEventReportingTask}, and completed flow files are removed from it.  A root flow file is written whole the first time, and after that only the changes made to it since the
+ * last checkpoint are appended.  If NiFi stops, even without running {@link KyloProvenanceEventReportingTask#onShutdown(ConfigurationContext)},
+ * the running flow files are loaded back from the journal via {@link #recover()} when NiFi starts.
+ */
+public class FeedFlowFileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedFlowFileCache.class);
+
+    /**
+     * The root FeedFlowFile for each flow file id, including the ids of the child flow files
+     */
+    private final Map<String, FeedFlowFile> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The root FeedFlowFiles keyed by their own id
+     */
+    private final Map<String, FeedFlowFile> rootFlowFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Root FeedFlowFiles that are complete and waiting to be expired
+     */
+    private final Queue<FeedFlowFile> completedFlowFiles = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Ids of the flow files in {@link #completedFlowFiles}
+     */
+    private final Set<String> completedFlowFileIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ids of the root flow files changed since the last checkpoint
+     */
+    private final Set<String> dirtyFlowFileIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ids of the root flow files written to the journal
+     */
+    private final Set<String> persistedFlowFileIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ids of persisted root flow files that have expired and need to be removed from the journal
+     */
+    private final Queue<String> expiredFlowFileIds = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The journal storing the running flow files on disk, or {@code null} if it could not be opened
+     */
+    private FeedFlowFileJournal journal;
+
+    /**
+     * The flow files read from the journal that have not yet been loaded via {@link #recover()}
+     */
+    private Map<String, FeedFlowFile> journalFlowFiles;
+
+    /**
+     * Compact the journal once it grows beyond this many bytes and twice its size after the last compaction
+     */
+    private final long compactThresholdBytes;
+
+    private long lastCompactedSize;
+
+    /**
+     * The amount of time the expire thread should run to check and expire the feed flow files
+     */
+    private Integer expireTimerCheckSeconds = 10;
+    /**
+     * Listeners that can get notified with a FeedFlowFile is invalidated and removed from the cache
+     */
+    private List<FeedFlowFileCacheListener> listeners = new ArrayList<>();
+    /**
+     * The last time the summary was printed
+     */
+    private DateTime lastPrintLogTime = null;
+    /**
+     * How often should the summary of whats in the cache be logged
+     * Every 5 minutes
+     */
+    private Long PRINT_LOG_MILLIS = 60 * 5000L;
+
+    public FeedFlowFileCache(String journalLocation, long compactThresholdBytes) {
+        this.compactThresholdBytes = compactThresholdBytes;
+        try {
+            journal = new FeedFlowFileJournal(journalLocation);
+            journalFlowFiles = journal.replay();
+            log.info("Opened FeedFlowFile journal at: {} with {} running flow files", journalLocation, journalFlowFiles.size());
+        } catch (Exception e) {
+            log.error("Error opening the FeedFlowFile journal {}. {}.  If NiFi goes down with flows in progress Kylo will not be able to connect the running flows on restart to their Kylo job executions",
+                      journalLocation, e.getMessage(), e);
+            journal = null;
+        }
+        log.info("Created new FeedFlowFileCache running timer every {} seconds to check and expire finished flow files", expireTimerCheckSeconds);
+        initTimerThread();
+    }
+
+    /**
+     * A listener can subscribe to the invalidate calls on the cache.
+     */
+    public void subscribe(FeedFlowFileCacheListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Check to see if a given flowfile is in the cache
+     *
+     * @return true if in the cache, false if not
+     */
+    public boolean isCached(String flowFileId) {
+        return cache.containsKey(flowFileId);
+    }
+
+
+    /**
+     * Get a FeedFlowFile from the cache.
+     * If the FeedFlowFile is not there it will return  null
+     *
+     * @return the FeedFlowFile, or null if not present
+     */
+    public FeedFlowFile getEntry(String id) {
+        return cache.get(id);
+    }
+
+
+    /**
+     * Return the root FeedFlowFiles in the cache
+     */
+    public Collection<FeedFlowFile> getFlowFiles() {
+        return rootFlowFiles.values();
+    }
+
+    /**
+     * Add a FeedFlowFile to the cache
+     *
+     * @param flowFileId   the id of the flowfile
+     * @param feedFlowFile the FeedFlowFile to relate/add to the cache
+     */
+    public void add(String flowFileId, FeedFlowFile feedFlowFile) {
+        cache.put(flowFileId, feedFlowFile);
+        if (flowFileId.equals(feedFlowFile.getId())) {
+            rootFlowFiles.put(flowFileId, feedFlowFile);
+        }
+        flowFileUpdated(feedFlowFile);
+    }
+
+    /**
+     * Called when the state of a root FeedFlowFile changes so it will be written at the next {@link #checkpoint()}, and expired once it is complete
+     *
+     * @param feedFlowFile the root flow file that changed
+     */
+    public void flowFileUpdated(FeedFlowFile feedFlowFile) {
+        dirtyFlowFileIds.add(feedFlowFile.getId());
+        if (feedFlowFile.isFeedComplete() && completedFlowFileIds.add(feedFlowFile.getId())) {
+            completedFlowFiles.add(feedFlowFile);
+        }
+    }
+
+
+    /**
+     * Invalidate and remove the given FeedFlowFile from the cache
+     *
+     * @param flowFile the flow file to invalidate/remove
+     */
+    public void invalidate(FeedFlowFile flowFile) {
+        if (flowFile != null && flowFile.isFeedComplete()) {
+            invalidate(flowFile.getId());
+            if (flowFile.getChildFlowFiles() != null) {
+                flowFile.getChildFlowFiles().stream().forEach(flowFileId -> invalidate(flowFileId));
+            }
+            rootFlowFiles.remove(flowFile.getId());
+            dirtyFlowFileIds.remove(flowFile.getId());
+            if (persistedFlowFileIds.remove(flowFile.getId())) {
+                expiredFlowFileIds.add(flowFile.getId());
+            }
+            listeners.stream().forEach(flowFileCacheListener -> flowFileCacheListener.onInvalidate(flowFile));
+        }
+    }
+
+    /**
+     * Invalidate and remove the flowfile from the cache
+     */
+    public void invalidate(String flowFileId) {
+        cache.remove(flowFileId);
+    }
+
+
+    /**
+     * Expire the completed FeedFlowFiles in the completion index
+     */
+    public synchronized void expire() {
+        try {
+            long start = System.currentTimeMillis();
+            int expired = 0;
+            FeedFlowFile root;
+            while ((root = completedFlowFiles.poll()) != null) {
+                completedFlowFileIds.remove(root.getId());
+                //a late event may have added another child, in which case it is indexed again when that child completes
+                if (root.isFeedComplete()) {
+                    invalidate(root);
+                    expired++;
+                }
+            }
+            if (expired > 0) {
+                long stop = System.currentTimeMillis();
+                log.info("Time to expire {} flowfile and all references {} ms. FeedFlowFile and references left in cache: {} ", expired, (stop - start), cache.size());
+            }
+            if (lastPrintLogTime == null || (lastPrintLogTime != null && DateTime.now().getMillis() - lastPrintLogTime.getMillis() > (PRINT_LOG_MILLIS))) {
+                printSummary();
+                lastPrintLogTime = DateTime.now();
+            }
+
+        } catch (Exception e) {
+            log.error("Error attempting to expire the FeedFlowFile cache {}, {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Append the changes to the root flow files since the last checkpoint to the journal and remove the expired ones, compacting the journal when it has grown too large.
+     * A root flow file that could not be written is written whole at the next checkpoint.
+     * This should be called by the single thread processing the provenance events, once a batch of events is processed.
+     */
+    public synchronized void checkpoint() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            int written = 0;
+            List<String> failedIds = new ArrayList<>();
+            Exception failure = null;
+            for (String id : dirtyFlowFileIds) {
+                dirtyFlowFileIds.remove(id);
+                FeedFlowFile root = rootFlowFiles.get(id);
+                if (root != null) {
+                    try {
+                        if (!persistedFlowFileIds.contains(id) || !root.isTrackingChanges()) {
+                            journal.put(root);
+                            persistedFlowFileIds.add(id);
+                            written++;
+                        } else if (root.hasChanges()) {
+                            journal.update(root);
+                            written++;
+                        }
+                    } catch (Exception e) {
+                        //the changes are not in the journal, so write the whole flow file next time
+                        root.stopTrackingChanges();
+                        failedIds.add(id);
+                        failure = e;
+                    }
+                }
+            }
+            String expiredId;
+            while ((expiredId = expiredFlowFileIds.poll()) != null) {
+                journal.remove(expiredId);
+                written++;
+            }
+            if (written > 0) {
+                journal.force();
+            }
+            if (failure != null) {
+                dirtyFlowFileIds.addAll(failedIds);
+                log.error("Error writing {} root flow files to the FeedFlowFile journal {}, they will be written again at the next checkpoint. {}", failedIds.size(), journal.getPath(),
+                          failure.getMessage(), failure);
+            }
+            if (failure != null || (journal.size() > compactThresholdBytes && journal.size() > 2 * lastCompactedSize)) {
+                compact();
+            }
+        } catch (Exception e) {
+            log.error("Error writing to the FeedFlowFile journal {}. {}", journal.getPath(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load the running flow files from the journal into the cache.
+     *
+     * @return the number of root flow files loaded
+     */
+    public synchronized int recover() {
+        if (journalFlowFiles == null) {
+            return 0;
+        }
+        Collection<FeedFlowFile> flowFiles = journalFlowFiles.values();
+        for (FeedFlowFile feedFlowFile : flowFiles) {
+            feedFlowFile.setBuiltFromMapDb(true);
+            cache.put(feedFlowFile.getId(), feedFlowFile);
+            rootFlowFiles.put(feedFlowFile.getId(), feedFlowFile);
+            persistedFlowFileIds.add(feedFlowFile.getId());
+            if (feedFlowFile.getActiveChildFlowFiles() != null) {
+                feedFlowFile.getActiveChildFlowFiles().stream().forEach(feedFlowFileId -> cache.put(feedFlowFileId, feedFlowFile));
+            }
+            if (feedFlowFile.isFeedComplete() && completedFlowFileIds.add(feedFlowFile.getId())) {
+                completedFlowFiles.add(feedFlowFile);
+            }
+        }
+        journalFlowFiles = null;
+        try {
+            compact();
+        } catch (IOException e) {
+            log.error("Error compacting the FeedFlowFile journal {}. {}", journal.getPath(), e.getMessage(), e);
+        }
+        return flowFiles.size();
+    }
+
+    /**
+     * Write any outstanding changes and close the journal
+     */
+    public synchronized int shutdown() {
+        checkpoint();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.error("Error closing the FeedFlowFile journal {}. {}", journal.getPath(), e.getMessage(), e);
+            }
+            journal = null;
+        }
+        return persistedFlowFileIds.size();
+    }
+
+    /**
+     * @return the number of flow file ids in the cache, including the child flow files
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Log some summary data about the cache and JMS activity
+     */
+    public void printSummary() {
+        log.info("FeedFlowFile Cache Size: {}, root flow files: {}, journal size: {} bytes ", cache.size(), rootFlowFiles.size(), journal != null ? journal.size() : 0);
+        log.info("ProvenanceEvent JMS Stats:  Sent {} statistics events to JMS.  Sent {} batch events to JMS ", AggregationEventProcessingStats.getStreamingEventsSent(),
+                 AggregationEventProcessingStats.getBatchEventsSent());
+
+
+    }
+
+    /**
+     * Rewrite the journal with the current root flow files.  Flow files still dirty are written again at the next checkpoint.
+     * If the journal can not be rewritten the root flow files are written whole the next time they change, as their earlier changes may be missing from the journal.
+     */
+    private void compact() throws IOException {
+        if (journal != null) {
+            long start = System.currentTimeMillis();
+            expiredFlowFileIds.clear();
+            persistedFlowFileIds.clear();
+            persistedFlowFileIds.addAll(rootFlowFiles.keySet());
+            try {
+                journal.compact(rootFlowFiles.values());
+            } catch (IOException e) {
+                rootFlowFiles.values().forEach(FeedFlowFile::stopTrackingChanges);
+                throw e;
+            }
+            lastCompactedSize = journal.size();
+            log.info("Compacted the FeedFlowFile journal to {} root flow files, {} bytes in {} ms", persistedFlowFileIds.size(), lastCompactedSize, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Start the timer thread using the {@link this#expireTimerCheckSeconds} as the schedule interval in SECONDS
+     */
+    private void initTimerThread() {
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        service.scheduleAtFixedRate(() -> {
+            expire();
+        }, expireTimerCheckSeconds, expireTimerCheckSeconds, TimeUnit.SECONDS);
+
+
+    }
+
+
+}
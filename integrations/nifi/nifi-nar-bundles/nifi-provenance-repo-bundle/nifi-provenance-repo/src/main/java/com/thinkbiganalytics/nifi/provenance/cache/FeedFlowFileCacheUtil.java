@@ -44,7 +44,7 @@ public class FeedFlowFileCacheUtil {
     ProvenanceFeedLookup provenanceFeedLookup;
 
     @Autowired
-    FeedFlowFileGuavaCache flowFileGuavaCache;
+    FeedFlowFileCache flowFileCache;
 
     // internal counters for general stats
     AtomicLong eventCounter = new AtomicLong(0L);
@@ -55,19 +55,23 @@ public class FeedFlowFileCacheUtil {
     }
 
 
+    /**
+     * Notify the cache that the root flow file changed outside of {@link #cacheAndBuildFlowFileGraph(ProvenanceEventRecordDTO)}
+     */
+    public void flowFileUpdated(FeedFlowFile feedFlowFile) {
+        flowFileCache.flowFileUpdated(feedFlowFile);
+    }
+
     public void logStats() {
         log.info("Processed {} events.  ", eventCounter.get());
     }
 
 
     /**
-     * Create the FlowFile graph and cache the FlowFile with event into the GuavaCache for processing
+     * Create the FlowFile graph and cache the FlowFile with event into the FeedFlowFileCache for processing
      */
     public void cacheAndBuildFlowFileGraph(ProvenanceEventRecordDTO event) {
 
-        // Get the FlowFile from the Cache.
-        FeedFlowFileGuavaCache flowFileCache = flowFileGuavaCache;
-
         //An event is the very first in the flow if it is a CREATE or RECEIVE event and if there are no Parent flow files
         //This indicates the start of a Job.
         //
@@ -176,6 +180,7 @@ public class FeedFlowFileCacheUtil {
             event.setIsFinalJobEvent(true);
             //  log.info("Ending the Job for Feed {} and flowfile: {}.  Event: {}  ", event.getFeedName(), event.getFlowFileUuid(), event);
         }
+        flowFileCache.flowFileUpdated(feedFlowFile);
 
         eventCounter.incrementAndGet();
 
@@ -0,0 +1,271 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append only, memory mapped journal of {@link FeedFlowFile} state.
+ *
+ * Each record is written as {@code [int length][byte type][payload][int crc32]} where the payload is a {@link FeedFlowFile#writeTo(java.io.DataOutput)} for a put,
+ * the {@link FeedFlowFile#writeChangesTo(java.io.DataOutput)} since the last put or update for an update, or the flow file id for a remove.  A flow file is put once and then only
+ * its changes are appended, so the records stay small however many child flow files it has.  The updates are applied to the flow file from its put when the journal is replayed.
+ * A length of 0 marks the end of the journal.  If NiFi stops in the middle of a write the partial record fails its checksum and the journal is replayed up to the last complete record.
+ *
+ * The journal grows as records are appended, and is rewritten with only the live flow files by {@link #compact(Collection)}.
+ */
+public class FeedFlowFileJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedFlowFileJournal.class);
+
+    private static final int MAGIC = 0x4B46464A;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 2;
+
+    private static final byte UPDATE = 3;
+
+    /**
+     * Bytes needed for a record in addition to the type and payload: the length, checksum and end marker
+     */
+    private static final int RECORD_OVERHEAD = 12;
+
+    private static final long INITIAL_CAPACITY = 8 * 1024 * 1024L;
+
+    private final Path path;
+
+    private RandomAccessFile file;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    /**
+     * The position the next record will be written to
+     */
+    private int position;
+
+    public FeedFlowFileJournal(String location) throws IOException {
+        this.path = Paths.get(location);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        open();
+    }
+
+    /**
+     * Read the journal from the start and return the flow files that have been put and not removed, in the order they were first written, with their updates applied.
+     * Reading stops at the end marker or at the first record that is incomplete or fails its checksum, and subsequent writes will be appended from there.
+     *
+     * @return the live flow files keyed by id
+     */
+    public synchronized Map<String, FeedFlowFile> replay() throws IOException {
+        Map<String, FeedFlowFile> flowFiles = new LinkedHashMap<>();
+        int pos = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (pos + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || (long) pos + length + 8 > buffer.capacity()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.position(pos + 4);
+            buffer.get(record);
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(pos + 4 + length)) {
+                log.warn("Ignoring incomplete record at position {} of the FeedFlowFile journal {}", pos, path);
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, length - 1));
+            if (record[0] == PUT) {
+                FeedFlowFile flowFile = FeedFlowFile.readFrom(in);
+                flowFiles.put(flowFile.getId(), flowFile);
+            } else if (record[0] == REMOVE) {
+                flowFiles.remove(in.readUTF());
+            } else if (record[0] == UPDATE) {
+                FeedFlowFile flowFile = flowFiles.get(FeedFlowFile.readChangesId(in));
+                if (flowFile != null) {
+                    FeedFlowFile.applyChangesFrom(flowFile, in);
+                }
+            }
+            pos += length + 8;
+        }
+        position = pos;
+        return flowFiles;
+    }
+
+    /**
+     * Append the current state of the flow file, and start tracking its changes so they can be appended with {@link #update(FeedFlowFile)}
+     */
+    public synchronized void put(FeedFlowFile flowFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PUT);
+        flowFile.writeTo(out);
+        flowFile.trackChanges();
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Append the changes made to the flow file since it was last put or updated.  If the record can not be appended the changes are lost, and the flow file needs to be put again.
+     */
+    public synchronized void update(FeedFlowFile flowFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(UPDATE);
+        flowFile.writeChangesTo(out);
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Append a record removing the flow file with the given id
+     */
+    public synchronized void remove(String flowFileId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(REMOVE);
+        out.writeUTF(flowFileId);
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Flush the appended records to disk
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Rewrite the journal so it only contains the given flow files.
+     * The new journal is written next to this one and then moved over it, so a failure part way through leaves the current journal intact.
+     *
+     * @param flowFiles the live flow files
+     */
+    public synchronized void compact(Collection<FeedFlowFile> flowFiles) throws IOException {
+        Path compactPath = Paths.get(path.toString() + ".compact");
+        Files.deleteIfExists(compactPath);
+        FeedFlowFileJournal compacted = new FeedFlowFileJournal(compactPath.toString());
+        for (FeedFlowFile flowFile : flowFiles) {
+            compacted.put(flowFile);
+        }
+        compacted.force();
+        int compactedPosition = compacted.position;
+        compacted.close();
+
+        close();
+        Files.move(compactPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+        position = compactedPosition;
+    }
+
+    /**
+     * @return the number of bytes used by the journal
+     */
+    public synchronized int size() {
+        return position;
+    }
+
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private void open() throws IOException {
+        file = new RandomAccessFile(path.toFile(), "rw");
+        channel = file.getChannel();
+        boolean created = file.length() < HEADER_SIZE;
+        map(Math.max(INITIAL_CAPACITY, file.length()));
+        if (!created && (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)) {
+            log.warn("The FeedFlowFile journal {} is not a version {} journal and will be reset", path, VERSION);
+            buffer.put(new byte[HEADER_SIZE + 4]);
+            created = true;
+        }
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(HEADER_SIZE, 0);
+        }
+        position = HEADER_SIZE;
+    }
+
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("The FeedFlowFile journal " + path + " can not grow beyond " + Integer.MAX_VALUE + " bytes");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void append(byte[] record) throws IOException {
+        long required = (long) position + record.length + RECORD_OVERHEAD;
+        if (required > buffer.capacity()) {
+            buffer.force();
+            map(Math.max(required, Math.min(2L * buffer.capacity(), Integer.MAX_VALUE)));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        buffer.position(position);
+        buffer.putInt(record.length);
+        buffer.put(record);
+        buffer.putInt((int) crc.getValue());
+        buffer.putInt(0);
+        position += record.length + 8;
+    }
+}
@@ -25,9 +25,8 @@ import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectFactory;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceStatsCalculator;
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileCache;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileCacheUtil;
-import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileGuavaCache;
-import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileMapDbCache;
 import com.thinkbiganalytics.nifi.provenance.jms.ProvenanceEventActiveMqWriter;
 import com.thinkbiganalytics.nifi.provenance.util.SpringApplicationContext;
 
@@ -46,10 +45,16 @@ public class NifiProvenanceConfig {
 
     private static final Logger log = LoggerFactory.getLogger(NifiProvenanceConfig.class);
     /**
-     * location of where map db should store the persist cache file to disk
+     * location of the journal storing the running feed flow files on disk
      **/
-    @Value("${kylo.provenance.feedflowfile.mapdb.cache.location:/opt/nifi/feed-flowfile-cache.db}")
-    private String feedFlowFileMapDbCacheLocation;
+    @Value("${kylo.provenance.feedflowfile.journal.location:/opt/nifi/feed_flowfile_cache/feed-flowfile.journal}")
+    private String feedFlowFileJournalLocation;
+
+    /**
+     * size in MB the journal can grow to before it is compacted
+     **/
+    @Value("${kylo.provenance.feedflowfile.journal.compact.threshold.mb:64}")
+    private long feedFlowFileJournalCompactThresholdMb;
 
     @Bean
     public SpringApplicationContext springApplicationContext() {
@@ -74,14 +79,8 @@ public class NifiProvenanceConfig {
     }
 
     @Bean
-    public FeedFlowFileMapDbCache feedFlowFileMapDbCache() {
-        String location = feedFlowFileMapDbCacheLocation;
-        return new FeedFlowFileMapDbCache(location);
-    }
-
-    @Bean
-    public FeedFlowFileGuavaCache feedFlowFileGuavaCache() {
-        return new FeedFlowFileGuavaCache();
+    public FeedFlowFileCache feedFlowFileCache() {
+        return new FeedFlowFileCache(feedFlowFileJournalLocation, feedFlowFileJournalCompactThresholdMb * 1024 * 1024);
     }
 
     @Bean
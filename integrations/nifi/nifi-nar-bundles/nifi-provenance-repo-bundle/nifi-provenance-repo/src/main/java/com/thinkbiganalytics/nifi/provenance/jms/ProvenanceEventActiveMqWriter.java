@@ -24,12 +24,17 @@ import com.thinkbiganalytics.activemq.SendJmsMessage;
 import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.CompactProvenanceCodec;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceCodec;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceCodecs;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -51,6 +56,22 @@ public class ProvenanceEventActiveMqWriter {
     @Autowired
     private SendJmsMessage sendJmsMessage;
 
+    /**
+     * The codec used to encode the payloads sent to Kylo.  "java" sends the objects using Java serialization
+     */
+    @Value("${kylo.provenance.jms.codec:java}")
+    private String codecName;
+
+    /**
+     * The block compression used by the codec (NONE, DEFLATE)
+     */
+    @Value("${kylo.provenance.jms.codec.compression:NONE}")
+    private String codecCompression;
+
+    /**
+     * The codec to use, or null if Java serialization should be used
+     */
+    private ProvenanceCodec codec;
 
     private Map<String, Set<JmsSendListener>> listeners = new HashMap<>();
 
@@ -64,7 +85,36 @@ public class ProvenanceEventActiveMqWriter {
 
     @PostConstruct
     public void postConstruct() {
+        try {
+            this.codec = ProvenanceCodecs.forName(codecName, CompactProvenanceCodec.Compression.valueOf(codecCompression.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid provenance codec configuration {} / {}. Java serialization will be used to send events to Kylo.", codecName, codecCompression, e);
+            this.codec = null;
+        }
+        logger.info("Sending provenance events to JMS using {} ", codec != null ? codec.getName() + " codec with " + codecCompression + " compression" : "Java serialization");
+    }
 
+    /**
+     * Encode the payload with the configured codec and send it to the queue.
+     * If no codec is configured, or the payload cannot be encoded, it is sent using Java serialization.
+     *
+     * @param destination the queue
+     * @param payload     the object to send
+     */
+    private void send(String destination, Serializable payload) {
+        if (codec != null && codec.supports(payload)) {
+            byte[] bytes = null;
+            try {
+                bytes = codec.encode(payload);
+            } catch (Exception e) {
+                logger.warn("Unable to encode {} using the {} codec.  Falling back to Java serialization ", payload, codec.getName(), e);
+            }
+            if (bytes != null) {
+                sendJmsMessage.sendBytesToQueue(destination, bytes, codec.getName());
+                return;
+            }
+        }
+        sendJmsMessage.sendSerializedObjectToQueue(destination, payload);
     }
 
     /**
@@ -93,7 +143,7 @@ public class ProvenanceEventActiveMqWriter {
     public void writeStats(AggregatedFeedProcessorStatisticsHolder stats) {
         try {
             if (stats.getEventCount().get() > 0) {
-                sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                send(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
                 AggregationEventProcessingStats.addStreamingEvents(stats.getEventCount().intValue());
                 notifySuccess(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
             }
@@ -111,7 +161,7 @@ public class ProvenanceEventActiveMqWriter {
     public void writeBatchEvents(ProvenanceEventRecordDTOHolder events) {
         try {
             logger.info("SENDING Batch Events to JMS {} ", events);
-            sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            send(Queues.FEED_MANAGER_QUEUE, events);
             AggregationEventProcessingStats.addBatchEvents(events.getEvents().size());
             notifySuccess(Queues.FEED_MANAGER_QUEUE, events);
         } catch (Exception e) {
@@ -27,7 +27,7 @@ import com.thinkbiganalytics.nifi.provenance.ProvenanceEventCollector;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventRecordConverter;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
-import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileMapDbCache;
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileCache;
 import com.thinkbiganalytics.nifi.provenance.jms.ProvenanceEventActiveMqWriter;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
 import com.thinkbiganalytics.nifi.provenance.util.SpringApplicationContext;
@@ -206,7 +206,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     private Long nifiQueryTime = 0L;
     private NodeIdStrategy nodeIdStrategy;
     /**
-     * count the number of retry attempts when getting the flowfileMapDB Cache
+     * count the number of retry attempts when getting the FeedFlowFile journal
      */
     private int initializeFlowFilesRetryAttempts = 0;
 
@@ -274,7 +274,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         abortProcessing();
         try {
             //persist running flowfile metadata to disk
-            int persistedRootFlowFiles = getFlowFileMapDbCache().persistFlowFiles();
+            int persistedRootFlowFiles = getFeedFlowFileCache().shutdown();
             getLogger().info("onShutdown: Finished persisting {} root flow files to disk ", new Object[]{persistedRootFlowFiles});
         } catch (Exception e) {
             //ok to swallow exception here.  this is called when NiFi is shutting down
@@ -291,14 +291,14 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     public final void onConfigurationRestored() {
         if (initializing.compareAndSet(false, true)) {
             try {
-                getLogger().info("onConfigurationRestored: Attempting to load any persisted files from disk into the Guava Cache");
+                getLogger().info("onConfigurationRestored: Attempting to load any persisted files from disk into the FeedFlowFile Cache");
 
                 loadSpring(true);
                 //rebuild mem flowfile metadata from disk
-                initializeFlowFilesFromMapDbCache();
+                initializeFlowFilesFromJournal();
             } catch (Exception e) {
                 getLogger().warn(
-                    "Error attempting to restore FlowFile MapDB cache in onConfigurationRestored with message: {}.  The Reporting Task will attempt to initialize this again at the start of the first trigger.",
+                    "Error attempting to restore the FeedFlowFile journal in onConfigurationRestored with message: {}.  The Reporting Task will attempt to initialize this again at the start of the first trigger.",
                     new Object[]{e.getMessage()});
                 initializationError = true;
             } finally {
@@ -308,17 +308,17 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     }
 
     /**
-     * attempt to load the data from disk into the Guava Cache
+     * attempt to load the data from disk into the FeedFlowFile Cache
      */
-    private void initializeFlowFilesFromMapDbCache() {
-        int loadedRootFlowFiles = getFlowFileMapDbCache().loadGuavaCache();
-        getLogger().info("initializeFlowFilesFromMapDbCache: Finished loading {} persisted files from disk into the Guava Cache", new Object[]{loadedRootFlowFiles});
+    private void initializeFlowFilesFromJournal() {
+        int loadedRootFlowFiles = getFeedFlowFileCache().recover();
+        getLogger().info("initializeFlowFilesFromJournal: Finished loading {} persisted files from disk into the FeedFlowFile Cache", new Object[]{loadedRootFlowFiles});
     }
 
     /**
      * Ensures the flow files stored in the cache from the last time NiFi was shut down are loaded
      */
-    private void ensureInitializeFlowFileMapDbCache() {
+    private void ensureInitializeFeedFlowFileCache() {
         if (initializationError) {
             getLogger().info("Errors was found initializing the Flow files... attempting to resolve now");
             initializing.set(true);
@@ -326,11 +326,11 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             boolean retry = initializeFlowFilesRetryAttempts < 3;
             if (retry) {
                 try {
-                    initializeFlowFilesFromMapDbCache();
+                    initializeFlowFilesFromJournal();
                 } catch (Exception e) {
                     initializeFlowFilesRetryAttempts++;
                     if (initializeFlowFilesRetryAttempts < 3) {
-                        getLogger().error("Retry to get mapDbCache  with attempt # {}", new Object[]{initializeFlowFilesRetryAttempts});
+                        getLogger().error("Retry to load the FeedFlowFile journal with attempt # {}", new Object[]{initializeFlowFilesRetryAttempts});
                         //wait
                         try {
                             Thread.sleep(300L);
@@ -338,9 +338,9 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
                         }
                         //retry
-                        ensureInitializeFlowFileMapDbCache();
+                        ensureInitializeFeedFlowFileCache();
                     } else {
-                        getLogger().error("ERROR attempting to initialize the FlowFile MapDB cache.  Any events running midstream before NiFi was restarted may not be finished in Kylo {} ",
+                        getLogger().error("ERROR attempting to initialize the FeedFlowFile journal.  Any events running midstream before NiFi was restarted may not be finished in Kylo {} ",
                                           new Object[]{e.getMessage()}, e);
                     }
                 } finally {
@@ -481,7 +481,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             return;
         }
 
-        ensureInitializeFlowFileMapDbCache();
+        ensureInitializeFeedFlowFileCache();
 
         if (!isInitializing() && processing.compareAndSet(false, true)) {
 
@@ -775,6 +775,8 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             }
             //Send JMS off
             getProvenanceEventCollector().sendToJms();
+            //persist the flow files changed by this batch
+            getFeedFlowFileCache().checkpoint();
         } catch (Exception e) {
             getLogger().error("Error processing Kylo ProvenanceEvent ", e);
             abortProcessing();
@@ -860,11 +862,10 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     }
 
     /**
-     * Persistent cache that will only be used when NiFi shuts down or is started, persisting the RootFlowFile objects to help complete Statistics and event processing when NiFi shuts down with events
-     * in mid flow processing
+     * Cache of the running RootFlowFile objects, journaled to disk after each batch to help complete Statistics and event processing when NiFi stops with events in mid flow processing
      */
-    private FeedFlowFileMapDbCache getFlowFileMapDbCache() {
-        return SpringApplicationContext.getInstance().getBean(FeedFlowFileMapDbCache.class);
+    private FeedFlowFileCache getFeedFlowFileCache() {
+        return SpringApplicationContext.getInstance().getBean(FeedFlowFileCache.class);
     }
 
     private static enum LAST_EVENT_ID_NOT_FOUND_OPTION {ZERO, MAX_EVENT_ID, KYLO}
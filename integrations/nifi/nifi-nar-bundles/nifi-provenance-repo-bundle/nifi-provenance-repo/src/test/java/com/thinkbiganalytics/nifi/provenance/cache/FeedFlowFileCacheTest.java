@@ -0,0 +1,192 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileJournalTest.event;
+
+public class FeedFlowFileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String location;
+
+    private FeedFlowFileCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        location = folder.getRoot().toPath().resolve("feed-flow-files.journal").toString();
+        cache = new FeedFlowFileCache(location, 1024 * 1024L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.shutdown();
+    }
+
+    /**
+     * Verify only the root flow files that are complete are expired, along with their child flow file ids, and they are removed from the journal
+     */
+    @Test
+    public void expireCompletedFlowFiles() throws Exception {
+        List<FeedFlowFile> invalidated = new ArrayList<>();
+        cache.subscribe(invalidated::add);
+        String childId = UUID.randomUUID().toString();
+        FeedFlowFile complete = start(UUID.randomUUID().toString(), childId);
+        FeedFlowFile running = start(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        cache.checkpoint();
+
+        complete.checkAndMarkComplete(event(3L, complete.getId(), "DROP", new DateTime(3000L)));
+        cache.flowFileUpdated(complete);
+        cache.expire();
+        Assert.assertTrue("a root with a running child is not expired", cache.isCached(complete.getId()));
+
+        complete.checkAndMarkComplete(event(4L, childId, "DROP", new DateTime(4000L)));
+        cache.flowFileUpdated(complete);
+        cache.expire();
+
+        Assert.assertEquals(Collections.singletonList(complete), invalidated);
+        Assert.assertFalse(cache.isCached(complete.getId()));
+        Assert.assertFalse(cache.isCached(childId));
+        Assert.assertTrue(cache.isCached(running.getId()));
+        Assert.assertEquals(Collections.singletonList(running), new ArrayList<>(cache.getFlowFiles()));
+
+        cache.checkpoint();
+        Assert.assertEquals(1, restart().recover());
+        Assert.assertFalse(cache.isCached(complete.getId()));
+        Assert.assertTrue(cache.isCached(running.getId()));
+    }
+
+    /**
+     * Verify the running flow files checkpointed before NiFi stopped, without a shutdown, are recovered with the changes from each checkpoint
+     */
+    @Test
+    public void recoverAfterRestart() throws Exception {
+        String rootId = UUID.randomUUID().toString();
+        String firstChildId = UUID.randomUUID().toString();
+        String secondChildId = UUID.randomUUID().toString();
+        FeedFlowFile root = start(rootId, firstChildId);
+        cache.checkpoint();
+        int checkpointSize = journalSize();
+
+        cache.checkpoint();
+        Assert.assertEquals("nothing is written when no flow files changed", checkpointSize, journalSize());
+
+        root.addChildFlowFile(secondChildId);
+        root.assignFlowFileToParent(secondChildId, rootId);
+        root.addEvent(event(3L, secondChildId, "CONTENT_MODIFIED", new DateTime(3000L)));
+        root.checkAndMarkComplete(event(4L, firstChildId, "DROP", new DateTime(4000L)));
+        root.incrementFailedEvents();
+        cache.add(secondChildId, root);
+        cache.checkpoint();
+
+        FeedFlowFileCache previous = cache;
+        cache = new FeedFlowFileCache(location, 1024 * 1024L);
+        Assert.assertEquals(1, cache.recover());
+        previous.shutdown();
+
+        FeedFlowFile recovered = cache.getEntry(secondChildId);
+        Assert.assertNotNull(recovered);
+        Assert.assertSame(recovered, cache.getEntry(rootId));
+        Assert.assertTrue(recovered.isBuiltFromMapDb());
+        Assert.assertEquals("category.feed", recovered.getFeedName());
+        Assert.assertEquals(Collections.singleton(secondChildId), recovered.getActiveChildFlowFiles());
+        Assert.assertEquals(root.getChildFlowFiles(), recovered.getChildFlowFiles());
+        Assert.assertEquals(Long.valueOf(3L), recovered.getLastEventId());
+        Assert.assertEquals(Long.valueOf(3000L), recovered.getPreviousEventTime(secondChildId));
+        Assert.assertTrue(recovered.hasFailedEvents());
+
+        //the recovered flow file keeps being journaled after the restart
+        recovered.checkAndMarkComplete(event(5L, secondChildId, "DROP", new DateTime(5000L)));
+        cache.flowFileUpdated(recovered);
+        cache.checkpoint();
+        Assert.assertEquals(1, restart().recover());
+        Assert.assertTrue(cache.getEntry(rootId).getActiveChildFlowFiles().isEmpty());
+    }
+
+    /**
+     * Verify a root flow file is written whole once, and after that only its changes are written
+     */
+    @Test
+    public void checkpointWritesChanges() throws Exception {
+        FeedFlowFile root = start(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        for (int i = 0; i < 1000; i++) {
+            String childId = UUID.randomUUID().toString();
+            root.addChildFlowFile(childId);
+            cache.add(childId, root);
+        }
+        cache.checkpoint();
+        int rootSize = journalSize();
+
+        String childId = UUID.randomUUID().toString();
+        root.addChildFlowFile(childId);
+        cache.add(childId, root);
+        cache.checkpoint();
+
+        Assert.assertTrue(journalSize() - rootSize < 100);
+        Assert.assertEquals(1, restart().recover());
+        Assert.assertEquals(1002, cache.getEntry(childId).getActiveChildFlowFiles().size());
+    }
+
+    /**
+     * Start a root flow file with a child and add them to the cache
+     */
+    private FeedFlowFile start(String rootId, String childId) {
+        FeedFlowFile root = new FeedFlowFile(rootId);
+        root.setFeedName("category.feed");
+        root.setFeedProcessGroupId("process-group");
+        root.setFirstEvent(event(1L, rootId, "CREATE", new DateTime(1000L)));
+        root.addEvent(event(1L, rootId, "CREATE", new DateTime(1000L)));
+        cache.add(rootId, root);
+        root.addChildFlowFile(childId);
+        root.assignFlowFileToParent(childId, rootId);
+        root.addEvent(event(2L, childId, "CONTENT_MODIFIED", new DateTime(2000L)));
+        cache.add(childId, root);
+        return root;
+    }
+
+    private FeedFlowFileCache restart() {
+        cache.shutdown();
+        cache = new FeedFlowFileCache(location, 1024 * 1024L);
+        return cache;
+    }
+
+    private int journalSize() {
+        FeedFlowFileJournal journal = (FeedFlowFileJournal) Whitebox.getInternalState(cache, "journal");
+        return journal.size();
+    }
+}
@@ -0,0 +1,223 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+public class FeedFlowFileJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String location;
+
+    private FeedFlowFileJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        location = folder.getRoot().toPath().resolve("journal").resolve("feed-flow-files.journal").toString();
+        journal = new FeedFlowFileJournal(location);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    /**
+     * Verify flow files put are replayed in order, and removed flow files are not
+     */
+    @Test
+    public void replayPutAndRemove() throws Exception {
+        journal.put(new FeedFlowFile("a"));
+        journal.put(new FeedFlowFile("b"));
+        journal.put(new FeedFlowFile("c"));
+        journal.remove("b");
+
+        Map<String, FeedFlowFile> flowFiles = reopen().replay();
+
+        Assert.assertArrayEquals(new String[]{"a", "c"}, flowFiles.keySet().toArray());
+    }
+
+    /**
+     * Verify the updates appended after a put are applied to the flow file on replay, and updates for removed flow files are ignored
+     */
+    @Test
+    public void replayUpdates() throws Exception {
+        String rootId = UUID.randomUUID().toString();
+        String childId = UUID.randomUUID().toString();
+        FeedFlowFile flowFile = new FeedFlowFile(rootId);
+        flowFile.setFeedName("category.feed");
+        journal.put(flowFile);
+        int putSize = journal.size();
+
+        flowFile.addChildFlowFile(childId);
+        flowFile.addEvent(event(1L, childId, "CONTENT_MODIFIED", new DateTime(1000L)));
+        journal.update(flowFile);
+        flowFile.checkAndMarkComplete(event(2L, rootId, "DROP", new DateTime(2000L)));
+        journal.update(flowFile);
+
+        FeedFlowFile removed = new FeedFlowFile("removed");
+        journal.put(removed);
+        journal.remove("removed");
+        removed.incrementFailedEvents();
+        journal.update(removed);
+
+        Map<String, FeedFlowFile> flowFiles = reopen().replay();
+
+        Assert.assertEquals(1, flowFiles.size());
+        FeedFlowFile replayed = flowFiles.get(rootId);
+        Assert.assertEquals("category.feed", replayed.getFeedName());
+        Assert.assertEquals(Collections.singleton(childId), replayed.getChildFlowFiles());
+        Assert.assertEquals(Collections.singleton(childId), replayed.getActiveChildFlowFiles());
+        Assert.assertEquals(Long.valueOf(1L), replayed.getLastEventId());
+        Assert.assertTrue(journal.size() > putSize);
+    }
+
+    /**
+     * Verify replay stops at a record that fails its checksum, and records appended after it are replayed next time
+     */
+    @Test
+    public void replayStopsAtCorruptRecord() throws Exception {
+        journal.put(new FeedFlowFile("a"));
+        int corruptPosition = journal.size();
+        journal.put(new FeedFlowFile("b"));
+        journal.put(new FeedFlowFile("c"));
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(location, "rw")) {
+            //flip a byte of the payload of the second record, after its length and type
+            file.seek(corruptPosition + 6);
+            int value = file.read();
+            file.seek(corruptPosition + 6);
+            file.write(value ^ 0xFF);
+        }
+
+        journal = new FeedFlowFileJournal(location);
+        Assert.assertArrayEquals(new String[]{"a"}, journal.replay().keySet().toArray());
+        Assert.assertEquals(corruptPosition, journal.size());
+
+        journal.put(new FeedFlowFile("d"));
+        Assert.assertArrayEquals(new String[]{"a", "d"}, reopen().replay().keySet().toArray());
+    }
+
+    /**
+     * Verify replay stops at a record that was only partly written
+     */
+    @Test
+    public void replayStopsAtTornRecord() throws Exception {
+        journal.put(new FeedFlowFile("a"));
+        int tornPosition = journal.size();
+        journal.put(new FeedFlowFile("b"));
+        int end = journal.size();
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(location, "rw")) {
+            //the length of the second record was written, but not the end of its payload or its checksum
+            file.seek(end - 6);
+            file.write(new byte[6]);
+        }
+
+        journal = new FeedFlowFileJournal(location);
+        Assert.assertArrayEquals(new String[]{"a"}, journal.replay().keySet().toArray());
+        Assert.assertEquals(tornPosition, journal.size());
+    }
+
+    /**
+     * Verify compaction keeps only the given flow files, and the compacted journal can be reopened and appended to
+     */
+    @Test
+    public void compactAndReopen() throws Exception {
+        FeedFlowFile a = new FeedFlowFile("a");
+        journal.put(a);
+        for (int i = 0; i < 100; i++) {
+            journal.put(new FeedFlowFile("removed-" + i));
+            journal.remove("removed-" + i);
+        }
+        a.setFeedName("category.feed");
+        journal.update(a);
+        int size = journal.size();
+
+        journal.compact(Collections.singletonList(a));
+
+        Assert.assertTrue(journal.size() < size);
+        Assert.assertFalse(Files.exists(Paths.get(location + ".compact")));
+        Assert.assertFalse(a.hasChanges());
+
+        a.incrementFailedEvents();
+        journal.update(a);
+        journal.put(new FeedFlowFile("b"));
+
+        Map<String, FeedFlowFile> flowFiles = reopen().replay();
+        Assert.assertArrayEquals(new String[]{"a", "b"}, flowFiles.keySet().toArray());
+        Assert.assertEquals("category.feed", flowFiles.get("a").getFeedName());
+        Assert.assertTrue(flowFiles.get("a").hasFailedEvents());
+    }
+
+    /**
+     * Verify the journal grows beyond its initial mapping
+     */
+    @Test
+    public void growsBeyondInitialCapacity() throws Exception {
+        FeedFlowFile flowFile = new FeedFlowFile("a");
+        for (int i = 0; i < 200000; i++) {
+            flowFile.addChildFlowFile(UUID.randomUUID().toString());
+        }
+        journal.put(flowFile);
+        journal.put(new FeedFlowFile("b"));
+
+        Map<String, FeedFlowFile> flowFiles = reopen().replay();
+        Assert.assertEquals(200000, flowFiles.get("a").getChildFlowFiles().size());
+        Assert.assertTrue(flowFiles.containsKey("b"));
+    }
+
+    private FeedFlowFileJournal reopen() throws IOException {
+        journal.close();
+        journal = new FeedFlowFileJournal(location);
+        return journal;
+    }
+
+    static ProvenanceEventRecordDTO event(Long eventId, String flowFileId, String type, DateTime time) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setFlowFileUuid(flowFileId);
+        event.setEventType(type);
+        event.setEventTime(time);
+        event.setStartTime(time);
+        event.setComponentId("processor-" + eventId);
+        return event;
+    }
+}
@@ -0,0 +1,279 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.thinkbiganalytics.metadata.api.op.FeedDependencyDeltaResults;
+import com.thinkbiganalytics.metadata.rest.model.data.Datasource;
+import com.thinkbiganalytics.metadata.rest.model.data.DirectoryDatasource;
+import com.thinkbiganalytics.metadata.rest.model.data.HiveTableDatasource;
+import com.thinkbiganalytics.metadata.rest.model.event.MetadataChangeEvent;
+import com.thinkbiganalytics.metadata.rest.model.feed.Feed;
+import com.thinkbiganalytics.metadata.rest.model.feed.FeedDestination;
+import com.thinkbiganalytics.metadata.rest.model.op.DataOperation;
+import com.thinkbiganalytics.metadata.rest.model.op.DataOperation.State;
+import com.thinkbiganalytics.metadata.rest.model.op.Dataset;
+import com.thinkbiganalytics.metadata.rest.model.op.HiveTablePartitions;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProvider;
+
+import org.joda.time.DateTime;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link MetadataProvider} that caches feed ids, data sources, and feed properties from another provider.
+ *
+ * <p>Entries expire after a fixed time and are discarded when a {@link MetadataChangeEvent} is received for the feed or data source. Lookups that return
+ * nothing are not cached so newly created feeds are visible immediately.</p>
+ */
+public class CachingMetadataProvider implements MetadataProvider, MetadataChangeListener {
+
+    /**
+     * Map of data source name to data source
+     */
+    @Nonnull
+    private final Cache<String, Datasource> datasources;
+
+    /**
+     * Provider for loading uncached values
+     */
+    @Nonnull
+    private final MetadataProvider delegate;
+
+    /**
+     * Map of {@code category.feed} to feed id
+     */
+    @Nonnull
+    private final Cache<String, String> feedIds;
+
+    /**
+     * Map of feed id to feed properties
+     */
+    @Nonnull
+    private final Cache<String, Properties> feedProperties;
+
+    /**
+     * Constructs a {@code CachingMetadataProvider}.
+     *
+     * @param delegate         the provider for loading uncached values
+     * @param maximumSize      the maximum number of entries in each cache
+     * @param expireAfterWrite the time before an entry expires
+     * @param unit             the unit of {@code expireAfterWrite}
+     */
+    public CachingMetadataProvider(@Nonnull final MetadataProvider delegate, final long maximumSize, final long expireAfterWrite, @Nonnull final TimeUnit unit) {
+        this.delegate = delegate;
+        datasources = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite, unit).recordStats().build();
+        feedIds = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite, unit).recordStats().build();
+        feedProperties = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite, unit).recordStats().build();
+    }
+
+    /**
+     * Gets the hit and miss statistics for each cache.
+     *
+     * @return map of cache name to statistics
+     */
+    @Nonnull
+    public Map<String, CacheStats> getStats() {
+        return ImmutableMap.of("datasources", datasources.stats(), "feedIds", feedIds.stats(), "feedProperties", feedProperties.stats());
+    }
+
+    /**
+     * Discards all cached values.
+     */
+    public void invalidateAll() {
+        datasources.invalidateAll();
+        feedIds.invalidateAll();
+        feedProperties.invalidateAll();
+    }
+
+    @Override
+    public void metadataChanged(@Nonnull final MetadataChangeEvent event) {
+        if (event.getType() == MetadataChangeEvent.Type.FEED) {
+            if (event.getName() != null) {
+                feedIds.invalidate(event.getName());
+            }
+            if (event.getId() != null) {
+                feedIds.asMap().values().removeAll(Collections.singleton(event.getId()));
+                feedProperties.invalidate(event.getId());
+            }
+        } else if (event.getType() == MetadataChangeEvent.Type.DATASOURCE) {
+            if (event.getName() != null) {
+                datasources.invalidate(event.getName());
+            }
+            if (event.getId() != null) {
+                final Iterator<Datasource> iter = datasources.asMap().values().iterator();
+                while (iter.hasNext()) {
+                    if (event.getId().equals(iter.next().getId())) {
+                        iter.remove();
+                    }
+                }
+            }
+        } else {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public String getFeedId(final String category, final String feedName) {
+        final String key = category + "." + feedName;
+        String feedId = feedIds.getIfPresent(key);
+        if (feedId == null) {
+            feedId = delegate.getFeedId(category, feedName);
+            if (feedId != null) {
+                feedIds.put(key, feedId);
+            }
+        }
+        return feedId;
+    }
+
+    @Override
+    public FeedDependencyDeltaResults getFeedDependentResultDeltas(final String feedId) {
+        return delegate.getFeedDependentResultDeltas(feedId);
+    }
+
+    @Override
+    public Feed ensureFeed(final String categoryName, final String feedName, final String description) {
+        feedIds.invalidate(categoryName + "." + feedName);
+        return delegate.ensureFeed(categoryName, feedName, description);
+    }
+
+    @Override
+    public Datasource getDatasourceByName(final String dsName) {
+        Datasource datasource = datasources.getIfPresent(dsName);
+        if (datasource == null) {
+            datasource = delegate.getDatasourceByName(dsName);
+            if (datasource != null) {
+                datasources.put(dsName, datasource);
+            }
+        }
+        return datasource;
+    }
+
+    @Override
+    public Feed ensureFeedSource(final String feedId, final String datasourceId) {
+        return delegate.ensureFeedSource(feedId, datasourceId);
+    }
+
+    @Override
+    public Feed ensureFeedDestination(final String feedId, final String datasourceId) {
+        return delegate.ensureFeedDestination(feedId, datasourceId);
+    }
+
+    @Override
+    public Feed ensurePrecondition(final String feedId, final Metric... metrics) {
+        return delegate.ensurePrecondition(feedId, metrics);
+    }
+
+    @Override
+    public Properties updateFeedProperties(final String feedId, final Properties props) {
+        feedProperties.invalidate(feedId);
+        return delegate.updateFeedProperties(feedId, props);
+    }
+
+    @Override
+    public DirectoryDatasource ensureDirectoryDatasource(final String datasetName, final String descr, final Path path) {
+        datasources.invalidate(datasetName);
+        return delegate.ensureDirectoryDatasource(datasetName, descr, path);
+    }
+
+    @Override
+    public HiveTableDatasource ensureHiveTableDatasource(final String datasetName, final String descr, final String databaseName, final String tableName) {
+        datasources.invalidate(datasetName);
+        return delegate.ensureHiveTableDatasource(datasetName, descr, databaseName, tableName);
+    }
+
+    @Override
+    public Dataset createDataset(final DirectoryDatasource dds, final Path... paths) {
+        return delegate.createDataset(dds, paths);
+    }
+
+    @Override
+    public Dataset createDataset(final DirectoryDatasource dds, final ArrayList<Path> paths) {
+        return delegate.createDataset(dds, paths);
+    }
+
+    @Override
+    public Dataset createDataset(final HiveTableDatasource hds, final HiveTablePartitions partitions) {
+        return delegate.createDataset(hds, partitions);
+    }
+
+    @Override
+    public DataOperation beginOperation(final FeedDestination feedDestination, final DateTime opStart) {
+        return delegate.beginOperation(feedDestination, opStart);
+    }
+
+    @Override
+    public DataOperation completeOperation(final String id, final String status, final Dataset changeSet) {
+        return delegate.completeOperation(id, status, changeSet);
+    }
+
+    @Override
+    public DataOperation completeOperation(final String id, final String status, final State state) {
+        return delegate.completeOperation(id, status, state);
+    }
+
+    @Override
+    public Properties getFeedProperties(@Nonnull final String id) {
+        Properties properties = feedProperties.getIfPresent(id);
+        if (properties == null) {
+            properties = delegate.getFeedProperties(id);
+            if (properties == null) {
+                return null;
+            }
+            feedProperties.put(id, copy(properties));
+        }
+        return copy(properties);
+    }
+
+    @Override
+    public Properties mergeFeedProperties(@Nonnull final String id, @Nonnull final Properties props) {
+        feedProperties.invalidate(id);
+        return delegate.mergeFeedProperties(id, props);
+    }
+
+    @Override
+    public Optional<Datasource> getDatasource(@Nonnull final String id) {
+        return delegate.getDatasource(id);
+    }
+
+    /**
+     * Copies the specified properties so callers cannot modify cached values.
+     */
+    @Nonnull
+    private Properties copy(@Nonnull final Properties properties) {
+        final Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+}
@@ -0,0 +1,79 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.event.jms.MetadataTopics;
+import com.thinkbiganalytics.metadata.rest.model.event.MetadataChangeEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.annotation.JmsListener;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Consumes metadata change events from JMS and notifies the registered listeners.
+ */
+public class JmsMetadataChangeConsumer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsMetadataChangeConsumer.class);
+
+    /**
+     * Listeners to notify of changes
+     */
+    @Nonnull
+    private final Set<MetadataChangeListener> listeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Adds a listener to be notified on receipt of change events.
+     *
+     * @param listener the listener to be added
+     */
+    public void addListener(@Nonnull final MetadataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Processes metadata change events.
+     *
+     * @param event the change event
+     */
+    @JmsListener(destination = MetadataTopics.METADATA_CHANGE, containerFactory = "metadataTopicListenerContainerFactory")
+    public void receiveEvent(@Nonnull final MetadataChangeEvent event) {
+        LOG.debug("Received JMS message - topic: {}, message: {}", MetadataTopics.METADATA_CHANGE, event);
+
+        for (final MetadataChangeListener listener : listeners) {
+            listener.metadataChanged(event);
+        }
+    }
+
+    /**
+     * Removes the listener that was previously added with addListener.
+     *
+     * @param listener the listener to be removed
+     */
+    public void removeListener(@Nonnull final MetadataChangeListener listener) {
+        listeners.remove(listener);
+    }
+}
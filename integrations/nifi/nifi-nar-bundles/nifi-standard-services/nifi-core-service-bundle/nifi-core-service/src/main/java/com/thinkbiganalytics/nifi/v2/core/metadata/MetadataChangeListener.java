@@ -0,0 +1,38 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.rest.model.event.MetadataChangeEvent;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives notifications of feed and data source changes.
+ */
+public interface MetadataChangeListener {
+
+    /**
+     * Called when a feed or data source has changed.
+     *
+     * @param event the change event
+     */
+    void metadataChanged(@Nonnull MetadataChangeEvent event);
+}
@@ -20,15 +20,18 @@ package com.thinkbiganalytics.nifi.v2.core.metadata;
  * #L%
  */
 
+import com.google.common.cache.CacheStats;
 import com.thinkbiganalytics.metadata.rest.client.MetadataClient;
 import com.thinkbiganalytics.nifi.core.api.metadata.KyloNiFiFlowProvider;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProvider;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProviderService;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataRecorder;
+import com.thinkbiganalytics.nifi.core.api.spring.SpringContextService;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.nifi.annotation.lifecycle.OnDisabled;
 import org.apache.nifi.annotation.lifecycle.OnEnabled;
 import org.apache.nifi.components.AllowableValue;
 import org.apache.nifi.components.PropertyDescriptor;
@@ -53,7 +56,10 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nonnull;
 import javax.net.ssl.SSLContext;
 
 /**
@@ -92,6 +98,28 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         .required(false)
         .identifiesControllerService(SSLContextService.class)
         .build();
+    public static final PropertyDescriptor CACHE_SIZE = new PropertyDescriptor.Builder()
+        .name("cache-size")
+        .displayName("Metadata Cache Size")
+        .description("Maximum number of feed ids, data sources, and feed properties to cache. Set to 0 to disable caching.")
+        .defaultValue("1000")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .required(true)
+        .build();
+    public static final PropertyDescriptor CACHE_EXPIRATION = new PropertyDescriptor.Builder()
+        .name("cache-expiration")
+        .displayName("Metadata Cache Expiration")
+        .description("Time after which a cached value is reloaded from the metadata server")
+        .defaultValue("1 min")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .required(true)
+        .build();
+    public static final PropertyDescriptor SPRING_SERVICE = new PropertyDescriptor.Builder()
+        .name("Spring Context Service")
+        .description("Optional service for receiving metadata change events from JMS. Cached values are discarded when the feed or data source changes.")
+        .identifiesControllerService(SpringContextService.class)
+        .required(false)
+        .build();
     private static final AllowableValue[] ALLOWABLE_IMPLEMENATIONS = {
         new AllowableValue("LOCAL", "Local, In-memory storage", "An implemenation that stores metadata locally in memory (for development-only)"),
         new AllowableValue("REMOTE", "REST API", "An implementation that accesses metadata via the metadata service REST API")
@@ -113,6 +141,9 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         props.add(CLIENT_USERNAME);
         props.add(CLIENT_PASSWORD);
         props.add(SSL_CONTEXT_SERVICE);
+        props.add(CACHE_SIZE);
+        props.add(CACHE_EXPIRATION);
+        props.add(SPRING_SERVICE);
         properties = Collections.unmodifiableList(props);
     }
 
@@ -121,6 +152,16 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
     private volatile MetadataRecorder recorder;
     private volatile KyloProvenanceClientProvider kyloProvenanceClientProvider;
 
+    /**
+     * Caching wrapper for the provider, or {@code null} if caching is disabled
+     */
+    private volatile CachingMetadataProvider cachingProvider;
+
+    /**
+     * Consumer of metadata change events, or {@code null} if not receiving events
+     */
+    private volatile JmsMetadataChangeConsumer changeConsumer;
+
     /**
      * The Service holding the SSL Context information
      */
@@ -154,6 +195,18 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
             }
 
             this.provider = new MetadataClientProvider(client);
+
+            final int cacheSize = context.getProperty(CACHE_SIZE).asInteger();
+            if (cacheSize > 0) {
+                this.cachingProvider = new CachingMetadataProvider(this.provider, cacheSize, context.getProperty(CACHE_EXPIRATION).asTimePeriod(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+                this.provider = this.cachingProvider;
+
+                if (context.getProperty(SPRING_SERVICE).isSet()) {
+                    this.changeConsumer = context.getProperty(SPRING_SERVICE).asControllerService(SpringContextService.class).getBean(JmsMetadataChangeConsumer.class);
+                    this.changeConsumer.addListener(this.cachingProvider);
+                }
+            }
+
             this.recorder = new MetadataClientRecorder(client);
             this.kyloProvenanceClientProvider = new KyloProvenanceClientProvider(client);
         } else {
@@ -161,6 +214,31 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         }
     }
 
+    /**
+     * Stops receiving metadata change events and discards cached values.
+     */
+    @OnDisabled
+    public void onDisabled() {
+        if (this.changeConsumer != null) {
+            this.changeConsumer.removeListener(this.cachingProvider);
+            this.changeConsumer = null;
+        }
+        if (this.cachingProvider != null) {
+            getLogger().info("Metadata cache statistics: {}", new Object[]{this.cachingProvider.getStats()});
+            this.cachingProvider = null;
+        }
+    }
+
+    /**
+     * Gets the hit and miss statistics for the metadata cache.
+     *
+     * @return map of cache name to statistics, or an empty map if caching is disabled
+     */
+    @Nonnull
+    public Map<String, CacheStats> getCacheStats() {
+        final CachingMetadataProvider cache = this.cachingProvider;
+        return (cache != null) ? cache.getStats() : Collections.<String, CacheStats>emptyMap();
+    }
 
     @Override
     public MetadataProvider getProvider() {
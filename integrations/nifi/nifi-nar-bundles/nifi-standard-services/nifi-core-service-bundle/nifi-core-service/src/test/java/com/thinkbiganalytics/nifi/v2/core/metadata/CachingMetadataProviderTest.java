@@ -0,0 +1,141 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.rest.model.data.Datasource;
+import com.thinkbiganalytics.metadata.rest.model.data.HiveTableDatasource;
+import com.thinkbiganalytics.metadata.rest.model.event.MetadataChangeEvent;
+import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProvider;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class CachingMetadataProviderTest {
+
+    /**
+     * Uncached metadata provider
+     */
+    private MetadataProvider delegate;
+
+    /**
+     * Caching metadata provider
+     */
+    private CachingMetadataProvider provider;
+
+    @Before
+    public void setUp() {
+        delegate = Mockito.mock(MetadataProvider.class);
+        provider = new CachingMetadataProvider(delegate, 100, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Verify feed ids are cached until the feed changes.
+     */
+    @Test
+    public void getFeedId() {
+        Mockito.when(delegate.getFeedId("cat", "feed")).thenReturn("FEEDID");
+
+        Assert.assertEquals("FEEDID", provider.getFeedId("cat", "feed"));
+        Assert.assertEquals("FEEDID", provider.getFeedId("cat", "feed"));
+        Mockito.verify(delegate, Mockito.times(1)).getFeedId("cat", "feed");
+        Assert.assertEquals(1, provider.getStats().get("feedIds").hitCount());
+        Assert.assertEquals(1, provider.getStats().get("feedIds").missCount());
+
+        // Invalidate by id only
+        provider.metadataChanged(new MetadataChangeEvent(MetadataChangeEvent.Type.FEED, "FEEDID", null));
+        Assert.assertEquals("FEEDID", provider.getFeedId("cat", "feed"));
+        Mockito.verify(delegate, Mockito.times(2)).getFeedId("cat", "feed");
+
+        // Invalidate by name only
+        provider.metadataChanged(new MetadataChangeEvent(MetadataChangeEvent.Type.FEED, null, "cat.feed"));
+        Assert.assertEquals("FEEDID", provider.getFeedId("cat", "feed"));
+        Mockito.verify(delegate, Mockito.times(3)).getFeedId("cat", "feed");
+    }
+
+    /**
+     * Verify missing feeds are not cached.
+     */
+    @Test
+    public void getFeedIdMissing() {
+        Assert.assertNull(provider.getFeedId("cat", "feed"));
+
+        Mockito.when(delegate.getFeedId("cat", "feed")).thenReturn("FEEDID");
+        Assert.assertEquals("FEEDID", provider.getFeedId("cat", "feed"));
+    }
+
+    /**
+     * Verify data sources are cached until the data source changes.
+     */
+    @Test
+    public void getDatasourceByName() {
+        final HiveTableDatasource datasource = new HiveTableDatasource();
+        datasource.setId("DSID");
+        Mockito.when(delegate.getDatasourceByName("ds")).thenReturn(datasource);
+
+        Assert.assertSame(datasource, provider.getDatasourceByName("ds"));
+        Assert.assertSame(datasource, provider.getDatasourceByName("ds"));
+        Mockito.verify(delegate, Mockito.times(1)).getDatasourceByName("ds");
+
+        // Ignore changes to other objects
+        provider.metadataChanged(new MetadataChangeEvent(MetadataChangeEvent.Type.FEED, "DSID", "ds"));
+        provider.getDatasourceByName("ds");
+        Mockito.verify(delegate, Mockito.times(1)).getDatasourceByName("ds");
+
+        // Invalidate by id
+        provider.metadataChanged(new MetadataChangeEvent(MetadataChangeEvent.Type.DATASOURCE, "DSID", null));
+        provider.getDatasourceByName("ds");
+        Mockito.verify(delegate, Mockito.times(2)).getDatasourceByName("ds");
+
+        // Invalidate when created locally
+        provider.ensureHiveTableDatasource("ds", "", "db", "table");
+        final Datasource result = provider.getDatasourceByName("ds");
+        Assert.assertSame(datasource, result);
+        Mockito.verify(delegate, Mockito.times(3)).getDatasourceByName("ds");
+    }
+
+    /**
+     * Verify feed properties are cached as copies and invalidated by merges.
+     */
+    @Test
+    public void getFeedProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("key", "value");
+        Mockito.when(delegate.getFeedProperties("FEEDID")).thenReturn(properties);
+
+        final Properties first = provider.getFeedProperties("FEEDID");
+        first.setProperty("key", "modified");
+        Assert.assertEquals("value", provider.getFeedProperties("FEEDID").getProperty("key"));
+        Mockito.verify(delegate, Mockito.times(1)).getFeedProperties("FEEDID");
+
+        provider.mergeFeedProperties("FEEDID", new Properties());
+        provider.getFeedProperties("FEEDID");
+        Mockito.verify(delegate, Mockito.times(2)).getFeedProperties("FEEDID");
+
+        provider.metadataChanged(new MetadataChangeEvent(MetadataChangeEvent.Type.FEED, "FEEDID", "cat.feed"));
+        provider.getFeedProperties("FEEDID");
+        Mockito.verify(delegate, Mockito.times(3)).getFeedProperties("FEEDID");
+    }
+}
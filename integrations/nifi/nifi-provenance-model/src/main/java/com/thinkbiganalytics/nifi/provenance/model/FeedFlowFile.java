@@ -22,11 +22,18 @@ package com.thinkbiganalytics.nifi.provenance.model;
 
 import org.joda.time.DateTime;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -38,6 +45,33 @@ public class FeedFlowFile implements Serializable {
 
     private static final long serialVersionUID = 6464904199959374630L;
 
+    /**
+     * Version of the binary format written by {@link #writeTo(DataOutput)}
+     */
+    private static final int BINARY_VERSION = 1;
+
+    /**
+     * Tags used when writing flow file ids. NiFi flow file ids are UUIDs and are written as 2 longs rather than 36 characters
+     */
+    private static final int NULL_ID = 0;
+    private static final int UUID_ID = 1;
+    private static final int STRING_ID = 2;
+
+    /**
+     * Types of the changes recorded by {@link #trackChanges()}
+     */
+    private static final int FEED_ASSIGNED = 1;
+    private static final int EVENT_FAILED = 2;
+    private static final int FIRST_EVENT = 3;
+    private static final int LAST_EVENT = 4;
+    private static final int FLOW_FILE_EVENT_TIME = 5;
+    private static final int ROOT_COMPLETED = 6;
+    private static final int CHILD_COMPLETED = 7;
+    private static final int CHILD_ADDED = 8;
+    private static final int FLOW_FILE_STARTED = 9;
+    private static final int PARENT_ASSIGNED = 10;
+    private static final int CHILD_START_TIME = 11;
+
     /**
      * The ID of the Flow File
      */
@@ -120,6 +154,15 @@ public class FeedFlowFile implements Serializable {
 
     private boolean isBuiltFromMapDb;
 
+    /**
+     * The changes made since {@link #trackChanges()} or the last {@link #writeChangesTo(DataOutput)}, or {@code null} if changes are not tracked
+     */
+    private transient DataOutputStream changes;
+
+    private transient ByteArrayOutputStream changeBytes;
+
+    private transient int changeCount;
+
 
     public FeedFlowFile(String id) {
         this.id = id;
@@ -147,6 +190,7 @@ public class FeedFlowFile implements Serializable {
 
     public void setStream(boolean stream) {
         isStream = stream;
+        recordFeedAssigned();
     }
 
     public String getFeedName() {
@@ -155,6 +199,7 @@ public class FeedFlowFile implements Serializable {
 
     public void setFeedName(String feedName) {
         this.feedName = feedName;
+        recordFeedAssigned();
     }
 
     public String getFeedProcessGroupId() {
@@ -163,6 +208,7 @@ public class FeedFlowFile implements Serializable {
 
     public void setFeedProcessGroupId(String feedProcessGroupId) {
         this.feedProcessGroupId = feedProcessGroupId;
+        recordFeedAssigned();
     }
 
     public Set<String> getActiveChildFlowFiles() {
@@ -202,6 +248,7 @@ public class FeedFlowFile implements Serializable {
      */
     public void incrementFailedEvents() {
         failedEvents.incrementAndGet();
+        recordChange(EVENT_FAILED, null);
     }
 
     /**
@@ -221,6 +268,11 @@ public class FeedFlowFile implements Serializable {
         firstEventId = event.getEventId();
         firstEventStartTime = event.getStartTime().getMillis();
         firstEventProcessorId = event.getComponentId();
+        recordChange(FIRST_EVENT, out -> {
+            writeNullableLong(out, firstEventId);
+            writeNullableLong(out, firstEventStartTime);
+            writeNullableString(out, firstEventProcessorId);
+        });
     }
 
 
@@ -234,6 +286,11 @@ public class FeedFlowFile implements Serializable {
         lastEventId = event.getEventId();
         lastEventTime = event.getEventTime().getMillis();
         lastEventProcessorId = event.getComponentId();
+        recordChange(LAST_EVENT, out -> {
+            writeNullableLong(out, lastEventId);
+            writeNullableLong(out, lastEventTime);
+            writeNullableString(out, lastEventProcessorId);
+        });
         event.setEventDuration(event.getEventTime().getMillis() - event.getStartTime().getMillis());
         registerLastEventTime(event);
 
@@ -261,8 +318,9 @@ public class FeedFlowFile implements Serializable {
         if ("DROP".equalsIgnoreCase(event.getEventType())) {
             if (event.getFlowFileUuid().equals(this.getId())) {
                 isCurrentFlowFileComplete = true;
-            } else {
-                activeChildFlowFiles.remove(event.getFlowFileUuid());
+                recordChange(ROOT_COMPLETED, null);
+            } else if (activeChildFlowFiles.remove(event.getFlowFileUuid())) {
+                recordChange(CHILD_COMPLETED, out -> writeId(out, event.getFlowFileUuid()));
             }
         }
     }
@@ -276,6 +334,7 @@ public class FeedFlowFile implements Serializable {
         }
         activeChildFlowFiles.add(childFlowFileId);
         childFlowFiles.add(childFlowFileId);
+        recordChange(CHILD_ADDED, out -> writeId(out, childFlowFileId));
     }
 
     /**
@@ -291,7 +350,9 @@ public class FeedFlowFile implements Serializable {
             if (flowfilesStarted == null) {
                 flowfilesStarted = new HashSet<>();
             }
-            flowfilesStarted.add(eventRecordDTO.getFlowFileUuid());
+            if (flowfilesStarted.add(eventRecordDTO.getFlowFileUuid())) {
+                recordChange(FLOW_FILE_STARTED, out -> writeId(out, eventRecordDTO.getFlowFileUuid()));
+            }
             eventRecordDTO.setStartOfFlowFile(true);
         }
         return eventRecordDTO.isStartOfFlowFile();
@@ -315,6 +376,10 @@ public class FeedFlowFile implements Serializable {
             flowFileLastEventTime = new HashMap<>();
         }
         flowFileLastEventTime.put(eventRecordDTO.getFlowFileUuid(), eventRecordDTO.getEventTime().getMillis());
+        recordChange(FLOW_FILE_EVENT_TIME, out -> {
+            writeId(out, eventRecordDTO.getFlowFileUuid());
+            writeNullableLong(out, eventRecordDTO.getEventTime().getMillis());
+        });
 
     }
 
@@ -323,6 +388,10 @@ public class FeedFlowFile implements Serializable {
             flowFileIdToParentFlowFileId = new HashMap<>();
         }
         flowFileIdToParentFlowFileId.put(childFlowFileId, parentFlowFileId);
+        recordChange(PARENT_ASSIGNED, out -> {
+            writeId(out, childFlowFileId);
+            writeId(out, parentFlowFileId);
+        });
     }
 
     public void assignChildFlowFileStartTime(String flowFileId, Long eventTime) {
@@ -330,6 +399,10 @@ public class FeedFlowFile implements Serializable {
             childFlowFileStartTimes = new HashMap<>();
         }
         childFlowFileStartTimes.put(flowFileId, eventTime);
+        recordChange(CHILD_START_TIME, out -> {
+            writeId(out, flowFileId);
+            writeNullableLong(out, eventTime);
+        });
     }
 
     public Long calculateJobDuration(ProvenanceEventRecordDTO event) {
@@ -342,6 +415,362 @@ public class FeedFlowFile implements Serializable {
     }
 
 
+    /**
+     * Write this flow file in a compact binary form that can be read back with {@link #readFrom(DataInput)}.
+     * The {@link #isBuiltFromMapDb()} flag is not written as it describes how the object was loaded, not its state.
+     *
+     * @param out the output to write to
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        writeId(out, id);
+        out.writeBoolean(isStream);
+        writeNullableString(out, feedName);
+        writeNullableString(out, feedProcessGroupId);
+        writeIds(out, activeChildFlowFiles);
+        writeIds(out, childFlowFiles);
+        writeNullableLong(out, firstEventId);
+        writeNullableLong(out, firstEventStartTime);
+        writeNullableString(out, firstEventProcessorId);
+        writeNullableLong(out, lastEventId);
+        writeNullableString(out, lastEventProcessorId);
+        writeNullableLong(out, lastEventTime);
+        out.writeInt(failedEvents.get());
+        writeIds(out, flowfilesStarted);
+        out.writeBoolean(isCurrentFlowFileComplete);
+        writeTimes(out, flowFileLastEventTime);
+        writeTimes(out, childFlowFileStartTimes);
+        if (flowFileIdToParentFlowFileId == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(flowFileIdToParentFlowFileId.size());
+            for (Map.Entry<String, String> entry : flowFileIdToParentFlowFileId.entrySet()) {
+                writeId(out, entry.getKey());
+                writeId(out, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Read a flow file written with {@link #writeTo(DataOutput)}
+     *
+     * @param in the input to read from
+     * @return the flow file
+     */
+    public static FeedFlowFile readFrom(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported FeedFlowFile binary version " + version);
+        }
+        FeedFlowFile flowFile = new FeedFlowFile(readId(in));
+        flowFile.isStream = in.readBoolean();
+        flowFile.feedName = readNullableString(in);
+        flowFile.feedProcessGroupId = readNullableString(in);
+        flowFile.activeChildFlowFiles = readIds(in);
+        flowFile.childFlowFiles = readIds(in);
+        flowFile.firstEventId = readNullableLong(in);
+        flowFile.firstEventStartTime = readNullableLong(in);
+        flowFile.firstEventProcessorId = readNullableString(in);
+        flowFile.lastEventId = readNullableLong(in);
+        flowFile.lastEventProcessorId = readNullableString(in);
+        flowFile.lastEventTime = readNullableLong(in);
+        flowFile.failedEvents.set(in.readInt());
+        flowFile.flowfilesStarted = readIds(in);
+        flowFile.isCurrentFlowFileComplete = in.readBoolean();
+        flowFile.flowFileLastEventTime = readTimes(in);
+        flowFile.childFlowFileStartTimes = readTimes(in);
+        int parents = in.readInt();
+        if (parents >= 0) {
+            flowFile.flowFileIdToParentFlowFileId = new HashMap<>(parents);
+            for (int i = 0; i < parents; i++) {
+                flowFile.flowFileIdToParentFlowFileId.put(readId(in), readId(in));
+            }
+        }
+        return flowFile;
+    }
+
+    /**
+     * Start recording the changes made to this flow file so they can be written with {@link #writeChangesTo(DataOutput)} instead of the whole flow file.
+     * Any changes recorded so far are discarded, so this should be called once the whole flow file has been written.
+     */
+    public void trackChanges() {
+        changeBytes = new ByteArrayOutputStream();
+        changes = new DataOutputStream(changeBytes);
+        changeCount = 0;
+    }
+
+    /**
+     * Stop recording changes, discarding any recorded so far.  The whole flow file needs to be written again before changes can be written.
+     */
+    public void stopTrackingChanges() {
+        changeBytes = null;
+        changes = null;
+        changeCount = 0;
+    }
+
+    /**
+     * @return true if changes are being recorded
+     */
+    public boolean isTrackingChanges() {
+        return changes != null;
+    }
+
+    /**
+     * @return true if changes have been recorded since {@link #trackChanges()} or the last {@link #writeChangesTo(DataOutput)}
+     */
+    public boolean hasChanges() {
+        return changeCount > 0;
+    }
+
+    /**
+     * Write the id of this flow file and the changes recorded since {@link #trackChanges()} or the last call, so they can be applied to an earlier copy of this flow file
+     * with {@link #applyChangesFrom(FeedFlowFile, DataInput)}.  The recorded changes are then cleared.
+     *
+     * @param out the output to write to
+     */
+    public void writeChangesTo(DataOutput out) throws IOException {
+        writeId(out, id);
+        out.writeInt(changeCount);
+        if (changeCount > 0) {
+            out.write(changeBytes.toByteArray());
+            changeBytes.reset();
+            changeCount = 0;
+        }
+    }
+
+    /**
+     * Read the id of the flow file the changes written with {@link #writeChangesTo(DataOutput)} belong to.
+     *
+     * @param in the input to read from, positioned at the start of the changes
+     * @return the flow file id
+     */
+    public static String readChangesId(DataInput in) throws IOException {
+        return readId(in);
+    }
+
+    /**
+     * Apply the changes written with {@link #writeChangesTo(DataOutput)}, after their id has been read with {@link #readChangesId(DataInput)}
+     *
+     * @param flowFile the flow file to change
+     * @param in       the input to read from
+     */
+    public static void applyChangesFrom(FeedFlowFile flowFile, DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case FEED_ASSIGNED:
+                    flowFile.isStream = in.readBoolean();
+                    flowFile.feedName = readNullableString(in);
+                    flowFile.feedProcessGroupId = readNullableString(in);
+                    break;
+                case EVENT_FAILED:
+                    flowFile.failedEvents.incrementAndGet();
+                    break;
+                case FIRST_EVENT:
+                    flowFile.firstEventId = readNullableLong(in);
+                    flowFile.firstEventStartTime = readNullableLong(in);
+                    flowFile.firstEventProcessorId = readNullableString(in);
+                    break;
+                case LAST_EVENT:
+                    flowFile.lastEventId = readNullableLong(in);
+                    flowFile.lastEventTime = readNullableLong(in);
+                    flowFile.lastEventProcessorId = readNullableString(in);
+                    break;
+                case FLOW_FILE_EVENT_TIME:
+                    if (flowFile.flowFileLastEventTime == null) {
+                        flowFile.flowFileLastEventTime = new HashMap<>();
+                    }
+                    flowFile.flowFileLastEventTime.put(readId(in), readNullableLong(in));
+                    break;
+                case ROOT_COMPLETED:
+                    flowFile.isCurrentFlowFileComplete = true;
+                    break;
+                case CHILD_COMPLETED:
+                    String completedId = readId(in);
+                    if (flowFile.activeChildFlowFiles != null) {
+                        flowFile.activeChildFlowFiles.remove(completedId);
+                    }
+                    break;
+                case CHILD_ADDED:
+                    String childId = readId(in);
+                    if (flowFile.activeChildFlowFiles == null) {
+                        flowFile.activeChildFlowFiles = new HashSet<>();
+                    }
+                    if (flowFile.childFlowFiles == null) {
+                        flowFile.childFlowFiles = new HashSet<>();
+                    }
+                    flowFile.activeChildFlowFiles.add(childId);
+                    flowFile.childFlowFiles.add(childId);
+                    break;
+                case FLOW_FILE_STARTED:
+                    if (flowFile.flowfilesStarted == null) {
+                        flowFile.flowfilesStarted = new HashSet<>();
+                    }
+                    flowFile.flowfilesStarted.add(readId(in));
+                    break;
+                case PARENT_ASSIGNED:
+                    if (flowFile.flowFileIdToParentFlowFileId == null) {
+                        flowFile.flowFileIdToParentFlowFileId = new HashMap<>();
+                    }
+                    flowFile.flowFileIdToParentFlowFileId.put(readId(in), readId(in));
+                    break;
+                case CHILD_START_TIME:
+                    if (flowFile.childFlowFileStartTimes == null) {
+                        flowFile.childFlowFileStartTimes = new HashMap<>();
+                    }
+                    flowFile.childFlowFileStartTimes.put(readId(in), readNullableLong(in));
+                    break;
+                default:
+                    throw new IOException("Unknown FeedFlowFile change type " + type);
+            }
+        }
+    }
+
+    private void recordFeedAssigned() {
+        recordChange(FEED_ASSIGNED, out -> {
+            out.writeBoolean(isStream);
+            writeNullableString(out, feedName);
+            writeNullableString(out, feedProcessGroupId);
+        });
+    }
+
+    /**
+     * Record a change if changes are being tracked
+     *
+     * @param type    the type of change
+     * @param details writes the details of the change, or null if there are none
+     */
+    private void recordChange(int type, ChangeWriter details) {
+        if (changes != null) {
+            try {
+                changes.writeByte(type);
+                if (details != null) {
+                    details.write(changes);
+                }
+            } catch (IOException e) {
+                //not thrown when writing to a byte array
+                throw new UncheckedIOException(e);
+            }
+            changeCount++;
+        }
+    }
+
+    private static void writeId(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_ID);
+            return;
+        }
+        UUID uuid = null;
+        if (value.length() == 36) {
+            try {
+                uuid = UUID.fromString(value);
+            } catch (IllegalArgumentException e) {
+                uuid = null;
+            }
+        }
+        if (uuid != null && uuid.toString().equals(value)) {
+            out.writeByte(UUID_ID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            out.writeByte(STRING_ID);
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readId(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL_ID:
+                return null;
+            case UUID_ID:
+                return new UUID(in.readLong(), in.readLong()).toString();
+            case STRING_ID:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown flow file id tag " + tag);
+        }
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeIds(DataOutput out, Set<String> ids) throws IOException {
+        if (ids == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(ids.size());
+        for (String id : ids) {
+            writeId(out, id);
+        }
+    }
+
+    private static Set<String> readIds(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        Set<String> ids = new HashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(readId(in));
+        }
+        return ids;
+    }
+
+    private static void writeTimes(DataOutput out, Map<String, Long> times) throws IOException {
+        if (times == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(times.size());
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            writeId(out, entry.getKey());
+            writeNullableLong(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, Long> readTimes(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, Long> times = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            times.put(readId(in), readNullableLong(in));
+        }
+        return times;
+    }
+
+
+    /**
+     * Writes the details of a change
+     */
+    private interface ChangeWriter {
+
+        void write(DataOutput out) throws IOException;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("FeedFlowFile{");
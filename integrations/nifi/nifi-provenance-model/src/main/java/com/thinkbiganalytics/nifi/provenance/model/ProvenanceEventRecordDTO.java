@@ -437,10 +437,26 @@ public class ProvenanceEventRecordDTO implements Serializable {
         return previousEventId;
     }
 
+    public void setPreviousEventId(Long previousEventId) {
+        this.previousEventId = previousEventId;
+    }
+
     public DateTime getPreviousEventTime() {
         return previousEventTime;
     }
 
+    public void setPreviousEventTime(DateTime previousEventTime) {
+        this.previousEventTime = previousEventTime;
+    }
+
+    public String getPreviousFlowfileId() {
+        return previousFlowfileId;
+    }
+
+    public void setPreviousFlowfileId(String previousFlowfileId) {
+        this.previousFlowfileId = previousFlowfileId;
+    }
+
 
     public DateTime getEventTime() {
         return eventTime;
@@ -582,7 +598,7 @@ public class ProvenanceEventRecordDTO implements Serializable {
 
     public void setIsFinalJobEvent(boolean isFinalJobEvent) {
         this.isFinalJobEvent = isFinalJobEvent;
-        if (this.isFinalJobEvent) {
+        if (this.isFinalJobEvent && getFeedFlowFile() != null) {
             this.hasFailedEvents = getFeedFlowFile().hasFailedEvents();
         }
     }
@@ -0,0 +1,135 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Reads the values written by {@link CompactDataOutput}
+ */
+class CompactDataInput {
+
+    private final DataInputStream in;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    private final Map<String, DateTimeZone> zones = new HashMap<>();
+
+    CompactDataInput(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    int readByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0L;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed variable length number");
+            }
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    String readString() throws IOException {
+        int token = readVarInt();
+        if (token == CompactDataOutput.NULL_STRING) {
+            return null;
+        } else if (token == CompactDataOutput.NEW_STRING) {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            dictionary.add(value);
+            return value;
+        } else {
+            int index = token - CompactDataOutput.STRING_REFERENCE_OFFSET;
+            if (index < 0 || index >= dictionary.size()) {
+                throw new IOException("Invalid string reference " + index);
+            }
+            return dictionary.get(index);
+        }
+    }
+
+    DateTime readDateTime(long base) throws IOException {
+        long millis = base + readSignedVarLong();
+        String zoneId = readString();
+        DateTimeZone zone = zones.computeIfAbsent(zoneId, DateTimeZone::forID);
+        return new DateTime(millis, zone);
+    }
+
+    /**
+     * Read a collection of strings written by {@link CompactDataOutput#writeStrings(Collection)}
+     *
+     * @param factory creates the collection given the number of elements
+     * @return the collection, or {@code null} if a {@code null} collection was written
+     */
+    <C extends Collection<String>> C readStrings(IntFunction<C> factory) throws IOException {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        C values = factory.apply(size - 1);
+        for (int i = 0; i < size - 1; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    Map<String, String> readStringMap() throws IOException {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        Map<String, String> values = new HashMap<>(size * 2);
+        for (int i = 0; i < size - 1; i++) {
+            values.put(readString(), readString());
+        }
+        return values;
+    }
+}
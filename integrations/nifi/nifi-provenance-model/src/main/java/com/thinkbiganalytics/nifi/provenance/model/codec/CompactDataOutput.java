@@ -0,0 +1,146 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes variable length numbers and dictionary encoded strings.
+ * Each distinct string is written once, subsequent occurrences are written as a reference to the first occurrence.
+ * This is the counterpart of {@link CompactDataInput}
+ */
+class CompactDataOutput {
+
+    /**
+     * string token indicating a {@code null} value
+     */
+    static final int NULL_STRING = 0;
+
+    /**
+     * string token indicating a new string follows and should be added to the dictionary
+     */
+    static final int NEW_STRING = 1;
+
+    /**
+     * string tokens greater than or equal to this value are references into the dictionary
+     */
+    static final int STRING_REFERENCE_OFFSET = 2;
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    CompactDataOutput(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    void writeByte(int value) throws IOException {
+        out.writeByte(value);
+    }
+
+    /**
+     * Write a non negative long using 7 bits per byte
+     */
+    void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Write a long that may be negative using zig zag encoding so small negative values stay small
+     */
+    void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(NULL_STRING);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarInt(index + STRING_REFERENCE_OFFSET);
+        } else {
+            dictionary.put(value, dictionary.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(NEW_STRING);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Write the time as a delta from the supplied base time along with its time zone
+     */
+    void writeDateTime(DateTime value, long base) throws IOException {
+        writeSignedVarLong(value.getMillis() - base);
+        writeString(value.getZone().getID());
+    }
+
+    /**
+     * Write a collection of strings.  A {@code null} collection is written as a size of 0
+     */
+    void writeStrings(Collection<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(values.size() + 1);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    /**
+     * Write a map of strings.  A {@code null} map is written as a size of 0
+     */
+    void writeStringMap(Map<String, String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(values.size() + 1);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,553 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact, schema versioned binary encoding of the provenance payloads.
+ *
+ * <ul>
+ * <li>Strings (feed names, component ids, flow file ids, attribute keys and values) are dictionary encoded so repeated values are written once per payload</li>
+ * <li>Event ids and timestamps are delta encoded against the previous event in the batch and written as variable length numbers</li>
+ * <li>The {@link com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile} tracking object is NiFi only state and is not sent</li>
+ * <li>The body can optionally be block compressed</li>
+ * </ul>
+ *
+ * Layout: [schema version][payload type][compression][body]
+ */
+public class CompactProvenanceCodec implements ProvenanceCodec {
+
+    public static final String NAME = "compact";
+
+    /**
+     * The current schema version.  Bump this if the layout of the body changes
+     */
+    static final int SCHEMA_VERSION = 1;
+
+    static final int TYPE_EVENTS = 1;
+    static final int TYPE_STATS = 2;
+
+    //boolean flags and presence bits for nullable fields on an event
+    private static final int START_OF_JOB = 1;
+    private static final int END_OF_JOB = 1 << 1;
+    private static final int FINAL_JOB_EVENT = 1 << 2;
+    private static final int BATCH_JOB = 1 << 3;
+    private static final int HAS_FAILED_EVENTS = 1 << 4;
+    private static final int START_OF_FLOW_FILE = 1 << 5;
+    private static final int FAILURE = 1 << 6;
+    private static final int STREAM = 1 << 7;
+    private static final int HAS_EVENT_ID = 1 << 8;
+    private static final int HAS_EVENT_TIME = 1 << 9;
+    private static final int HAS_PREVIOUS_EVENT_ID = 1 << 10;
+    private static final int HAS_PREVIOUS_EVENT_TIME = 1 << 11;
+    private static final int HAS_START_TIME = 1 << 12;
+    private static final int HAS_JOB_EVENT_ID = 1 << 13;
+    private static final int HAS_EVENT_DURATION = 1 << 14;
+    private static final int HAS_FILE_SIZE_BYTES = 1 << 15;
+    private static final int HAS_INPUT_CLAIM_BYTES = 1 << 16;
+    private static final int HAS_OUTPUT_CLAIM_BYTES = 1 << 17;
+
+    //presence bits for the stats holder
+    private static final int HAS_MIN_TIME = 1;
+    private static final int HAS_MAX_TIME = 1 << 1;
+    private static final int HAS_TIME = 1 << 2;
+
+    private final Compression compression;
+
+    public CompactProvenanceCodec() {
+        this(Compression.NONE);
+    }
+
+    public CompactProvenanceCodec(Compression compression) {
+        this.compression = compression;
+    }
+
+    private static boolean isSet(long flags, int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private static int flag(boolean value, int flag) {
+        return value ? flag : 0;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public boolean supports(Object payload) {
+        return payload instanceof ProvenanceEventRecordDTOHolder || payload instanceof AggregatedFeedProcessorStatisticsHolder;
+    }
+
+    @Override
+    public byte[] encode(Object payload) throws IOException {
+        int type;
+        if (payload instanceof ProvenanceEventRecordDTOHolder) {
+            type = TYPE_EVENTS;
+        } else if (payload instanceof AggregatedFeedProcessorStatisticsHolder) {
+            type = TYPE_STATS;
+        } else {
+            throw new IOException("Unsupported payload " + (payload != null ? payload.getClass().getName() : null));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        bytes.write(SCHEMA_VERSION);
+        bytes.write(type);
+        bytes.write(compression.ordinal());
+
+        Deflater deflater = null;
+        OutputStream body = bytes;
+        if (compression == Compression.DEFLATE) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            body = new DeflaterOutputStream(bytes, deflater, 8192);
+        }
+        try {
+            CompactDataOutput out = new CompactDataOutput(body);
+            if (type == TYPE_EVENTS) {
+                writeEvents(out, (ProvenanceEventRecordDTOHolder) payload);
+            } else {
+                writeStats(out, (AggregatedFeedProcessorStatisticsHolder) payload);
+            }
+            out.flush();
+            if (body instanceof DeflaterOutputStream) {
+                ((DeflaterOutputStream) body).finish();
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] data) throws IOException {
+        if (data == null || data.length < 3) {
+            throw new IOException("Invalid provenance payload");
+        }
+        int version = data[0];
+        if (version != SCHEMA_VERSION) {
+            throw new IOException("Unsupported provenance schema version " + version + ". Expected version " + SCHEMA_VERSION);
+        }
+        int type = data[1];
+        int compressionOrdinal = data[2];
+        if (compressionOrdinal < 0 || compressionOrdinal >= Compression.values().length) {
+            throw new IOException("Unsupported provenance payload compression " + compressionOrdinal);
+        }
+
+        InputStream body = new ByteArrayInputStream(data, 3, data.length - 3);
+        if (Compression.values()[compressionOrdinal] == Compression.DEFLATE) {
+            body = new InflaterInputStream(body);
+        }
+        CompactDataInput in = new CompactDataInput(body);
+        if (type == TYPE_EVENTS) {
+            return readEvents(in);
+        } else if (type == TYPE_STATS) {
+            return readStats(in);
+        }
+        throw new IOException("Unsupported provenance payload type " + type);
+    }
+
+    private void writeEvents(CompactDataOutput out, ProvenanceEventRecordDTOHolder holder) throws IOException {
+        out.writeString(holder.getBatchId());
+        List<ProvenanceEventRecordDTO> events = holder.getEvents();
+        if (events == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(events.size() + 1);
+        long previousEventId = 0L;
+        long previousEventTime = 0L;
+        for (ProvenanceEventRecordDTO event : events) {
+            writeEvent(out, event, previousEventId, previousEventTime);
+            if (event.getEventId() != null) {
+                previousEventId = event.getEventId();
+            }
+            if (event.getEventTime() != null) {
+                previousEventTime = event.getEventTime().getMillis();
+            }
+        }
+    }
+
+    private void writeEvent(CompactDataOutput out, ProvenanceEventRecordDTO event, long baseEventId, long baseEventTime) throws IOException {
+        long flags = flag(event.isStartOfJob(), START_OF_JOB)
+                     | flag(event.isEndOfJob(), END_OF_JOB)
+                     | flag(event.isFinalJobEvent(), FINAL_JOB_EVENT)
+                     | flag(event.isBatchJob(), BATCH_JOB)
+                     | flag(event.isHasFailedEvents(), HAS_FAILED_EVENTS)
+                     | flag(event.isStartOfFlowFile(), START_OF_FLOW_FILE)
+                     | flag(event.isFailure(), FAILURE)
+                     | flag(event.isStream(), STREAM)
+                     | flag(event.getEventId() != null, HAS_EVENT_ID)
+                     | flag(event.getEventTime() != null, HAS_EVENT_TIME)
+                     | flag(event.getPreviousEventId() != null, HAS_PREVIOUS_EVENT_ID)
+                     | flag(event.getPreviousEventTime() != null, HAS_PREVIOUS_EVENT_TIME)
+                     | flag(event.getStartTime() != null, HAS_START_TIME)
+                     | flag(event.getJobEventId() != null, HAS_JOB_EVENT_ID)
+                     | flag(event.getEventDuration() != null, HAS_EVENT_DURATION)
+                     | flag(event.getFileSizeBytes() != null, HAS_FILE_SIZE_BYTES)
+                     | flag(event.getInputContentClaimFileSizeBytes() != null, HAS_INPUT_CLAIM_BYTES)
+                     | flag(event.getOutputContentClaimFileSizeBytes() != null, HAS_OUTPUT_CLAIM_BYTES);
+        out.writeVarLong(flags);
+
+        //ids and times are relative to the previous event in the batch, or to the current event
+        long eventId = event.getEventId() != null ? event.getEventId() : baseEventId;
+        long eventTime = event.getEventTime() != null ? event.getEventTime().getMillis() : baseEventTime;
+        if (event.getEventId() != null) {
+            out.writeSignedVarLong(eventId - baseEventId);
+        }
+        if (event.getEventTime() != null) {
+            out.writeDateTime(event.getEventTime(), baseEventTime);
+        }
+        if (event.getPreviousEventId() != null) {
+            out.writeSignedVarLong(eventId - event.getPreviousEventId());
+        }
+        if (event.getPreviousEventTime() != null) {
+            out.writeDateTime(event.getPreviousEventTime(), eventTime);
+        }
+        if (event.getStartTime() != null) {
+            out.writeDateTime(event.getStartTime(), eventTime);
+        }
+        if (event.getJobEventId() != null) {
+            out.writeSignedVarLong(eventId - event.getJobEventId());
+        }
+        if (event.getEventDuration() != null) {
+            out.writeSignedVarLong(event.getEventDuration());
+        }
+        if (event.getFileSizeBytes() != null) {
+            out.writeSignedVarLong(event.getFileSizeBytes());
+        }
+        if (event.getInputContentClaimFileSizeBytes() != null) {
+            out.writeSignedVarLong(event.getInputContentClaimFileSizeBytes());
+        }
+        if (event.getOutputContentClaimFileSizeBytes() != null) {
+            out.writeSignedVarLong(event.getOutputContentClaimFileSizeBytes());
+        }
+
+        out.writeString(event.getId());
+        out.writeString(event.getEventType());
+        out.writeString(event.getFlowFileUuid());
+        out.writeString(event.getPreviousFlowfileId());
+        out.writeString(event.getFileSize());
+        out.writeString(event.getClusterNodeId());
+        out.writeString(event.getClusterNodeAddress());
+        out.writeString(event.getGroupId());
+        out.writeString(event.getComponentId());
+        out.writeString(event.getComponentType());
+        out.writeString(event.getComponentName());
+        out.writeString(event.getDetails());
+        out.writeString(event.getSourceConnectionIdentifier());
+        out.writeString(event.getInputContentClaimFileSize());
+        out.writeString(event.getOutputContentClaimFileSize());
+        out.writeString(event.getJobFlowFileId());
+        out.writeString(event.getFeedName());
+        out.writeString(event.getFeedProcessGroupId());
+        out.writeString(event.getBatchId());
+        out.writeString(event.getRelationship());
+        out.writeString(event.getProcessorType() != null ? event.getProcessorType().name() : null);
+
+        out.writeStrings(event.getParentUuids());
+        out.writeStrings(event.getChildUuids());
+        out.writeStrings(event.getRelatedRootFlowFiles());
+        out.writeStringMap(event.getUpdatedAttributes());
+        out.writeStringMap(event.getPreviousAttributes());
+        out.writeStringMap(event.getAttributeMap());
+    }
+
+    private ProvenanceEventRecordDTOHolder readEvents(CompactDataInput in) throws IOException {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setBatchId(in.readString());
+        int size = in.readVarInt();
+        if (size == 0) {
+            return holder;
+        }
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>(size - 1);
+        long previousEventId = 0L;
+        long previousEventTime = 0L;
+        for (int i = 0; i < size - 1; i++) {
+            ProvenanceEventRecordDTO event = readEvent(in, previousEventId, previousEventTime);
+            if (event.getEventId() != null) {
+                previousEventId = event.getEventId();
+            }
+            if (event.getEventTime() != null) {
+                previousEventTime = event.getEventTime().getMillis();
+            }
+            events.add(event);
+        }
+        holder.setEvents(events);
+        return holder;
+    }
+
+    private ProvenanceEventRecordDTO readEvent(CompactDataInput in, long baseEventId, long baseEventTime) throws IOException {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        long flags = in.readVarLong();
+        event.setIsStartOfJob(isSet(flags, START_OF_JOB));
+        event.setIsEndOfJob(isSet(flags, END_OF_JOB));
+        event.setIsFinalJobEvent(isSet(flags, FINAL_JOB_EVENT));
+        event.setIsBatchJob(isSet(flags, BATCH_JOB));
+        event.setHasFailedEvents(isSet(flags, HAS_FAILED_EVENTS));
+        event.setStartOfFlowFile(isSet(flags, START_OF_FLOW_FILE));
+        event.setIsFailure(isSet(flags, FAILURE));
+        event.setStream(isSet(flags, STREAM));
+
+        long eventId = baseEventId;
+        long eventTime = baseEventTime;
+        if (isSet(flags, HAS_EVENT_ID)) {
+            eventId = baseEventId + in.readSignedVarLong();
+            event.setEventId(eventId);
+        }
+        if (isSet(flags, HAS_EVENT_TIME)) {
+            DateTime time = in.readDateTime(baseEventTime);
+            eventTime = time.getMillis();
+            event.setEventTime(time);
+        }
+        if (isSet(flags, HAS_PREVIOUS_EVENT_ID)) {
+            event.setPreviousEventId(eventId - in.readSignedVarLong());
+        }
+        if (isSet(flags, HAS_PREVIOUS_EVENT_TIME)) {
+            event.setPreviousEventTime(in.readDateTime(eventTime));
+        }
+        if (isSet(flags, HAS_START_TIME)) {
+            event.setStartTime(in.readDateTime(eventTime));
+        }
+        if (isSet(flags, HAS_JOB_EVENT_ID)) {
+            event.setJobEventId(eventId - in.readSignedVarLong());
+        }
+        if (isSet(flags, HAS_EVENT_DURATION)) {
+            event.setEventDuration(in.readSignedVarLong());
+        }
+        if (isSet(flags, HAS_FILE_SIZE_BYTES)) {
+            event.setFileSizeBytes(in.readSignedVarLong());
+        }
+        if (isSet(flags, HAS_INPUT_CLAIM_BYTES)) {
+            event.setInputContentClaimFileSizeBytes(in.readSignedVarLong());
+        }
+        if (isSet(flags, HAS_OUTPUT_CLAIM_BYTES)) {
+            event.setOutputContentClaimFileSizeBytes(in.readSignedVarLong());
+        }
+
+        event.setId(in.readString());
+        event.setEventType(in.readString());
+        event.setFlowFileUuid(in.readString());
+        event.setPreviousFlowfileId(in.readString());
+        event.setFileSize(in.readString());
+        event.setClusterNodeId(in.readString());
+        event.setClusterNodeAddress(in.readString());
+        event.setGroupId(in.readString());
+        event.setComponentId(in.readString());
+        event.setComponentType(in.readString());
+        event.setComponentName(in.readString());
+        event.setDetails(in.readString());
+        event.setSourceConnectionIdentifier(in.readString());
+        event.setInputContentClaimFileSize(in.readString());
+        event.setOutputContentClaimFileSize(in.readString());
+        event.setJobFlowFileId(in.readString());
+        event.setFeedName(in.readString());
+        event.setFeedProcessGroupId(in.readString());
+        event.setBatchId(in.readString());
+        event.setRelationship(in.readString());
+        String processorType = in.readString();
+        event.setProcessorType(processorType != null ? KyloProcessorFlowType.valueOf(processorType) : null);
+
+        event.setParentUuids(in.readStrings(ArrayList::new));
+        event.setChildUuids(in.readStrings(ArrayList::new));
+        event.setRelatedRootFlowFiles(in.readStrings(HashSet::new));
+        event.setUpdatedAttributes(in.readStringMap());
+        event.setPreviousAttributes(in.readStringMap());
+        event.setAttributeMap(in.readStringMap());
+        return event;
+    }
+
+    private void writeStats(CompactDataOutput out, AggregatedFeedProcessorStatisticsHolder holder) throws IOException {
+        long baseTime = holder.getMinTime() != null ? holder.getMinTime().getMillis() : 0L;
+        out.writeVarInt(flag(holder.getMinTime() != null, HAS_MIN_TIME) | flag(holder.getMaxTime() != null, HAS_MAX_TIME));
+        out.writeSignedVarLong(baseTime);
+        if (holder.getMinTime() != null) {
+            out.writeString(holder.getMinTime().getZone().getID());
+        }
+        if (holder.getMaxTime() != null) {
+            out.writeDateTime(holder.getMaxTime(), baseTime);
+        }
+        out.writeString(holder.getCollectionId());
+        out.writeSignedVarLong(holder.getEventCount().get());
+        out.writeSignedVarLong(holder.getMinEventId());
+        out.writeSignedVarLong(holder.getMaxEventId());
+
+        Map<String, AggregatedFeedProcessorStatistics> feedStatistics = holder.getFeedStatistics();
+        out.writeVarInt(feedStatistics.size());
+        for (Map.Entry<String, AggregatedFeedProcessorStatistics> feedEntry : feedStatistics.entrySet()) {
+            AggregatedFeedProcessorStatistics feed = feedEntry.getValue();
+            out.writeString(feedEntry.getKey());
+            out.writeString(feed.getFeedName());
+            out.writeString(feed.getProcessGroup());
+            out.writeString(feed.getCollectionId());
+            out.writeSignedVarLong(feed.getTotalEvents());
+            out.writeSignedVarLong(feed.getMinEventId());
+            out.writeSignedVarLong(feed.getMaxEventId());
+
+            Map<String, AggregatedProcessorStatistics> processorStats = feed.getProcessorStats();
+            out.writeVarInt(processorStats.size());
+            for (Map.Entry<String, AggregatedProcessorStatistics> processorEntry : processorStats.entrySet()) {
+                AggregatedProcessorStatistics processor = processorEntry.getValue();
+                out.writeString(processorEntry.getKey());
+                out.writeString(processor.getProcessorId());
+                out.writeString(processor.getProcessorName());
+                writeGroupedStats(out, processor.getStats(), baseTime);
+            }
+        }
+    }
+
+    private void writeGroupedStats(CompactDataOutput out, GroupedStats stats, long baseTime) throws IOException {
+        out.writeVarInt(flag(stats.getMinTime() != null, HAS_MIN_TIME) | flag(stats.getMaxTime() != null, HAS_MAX_TIME) | flag(stats.getTime() != null, HAS_TIME));
+        if (stats.getMinTime() != null) {
+            out.writeDateTime(stats.getMinTime(), baseTime);
+        }
+        if (stats.getMaxTime() != null) {
+            out.writeDateTime(stats.getMaxTime(), baseTime);
+        }
+        if (stats.getTime() != null) {
+            out.writeDateTime(stats.getTime(), baseTime);
+        }
+        out.writeString(stats.getGroupKey());
+        out.writeSignedVarLong(stats.getBytesIn());
+        out.writeSignedVarLong(stats.getBytesOut());
+        out.writeSignedVarLong(stats.getDuration());
+        out.writeSignedVarLong(stats.getTotalCount());
+        out.writeSignedVarLong(stats.getJobsStarted());
+        out.writeSignedVarLong(stats.getJobsFinished());
+        out.writeSignedVarLong(stats.getProcessorsFailed());
+        out.writeSignedVarLong(stats.getFlowFilesStarted());
+        out.writeSignedVarLong(stats.getFlowFilesFinished());
+        out.writeSignedVarLong(stats.getJobsFailed());
+        out.writeSignedVarLong(stats.getSuccessfulJobDuration());
+        out.writeSignedVarLong(stats.getJobDuration());
+        out.writeSignedVarLong(stats.getMaxEventId());
+        out.writeString(stats.getClusterNodeId());
+        out.writeString(stats.getClusterNodeAddress());
+    }
+
+    private AggregatedFeedProcessorStatisticsHolder readStats(CompactDataInput in) throws IOException {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        int flags = in.readVarInt();
+        long baseTime = in.readSignedVarLong();
+        if (isSet(flags, HAS_MIN_TIME)) {
+            String zoneId = in.readString();
+            holder.setMinTime(new DateTime(baseTime, DateTimeZone.forID(zoneId)));
+        }
+        if (isSet(flags, HAS_MAX_TIME)) {
+            holder.setMaxTime(in.readDateTime(baseTime));
+        }
+        holder.setCollectionId(in.readString());
+        holder.getEventCount().set(in.readSignedVarLong());
+        holder.setMinEventId(in.readSignedVarLong());
+        holder.setMaxEventId(in.readSignedVarLong());
+
+        int feedCount = in.readVarInt();
+        for (int i = 0; i < feedCount; i++) {
+            String key = in.readString();
+            AggregatedFeedProcessorStatistics feed = new AggregatedFeedProcessorStatistics();
+            feed.setFeedName(in.readString());
+            feed.setProcessGroup(in.readString());
+            feed.setCollectionId(in.readString());
+            feed.setTotalEvents(in.readSignedVarLong());
+            feed.setMinEventId(in.readSignedVarLong());
+            feed.setMaxEventId(in.readSignedVarLong());
+
+            int processorCount = in.readVarInt();
+            for (int p = 0; p < processorCount; p++) {
+                String processorKey = in.readString();
+                String processorId = in.readString();
+                String processorName = in.readString();
+                AggregatedProcessorStatistics processor = new AggregatedProcessorStatistics(processorId, processorName, null);
+                processor.setStats(readGroupedStats(in, baseTime));
+                feed.getProcessorStats().put(processorKey, processor);
+            }
+            holder.getFeedStatistics().put(key, feed);
+        }
+        return holder;
+    }
+
+    private GroupedStats readGroupedStats(CompactDataInput in, long baseTime) throws IOException {
+        GroupedStats stats = new GroupedStats();
+        int flags = in.readVarInt();
+        if (isSet(flags, HAS_MIN_TIME)) {
+            stats.setMinTime(in.readDateTime(baseTime));
+        }
+        if (isSet(flags, HAS_MAX_TIME)) {
+            stats.setMaxTime(in.readDateTime(baseTime));
+        }
+        if (isSet(flags, HAS_TIME)) {
+            stats.setTime(in.readDateTime(baseTime));
+        }
+        stats.setGroupKey(in.readString());
+        stats.setBytesIn(in.readSignedVarLong());
+        stats.setBytesOut(in.readSignedVarLong());
+        stats.setDuration(in.readSignedVarLong());
+        stats.setTotalCount(in.readSignedVarLong());
+        stats.setJobsStarted(in.readSignedVarLong());
+        stats.setJobsFinished(in.readSignedVarLong());
+        stats.setProcessorsFailed(in.readSignedVarLong());
+        stats.setFlowFilesStarted(in.readSignedVarLong());
+        stats.setFlowFilesFinished(in.readSignedVarLong());
+        stats.setJobsFailed(in.readSignedVarLong());
+        stats.setSuccessfulJobDuration(in.readSignedVarLong());
+        stats.setJobDuration(in.readSignedVarLong());
+        stats.setMaxEventId(in.readSignedVarLong());
+        stats.setClusterNodeId(in.readString());
+        stats.setClusterNodeAddress(in.readString());
+        return stats;
+    }
+
+    /**
+     * Block compression applied to the encoded body
+     */
+    public enum Compression {
+        NONE, DEFLATE
+    }
+}
@@ -0,0 +1,66 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+/**
+ * Encodes the provenance payloads that are sent from the NiFi KyloProvenanceEventReportingTask to Kylo Operations Manager
+ * ({@link com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder} and {@link com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder})
+ * into a byte array and back.
+ *
+ * Note: Any modifications to an implementation will result in the need to update kylo-services and the KyloReportingTask nar
+ */
+public interface ProvenanceCodec {
+
+    /**
+     * The unique name of this codec.  This is sent along with the encoded payload so the receiver can find the matching codec.
+     *
+     * @return the name of the codec
+     */
+    String getName();
+
+    /**
+     * Check to see if this codec is able to encode the supplied payload
+     *
+     * @param payload the object to encode
+     * @return {@code true} if the payload can be encoded, {@code false} if not
+     */
+    boolean supports(Object payload);
+
+    /**
+     * Encode the payload
+     *
+     * @param payload the object to encode
+     * @return the encoded bytes
+     * @throws IOException if the payload cannot be encoded
+     */
+    byte[] encode(Object payload) throws IOException;
+
+    /**
+     * Decode bytes previously created by {@link #encode(Object)}
+     *
+     * @param data the encoded bytes
+     * @return the decoded payload
+     * @throws IOException if the data is not a valid encoding
+     */
+    Object decode(byte[] data) throws IOException;
+}
@@ -0,0 +1,66 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Lookup of the available {@link ProvenanceCodec} implementations by name
+ */
+public class ProvenanceCodecs {
+
+    /**
+     * Name used to indicate the payloads should be sent using plain Java serialization
+     */
+    public static final String JAVA_SERIALIZATION = "java";
+
+    private ProvenanceCodecs() {
+
+    }
+
+    /**
+     * Find the codec with the given name.
+     *
+     * @param name        the name of the codec
+     * @param compression the block compression used when encoding.  Decoding reads the compression from the encoded header
+     * @return the codec, or {@code null} if the name refers to Java serialization
+     * @throws IllegalArgumentException if there is no codec with the given name
+     */
+    public static ProvenanceCodec forName(String name, CompactProvenanceCodec.Compression compression) {
+        if (StringUtils.isBlank(name) || JAVA_SERIALIZATION.equalsIgnoreCase(name)) {
+            return null;
+        } else if (CompactProvenanceCodec.NAME.equalsIgnoreCase(name)) {
+            return new CompactProvenanceCodec(compression != null ? compression : CompactProvenanceCodec.Compression.NONE);
+        }
+        throw new IllegalArgumentException("Unknown provenance codec: " + name);
+    }
+
+    /**
+     * Find the codec with the given name to decode a payload
+     *
+     * @param name the name of the codec
+     * @return the codec, or {@code null} if the name refers to Java serialization
+     * @throws IllegalArgumentException if there is no codec with the given name
+     */
+    public static ProvenanceCodec forName(String name) {
+        return forName(name, CompactProvenanceCodec.Compression.NONE);
+    }
+}
@@ -0,0 +1,184 @@
+package com.thinkbiganalytics.nifi.provenance.model;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+public class FeedFlowFileTest {
+
+    /**
+     * Verify the state needed to keep tracking a running flow survives the binary round trip
+     */
+    @Test
+    public void roundTripBinary() throws Exception {
+        String rootId = UUID.randomUUID().toString();
+        String childId = UUID.randomUUID().toString();
+        FeedFlowFile flowFile = new FeedFlowFile(rootId);
+        flowFile.setFeedName("category.feed");
+        flowFile.setFeedProcessGroupId("process-group");
+
+        ProvenanceEventRecordDTO first = event(1L, rootId, "CREATE", new DateTime(1000L));
+        flowFile.setFirstEvent(first);
+        flowFile.checkIfEventStartsTheFlowFile(first);
+        flowFile.addEvent(first);
+        flowFile.addChildFlowFile(childId);
+        flowFile.addChildFlowFile("not-a-uuid");
+        flowFile.assignFlowFileToParent(childId, rootId);
+        flowFile.assignChildFlowFileStartTime(childId, 1500L);
+        flowFile.addEvent(event(2L, childId, "CONTENT_MODIFIED", new DateTime(2000L)));
+        flowFile.incrementFailedEvents();
+        flowFile.checkAndMarkComplete(event(3L, rootId, "DROP", new DateTime(3000L)));
+
+        FeedFlowFile decoded = roundTrip(flowFile);
+
+        Assert.assertEquals(rootId, decoded.getId());
+        Assert.assertEquals("category.feed", decoded.getFeedName());
+        Assert.assertEquals("process-group", decoded.getFeedProcessGroupId());
+        Assert.assertEquals(Long.valueOf(1L), decoded.getFirstEventId());
+        Assert.assertEquals(Long.valueOf(1000L), decoded.getFirstEventStartTime());
+        Assert.assertEquals("processor-1", decoded.getFirstEventProcessorId());
+        Assert.assertEquals(Long.valueOf(2L), decoded.getLastEventId());
+        Assert.assertEquals(Long.valueOf(2000L), decoded.getLastEventTime());
+        Assert.assertEquals(flowFile.getActiveChildFlowFiles(), decoded.getActiveChildFlowFiles());
+        Assert.assertEquals(flowFile.getChildFlowFiles(), decoded.getChildFlowFiles());
+        Assert.assertEquals(Long.valueOf(2000L), decoded.getPreviousEventTime(childId));
+        Assert.assertEquals(Long.valueOf(1000L), decoded.getPreviousEventTime(rootId));
+        Assert.assertTrue(decoded.hasFailedEvents());
+        Assert.assertFalse(decoded.isFeedComplete());
+
+        decoded.checkAndMarkComplete(event(4L, childId, "DROP", new DateTime(4000L)));
+        decoded.checkAndMarkComplete(event(5L, "not-a-uuid", "DROP", new DateTime(4000L)));
+        Assert.assertTrue(decoded.isFeedComplete());
+    }
+
+    /**
+     * A flow file with only an id written leaves all optional state unset
+     */
+    @Test
+    public void roundTripEmpty() throws Exception {
+        FeedFlowFile decoded = roundTrip(new FeedFlowFile("id"));
+
+        Assert.assertEquals("id", decoded.getId());
+        Assert.assertNull(decoded.getFeedName());
+        Assert.assertNull(decoded.getActiveChildFlowFiles());
+        Assert.assertNull(decoded.getFirstEventId());
+        Assert.assertFalse(decoded.hasFailedEvents());
+    }
+
+    /**
+     * Verify the changes recorded after a flow file is written bring a copy read from that write up to date
+     */
+    @Test
+    public void changesAppliedToEarlierCopy() throws Exception {
+        String rootId = UUID.randomUUID().toString();
+        String childId = UUID.randomUUID().toString();
+        FeedFlowFile flowFile = new FeedFlowFile(rootId);
+        ProvenanceEventRecordDTO first = event(1L, rootId, "CREATE", new DateTime(1000L));
+        flowFile.checkIfEventStartsTheFlowFile(first);
+
+        FeedFlowFile copy = roundTrip(flowFile);
+        flowFile.trackChanges();
+        Assert.assertFalse(flowFile.hasChanges());
+
+        flowFile.setFeedName("category.feed");
+        flowFile.setFeedProcessGroupId("process-group");
+        flowFile.setFirstEvent(first);
+        flowFile.addEvent(first);
+        flowFile.addChildFlowFile(childId);
+        flowFile.assignFlowFileToParent(childId, rootId);
+        flowFile.assignChildFlowFileStartTime(childId, 1500L);
+        flowFile.addEvent(event(2L, childId, "CONTENT_MODIFIED", new DateTime(2000L)));
+        flowFile.incrementFailedEvents();
+        Assert.assertTrue(flowFile.hasChanges());
+        applyChanges(flowFile, copy);
+        Assert.assertFalse(flowFile.hasChanges());
+
+        flowFile.checkAndMarkComplete(event(3L, rootId, "DROP", new DateTime(3000L)));
+        flowFile.checkAndMarkComplete(event(4L, childId, "DROP", new DateTime(4000L)));
+        applyChanges(flowFile, copy);
+
+        Assert.assertEquals("category.feed", copy.getFeedName());
+        Assert.assertEquals("process-group", copy.getFeedProcessGroupId());
+        Assert.assertEquals(Long.valueOf(1L), copy.getFirstEventId());
+        Assert.assertEquals("processor-1", copy.getFirstEventProcessorId());
+        Assert.assertEquals(Long.valueOf(2L), copy.getLastEventId());
+        Assert.assertEquals(Long.valueOf(2000L), copy.getLastEventTime());
+        Assert.assertEquals(flowFile.getChildFlowFiles(), copy.getChildFlowFiles());
+        Assert.assertEquals(flowFile.getActiveChildFlowFiles(), copy.getActiveChildFlowFiles());
+        Assert.assertEquals(Long.valueOf(2000L), copy.getPreviousEventTime(childId));
+        Assert.assertTrue(copy.hasFailedEvents());
+        Assert.assertTrue(copy.isFeedComplete());
+    }
+
+    /**
+     * Nothing is recorded until changes are tracked, and nothing after tracking stops
+     */
+    @Test
+    public void changesOnlyRecordedWhenTracked() {
+        FeedFlowFile flowFile = new FeedFlowFile("id");
+        flowFile.setFeedName("category.feed");
+        Assert.assertFalse(flowFile.isTrackingChanges());
+        Assert.assertFalse(flowFile.hasChanges());
+
+        flowFile.trackChanges();
+        flowFile.incrementFailedEvents();
+        Assert.assertTrue(flowFile.hasChanges());
+
+        flowFile.stopTrackingChanges();
+        flowFile.incrementFailedEvents();
+        Assert.assertFalse(flowFile.isTrackingChanges());
+        Assert.assertFalse(flowFile.hasChanges());
+    }
+
+    private void applyChanges(FeedFlowFile flowFile, FeedFlowFile copy) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        flowFile.writeChangesTo(new DataOutputStream(bytes));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals(flowFile.getId(), FeedFlowFile.readChangesId(in));
+        FeedFlowFile.applyChangesFrom(copy, in);
+    }
+
+    private FeedFlowFile roundTrip(FeedFlowFile flowFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        flowFile.writeTo(new DataOutputStream(bytes));
+        return FeedFlowFile.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private ProvenanceEventRecordDTO event(Long eventId, String flowFileId, String type, DateTime time) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setFlowFileUuid(flowFileId);
+        event.setEventType(type);
+        event.setEventTime(time);
+        event.setStartTime(time);
+        event.setComponentId("processor-" + eventId);
+        return event;
+    }
+}
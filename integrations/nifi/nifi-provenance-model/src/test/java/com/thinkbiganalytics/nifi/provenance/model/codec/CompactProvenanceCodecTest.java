@@ -0,0 +1,185 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+public class CompactProvenanceCodecTest {
+
+    /**
+     * Verify every field sent to Kylo survives the round trip, with and without compression
+     */
+    @Test
+    public void roundTripEvents() throws Exception {
+        for (CompactProvenanceCodec.Compression compression : CompactProvenanceCodec.Compression.values()) {
+            ProvenanceEventRecordDTOHolder holder = ProvenanceCodecTestData.events(5, 20);
+            holder.getEvents().get(3).setEventTime(new DateTime(1497000000000L, DateTimeZone.forID("America/Chicago")));
+            holder.getEvents().get(4).setDetails(null);
+            holder.getEvents().get(4).setEventId(null);
+            holder.getEvents().get(5).setChildUuids(Collections.emptyList());
+
+            CompactProvenanceCodec codec = new CompactProvenanceCodec(compression);
+            ProvenanceEventRecordDTOHolder decoded = (ProvenanceEventRecordDTOHolder) codec.decode(codec.encode(holder));
+
+            Assert.assertEquals(holder.getBatchId(), decoded.getBatchId());
+            Assert.assertEquals(holder.getEvents().size(), decoded.getEvents().size());
+            for (int i = 0; i < holder.getEvents().size(); i++) {
+                assertEventEquals(holder.getEvents().get(i), decoded.getEvents().get(i));
+            }
+        }
+    }
+
+    @Test
+    public void roundTripStats() throws Exception {
+        AggregatedFeedProcessorStatisticsHolder holder = ProvenanceCodecTestData.stats(10, 8);
+        CompactProvenanceCodec codec = new CompactProvenanceCodec(CompactProvenanceCodec.Compression.DEFLATE);
+        AggregatedFeedProcessorStatisticsHolder decoded = (AggregatedFeedProcessorStatisticsHolder) codec.decode(codec.encode(holder));
+
+        Assert.assertEquals(holder.getCollectionId(), decoded.getCollectionId());
+        Assert.assertEquals(holder.getMinTime(), decoded.getMinTime());
+        Assert.assertEquals(holder.getMaxTime(), decoded.getMaxTime());
+        Assert.assertEquals(holder.getEventCount().get(), decoded.getEventCount().get());
+        Assert.assertEquals(holder.getMinEventId(), decoded.getMinEventId());
+        Assert.assertEquals(holder.getMaxEventId(), decoded.getMaxEventId());
+        Assert.assertEquals(holder.getFeedStatistics().keySet(), decoded.getFeedStatistics().keySet());
+        for (AggregatedFeedProcessorStatistics feed : holder.getFeedStatistics().values()) {
+            AggregatedFeedProcessorStatistics decodedFeed = decoded.getFeedStatistics().get(feed.getFeedName());
+            Assert.assertEquals(feed.getFeedName(), decodedFeed.getFeedName());
+            Assert.assertEquals(feed.getProcessGroup(), decodedFeed.getProcessGroup());
+            Assert.assertEquals(feed.getTotalEvents(), decodedFeed.getTotalEvents());
+            Assert.assertEquals(feed.getMaxEventId(), decodedFeed.getMaxEventId());
+            Assert.assertEquals(feed.getProcessorStats().keySet(), decodedFeed.getProcessorStats().keySet());
+            for (AggregatedProcessorStatistics processor : feed.getProcessorStats().values()) {
+                AggregatedProcessorStatistics decodedProcessor = decodedFeed.getProcessorStats().get(processor.getProcessorId());
+                Assert.assertEquals(processor.getProcessorName(), decodedProcessor.getProcessorName());
+                Assert.assertEquals(processor.getCollectionId(), decodedProcessor.getCollectionId());
+                assertStatsEquals(processor.getStats(), decodedProcessor.getStats());
+            }
+        }
+    }
+
+    /**
+     * The compact encoding should be significantly smaller than Java serialization
+     */
+    @Test
+    public void smallerThanJavaSerialization() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = ProvenanceCodecTestData.events(10, 50);
+        int compact = new CompactProvenanceCodec().encode(holder).length;
+        int java = javaSerialize(holder).length;
+        Assert.assertTrue("compact " + compact + " should be less than half of java " + java, compact * 2 < java);
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedSchemaVersion() throws Exception {
+        byte[] data = new CompactProvenanceCodec().encode(ProvenanceCodecTestData.events(1, 1));
+        data[0] = (byte) (CompactProvenanceCodec.SCHEMA_VERSION + 1);
+        new CompactProvenanceCodec().decode(data);
+    }
+
+    @Test
+    public void forName() {
+        Assert.assertNull(ProvenanceCodecs.forName(ProvenanceCodecs.JAVA_SERIALIZATION));
+        Assert.assertNull(ProvenanceCodecs.forName(null));
+        Assert.assertEquals(CompactProvenanceCodec.Compression.DEFLATE,
+                            ((CompactProvenanceCodec) ProvenanceCodecs.forName("COMPACT", CompactProvenanceCodec.Compression.DEFLATE)).getCompression());
+    }
+
+    static byte[] javaSerialize(Object payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(payload);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void assertEventEquals(ProvenanceEventRecordDTO expected, ProvenanceEventRecordDTO actual) {
+        Assert.assertEquals(expected.getEventId(), actual.getEventId());
+        Assert.assertEquals(expected.getEventTime(), actual.getEventTime());
+        Assert.assertEquals(expected.getStartTime(), actual.getStartTime());
+        Assert.assertEquals(expected.getPreviousEventId(), actual.getPreviousEventId());
+        Assert.assertEquals(expected.getPreviousEventTime(), actual.getPreviousEventTime());
+        Assert.assertEquals(expected.getPreviousFlowfileId(), actual.getPreviousFlowfileId());
+        Assert.assertEquals(expected.getEventDuration(), actual.getEventDuration());
+        Assert.assertEquals(expected.getEventType(), actual.getEventType());
+        Assert.assertEquals(expected.getFlowFileUuid(), actual.getFlowFileUuid());
+        Assert.assertEquals(expected.getJobFlowFileId(), actual.getJobFlowFileId());
+        Assert.assertEquals(expected.getJobEventId(), actual.getJobEventId());
+        Assert.assertEquals(expected.getComponentId(), actual.getComponentId());
+        Assert.assertEquals(expected.getComponentName(), actual.getComponentName());
+        Assert.assertEquals(expected.getComponentType(), actual.getComponentType());
+        Assert.assertEquals(expected.getGroupId(), actual.getGroupId());
+        Assert.assertEquals(expected.getFeedName(), actual.getFeedName());
+        Assert.assertEquals(expected.getFeedProcessGroupId(), actual.getFeedProcessGroupId());
+        Assert.assertEquals(expected.getClusterNodeId(), actual.getClusterNodeId());
+        Assert.assertEquals(expected.getClusterNodeAddress(), actual.getClusterNodeAddress());
+        Assert.assertEquals(expected.getFileSize(), actual.getFileSize());
+        Assert.assertEquals(expected.getFileSizeBytes(), actual.getFileSizeBytes());
+        Assert.assertEquals(expected.getDetails(), actual.getDetails());
+        Assert.assertEquals(expected.getProcessorType(), actual.getProcessorType());
+        Assert.assertEquals(expected.isBatchJob(), actual.isBatchJob());
+        Assert.assertEquals(expected.isStartOfJob(), actual.isStartOfJob());
+        Assert.assertEquals(expected.isEndOfJob(), actual.isEndOfJob());
+        Assert.assertEquals(expected.isFinalJobEvent(), actual.isFinalJobEvent());
+        Assert.assertEquals(expected.isHasFailedEvents(), actual.isHasFailedEvents());
+        Assert.assertEquals(expected.isFailure(), actual.isFailure());
+        Assert.assertEquals(expected.getParentUuids(), actual.getParentUuids());
+        Assert.assertEquals(expected.getChildUuids(), actual.getChildUuids());
+        Assert.assertEquals(expected.getRelatedRootFlowFiles(), actual.getRelatedRootFlowFiles());
+        Assert.assertEquals(expected.getAttributeMap(), actual.getAttributeMap());
+        Assert.assertEquals(expected.getUpdatedAttributes(), actual.getUpdatedAttributes());
+        Assert.assertEquals(expected.getPreviousAttributes(), actual.getPreviousAttributes());
+    }
+
+    private void assertStatsEquals(GroupedStats expected, GroupedStats actual) {
+        Assert.assertEquals(expected.getTime(), actual.getTime());
+        Assert.assertEquals(expected.getMinTime(), actual.getMinTime());
+        Assert.assertEquals(expected.getMaxTime(), actual.getMaxTime());
+        Assert.assertEquals(expected.getBytesIn(), actual.getBytesIn());
+        Assert.assertEquals(expected.getBytesOut(), actual.getBytesOut());
+        Assert.assertEquals(expected.getDuration(), actual.getDuration());
+        Assert.assertEquals(expected.getTotalCount(), actual.getTotalCount());
+        Assert.assertEquals(expected.getJobsStarted(), actual.getJobsStarted());
+        Assert.assertEquals(expected.getJobsFinished(), actual.getJobsFinished());
+        Assert.assertEquals(expected.getJobsFailed(), actual.getJobsFailed());
+        Assert.assertEquals(expected.getFlowFilesStarted(), actual.getFlowFilesStarted());
+        Assert.assertEquals(expected.getFlowFilesFinished(), actual.getFlowFilesFinished());
+        Assert.assertEquals(expected.getJobDuration(), actual.getJobDuration());
+        Assert.assertEquals(expected.getSuccessfulJobDuration(), actual.getSuccessfulJobDuration());
+        Assert.assertEquals(expected.getMaxEventId(), actual.getMaxEventId());
+        Assert.assertEquals(expected.getClusterNodeId(), actual.getClusterNodeId());
+        Assert.assertEquals(expected.getClusterNodeAddress(), actual.getClusterNodeAddress());
+    }
+}
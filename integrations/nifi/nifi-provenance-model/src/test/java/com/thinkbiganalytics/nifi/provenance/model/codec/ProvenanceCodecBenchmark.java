@@ -0,0 +1,141 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Java serialization of the provenance JMS payloads with the {@link CompactProvenanceCodec}.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceCodecBenchmark -Dexec.classpathScope=test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ProvenanceCodecBenchmark {
+
+    private final CompactProvenanceCodec compactCodec = new CompactProvenanceCodec();
+    private final CompactProvenanceCodec deflateCodec = new CompactProvenanceCodec(CompactProvenanceCodec.Compression.DEFLATE);
+
+    private ProvenanceEventRecordDTOHolder events;
+    private AggregatedFeedProcessorStatisticsHolder stats;
+
+    private byte[] javaEvents;
+    private byte[] compactEvents;
+    private byte[] deflateEvents;
+    private byte[] javaStats;
+    private byte[] compactStats;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProvenanceCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static Object javaDeserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        //a full JMS batch of events and a stats collection for a busy node
+        events = ProvenanceCodecTestData.events(10, 50);
+        stats = ProvenanceCodecTestData.stats(100, 10);
+        javaEvents = CompactProvenanceCodecTest.javaSerialize(events);
+        compactEvents = compactCodec.encode(events);
+        deflateEvents = deflateCodec.encode(events);
+        javaStats = CompactProvenanceCodecTest.javaSerialize(stats);
+        compactStats = compactCodec.encode(stats);
+    }
+
+    @Benchmark
+    public byte[] encodeEventsJava() throws IOException {
+        return CompactProvenanceCodecTest.javaSerialize(events);
+    }
+
+    @Benchmark
+    public byte[] encodeEventsCompact() throws IOException {
+        return compactCodec.encode(events);
+    }
+
+    @Benchmark
+    public byte[] encodeEventsCompactDeflate() throws IOException {
+        return deflateCodec.encode(events);
+    }
+
+    @Benchmark
+    public Object decodeEventsJava() throws Exception {
+        return javaDeserialize(javaEvents);
+    }
+
+    @Benchmark
+    public Object decodeEventsCompact() throws IOException {
+        return compactCodec.decode(compactEvents);
+    }
+
+    @Benchmark
+    public Object decodeEventsCompactDeflate() throws IOException {
+        return deflateCodec.decode(deflateEvents);
+    }
+
+    @Benchmark
+    public byte[] encodeStatsJava() throws IOException {
+        return CompactProvenanceCodecTest.javaSerialize(stats);
+    }
+
+    @Benchmark
+    public byte[] encodeStatsCompact() throws IOException {
+        return compactCodec.encode(stats);
+    }
+
+    @Benchmark
+    public Object decodeStatsJava() throws Exception {
+        return javaDeserialize(javaStats);
+    }
+
+    @Benchmark
+    public Object decodeStatsCompact() throws IOException {
+        return compactCodec.decode(compactStats);
+    }
+}
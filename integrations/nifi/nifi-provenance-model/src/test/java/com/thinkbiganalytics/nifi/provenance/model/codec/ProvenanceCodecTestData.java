@@ -0,0 +1,142 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds provenance batches similar to what the KyloProvenanceEventReportingTask sends to Kylo
+ */
+class ProvenanceCodecTestData {
+
+    static ProvenanceEventRecordDTOHolder events(int feeds, int eventsPerFeed) {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>();
+        long eventId = 1000000L;
+        DateTime time = new DateTime(1497000000000L);
+        for (int f = 0; f < feeds; f++) {
+            String feedName = "category.feed_" + f;
+            String jobFlowFileId = UUID.randomUUID().toString();
+            String processGroupId = UUID.randomUUID().toString();
+            for (int e = 0; e < eventsPerFeed; e++) {
+                ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+                event.setEventId(eventId++);
+                event.setEventTime(time.plusMillis(e * 15));
+                event.setStartTime(time.plusMillis(e * 15 - 10));
+                event.setPreviousEventId(e > 0 ? eventId - 2 : null);
+                event.setPreviousEventTime(e > 0 ? time.plusMillis((e - 1) * 15) : null);
+                event.setPreviousFlowfileId(e > 0 ? jobFlowFileId : null);
+                event.setEventDuration(10L);
+                event.setEventType(e == 0 ? "CREATE" : "ATTRIBUTES_MODIFIED");
+                event.setFlowFileUuid(jobFlowFileId);
+                event.setJobFlowFileId(jobFlowFileId);
+                event.setJobEventId(eventId - 1 - e);
+                event.setComponentId("processor-" + e);
+                event.setComponentName("Processor " + e);
+                event.setComponentType("UpdateAttribute");
+                event.setGroupId(processGroupId);
+                event.setFeedProcessGroupId(processGroupId);
+                event.setFeedName(feedName);
+                event.setClusterNodeId("node-1");
+                event.setClusterNodeAddress("localhost:8080");
+                event.setFileSize("1 KB");
+                event.setFileSizeBytes(1024L);
+                event.setIsBatchJob(true);
+                event.setIsStartOfJob(e == 0);
+                event.setIsEndOfJob(e == eventsPerFeed - 1);
+                event.setIsFinalJobEvent(false);
+                event.setHasFailedEvents(e % 7 == 3);
+                event.setIsFailure(e % 7 == 3);
+                event.setProcessorType(KyloProcessorFlowType.NORMAL_FLOW);
+                event.setParentUuids(e == 0 ? null : Arrays.asList(jobFlowFileId));
+                event.setRelatedRootFlowFiles(new HashSet<>(Arrays.asList(jobFlowFileId)));
+                Map<String, String> attributes = new HashMap<>();
+                attributes.put("filename", jobFlowFileId);
+                attributes.put("path", "./");
+                attributes.put("uuid", jobFlowFileId);
+                attributes.put("feed", feedName);
+                event.setAttributeMap(attributes);
+                event.setUpdatedAttributes(e == 0 ? new HashMap<>(attributes) : null);
+                events.add(event);
+            }
+        }
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events);
+        return holder;
+    }
+
+    static AggregatedFeedProcessorStatisticsHolder stats(int feeds, int processorsPerFeed) {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        DateTime time = new DateTime(1497000000000L);
+        holder.setMinTime(time);
+        holder.setMaxTime(time.plusSeconds(3));
+        holder.setMinEventId(10L);
+        holder.setMaxEventId(5000L);
+        for (int f = 0; f < feeds; f++) {
+            String feedName = "category.feed_" + f;
+            AggregatedFeedProcessorStatistics feed = new AggregatedFeedProcessorStatistics(feedName, holder.getCollectionId());
+            feed.setProcessGroup(UUID.randomUUID().toString());
+            feed.setTotalEvents(100L);
+            feed.setMaxEventId(5000L);
+            for (int p = 0; p < processorsPerFeed; p++) {
+                String processorId = UUID.randomUUID().toString();
+                AggregatedProcessorStatistics processor = new AggregatedProcessorStatistics(processorId, "Processor " + p, holder.getCollectionId());
+                GroupedStats stats = processor.getStats();
+                stats.setTime(time);
+                stats.setMinTime(time);
+                stats.setMaxTime(time.plusSeconds(2));
+                stats.setBytesIn(1024L * p);
+                stats.setBytesOut(2048L * p);
+                stats.setDuration(300L);
+                stats.setTotalCount(20L);
+                stats.setJobsStarted(1L);
+                stats.setJobsFinished(1L);
+                stats.setFlowFilesStarted(2L);
+                stats.setFlowFilesFinished(2L);
+                stats.setJobsFailed(p % 2);
+                stats.setJobDuration(1500L);
+                stats.setSuccessfulJobDuration(1500L);
+                stats.setMaxEventId(5000L - p);
+                stats.setClusterNodeId("node-1");
+                stats.setClusterNodeAddress("localhost:8080");
+                feed.getProcessorStats().put(processorId, processor);
+            }
+            holder.getFeedStatistics().put(feedName, feed);
+            holder.getEventCount().addAndGet(100L);
+        }
+        return holder;
+    }
+}
@@ -37,9 +37,7 @@ import org.apache.nifi.web.api.dto.TemplateDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -55,13 +53,26 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
 
     private NiFiRestClient restClient;
 
+    /**
+     * The number of feed flows to fetch and walk at the same time when walking all the feed flows
+     */
+    private int flowCrawlerThreads = NifiRestClientConfig.DEFAULT_FLOW_CRAWLER_THREADS;
+
     public DefaultNiFiFlowVisitorClient(NiFiRestClient restClient) {
         this.restClient = restClient;
     }
 
+    public DefaultNiFiFlowVisitorClient(NiFiRestClient restClient, int flowCrawlerThreads) {
+        this.restClient = restClient;
+        this.flowCrawlerThreads = flowCrawlerThreads;
+    }
+
 
     public NifiVisitableProcessGroup getFlowOrder(String processGroupId, NifiConnectionOrderVisitorCache cache) throws NifiComponentNotFoundException {
-        ProcessGroupDTO processGroupEntity = restClient.processGroups().findById(processGroupId, true, true).orElse(null);
+        if (cache == null) {
+            cache = new NifiConnectionOrderVisitorCache();
+        }
+        ProcessGroupDTO processGroupEntity = cache.getProcessGroup(processGroupId, groupId -> restClient.processGroups().findById(groupId, true, true)).orElse(null);
         return getFlowOrder(processGroupEntity, cache);
     }
 
@@ -89,7 +100,7 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
             group = new NifiVisitableProcessGroup(processGroupEntity);
             NifiConnectionOrderVisitor orderVisitor = new NifiConnectionOrderVisitor(restClient, group, finalCache);
             try {
-                Optional<ProcessGroupDTO> parent = cache.getProcessGroup(processGroupEntity.getParentGroupId());
+                Optional<ProcessGroupDTO> parent = cache.getProcessGroupSummary(processGroupEntity.getParentGroupId());
                 if (!parent.isPresent()) {
                     parent = restClient.processGroups().findById(processGroupEntity.getParentGroupId(), false, false, logRestAccessErrors);
                 }
@@ -151,42 +162,7 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
 
     public List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames) {
         log.info("get Graph of Nifi Flows looking for {} ", feedNames == null ? "ALL Feeds " : feedNames);
-        long start = System.currentTimeMillis();
-        NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
-        List<NifiFlowProcessGroup> feedFlows = new ArrayList<>();
-        ProcessGroupDTO processGroupEntity = restClient.processGroups().findRoot();
-        ProcessGroupDTO root = processGroupEntity;
-        //first level is the category
-        root.getContents().getProcessGroups().stream().sorted(new Comparator<ProcessGroupDTO>() {
-            @Override
-            public int compare(ProcessGroupDTO o1, ProcessGroupDTO o2) {
-                if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o1.getName())) {
-                    return -1;
-                }
-                if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o2.getName())) {
-                    return -1;
-                }
-                return o1.getName().compareTo(o2.getName());
-            }
-        }).forEach(category -> {
-            for (ProcessGroupDTO feedProcessGroup : category.getContents().getProcessGroups()) {
-
-                //second level is the feed
-                String feedName = FeedNameUtil.fullName(category.getName(), feedProcessGroup.getName());
-                //if it is a versioned feed then strip the version to get the correct feed name
-                feedName = TemplateCreationHelper.parseVersionedProcessGroupName(feedName);
-                //if feednames are sent in, only add those that match or those in the reusable group
-                if ((feedNames == null || feedNames.isEmpty()) || (feedNames != null && (feedNames.contains(feedName) || TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME
-                    .equalsIgnoreCase(category.getName())))) {
-                    NifiFlowProcessGroup feedFlow = getFeedFlow(feedProcessGroup.getId(), cache);
-                    feedFlow.setFeedName(feedName);
-                    feedFlows.add(feedFlow);
-                }
-            }
-        });
-        long end = System.currentTimeMillis();
-        log.info("finished Graph of Nifi Flows.  Returning {} flows, {} ", feedFlows.size(), (end - start) + " ms");
-        return feedFlows;
+        return new NiFiFlowCrawler(restClient, this, flowCrawlerThreads).crawl(feedNames);
     }
 
 
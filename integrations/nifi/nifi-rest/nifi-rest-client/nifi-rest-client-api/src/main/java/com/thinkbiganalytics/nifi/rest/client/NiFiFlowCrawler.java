@@ -0,0 +1,204 @@
+package com.thinkbiganalytics.nifi.rest.client;
+
+/*-
+ * #%L
+ * thinkbig-nifi-rest-client-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
+import com.thinkbiganalytics.nifi.rest.visitor.NifiConnectionOrderVisitorCache;
+import com.thinkbiganalytics.support.FeedNameUtil;
+
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Walks the feed flows under the NiFi root process group, fetching and visiting the feed process groups on a bounded pool of threads.
+ * <p>
+ * The root and category process groups are fetched without their contents.  Each feed process group is then fetched with its contents and
+ * visited on its own thread, sharing one {@link NifiConnectionOrderVisitorCache} so a process group used by many feeds is only fetched once.
+ * The reusable templates category is walked before the other categories so its flows are in the cache when the feeds connect to them.
+ */
+public class NiFiFlowCrawler {
+
+    private static final Logger log = LoggerFactory.getLogger(NiFiFlowCrawler.class);
+
+    private final NiFiRestClient restClient;
+
+    private final DefaultNiFiFlowVisitorClient flowVisitorClient;
+
+    private final int parallelism;
+
+    /**
+     * @param restClient        the NiFi REST client
+     * @param flowVisitorClient the client used to visit each feed flow
+     * @param parallelism       the maximum number of process groups to fetch and visit at the same time
+     */
+    public NiFiFlowCrawler(@Nonnull NiFiRestClient restClient, @Nonnull DefaultNiFiFlowVisitorClient flowVisitorClient, int parallelism) {
+        this.restClient = restClient;
+        this.flowVisitorClient = flowVisitorClient;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Walk the feed flows
+     *
+     * @param feedNames the feeds to walk, or null or empty to walk every feed.  The flows in the reusable templates category are always walked
+     * @return the feed flows, ordered by category and then by the order of the feeds within the category
+     */
+    public List<NifiFlowProcessGroup> crawl(Collection<String> feedNames) {
+        long start = System.currentTimeMillis();
+        NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+            .setThreadFactory(Executors.defaultThreadFactory())
+            .setDaemon(true)
+            .setNameFormat("nifi-flow-crawler-%d")
+            .build());
+        try {
+            ProcessGroupDTO root = restClient.processGroups().findById("root", false, true).orElseThrow(IllegalStateException::new);
+
+            //first level is the category
+            List<CompletableFuture<CategoryCrawl>> categoryFutures = root.getContents().getProcessGroups().stream()
+                .sorted(Comparator.comparing((ProcessGroupDTO category) -> !isReusableTemplates(category)).thenComparing(ProcessGroupDTO::getName))
+                .map(category -> CompletableFuture.supplyAsync(() -> fetchCategory(category, cache), executor))
+                .collect(Collectors.toList());
+            List<CategoryCrawl> categories = categoryFutures.stream().map(this::join).collect(Collectors.toList());
+
+            //second level is the feed
+            List<CategoryCrawl> reusableTemplates = categories.stream().filter(category -> isReusableTemplates(category.category)).collect(Collectors.toList());
+            List<CategoryCrawl> feedCategories = categories.stream().filter(category -> !isReusableTemplates(category.category)).collect(Collectors.toList());
+            List<NifiFlowProcessGroup> feedFlows = new ArrayList<>(crawlFeeds(reusableTemplates, feedNames, cache, executor));
+            feedFlows.addAll(crawlFeeds(feedCategories, feedNames, cache, executor));
+
+            for (CategoryCrawl category : categories) {
+                if (category.feeds > 0) {
+                    log.info("Walked {} feed flows in the category {} in {} ms", category.feeds, category.category.getName(), category.getElapsedMillis());
+                }
+            }
+            log.info("Walked {} feed flows in {} categories using {} threads in {} ms", feedFlows.size(), categories.size(), parallelism, (System.currentTimeMillis() - start));
+            return feedFlows;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetch the category's feed process groups, without their contents
+     */
+    private CategoryCrawl fetchCategory(ProcessGroupDTO category, NifiConnectionOrderVisitorCache cache) {
+        ProcessGroupDTO categoryGroup = restClient.processGroups().findById(category.getId(), false, true).orElse(category);
+        cache.addProcessGroupSummary(categoryGroup);
+        Set<ProcessGroupDTO> feedGroups = categoryGroup.getContents() != null ? categoryGroup.getContents().getProcessGroups() : Collections.emptySet();
+        return new CategoryCrawl(categoryGroup, feedGroups != null ? new ArrayList<>(feedGroups) : Collections.emptyList());
+    }
+
+    /**
+     * Visit the matching feeds in the categories concurrently and wait for them all to finish
+     */
+    private List<NifiFlowProcessGroup> crawlFeeds(List<CategoryCrawl> categories, Collection<String> feedNames, NifiConnectionOrderVisitorCache cache, ExecutorService executor) {
+        List<CompletableFuture<NifiFlowProcessGroup>> futures = new ArrayList<>();
+        for (CategoryCrawl category : categories) {
+            for (ProcessGroupDTO feedProcessGroup : category.feedGroups) {
+                String feedName = FeedNameUtil.fullName(category.category.getName(), feedProcessGroup.getName());
+                //if it is a versioned feed then strip the version to get the correct feed name
+                String flowFeedName = TemplateCreationHelper.parseVersionedProcessGroupName(feedName);
+                //if feednames are sent in, only add those that match or those in the reusable group
+                if (feedNames == null || feedNames.isEmpty() || feedNames.contains(flowFeedName) || isReusableTemplates(category.category)) {
+                    category.feeds++;
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        category.started();
+                        try {
+                            NifiFlowProcessGroup feedFlow = flowVisitorClient.getFeedFlow(feedProcessGroup.getId(), cache);
+                            feedFlow.setFeedName(flowFeedName);
+                            return feedFlow;
+                        } finally {
+                            category.finished();
+                        }
+                    }, executor));
+                }
+            }
+        }
+        return futures.stream().map(this::join).collect(Collectors.toList());
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isReusableTemplates(ProcessGroupDTO category) {
+        return TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(category.getName());
+    }
+
+    /**
+     * A category and the time taken to walk its feeds
+     */
+    private static class CategoryCrawl {
+
+        private final ProcessGroupDTO category;
+
+        private final List<ProcessGroupDTO> feedGroups;
+
+        private int feeds;
+
+        private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+
+        private final AtomicLong lastFinish = new AtomicLong(Long.MIN_VALUE);
+
+        CategoryCrawl(ProcessGroupDTO category, List<ProcessGroupDTO> feedGroups) {
+            this.category = category;
+            this.feedGroups = feedGroups;
+        }
+
+        void started() {
+            firstStart.accumulateAndGet(System.currentTimeMillis(), Math::min);
+        }
+
+        void finished() {
+            lastFinish.accumulateAndGet(System.currentTimeMillis(), Math::max);
+        }
+
+        long getElapsedMillis() {
+            return Math.max(0, lastFinish.get() - firstStart.get());
+        }
+    }
+}
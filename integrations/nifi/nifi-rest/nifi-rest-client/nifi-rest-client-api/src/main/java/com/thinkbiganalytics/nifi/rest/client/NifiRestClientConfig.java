@@ -26,8 +26,14 @@ import com.thinkbiganalytics.rest.JerseyClientConfig;
  */
 public class NifiRestClientConfig extends JerseyClientConfig {
 
+    /**
+     * Default number of feed flows to fetch and walk at the same time
+     */
+    public static final int DEFAULT_FLOW_CRAWLER_THREADS = 4;
+
     private String apiPath = "/nifi-api/";
     private String clusterType = "NODE";
+    private int flowCrawlerThreads = DEFAULT_FLOW_CRAWLER_THREADS;
 
     public NifiRestClientConfig(String apiPath) {
         this.apiPath = apiPath;
@@ -63,4 +69,12 @@ public class NifiRestClientConfig extends JerseyClientConfig {
     public void setClusterType(String clusterType) {
         this.clusterType = clusterType;
     }
+
+    public int getFlowCrawlerThreads() {
+        return flowCrawlerThreads;
+    }
+
+    public void setFlowCrawlerThreads(int flowCrawlerThreads) {
+        this.flowCrawlerThreads = flowCrawlerThreads;
+    }
 }
@@ -74,7 +74,7 @@ public class NifiConnectionOrderVisitor implements NifiFlowVisitor {
         this.processorsMap = NifiProcessUtil.getProcessorsMap(processGroup.getDto());
         this.cache = cache;
         if (cache == null) {
-            cache = new NifiConnectionOrderVisitorCache();
+            this.cache = new NifiConnectionOrderVisitorCache();
         }
     }
 
@@ -503,17 +503,7 @@ public class NifiConnectionOrderVisitor implements NifiFlowVisitor {
     }
 
     private ProcessGroupDTO getGroup(String processGroupId) {
-        ProcessGroupDTO group = null;
-        if (cache.getProcessGroup(processGroupId).isPresent()) {
-            group = cache.getProcessGroup(processGroupId).get();
-        } else {
-            group = getRestClient().processGroups().findById(processGroupId, true, true).orElse(null);
-            if (group != null) {
-                cache.add(group);
-                NifiProcessUtil.getProcessGroups(group).stream().forEach(processGroupDTO -> cache.add(processGroupDTO));
-            }
-        }
-        return group;
+        return cache.getProcessGroup(processGroupId, groupId -> getRestClient().processGroups().findById(groupId, true, true)).orElse(null);
     }
 
 
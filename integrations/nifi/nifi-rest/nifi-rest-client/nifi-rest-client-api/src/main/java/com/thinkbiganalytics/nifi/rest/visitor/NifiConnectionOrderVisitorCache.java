@@ -21,14 +21,20 @@ package com.thinkbiganalytics.nifi.rest.visitor;
  */
 
 
+import com.thinkbiganalytics.nifi.rest.support.NifiProcessUtil;
+
 import org.apache.nifi.web.api.dto.ProcessGroupDTO;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
- * A cache of the visted process groups to help save time from calling out to NiFi REST client for process group/processor information
+ * A cache of the visted process groups to help save time from calling out to NiFi REST client for process group/processor information.
+ * The cache is safe to share between visitors walking different feeds at the same time.
  */
 public class NifiConnectionOrderVisitorCache {
 
@@ -36,6 +42,16 @@ public class NifiConnectionOrderVisitorCache {
 
     private Map<String, ProcessGroupDTO> processGroupCache = new ConcurrentHashMap<>();
 
+    /**
+     * Process groups without their contents.  These are only used to look up the parent of a feed and are kept apart from the walked groups
+     */
+    private Map<String, ProcessGroupDTO> processGroupSummaryCache = new ConcurrentHashMap<>();
+
+    /**
+     * Process groups that are being fetched from NiFi, so callers asking for the same group wait for the one request
+     */
+    private Map<String, CompletableFuture<Optional<ProcessGroupDTO>>> loadingProcessGroups = new ConcurrentHashMap<>();
+
     public void add(ProcessGroupDTO processGroupDTO) {
         processGroupCache.computeIfAbsent(processGroupDTO.getId(), groupId -> processGroupDTO);
     }
@@ -48,6 +64,64 @@ public class NifiConnectionOrderVisitorCache {
         return Optional.ofNullable(processGroupCache.get(processGroupId));
     }
 
+    /**
+     * Get a process group and its contents, loading it if it is not in the cache.
+     * If another thread is already loading the group this waits for that request rather than calling NiFi again.
+     *
+     * @param processGroupId the process group id
+     * @param loader         function to fetch the process group and all of its contents from NiFi
+     * @return the process group, if found
+     */
+    public Optional<ProcessGroupDTO> getProcessGroup(String processGroupId, Function<String, Optional<ProcessGroupDTO>> loader) {
+        ProcessGroupDTO cached = processGroupCache.get(processGroupId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        CompletableFuture<Optional<ProcessGroupDTO>> loading = new CompletableFuture<>();
+        CompletableFuture<Optional<ProcessGroupDTO>> inFlight = loadingProcessGroups.putIfAbsent(processGroupId, loading);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            Optional<ProcessGroupDTO> group = loader.apply(processGroupId);
+            if (group.isPresent()) {
+                add(group.get());
+                NifiProcessUtil.getProcessGroups(group.get()).stream().forEach(this::add);
+            }
+            loading.complete(group);
+            return group;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingProcessGroups.remove(processGroupId, loading);
+        }
+    }
+
+    /**
+     * Add a process group that was fetched without its contents
+     */
+    public void addProcessGroupSummary(ProcessGroupDTO processGroupDTO) {
+        processGroupSummaryCache.putIfAbsent(processGroupDTO.getId(), processGroupDTO);
+    }
+
+    /**
+     * @return the process group, with or without its contents, if it is in the cache
+     */
+    public Optional<ProcessGroupDTO> getProcessGroupSummary(String processGroupId) {
+        Optional<ProcessGroupDTO> group = getProcessGroup(processGroupId);
+        return group.isPresent() ? group : Optional.ofNullable(processGroupSummaryCache.get(processGroupId));
+    }
+
 
     /**
      * After walking a feed flow processgroup add the Nifi process group to the cache so any subsequent calls to find this group wont have to hit the NiFi REST client
@@ -0,0 +1,151 @@
+package com.thinkbiganalytics.nifi.rest.client;
+
+/*-
+ * #%L
+ * thinkbig-nifi-rest-client-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
+import com.thinkbiganalytics.nifi.rest.visitor.NifiConnectionOrderVisitorCache;
+
+import org.apache.nifi.web.api.dto.FlowSnippetDTO;
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class NiFiFlowCrawlerTest {
+
+    private static final String REUSABLE_FLOW_ID = "6a8e1c1e-5c1b-4a53-9d6e-0a8c6f1b2d01";
+    private static final String A_FEED_ID = "1f0b8f8e-3c4d-4e5f-8a9b-0c1d2e3f4a02";
+    private static final String B_FEED_ID = "2e1c9a7d-4b5c-4d6e-9f0a-1b2c3d4e5f03";
+    private static final String FEED_ID = "4c3a7b5e-6f7a-4b8c-9d0e-3f4a5b6c7d05";
+    private static final String CHILD_ID = "3d2b8c6f-5a6b-4c7d-8e9f-2a3b4c5d6e04";
+
+    private ProcessGroupDTO group(String id, String name, ProcessGroupDTO... children) {
+        final ProcessGroupDTO group = new ProcessGroupDTO();
+        group.setId(id);
+        group.setName(name);
+        final FlowSnippetDTO contents = new FlowSnippetDTO();
+        contents.setProcessGroups(new HashSet<>(Arrays.asList(children)));
+        group.setContents(contents);
+        return group;
+    }
+
+    /**
+     * Verify the feeds are walked on several threads and returned in category order with the reusable templates first.
+     */
+    @Test
+    public void crawl() {
+        // Mock process groups
+        final ProcessGroupDTO reusable = group("8f1d6a2b-7c8d-4e9f-a0b1-4c5d6e7f8a06", TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME, group(REUSABLE_FLOW_ID, "flow"));
+        final ProcessGroupDTO categoryA = group("9e2c5b3a-8d9e-4f0a-b1c2-5d6e7f8a9b07", "a", group(A_FEED_ID, "feed1"));
+        final ProcessGroupDTO categoryB = group("0d3b4c2f-9e0f-4a1b-c2d3-6e7f8a9b0c08", "b", group(B_FEED_ID, "feed1"));
+        final ProcessGroupDTO root = group("root", "root", categoryB, reusable, categoryA);
+
+        // Mock NiFi REST client
+        final NiFiProcessGroupsRestClient processGroups = Mockito.mock(NiFiProcessGroupsRestClient.class);
+        Mockito.when(processGroups.findById("root", false, true)).thenReturn(Optional.of(root));
+        for (ProcessGroupDTO category : Arrays.asList(reusable, categoryA, categoryB)) {
+            Mockito.when(processGroups.findById(category.getId(), false, true)).thenReturn(Optional.of(category));
+        }
+        final NiFiRestClient restClient = Mockito.mock(NiFiRestClient.class);
+        Mockito.when(restClient.processGroups()).thenReturn(processGroups);
+
+        // Mock the feed flows, recording the threads that walk them
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final DefaultNiFiFlowVisitorClient flowClient = Mockito.mock(DefaultNiFiFlowVisitorClient.class);
+        Mockito.when(flowClient.getFeedFlow(Mockito.anyString(), Mockito.any(NifiConnectionOrderVisitorCache.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            final NifiFlowProcessGroup flow = new NifiFlowProcessGroup();
+            flow.setId((String) invocation.getArguments()[0]);
+            return flow;
+        });
+
+        // Test crawling all feeds
+        final List<NifiFlowProcessGroup> flows = new NiFiFlowCrawler(restClient, flowClient, 2).crawl(null);
+        Assert.assertEquals(Arrays.asList(REUSABLE_FLOW_ID, A_FEED_ID, B_FEED_ID), flows.stream().map(NifiFlowProcessGroup::getId).collect(Collectors.toList()));
+        Assert.assertEquals(TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME + ".flow", flows.get(0).getFeedName());
+        Assert.assertEquals("b.feed1", flows.get(2).getFeedName());
+        Assert.assertTrue(threads.stream().allMatch(thread -> thread.startsWith("nifi-flow-crawler-")));
+        Mockito.verify(processGroups, Mockito.never()).findById("root", true, true);
+
+        // Test crawling a single feed still walks the reusable templates
+        final List<NifiFlowProcessGroup> feedFlows = new NiFiFlowCrawler(restClient, flowClient, 2).crawl(Collections.singleton("b.feed1"));
+        Assert.assertEquals(Arrays.asList(REUSABLE_FLOW_ID, B_FEED_ID), feedFlows.stream().map(NifiFlowProcessGroup::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * Verify concurrent requests for the same process group only call NiFi once.
+     */
+    @Test
+    public void loadProcessGroupOnce() throws Exception {
+        final NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ProcessGroupDTO group = group(FEED_ID, "feed", group(CHILD_ID, "child"));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Optional<ProcessGroupDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.getProcessGroup(FEED_ID, id -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Optional.of(group);
+                })));
+            }
+
+            // Let the other requests queue up behind the first load
+            Assert.assertTrue(loading.await(10, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Optional<ProcessGroupDTO>> result : results) {
+                Assert.assertSame(group, result.get(10, TimeUnit.SECONDS).orElse(null));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertTrue(cache.getProcessGroup(CHILD_ID).isPresent());
+    }
+}
@@ -105,6 +105,11 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
     @Nullable
     private NiFiReportingTaskRestClientV1 reportingTasks;
 
+    /**
+     * Number of feed flows to fetch and walk at the same time
+     */
+    private final int flowCrawlerThreads;
+
     /**
      * Constructs a {@code NiFiRestClientV1} with the specified NiFi REST client configuration.
      *
@@ -112,6 +117,7 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
      */
     public NiFiRestClientV1(@Nonnull final NifiRestClientConfig config) {
         super(config);
+        flowCrawlerThreads = config.getFlowCrawlerThreads();
     }
 
     @Nonnull
@@ -217,7 +223,7 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
     @Override
     public NiFiFlowVisitorClient flows() {
         if (flows == null) {
-            flows = new DefaultNiFiFlowVisitorClient(this);
+            flows = new DefaultNiFiFlowVisitorClient(this, flowCrawlerThreads);
         }
         return flows;
     }
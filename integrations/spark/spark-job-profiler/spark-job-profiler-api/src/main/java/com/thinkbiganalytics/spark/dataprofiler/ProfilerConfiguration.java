@@ -37,6 +37,7 @@ public class ProfilerConfiguration implements Serializable {
     private String outputDbName = "default";
     private String outputTableName = "profilestats";
     private String outputTablePartitionColumnName = "processing_dttm";
+    private String profilerEngine = "standard";  // standard or sketch
     private String sqlDialect = "hiveql";  // Hive supported HQL
 
     /**
@@ -119,6 +120,18 @@ public class ProfilerConfiguration implements Serializable {
         this.outputTablePartitionColumnName = outputTablePartitionColumnName;
     }
 
+    /**
+     * Gets the profiler implementation to use<br>
+     * {@code standard} counts every distinct value exactly, {@code sketch} estimates unique counts and top-N values in a single pass over the data
+     */
+    public String getProfilerEngine() {
+        return profilerEngine;
+    }
+
+    public void setProfilerEngine(String profilerEngine) {
+        this.profilerEngine = profilerEngine;
+    }
+
     /**
      * Gets the flavor of queries to run.
      */
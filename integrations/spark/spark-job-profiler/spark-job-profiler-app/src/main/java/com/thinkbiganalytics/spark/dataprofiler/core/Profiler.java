@@ -141,6 +141,10 @@ public class Profiler {
             inputAndOutputTablePartitionKey = args[5];
         }
 
+        if (args.length >= 7) {
+            profilerConfiguration.setProfilerEngine(args[6]);
+        }
+
         switch (profileObjectType) {
             case "table":
                 // Quote source table
@@ -226,7 +230,8 @@ public class Profiler {
                  + "5. full path to policy file "
                  + "\n"
                  + "Info: Optional command line argument:\n"
-                 + "6. partition_key: valid value is {<string>}\n\n"
+                 + "6. partition_key: valid value is {<string>}\n"
+                 + "7. profiler engine: valid values are {standard, sketch}\n\n"
                  + "(Note: Only alphanumeric and underscore characters for table names and partition key)"
                  + "\n***");
     }
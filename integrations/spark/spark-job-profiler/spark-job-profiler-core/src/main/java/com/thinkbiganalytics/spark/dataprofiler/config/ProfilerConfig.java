@@ -20,22 +20,44 @@ package com.thinkbiganalytics.spark.dataprofiler.config;
  * #L%
  */
 
+import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.SparkContextService;
 import com.thinkbiganalytics.spark.dataprofiler.Profiler;
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.SketchProfiler;
 import com.thinkbiganalytics.spark.dataprofiler.StandardProfiler;
+import com.thinkbiganalytics.spark.dataprofiler.StatisticsModel;
 
 import org.apache.spark.sql.SQLContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
 /**
  * Creates Spring beans for the Profiler.
  */
 @Configuration
 public class ProfilerConfig {
 
+    /**
+     * Selects the profiler for each data set based on {@link ProfilerConfiguration#getProfilerEngine()}.
+     */
     @Bean
     public Profiler profiler(final SQLContext sqlContext, final SparkContextService sparkContextService) {
-        return new StandardProfiler(sqlContext, sparkContextService);
+        final Profiler standardProfiler = new StandardProfiler(sqlContext, sparkContextService);
+        final Profiler sketchProfiler = new SketchProfiler(sqlContext, sparkContextService);
+        return new Profiler() {
+            @Nullable
+            @Override
+            public StatisticsModel profile(@Nonnull final DataSet dataset, @Nonnull final ProfilerConfiguration profilerConfiguration) {
+                if ("sketch".equalsIgnoreCase(profilerConfiguration.getProfilerEngine())) {
+                    return sketchProfiler.profile(dataset, profilerConfiguration);
+                } else {
+                    return standardProfiler.profile(dataset, profilerConfiguration);
+                }
+            }
+        };
     }
 }
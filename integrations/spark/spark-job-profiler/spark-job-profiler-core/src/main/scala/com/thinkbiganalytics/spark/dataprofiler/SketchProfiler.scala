@@ -0,0 +1,50 @@
+package com.thinkbiganalytics.spark.dataprofiler
+
+import com.thinkbiganalytics.spark.dataprofiler.function.PartitionLevelSketches
+import com.thinkbiganalytics.spark.dataprofiler.sketch.StatisticsSketch
+import com.thinkbiganalytics.spark.{DataSet, SparkContextService}
+import org.apache.spark.sql.SQLContext
+import org.apache.spark.sql.types.StructField
+
+/** An implementation of `Profiler` that analyzes the columns in a single pass without shuffling the values.
+  *
+  * Each partition is summarized by a `StatisticsSketch` and the sketches are merged with a tree aggregate. The unique counts and top-N values are estimates once a column has more
+  * distinct values than the sketches track exactly; all other statistics are the same as `StandardProfiler`.
+  *
+  * @param sqlContext          the Spark SQL context
+  * @param sparkContextService the Spark context service
+  */
+class SketchProfiler(val sqlContext: SQLContext, val sparkContextService: SparkContextService) extends Profiler {
+    override def profile(dataset: DataSet, profilerConfiguration: ProfilerConfiguration): StatisticsModel = {
+        /* Update schema map and broadcast it*/
+        val schemaMap = populateSchemaMap(dataset)
+
+        /* Get profile statistics */
+        profileStatistics(dataset, schemaMap, profilerConfiguration).orNull
+    }
+
+    /** Generates a map from column index to field type.
+      *
+      * @param dataset the data set
+      * @return the schema map
+      */
+    private def populateSchemaMap(dataset: DataSet): Map[Int, StructField] = {
+        dataset.schema().fields.zipWithIndex.map(tuple => (tuple._2, tuple._1)).toMap
+    }
+
+    /** Profiles the columns in the specified data set.
+      *
+      * @param dataset   the data set
+      * @param schemaMap the schema map
+      * @return the statistics model, or empty if there are no rows
+      */
+    private def profileStatistics(dataset: DataSet, schemaMap: Map[Int, StructField], profilerConfiguration: ProfilerConfiguration): Option[StatisticsModel] = {
+        val partitionLevelSketches = dataset.rdd.mapPartitions(new PartitionLevelSketches(schemaMap, profilerConfiguration))
+
+        val statisticsSketch = partitionLevelSketches.treeAggregate(Option.empty[StatisticsSketch])(
+            (a, b) => Option(a.fold(b)(_.merge(b))),
+            (a, b) => if (a.isEmpty) b else if (b.isEmpty) a else Option(a.get.merge(b.get)))
+
+        statisticsSketch.map(_.toModel)
+    }
+}
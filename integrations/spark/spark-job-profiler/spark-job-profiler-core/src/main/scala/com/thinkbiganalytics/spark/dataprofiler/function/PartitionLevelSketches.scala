@@ -0,0 +1,28 @@
+package com.thinkbiganalytics.spark.dataprofiler.function
+
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration
+import com.thinkbiganalytics.spark.dataprofiler.sketch.StatisticsSketch
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types.StructField
+
+/** Creates a statistics sketch from the rows in a partition.
+  *
+  * @param schemaMap the schema map
+  */
+class PartitionLevelSketches(val schemaMap: Map[Int, StructField], val profilerConfiguration: ProfilerConfiguration) extends (Iterator[Row] => Iterator[StatisticsSketch])
+    with Serializable {
+
+    override def apply(iter: Iterator[Row]): Iterator[StatisticsSketch] = {
+        if (iter.hasNext) {
+            val statisticsSketch = new StatisticsSketch(schemaMap, profilerConfiguration)
+
+            for (row <- iter) {
+                statisticsSketch.add(row)
+            }
+
+            Iterator.apply(statisticsSketch)
+        } else {
+            Iterator.empty
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch
+
+import scala.collection.mutable
+import scala.util.hashing.MurmurHash3
+
+/** Estimates the number of distinct values in a column.
+  *
+  * The hashes of the values are kept exactly until there are more than `exactThreshold` of them, so columns with few distinct values get an exact count. After that the hashes are
+  * folded into HyperLogLog registers, which use a fixed 2^precision bytes regardless of the number of values and have a standard error of about 1.04 / sqrt(2^precision).
+  *
+  * @param precision      the number of hash bits used to select a register
+  * @param exactThreshold the maximum number of hashes to keep before switching to registers
+  */
+class HyperLogLog(val precision: Int = 14, val exactThreshold: Int = 1024) extends Serializable {
+
+    require(precision >= 4 && precision <= 18, "precision must be between 4 and 18")
+
+    /** Number of registers */
+    private val m = 1 << precision
+
+    /** Hashes of the values seen while the count is exact */
+    private var hashes = new mutable.HashSet[Long]
+
+    /** Maximum rank seen for each register, or `null` while the count is exact */
+    private var registers: Array[Byte] = _
+
+    /** Adds the specified value, which may be `null`. */
+    def add(value: Any): Unit = {
+        addHash(HyperLogLog.hash(value))
+    }
+
+    /** Merges the specified sketch into this one.
+      *
+      * @param other a sketch with the same precision
+      * @return this sketch
+      */
+    def merge(other: HyperLogLog): HyperLogLog = {
+        require(precision == other.precision, "Cannot merge sketches with different precisions")
+        if (other.registers == null) {
+            other.hashes.foreach(addHash)
+        } else {
+            toRegisters()
+            var i = 0
+            while (i < m) {
+                if (other.registers(i) > registers(i)) {
+                    registers(i) = other.registers(i)
+                }
+                i += 1
+            }
+        }
+        this
+    }
+
+    /** Returns the estimated number of distinct values. */
+    def estimate(): Long = {
+        if (registers == null) {
+            hashes.size
+        } else {
+            var sum = 0.0
+            var zeros = 0
+            var i = 0
+            while (i < m) {
+                sum += 1.0 / (1L << registers(i))
+                if (registers(i) == 0) {
+                    zeros += 1
+                }
+                i += 1
+            }
+
+            val raw = 0.7213 / (1 + 1.079 / m) * m * m / sum
+            if (raw <= 2.5 * m && zeros > 0) {
+                // linear counting is more accurate for small cardinalities
+                Math.round(m * Math.log(m.toDouble / zeros))
+            } else {
+                Math.round(raw)
+            }
+        }
+    }
+
+    /** Returns `true` if the estimate is an exact count. */
+    def isExact: Boolean = registers == null
+
+    private def addHash(hash: Long): Unit = {
+        if (registers == null) {
+            hashes += hash
+            if (hashes.size > exactThreshold) {
+                toRegisters()
+            }
+        } else {
+            val index = (hash >>> (64 - precision)).toInt
+            val rank = (java.lang.Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1).toByte
+            if (rank > registers(index)) {
+                registers(index) = rank
+            }
+        }
+    }
+
+    private def toRegisters(): Unit = {
+        if (registers == null) {
+            registers = new Array[Byte](m)
+            val exactHashes = hashes
+            hashes = null
+            exactHashes.foreach(addHash)
+        }
+    }
+}
+
+object HyperLogLog {
+
+    /** Hash of `null` values */
+    private val NullHash = 0x61c8864680b583ebL
+
+    /** Computes a 64-bit hash of the specified column value.
+      *
+      * Values are hashed by their contents rather than `hashCode` so the results are well distributed and the same on every executor.
+      */
+    def hash(value: Any): Long = {
+        value match {
+            case null => NullHash
+            case s: String => mix((MurmurHash3.stringHash(s).toLong << 32) ^ (MurmurHash3.stringHash(s, 0x3c6ef372) & 0xffffffffL))
+            case l: Long => mix(l)
+            case i: Int => mix(i)
+            case s: Short => mix(s)
+            case b: Byte => mix(b)
+            case d: Double => mix(java.lang.Double.doubleToLongBits(d))
+            case f: Float => mix(java.lang.Float.floatToIntBits(f))
+            case t: java.sql.Timestamp => mix(t.getTime * 1000000L + t.getNanos % 1000000)
+            case d: java.util.Date => mix(d.getTime)
+            case other => mix(other.hashCode())
+        }
+    }
+
+    /** Finalization mix from MurmurHash3 to spread the bits of the specified value. */
+    private def mix(value: Long): Long = {
+        var h = value
+        h ^= h >>> 33
+        h *= 0xff51afd7ed558ccdL
+        h ^= h >>> 33
+        h *= 0xc4ceb9fe1a85ec53L
+        h ^= h >>> 33
+        h
+    }
+}
@@ -0,0 +1,94 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch
+
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem
+
+import scala.collection.JavaConverters._
+
+/** Tracks the most frequent values in a column using the Space-Saving algorithm.
+  *
+  * Up to twice `capacity` values are counted. When that is exceeded the least frequent values are evicted, and any value seen afterwards starts from the largest evicted count, so
+  * counts are never underestimated. The counts are exact as long as nothing has been evicted.
+  *
+  * @param capacity the number of values to keep after an eviction
+  */
+class SpaceSaving(val capacity: Int) extends Serializable {
+
+    require(capacity > 0, "capacity must be greater than 0")
+
+    /** Counts by value, including `null` */
+    private val counters = new java.util.HashMap[Any, SpaceSaving.Counter]
+
+    /** The largest count that has been evicted */
+    private var floor = 0L
+
+    /** Adds one occurrence of the specified value, which may be `null`. */
+    def add(value: Any): Unit = {
+        add(value, 1L)
+    }
+
+    /** Adds occurrences of the specified value, which may be `null`. */
+    def add(value: Any, count: Long): Unit = {
+        val counter = counters.get(value)
+        if (counter != null) {
+            counter.count += count
+        } else {
+            if (counters.size >= 2 * capacity) {
+                evict()
+            }
+            counters.put(value, new SpaceSaving.Counter(floor + count))
+        }
+    }
+
+    /** Merges the specified sketch into this one.
+      *
+      * @return this sketch
+      */
+    def merge(other: SpaceSaving): SpaceSaving = {
+        // values only in one sketch could have up to the other sketch's floor occurrences
+        for (entry <- counters.entrySet.asScala) {
+            if (!other.counters.containsKey(entry.getKey)) {
+                entry.getValue.count += other.floor
+            }
+        }
+        for (entry <- other.counters.entrySet.asScala) {
+            val counter = counters.get(entry.getKey)
+            if (counter != null) {
+                counter.count += entry.getValue.count
+            } else {
+                counters.put(entry.getKey, new SpaceSaving.Counter(entry.getValue.count + floor))
+            }
+        }
+        floor += other.floor
+
+        if (counters.size > 2 * capacity) {
+            evict()
+        }
+        this
+    }
+
+    /** Returns up to `n` of the most frequent values, highest count first. */
+    def top(n: Int): Seq[TopNDataItem] = {
+        sortedEntries().take(n).map(entry => new TopNDataItem(entry.getKey, entry.getValue.count))
+    }
+
+    /** Returns `true` if the counts are exact. */
+    def isExact: Boolean = floor == 0
+
+    /** Keeps only the `capacity` most frequent values. */
+    private def evict(): Unit = {
+        for (entry <- sortedEntries().drop(capacity)) {
+            floor = Math.max(floor, entry.getValue.count)
+            counters.remove(entry.getKey)
+        }
+    }
+
+    private def sortedEntries(): Seq[java.util.Map.Entry[Any, SpaceSaving.Counter]] = {
+        counters.entrySet.asScala.toIndexedSeq.sortBy(entry => -entry.getValue.count)
+    }
+}
+
+object SpaceSaving {
+
+    /** Mutable count to avoid boxing on every update */
+    class Counter(var count: Long) extends Serializable
+}
@@ -0,0 +1,70 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch
+
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration
+import com.thinkbiganalytics.spark.dataprofiler.columns.StandardColumnStatistics
+import com.thinkbiganalytics.spark.dataprofiler.model.StandardStatisticsModel
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types.StructField
+
+import scala.collection.JavaConverters._
+
+/** Mergeable summary of the rows in a data set.
+  *
+  * The counters, min, max, and moments are accumulated exactly by a `StandardStatisticsModel`. The unique counts and top-N values, which would otherwise need every distinct value,
+  * are estimated with a `HyperLogLog` and a `SpaceSaving` sketch for each column, so the model skips counting them for each row.
+  *
+  * @param schemaMap             the schema map
+  * @param profilerConfiguration the profiler configuration
+  */
+class StatisticsSketch(val schemaMap: Map[Int, StructField], val profilerConfiguration: ProfilerConfiguration) extends Serializable {
+
+    private val model = new StandardStatisticsModel(profilerConfiguration, true)
+
+    private val distinctValues = Array.fill(schemaMap.size)(new HyperLogLog())
+
+    private val frequentValues = Array.fill(schemaMap.size)(new SpaceSaving(StatisticsSketch.capacityFor(profilerConfiguration.getNumberOfTopNValues)))
+
+    /** Adds the values of the specified row. */
+    def add(row: Row): Unit = {
+        var i = 0
+        while (i < distinctValues.length) {
+            val value = row.get(i)
+            model.add(i, value, 1L, schemaMap(i))
+            distinctValues(i).add(value)
+            frequentValues(i).add(value)
+            i += 1
+        }
+    }
+
+    /** Merges the specified sketch into this one.
+      *
+      * @return this sketch
+      */
+    def merge(other: StatisticsSketch): StatisticsSketch = {
+        model.combine(other.model)
+        for (i <- distinctValues.indices) {
+            distinctValues(i).merge(other.distinctValues(i))
+            frequentValues(i).merge(other.frequentValues(i))
+        }
+        this
+    }
+
+    /** Creates the statistics model from this sketch. */
+    def toModel: StandardStatisticsModel = {
+        for ((columnIndex, columnStatistics) <- model.getColumnStatisticsMap.asScala) {
+            val statistics = columnStatistics.asInstanceOf[StandardColumnStatistics]
+            val uniqueCount = Math.max(1L, Math.min(distinctValues(columnIndex).estimate(), statistics.getTotalCount))
+            statistics.setEstimatedCommon(uniqueCount, frequentValues(columnIndex).top(profilerConfiguration.getNumberOfTopNValues).asJava)
+        }
+        model
+    }
+}
+
+object StatisticsSketch {
+
+    /** Minimum number of values tracked for the top-N list */
+    private val MinCapacity = 100
+
+    /** Determines how many values to track so that the top-N values are unlikely to be evicted. */
+    def capacityFor(numberOfTopNValues: Int): Int = Math.max(MinCapacity, 10 * numberOfTopNValues)
+}
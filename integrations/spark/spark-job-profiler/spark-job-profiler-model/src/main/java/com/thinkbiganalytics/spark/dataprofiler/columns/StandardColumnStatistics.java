@@ -54,6 +54,8 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     private double percUniqueValues;
     private double percDuplicateValues;
     private ProfilerConfiguration profilerConfiguration;
+    /* True if the unique count and top-N values are set from estimates instead of being counted */
+    private boolean estimatedCommon;
 
 
     /**
@@ -84,12 +86,17 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     void accomodateCommon(Object columnValue, Long columnCount) {
 
         totalCount += columnCount;
-        uniqueCount += 1;
 
         if (columnValue == null) {
             nullCount += columnCount;
         }
 
+        if (estimatedCommon) {
+            return;
+        }
+
+        uniqueCount += 1;
+
         doPercentageCalculationsCommon();
 
         topNValues.add(columnValue, columnCount);
@@ -109,6 +116,10 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
 
         doPercentageCalculationsCommon();
 
+        if (estimatedCommon) {
+            return;
+        }
+
         for (TopNDataItem dataItem :
             v_columnStatistics.topNValues.getTopNDataItemsForColumn()) {
             topNValues.add(dataItem.getValue(), dataItem.getCount());
@@ -116,6 +127,36 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     }
 
 
+    /**
+     * Stop counting the unique values and top-N values as values are accommodated, since they will be replaced by {@link #setEstimatedCommon(long, Iterable)}.<br>
+     * Each value may then be accommodated with a count of 1 without building the exact top-N list.
+     */
+    public void skipExactCommon() {
+
+        estimatedCommon = true;
+    }
+
+
+    /**
+     * Replace the unique count and top-N values with estimates that were computed outside of this class, such as from sketches of the column values.<br>
+     * The other statistics are unchanged.
+     *
+     * @param estimatedUniqueCount estimated number of unique values (null and empty are considered a unique value each)
+     * @param topNItems            candidate items for the top-N list
+     */
+    public void setEstimatedCommon(long estimatedUniqueCount, @Nonnull Iterable<TopNDataItem> topNItems) {
+
+        uniqueCount = estimatedUniqueCount;
+
+        doPercentageCalculationsCommon();
+
+        topNValues.clear();
+        for (TopNDataItem dataItem : topNItems) {
+            topNValues.add(dataItem.getValue(), dataItem.getCount());
+        }
+    }
+
+
     /**
      * Write column's schema information for output result table
      */
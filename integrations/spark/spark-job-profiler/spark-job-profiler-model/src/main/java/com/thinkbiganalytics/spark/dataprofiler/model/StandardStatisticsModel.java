@@ -61,8 +61,23 @@ public class StandardStatisticsModel implements Serializable, StatisticsModel {
     @Nonnull
     private final ProfilerConfiguration profilerConfiguration;
 
+    /**
+     * True if the unique counts and top-N values are set from estimates instead of being counted
+     */
+    private final boolean estimatedCommon;
+
     public StandardStatisticsModel(@Nonnull final ProfilerConfiguration profilerConfiguration) {
+        this(profilerConfiguration, false);
+    }
+
+    /**
+     * @param profilerConfiguration the profiler configuration
+     * @param estimatedCommon       true if the unique counts and top-N values of the columns will be set with {@link StandardColumnStatistics#setEstimatedCommon(long, Iterable)},
+     *                              so they are not counted as values are added
+     */
+    public StandardStatisticsModel(@Nonnull final ProfilerConfiguration profilerConfiguration, final boolean estimatedCommon) {
         this.profilerConfiguration = profilerConfiguration;
+        this.estimatedCommon = estimatedCommon;
     }
 
     /**
@@ -75,6 +90,28 @@ public class StandardStatisticsModel implements Serializable, StatisticsModel {
      */
     public void add(Integer columnIndex, Object columnValue, Long columnCount, StructField columnField) {
 
+        StandardColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
+
+        if (currentColumnStatistics == null) {
+            currentColumnStatistics = newColumnStatistics(columnField);
+            if (estimatedCommon) {
+                currentColumnStatistics.skipExactCommon();
+            }
+            columnStatisticsMap.put(columnIndex, currentColumnStatistics);
+        }
+
+        currentColumnStatistics.accomodate(columnValue, columnCount);
+    }
+
+
+    /**
+     * Create the column statistics for the data type of a column
+     *
+     * @param columnField schema information of the column
+     * @return empty column statistics
+     */
+    private StandardColumnStatistics newColumnStatistics(StructField columnField) {
+
         StandardColumnStatistics newColumnStatistics;
         DataType columnDataType = columnField.dataType();
 
@@ -221,12 +258,7 @@ public class StandardStatisticsModel implements Serializable, StatisticsModel {
                 }
         }
 
-        if (!columnStatisticsMap.containsKey(columnIndex)) {
-            columnStatisticsMap.put(columnIndex, newColumnStatistics);
-        }
-
-        StandardColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
-        currentColumnStatistics.accomodate(columnValue, columnCount);
+        return newColumnStatistics;
     }
 
 
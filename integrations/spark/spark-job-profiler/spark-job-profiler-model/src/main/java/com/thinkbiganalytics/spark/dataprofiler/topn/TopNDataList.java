@@ -78,6 +78,14 @@ public class TopNDataList implements Serializable {
         }
     }
 
+    /**
+     * Remove all items from the top-N list
+     */
+    public void clear() {
+        topNDataItemsForColumn.clear();
+        lowestCountSoFar = Long.MAX_VALUE;
+    }
+
     /**
      * Helper method <br>
      * Add a new item in topN structure <br>
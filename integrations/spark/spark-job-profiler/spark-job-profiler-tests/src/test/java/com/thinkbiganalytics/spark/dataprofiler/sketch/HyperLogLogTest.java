@@ -0,0 +1,92 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link HyperLogLog}
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void testExactCount() {
+        HyperLogLog sketch = new HyperLogLog(14, 1024);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(i % 500);
+        }
+        sketch.add(null);
+        sketch.add(null);
+
+        Assert.assertTrue(sketch.isExact());
+        Assert.assertEquals(501L, sketch.estimate());
+    }
+
+    @Test
+    public void testEstimate() {
+        HyperLogLog sketch = new HyperLogLog(14, 1024);
+        for (long i = 0; i < 1000000L; i++) {
+            sketch.add("value" + (i % 200000));
+        }
+
+        Assert.assertFalse(sketch.isExact());
+        Assert.assertEquals(200000.0, sketch.estimate(), 200000 * 0.03);
+    }
+
+    @Test
+    public void testMerge() {
+        HyperLogLog first = new HyperLogLog(14, 1024);
+        HyperLogLog second = new HyperLogLog(14, 1024);
+        HyperLogLog small = new HyperLogLog(14, 1024);
+        for (int i = 0; i < 60000; i++) {
+            first.add(i);
+            second.add(i + 30000);
+        }
+        for (int i = 0; i < 100; i++) {
+            small.add(i + 1000000);
+        }
+
+        first.merge(second).merge(small);
+        Assert.assertEquals(90100.0, first.estimate(), 90100 * 0.03);
+    }
+
+    @Test
+    public void testMergeExact() {
+        HyperLogLog first = new HyperLogLog(14, 1024);
+        HyperLogLog second = new HyperLogLog(14, 1024);
+        for (int i = 0; i < 600; i++) {
+            first.add(i);
+            second.add(i + 300);
+        }
+
+        first.merge(second);
+        Assert.assertTrue(first.isExact());
+        Assert.assertEquals(900L, first.estimate());
+
+        for (int i = 0; i < 600; i++) {
+            second.add(i + 2000);
+        }
+        first.merge(second);
+        Assert.assertFalse(first.isExact());
+        Assert.assertEquals(1500.0, first.estimate(), 1500 * 0.03);
+    }
+}
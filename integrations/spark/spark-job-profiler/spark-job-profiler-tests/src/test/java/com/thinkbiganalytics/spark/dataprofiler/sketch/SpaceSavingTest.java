@@ -0,0 +1,87 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import scala.collection.JavaConversions;
+
+/**
+ * Tests {@link SpaceSaving}
+ */
+public class SpaceSavingTest {
+
+    @Test
+    public void testExactCounts() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        for (int i = 0; i < 100; i++) {
+            sketch.add(i % 5 == 0 ? null : "value" + (i % 4));
+        }
+
+        List<TopNDataItem> top = JavaConversions.seqAsJavaList(sketch.top(2));
+        Assert.assertTrue(sketch.isExact());
+        Assert.assertEquals(2, top.size());
+        Assert.assertNull(top.get(0).getValue());
+        Assert.assertEquals(20L, top.get(0).getCount().longValue());
+        Assert.assertEquals(20L, top.get(1).getCount().longValue());
+    }
+
+    @Test
+    public void testHeavyHitters() {
+        SpaceSaving sketch = new SpaceSaving(20);
+        for (int i = 0; i < 100000; i++) {
+            if (i % 10 == 0) {
+                sketch.add("A");
+            } else if (i % 10 == 1) {
+                sketch.add("B");
+            } else {
+                sketch.add(i);
+            }
+        }
+
+        List<TopNDataItem> top = JavaConversions.seqAsJavaList(sketch.top(2));
+        Assert.assertFalse(sketch.isExact());
+        Assert.assertEquals("A", top.get(0).getValue());
+        Assert.assertEquals("B", top.get(1).getValue());
+        Assert.assertTrue(top.get(0).getCount() >= 10000L);
+    }
+
+    @Test
+    public void testMerge() {
+        SpaceSaving first = new SpaceSaving(10);
+        SpaceSaving second = new SpaceSaving(10);
+        first.add("A", 5);
+        first.add("B", 3);
+        second.add("B", 4);
+        second.add("C", 6);
+
+        List<TopNDataItem> top = JavaConversions.seqAsJavaList(first.merge(second).top(3));
+        Assert.assertEquals("B", top.get(0).getValue());
+        Assert.assertEquals(7L, top.get(0).getCount().longValue());
+        Assert.assertEquals("C", top.get(1).getValue());
+        Assert.assertEquals("A", top.get(2).getValue());
+    }
+}
@@ -0,0 +1,131 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.columns.IntegerColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.StringColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.model.StandardStatisticsModel;
+
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.Metadata;
+import org.apache.spark.sql.types.StructField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import scala.Predef;
+import scala.Tuple2;
+import scala.collection.JavaConversions;
+
+/**
+ * Tests {@link StatisticsSketch}
+ */
+public class StatisticsSketchTest {
+
+    private static final StructField ID_FIELD = new StructField("id", DataTypes.IntegerType, true, Metadata.empty());
+    private static final StructField NAME_FIELD = new StructField("name", DataTypes.StringType, true, Metadata.empty());
+
+    /**
+     * Verify that the sketches of two partitions produce the same statistics as counting every value.
+     */
+    @Test
+    public void testMatchesStandardModel() {
+        ProfilerConfiguration configuration = new ProfilerConfiguration();
+        StatisticsSketch first = new StatisticsSketch(schemaMap(), configuration);
+        StatisticsSketch second = new StatisticsSketch(schemaMap(), configuration);
+        Map<Object, Long> idCounts = new HashMap<>();
+        Map<Object, Long> nameCounts = new HashMap<>();
+
+        for (int i = 0; i < 200; i++) {
+            Integer id = (i % 7 == 0) ? null : i % 50;
+            String name = (i % 11 == 0) ? "" : "name" + (i % 3);
+            (i < 120 ? first : second).add(RowFactory.create(id, name));
+            increment(idCounts, id);
+            increment(nameCounts, name);
+        }
+
+        StandardStatisticsModel expected = new StandardStatisticsModel(configuration);
+        for (Map.Entry<Object, Long> entry : idCounts.entrySet()) {
+            expected.add(0, entry.getKey(), entry.getValue(), ID_FIELD);
+        }
+        for (Map.Entry<Object, Long> entry : nameCounts.entrySet()) {
+            expected.add(1, entry.getKey(), entry.getValue(), NAME_FIELD);
+        }
+
+        StandardStatisticsModel actual = first.merge(second).toModel();
+
+        IntegerColumnStatistics expectedIds = (IntegerColumnStatistics) expected.getColumnStatisticsMap().get(0);
+        IntegerColumnStatistics actualIds = (IntegerColumnStatistics) actual.getColumnStatisticsMap().get(0);
+        Assert.assertEquals(expectedIds.getTotalCount(), actualIds.getTotalCount());
+        Assert.assertEquals(expectedIds.getNullCount(), actualIds.getNullCount());
+        Assert.assertEquals(expectedIds.getUniqueCount(), actualIds.getUniqueCount());
+        Assert.assertEquals(expectedIds.getPercUniqueValues(), actualIds.getPercUniqueValues(), 0.0001);
+        Assert.assertEquals(expectedIds.getMin(), actualIds.getMin());
+        Assert.assertEquals(expectedIds.getMax(), actualIds.getMax());
+        Assert.assertEquals(expectedIds.getSum(), actualIds.getSum());
+        Assert.assertEquals(expectedIds.getMean(), actualIds.getMean(), 0.0001);
+        Assert.assertEquals(expectedIds.getStddev(), actualIds.getStddev(), 0.0001);
+        Assert.assertEquals(expectedIds.getTopNValues().getTopNDataItemsForColumn().last().getCount(),
+                            actualIds.getTopNValues().getTopNDataItemsForColumn().last().getCount());
+
+        StringColumnStatistics expectedNames = (StringColumnStatistics) expected.getColumnStatisticsMap().get(1);
+        StringColumnStatistics actualNames = (StringColumnStatistics) actual.getColumnStatisticsMap().get(1);
+        Assert.assertEquals(expectedNames.getUniqueCount(), actualNames.getUniqueCount());
+        Assert.assertEquals(expectedNames.getEmptyCount(), actualNames.getEmptyCount());
+        Assert.assertEquals(expectedNames.getMaxLength(), actualNames.getMaxLength());
+        Assert.assertEquals(expectedNames.getTopNValues().printTopNItems(), actualNames.getTopNValues().printTopNItems());
+    }
+
+    /**
+     * Verify that a model for sketches only counts the values, leaving the unique count and top-N values to be estimated.
+     */
+    @Test
+    public void testModelSkipsExactCommon() {
+        StandardStatisticsModel model = new StandardStatisticsModel(new ProfilerConfiguration(), true);
+        for (int i = 0; i < 10; i++) {
+            model.add(0, (i % 5 == 0) ? null : i, 1L, ID_FIELD);
+        }
+
+        IntegerColumnStatistics ids = (IntegerColumnStatistics) model.getColumnStatisticsMap().get(0);
+        Assert.assertEquals(10, ids.getTotalCount());
+        Assert.assertEquals(2, ids.getNullCount());
+        Assert.assertEquals(1, ids.getMin());
+        Assert.assertEquals(9, ids.getMax());
+        Assert.assertEquals(0, ids.getUniqueCount());
+        Assert.assertTrue(ids.getTopNValues().getTopNDataItemsForColumn().isEmpty());
+    }
+
+    private static scala.collection.immutable.Map<Object, StructField> schemaMap() {
+        Map<Object, StructField> schemaMap = new HashMap<>();
+        schemaMap.put(0, ID_FIELD);
+        schemaMap.put(1, NAME_FIELD);
+        return JavaConversions.mapAsScalaMap(schemaMap).toMap(Predef.<Tuple2<Object, StructField>>conforms());
+    }
+
+    private static void increment(Map<Object, Long> counts, Object value) {
+        Long count = counts.get(value);
+        counts.put(value, count != null ? count + 1 : 1L);
+    }
+}
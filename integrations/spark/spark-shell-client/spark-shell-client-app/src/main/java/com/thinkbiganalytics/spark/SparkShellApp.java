@@ -28,6 +28,7 @@ import com.thinkbiganalytics.spark.metadata.TransformScript;
 import com.thinkbiganalytics.spark.repl.SparkScriptEngine;
 import com.thinkbiganalytics.spark.rest.SparkShellTransformController;
 import com.thinkbiganalytics.spark.service.TransformJobTracker;
+import com.thinkbiganalytics.spark.service.TransformScriptCache;
 import com.thinkbiganalytics.spark.service.TransformService;
 import com.thinkbiganalytics.spark.shell.DatasourceProviderFactory;
 
@@ -180,14 +181,21 @@ public class SparkShellApp {
      * @param tracker                   the transform job tracker
      * @param datasourceProviderFactory the data source provider factory
      * @param profiler                  the profiler
+     * @param env                       the Spring environment
      * @return the transform service
      */
     @Bean
     public TransformService transformService(final Class<? extends TransformScript> transformScriptClass, final SparkScriptEngine engine, final SparkContextService sparkContextService,
-                                             final TransformJobTracker tracker, final DatasourceProviderFactory datasourceProviderFactory, final Profiler profiler) {
+                                             final TransformJobTracker tracker, final DatasourceProviderFactory datasourceProviderFactory, final Profiler profiler, final Environment env) {
         final TransformService service = new TransformService(transformScriptClass, engine, sparkContextService, tracker);
         service.setDatasourceProviderFactory(datasourceProviderFactory);
         service.setProfiler(profiler);
+        service.setSampleSize(env.getProperty("spark.shell.transform.sampleSize", Integer.class, TransformScript.DEFAULT_SAMPLE_SIZE()));
+
+        final long scriptCacheSize = env.getProperty("spark.shell.transform.scriptCacheSize", Long.class, 100L);
+        if (scriptCacheSize > 0) {
+            service.setScriptCache(new TransformScriptCache(scriptCacheSize));
+        }
         return service;
     }
 }
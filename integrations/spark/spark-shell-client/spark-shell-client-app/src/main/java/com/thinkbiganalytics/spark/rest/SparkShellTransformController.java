@@ -23,10 +23,14 @@ package com.thinkbiganalytics.spark.rest;
 import com.thinkbiganalytics.spark.metadata.TransformJob;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage;
 import com.thinkbiganalytics.spark.service.TransformService;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
@@ -34,10 +38,12 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.script.ScriptException;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
@@ -146,6 +152,42 @@ public class SparkShellTransformController {
         }
     }
 
+    /**
+     * Fetches a page of rows from the results of a transformation.
+     *
+     * @param id      the destination table name
+     * @param offset  the index of the first row
+     * @param limit   the maximum number of rows
+     * @param columns the comma-separated names of the columns to include, or {@code null} for all columns
+     * @return the page of rows
+     */
+    @GET
+    @Path("{table}/rows")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Fetches a page of rows from the results of a transformation.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the rows by column.", response = TransformResultPage.class),
+                      @ApiResponse(code = 400, message = "The offset or limit is invalid.", response = TransformResponse.class),
+                      @ApiResponse(code = 404, message = "The transformation does not exist.", response = TransformResponse.class),
+                      @ApiResponse(code = 500, message = "There was a problem accessing the data.", response = TransformResponse.class)
+                  })
+    @Nonnull
+    public Response getRows(@Nonnull @PathParam("table") final String id, @QueryParam("offset") @DefaultValue("0") final long offset,
+                            @QueryParam("limit") @DefaultValue("1000") final int limit, @Nullable @QueryParam("columns") final String columns) {
+        if (offset < 0 || limit <= 0) {
+            return error(Response.Status.BAD_REQUEST, "transform.invalidPage");
+        }
+
+        final List<String> fields = (columns != null) ? Arrays.asList(StringUtils.split(columns, ',')) : null;
+        try {
+            return Response.ok(transformService.getPage(id, offset, limit, fields)).build();
+        } catch (IllegalArgumentException e) {
+            return error(Response.Status.NOT_FOUND, "transform.unknownTable");
+        } catch (Exception e) {
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
     /**
      * Generates an error response for the specified message.
      *
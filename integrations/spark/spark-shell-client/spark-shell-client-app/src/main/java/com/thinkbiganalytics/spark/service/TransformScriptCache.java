@@ -0,0 +1,119 @@
+package com.thinkbiganalytics.spark.service;
+
+/*-
+ * #%L
+ * thinkbig-spark-shell-client-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.thinkbiganalytics.spark.metadata.TransformScriptFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.script.ScriptException;
+
+/**
+ * A least-recently-used cache of compiled transform scripts.
+ *
+ * <p>Scripts are identified by a hash of their normalized source and the Spark version, so the source of each script is not retained.</p>
+ */
+public class TransformScriptCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TransformScriptCache.class);
+
+    /**
+     * Compiled scripts by key
+     */
+    @Nonnull
+    private final Cache<String, TransformScriptFactory> cache;
+
+    /**
+     * Constructs a {@code TransformScriptCache} with the specified maximum number of scripts.
+     *
+     * @param maximumSize the maximum number of compiled scripts
+     */
+    public TransformScriptCache(final long maximumSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * Gets the compiled script for the specified source, compiling it if necessary.
+     *
+     * @param script       the Scala source of the script
+     * @param sparkVersion the Spark version
+     * @param compiler     compiles the script
+     * @return the compiled script
+     * @throws ScriptException if the script cannot be compiled
+     */
+    @Nonnull
+    public TransformScriptFactory get(@Nonnull final String script, @Nonnull final String sparkVersion, @Nonnull final Callable<TransformScriptFactory> compiler) throws ScriptException {
+        try {
+            return cache.get(toKey(script, sparkVersion), new Callable<TransformScriptFactory>() {
+                @Override
+                public TransformScriptFactory call() throws Exception {
+                    final long start = System.nanoTime();
+                    final TransformScriptFactory factory = compiler.call();
+                    log.debug("Compiled transform script in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return factory;
+                }
+            });
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof ScriptException) {
+                throw (ScriptException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new ScriptException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+    }
+
+    /**
+     * Gets the hit, miss, and compile time statistics for this cache.
+     *
+     * @return the cache statistics
+     */
+    @Nonnull
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Generates the cache key for the specified script.
+     *
+     * @param script       the Scala source of the script
+     * @param sparkVersion the Spark version
+     * @return the cache key
+     */
+    @Nonnull
+    static String toKey(@Nonnull final String script, @Nonnull final String sparkVersion) {
+        final String normalized = script.replace("\r\n", "\n").trim();
+        return sparkVersion + ":" + Hashing.sha256().hashString(normalized, Charsets.UTF_8).toString();
+    }
+}
@@ -20,13 +20,17 @@ package com.thinkbiganalytics.spark.service;
  * #L%
  */
 
+import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.SparkContextService;
 import com.thinkbiganalytics.spark.dataprofiler.Profiler;
 import com.thinkbiganalytics.spark.metadata.TransformJob;
+import com.thinkbiganalytics.spark.metadata.TransformResultPager;
 import com.thinkbiganalytics.spark.metadata.TransformScript;
+import com.thinkbiganalytics.spark.metadata.TransformScriptFactory;
 import com.thinkbiganalytics.spark.repl.SparkScriptEngine;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage;
 import com.thinkbiganalytics.spark.shell.DatasourceProvider;
 import com.thinkbiganalytics.spark.shell.DatasourceProviderFactory;
 
@@ -77,6 +81,17 @@ public class TransformService {
     @Nullable
     private Profiler profiler;
 
+    /**
+     * Cache of compiled transform scripts
+     */
+    @Nullable
+    private TransformScriptCache scriptCache;
+
+    /**
+     * Maximum number of rows in a response
+     */
+    private int sampleSize = TransformScript.DEFAULT_SAMPLE_SIZE();
+
     /**
      * Provides access to the Spark context
      */
@@ -163,8 +178,26 @@ public class TransformService {
             }
         }
 
-        // Execute script
-        final Object result = this.engine.eval(toScript(request), bindings);
+        // Execute script, re-using the compiled script if possible. Scripts using a data source provider are not cached as the provider is bound when compiled.
+        final Object result;
+        if (scriptCache != null && (request.getDatasources() == null || request.getDatasources().isEmpty())) {
+            final String script = toFactoryScript(request);
+            final TransformScriptFactory factory = scriptCache.get(script, String.valueOf(engine.getSparkContext().version()), new Callable<TransformScriptFactory>() {
+                @Override
+                public TransformScriptFactory call() throws Exception {
+                    final Object factory = engine.eval(script);
+                    if (factory instanceof TransformScriptFactory) {
+                        return (TransformScriptFactory) factory;
+                    } else {
+                        throw new IllegalStateException("Unexpected script result type: " + (factory != null ? factory.getClass() : null));
+                    }
+                }
+            });
+            result = factory.run(table, profiler, engine.getSQLContext(), sparkContextService);
+            log.debug("Transform script cache {}", scriptCache.stats());
+        } else {
+            result = this.engine.eval(toScript(request), bindings);
+        }
 
         final TransformJob job;
         if (result instanceof Callable) {
@@ -219,6 +252,34 @@ public class TransformService {
         }
     }
 
+    /**
+     * Fetches a page of rows from the results of a transformation. The number of rows is limited to the sample size.
+     *
+     * @param table   the table with the results
+     * @param offset  the index of the first row
+     * @param limit   the maximum number of rows
+     * @param columns the names of the columns to include, or {@code null} for all columns
+     * @return the page of rows
+     * @throws IllegalArgumentException if the table is not the cached result of a transformation
+     */
+    @Nonnull
+    public TransformResultPage getPage(@Nonnull final String table, final long offset, final int limit, @Nullable final List<String> columns) {
+        // Only cached results can be read, not any table in the metastore
+        final boolean cached;
+        try {
+            cached = engine.getSQLContext().isCached(table);
+        } catch (final Exception e) {
+            log.debug("Unable to find table {}", table, e);
+            throw new IllegalArgumentException("Unknown table: " + table);
+        }
+        if (!cached) {
+            throw new IllegalArgumentException("Unknown table: " + table);
+        }
+
+        final DataSet dataset = sparkContextService.toDataSet(engine.getSQLContext(), table);
+        return TransformResultPager.page(table, dataset, offset, Math.min(limit, sampleSize), columns);
+    }
+
     /**
      * Gets the profiler for column statistics.
      *
@@ -239,6 +300,44 @@ public class TransformService {
         this.profiler = profiler;
     }
 
+    /**
+     * Gets the cache of compiled transform scripts.
+     *
+     * @return the script cache, or {@code null} if scripts are compiled for every request
+     */
+    @Nullable
+    public TransformScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    /**
+     * Sets the cache of compiled transform scripts.
+     *
+     * @param scriptCache the script cache, or {@code null} to compile scripts for every request
+     */
+    public void setScriptCache(@Nullable final TransformScriptCache scriptCache) {
+        this.scriptCache = scriptCache;
+    }
+
+    /**
+     * Gets the maximum number of rows in a response.
+     *
+     * @return the sample size
+     */
+    @SuppressWarnings("unused")
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Sets the maximum number of rows in a response.
+     *
+     * @param sampleSize the sample size
+     */
+    public void setSampleSize(final int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
     /**
      * Converts the specified transformation request to a Scala script that can be executed by the script engine.
      *
@@ -247,6 +346,36 @@ public class TransformService {
      */
     @Nonnull
     String toScript(@Nonnull final TransformRequest request) {
+        final StringBuilder script = toClassScript(request);
+        script.append("new Transform(tableName, profiler, sqlContext, sparkContextService).run()\n");
+        return script.toString();
+    }
+
+    /**
+     * Converts the specified transformation request to a Scala script that returns a {@link TransformScriptFactory}.
+     *
+     * @param request the transformation request
+     * @return the Scala script
+     */
+    @Nonnull
+    String toFactoryScript(@Nonnull final TransformRequest request) {
+        final StringBuilder script = toClassScript(request);
+        script.append("new com.thinkbiganalytics.spark.metadata.TransformScriptFactory {\n");
+        script.append(
+            "override def run(destination: String, profiler: com.thinkbiganalytics.spark.dataprofiler.Profiler, sqlContext: org.apache.spark.sql.SQLContext, sparkContextService: com.thinkbiganalytics.spark.SparkContextService): Object = ");
+        script.append("new Transform(destination, profiler, sqlContext, sparkContextService).run()\n");
+        script.append("}\n");
+        return script.toString();
+    }
+
+    /**
+     * Converts the specified transformation request to a Scala class named {@code Transform}.
+     *
+     * @param request the transformation request
+     * @return the Scala script
+     */
+    @Nonnull
+    private StringBuilder toClassScript(@Nonnull final TransformRequest request) {
         final StringBuilder script = new StringBuilder();
         script.append(
             "class Transform (destination: String, profiler: com.thinkbiganalytics.spark.dataprofiler.Profiler, sqlContext: org.apache.spark.sql.SQLContext, sparkContextService: com.thinkbiganalytics.spark.SparkContextService) extends ");
@@ -266,10 +395,14 @@ public class TransformService {
             script.append("\"}\n");
         }
 
-        script.append("}\n");
-        script.append("new Transform(tableName, profiler, sqlContext, sparkContextService).run()\n");
+        if (sampleSize != TransformScript.DEFAULT_SAMPLE_SIZE()) {
+            script.append("override def sampleSize: Int = ");
+            script.append(sampleSize);
+            script.append("\n");
+        }
 
-        return script.toString();
+        script.append("}\n");
+        return script;
     }
 
     /**
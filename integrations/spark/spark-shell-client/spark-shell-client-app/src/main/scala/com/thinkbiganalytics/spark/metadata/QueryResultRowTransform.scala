@@ -0,0 +1,83 @@
+package com.thinkbiganalytics.spark.metadata
+
+import java.util
+import java.util.regex.Pattern
+
+import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn
+import com.thinkbiganalytics.discovery.schema.QueryResult
+import com.thinkbiganalytics.spark.util.DataTypeUtils
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types.StructType
+
+/** Transforms a Spark SQL `Row` into a [[QueryResult]] row.
+  *
+  * @param schema      the schema of the rows
+  * @param destination the name of the table containing the rows
+  */
+private[spark] class QueryResultRowTransform(schema: StructType, destination: String) extends (Row => util.HashMap[String, Object]) {
+
+    /** Array of columns for the [[com.thinkbiganalytics.discovery.schema.QueryResultColumn]] */
+    val columns: Array[DefaultQueryResultColumn] = {
+        var index = 1
+        schema.fields.map(field => {
+            val column = new DefaultQueryResultColumn
+            column.setDataType(DataTypeUtils.getHiveObjectInspector(field.dataType).getTypeName)
+            column.setHiveColumnLabel(field.name)
+            column.setTableName(destination)
+
+            if (QueryResultRowTransform.FIELD_PATTERN.matcher(field.name).matches()) {
+                // Use original name if alphanumeric
+                column.setDisplayName(field.name)
+                column.setField(field.name)
+            } else {
+                // Generate name for non-alphanumeric fields
+                var name: String = null
+                do {
+                    name = QueryResultRowTransform.DISPLAY_NAME_PREFIX + index
+                    index += 1
+
+                    try {
+                        schema(name)
+                        name = null
+                    } catch {
+                        case _: IllegalArgumentException => // ignored
+                    }
+                } while (name == null)
+
+                column.setDisplayName(name)
+                column.setField(name)
+            }
+
+            column
+        })
+    }
+
+    /** Array of Spark SQL object to Hive object converters */
+    val converters: Array[ObjectInspectorConverters.Converter] = schema.fields.map(field => DataTypeUtils.getHiveObjectConverter(field.dataType))
+
+    override def apply(row: Row): util.HashMap[String, Object] = {
+        val map = new util.HashMap[String, Object]()
+        columns.indices.foreach(i => map.put(columns(i).getDisplayName, converters(i).convert(row.getAs(i))))
+        map
+    }
+
+    /** Converts the specified value of a row to a Hive object.
+      *
+      * @param row   the row
+      * @param index the column index
+      * @return the Hive object
+      */
+    def convert(row: Row, index: Int): Object = {
+        converters(index).convert(row.getAs(index))
+    }
+}
+
+private[spark] object QueryResultRowTransform {
+
+    /** Prefix for display names that are different from the field name */
+    val DISPLAY_NAME_PREFIX = "col"
+
+    /** Pattern for field names */
+    val FIELD_PATTERN: Pattern = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$")
+}
@@ -0,0 +1,68 @@
+package com.thinkbiganalytics.spark.metadata
+
+import java.util
+
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn
+import com.thinkbiganalytics.spark.DataSet
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.functions.col
+
+import scala.collection.JavaConversions._
+
+/** Reads pages of rows from the cached results of a transformation.
+  *
+  * Only the rows in the requested page are sent to the driver, and the values are returned by column so that large previews can be fetched incrementally.
+  */
+object TransformResultPager {
+
+    /** Reads a page of rows.
+      *
+      * @param table   the name of the table with the results
+      * @param dataset the results
+      * @param offset  the index of the first row
+      * @param limit   the maximum number of rows
+      * @param fields  the names of the columns to include, or `null` for all columns
+      * @return the page
+      */
+    def page(table: String, dataset: DataSet, offset: Long, limit: Int, fields: util.List[String]): TransformResultPage = {
+        require(offset >= 0, "offset must not be negative")
+        require(limit > 0, "limit must be positive")
+
+        // Select columns
+        val projection = if (fields != null && !fields.isEmpty) {
+            dataset.select(fields.map(field => col("`" + field.replace("`", "``") + "`")): _*)
+        } else {
+            dataset
+        }
+
+        // Fetch one extra row to determine if there are more
+        val end = offset + limit
+        val rows: Array[Row] = projection.rdd
+            .zipWithIndex()
+            .filter(entry => entry._2 >= offset && entry._2 <= end)
+            .map(_._1)
+            .collect()
+
+        // Convert to columns
+        val transform = new QueryResultRowTransform(projection.schema(), table)
+        val rowCount = Math.min(rows.length, limit)
+        val data = new util.ArrayList[util.List[Object]](transform.columns.length)
+        for (index <- transform.columns.indices) {
+            val values = new util.ArrayList[Object](rowCount)
+            for (i <- 0 until rowCount) {
+                values.add(transform.convert(rows(i), index))
+            }
+            data.add(values)
+        }
+
+        val page = new TransformResultPage
+        page.setColumns(seqAsJavaList(transform.columns.toSeq: Seq[QueryResultColumn]))
+        page.setData(data)
+        page.setHasMore(rows.length > limit)
+        page.setOffset(offset)
+        page.setRowCount(rowCount)
+        page.setTable(table)
+        page
+    }
+}
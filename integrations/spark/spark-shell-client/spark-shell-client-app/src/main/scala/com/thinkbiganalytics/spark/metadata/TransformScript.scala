@@ -2,18 +2,13 @@ package com.thinkbiganalytics.spark.metadata
 
 import java.util
 import java.util.concurrent.Callable
-import java.util.regex.Pattern
 
-import com.thinkbiganalytics.discovery.model.{DefaultQueryResult, DefaultQueryResultColumn}
-import com.thinkbiganalytics.discovery.schema.{QueryResult, QueryResultColumn}
+import com.thinkbiganalytics.discovery.model.DefaultQueryResult
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn
 import com.thinkbiganalytics.spark.DataSet
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow
 import com.thinkbiganalytics.spark.dataprofiler.{Profiler, ProfilerConfiguration}
 import com.thinkbiganalytics.spark.rest.model.TransformResponse
-import com.thinkbiganalytics.spark.util.DataTypeUtils
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters
-import org.apache.spark.sql.Row
-import org.apache.spark.sql.types.StructType
 
 import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
@@ -36,6 +31,14 @@ abstract class TransformScript(destination: String, profiler: Profiler) {
       */
     protected def parent: Object
 
+    /** Gets the maximum number of rows to include in the response.
+      *
+      * Any remaining rows can be fetched in pages from the cached table.
+      *
+      * @return the sample size
+      */
+    protected def sampleSize: Int = TransformScript.DEFAULT_SAMPLE_SIZE
+
     /** Re-generates the parent transformation.
       *
       * @return the parent transformation
@@ -64,9 +67,9 @@ abstract class TransformScript(destination: String, profiler: Profiler) {
             // Build the result set
             val result = new DefaultQueryResult("SELECT * FROM " + destination)
 
-            val transform = new QueryResultRowTransform(dataset.schema())
+            val transform = new QueryResultRowTransform(dataset.schema(), destination)
             result.setColumns(transform.columns.toSeq)
-            for (row <- dataset.collectAsList()) {
+            for (row <- dataset.rdd.take(sampleSize)) {
                 result.addRow(transform.apply(row))
             }
 
@@ -86,61 +89,10 @@ abstract class TransformScript(destination: String, profiler: Profiler) {
             response
         }
     }
+}
 
-    /** Transforms a Spark SQL `Row` into a [[QueryResult]] row. */
-    private object QueryResultRowTransform {
-        /** Prefix for display names that are different from the field name */
-        val DISPLAY_NAME_PREFIX = "col"
-
-        /** Pattern for field names */
-        val FIELD_PATTERN: Pattern = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$")
-    }
-
-    private class QueryResultRowTransform(schema: StructType) extends (Row => util.HashMap[String, Object]) {
-        /** Array of columns for the [[com.thinkbiganalytics.discovery.schema.QueryResultColumn]] */
-        val columns: Array[DefaultQueryResultColumn] = {
-            var index = 1
-            schema.fields.map(field => {
-                val column = new DefaultQueryResultColumn
-                column.setDataType(DataTypeUtils.getHiveObjectInspector(field.dataType).getTypeName)
-                column.setHiveColumnLabel(field.name)
-                column.setTableName(destination)
-
-                if (QueryResultRowTransform.FIELD_PATTERN.matcher(field.name).matches()) {
-                    // Use original name if alphanumeric
-                    column.setDisplayName(field.name)
-                    column.setField(field.name)
-                } else {
-                    // Generate name for non-alphanumeric fields
-                    var name: String = null
-                    do {
-                        name = QueryResultRowTransform.DISPLAY_NAME_PREFIX + index
-                        index += 1
-
-                        try {
-                            schema(name)
-                            name = null
-                        } catch {
-                            case _: IllegalArgumentException => // ignored
-                        }
-                    } while (name == null)
-
-                    column.setDisplayName(name)
-                    column.setField(name)
-                }
-
-                column
-            })
-        }
-
-        /** Array of Spark SQL object to Hive object converters */
-        val converters: Array[ObjectInspectorConverters.Converter] = schema.fields.map(field => DataTypeUtils.getHiveObjectConverter(field.dataType))
-
-        override def apply(row: Row): util.HashMap[String, Object] = {
-            val map = new util.HashMap[String, Object]()
-            columns.indices.foreach(i => map.put(columns(i).getDisplayName, converters(i).convert(row.getAs(i))))
-            map
-        }
-    }
+object TransformScript {
 
+    /** Default maximum number of rows in a response */
+    val DEFAULT_SAMPLE_SIZE = 10000
 }
@@ -0,0 +1,22 @@
+package com.thinkbiganalytics.spark.metadata
+
+import com.thinkbiganalytics.spark.SparkContextService
+import com.thinkbiganalytics.spark.dataprofiler.Profiler
+import org.apache.spark.sql.SQLContext
+
+/** Creates and runs instances of a compiled transform script.
+  *
+  * The script is compiled once and each call uses the specified bindings, so repeated requests do not need to invoke the Scala compiler.
+  */
+trait TransformScriptFactory {
+
+    /** Creates a transform script and runs it.
+      *
+      * @param destination         the name of the destination Hive table
+      * @param profiler            the profiler for column statistics
+      * @param sqlContext          the Spark SQL context
+      * @param sparkContextService the Spark context service
+      * @return the result of the transform script
+      */
+    def run(destination: String, profiler: Profiler, sqlContext: SQLContext, sparkContextService: SparkContextService): Object
+}
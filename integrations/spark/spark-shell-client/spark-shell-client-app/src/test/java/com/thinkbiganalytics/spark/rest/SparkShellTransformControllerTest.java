@@ -23,12 +23,16 @@ package com.thinkbiganalytics.spark.rest;
 import com.thinkbiganalytics.spark.metadata.TransformJob;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage;
 import com.thinkbiganalytics.spark.service.TransformService;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.script.ScriptException;
 import javax.ws.rs.core.Response;
 
@@ -177,4 +181,35 @@ public class SparkShellTransformControllerTest {
         Assert.assertEquals(successResponse, response.getEntity());
         Assert.assertEquals(Response.Status.OK, response.getStatusInfo());
     }
+
+    /**
+     * Verify requesting a page of rows.
+     */
+    @Test
+    public void getRows() {
+        // Mock transform objects
+        TransformResultPage page = new TransformResultPage();
+        List<String> columns = Arrays.asList("id", "name");
+
+        TransformService transformService = Mockito.mock(TransformService.class);
+        Mockito.when(transformService.getPage("results", 100, 50, columns)).thenReturn(page);
+        Mockito.when(transformService.getPage("invalid", 0, 50, null)).thenThrow(new IllegalArgumentException());
+
+        SparkShellTransformController controller = new SparkShellTransformController();
+        controller.transformService = transformService;
+
+        // Test with valid page
+        Response response = controller.getRows("results", 100, 50, "id,name");
+        Assert.assertEquals(Response.Status.OK, response.getStatusInfo());
+        Assert.assertEquals(page, response.getEntity());
+
+        // Test with invalid page
+        response = controller.getRows("results", -1, 50, null);
+        Assert.assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        Assert.assertEquals("The offset must not be negative and the limit must be positive.", ((TransformResponse) response.getEntity()).getMessage());
+
+        // Test with unknown table
+        response = controller.getRows("invalid", 0, 50, null);
+        Assert.assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
+    }
 }
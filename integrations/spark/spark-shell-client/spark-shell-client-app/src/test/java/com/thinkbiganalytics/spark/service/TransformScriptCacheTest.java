@@ -0,0 +1,92 @@
+package com.thinkbiganalytics.spark.service;
+
+/*-
+ * #%L
+ * thinkbig-spark-shell-client-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.metadata.TransformScriptFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.Callable;
+
+import javax.script.ScriptException;
+
+public class TransformScriptCacheTest {
+
+    /**
+     * Verify caching compiled scripts.
+     */
+    @Test
+    public void get() throws Exception {
+        final TransformScriptFactory factory = Mockito.mock(TransformScriptFactory.class);
+        final Callable<TransformScriptFactory> compiler = new Callable<TransformScriptFactory>() {
+            @Override
+            public TransformScriptFactory call() throws Exception {
+                return factory;
+            }
+        };
+
+        final TransformScriptCache cache = new TransformScriptCache(1);
+        Assert.assertSame(factory, cache.get("script1", "1.6.1", compiler));
+        Assert.assertSame(factory, cache.get("script1\r\n", "1.6.1", compiler));
+        Assert.assertEquals(1, cache.stats().hitCount());
+
+        // Test different Spark versions and eviction
+        cache.get("script1", "2.0.0", compiler);
+        cache.get("script1", "1.6.1", compiler);
+        Assert.assertEquals(1, cache.stats().hitCount());
+        Assert.assertEquals(3, cache.stats().missCount());
+    }
+
+    /**
+     * Verify compile errors are not cached.
+     */
+    @Test
+    public void getWithScriptException() throws Exception {
+        final TransformScriptCache cache = new TransformScriptCache(10);
+        final Callable<TransformScriptFactory> compiler = new Callable<TransformScriptFactory>() {
+            @Override
+            public TransformScriptFactory call() throws Exception {
+                throw new ScriptException("Invalid script");
+            }
+        };
+
+        try {
+            cache.get("script1", "1.6.1", compiler);
+            Assert.fail("Expected ScriptException");
+        } catch (final ScriptException e) {
+            Assert.assertEquals("Invalid script", e.getMessage());
+        }
+        Assert.assertEquals(0, cache.stats().hitCount());
+        Assert.assertEquals(1, cache.stats().loadExceptionCount());
+    }
+
+    /**
+     * Verify generating cache keys.
+     */
+    @Test
+    public void toKey() {
+        Assert.assertEquals(TransformScriptCache.toKey("a\nb", "1.6.1"), TransformScriptCache.toKey(" a\r\nb \n", "1.6.1"));
+        Assert.assertNotEquals(TransformScriptCache.toKey("a\nb", "1.6.1"), TransformScriptCache.toKey("a\nb", "2.0.0"));
+        Assert.assertNotEquals(TransformScriptCache.toKey("a\nb", "1.6.1"), TransformScriptCache.toKey("a\nc", "1.6.1"));
+    }
+}
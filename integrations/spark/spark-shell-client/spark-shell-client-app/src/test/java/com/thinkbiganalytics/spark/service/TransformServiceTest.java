@@ -23,6 +23,7 @@ package com.thinkbiganalytics.spark.service;
 import com.thinkbiganalytics.spark.SparkContextService;
 import com.thinkbiganalytics.spark.dataprofiler.Profiler;
 import com.thinkbiganalytics.spark.metadata.TransformScript;
+import com.thinkbiganalytics.spark.metadata.TransformScriptFactory;
 import com.thinkbiganalytics.spark.repl.SparkScriptEngine;
 import com.thinkbiganalytics.spark.rest.model.Datasource;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
@@ -32,6 +33,7 @@ import com.thinkbiganalytics.spark.shell.DatasourceProviderFactory;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.spark.SparkContext;
+import org.apache.spark.sql.SQLContext;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -148,6 +150,43 @@ public class TransformServiceTest {
         Assert.assertEquals(datasourceProvider, bindings.get(3).value());
     }
 
+    /**
+     * Verify executing a transformation request with a script cache.
+     */
+    @Test
+    public void executeWithScriptCache() throws Exception {
+        // Mock Spark context service
+        final SparkContextService sparkContextService = Mockito.mock(SparkContextService.class);
+
+        // Mock Spark script engine
+        final SparkContext sparkContext = Mockito.mock(SparkContext.class);
+        Mockito.when(sparkContext.version()).thenReturn("1.6.1");
+
+        final SparkScriptEngine engine = Mockito.mock(SparkScriptEngine.class);
+        Mockito.when(engine.eval(Mockito.anyString())).thenReturn(new TransformScriptFactory() {
+            @Override
+            public Object run(String destination, Profiler profiler, SQLContext sqlContext, SparkContextService sparkContextService) {
+                return new MockTransformResult();
+            }
+        });
+        Mockito.when(engine.getSparkContext()).thenReturn(sparkContext);
+
+        // Test executing the same request twice
+        final TransformRequest request = new TransformRequest();
+        request.setScript("sqlContext.range(1,10)");
+
+        final TransformService service = new TransformService(TransformScript.class, engine, sparkContextService, new MockTransformJobTracker());
+        service.setScriptCache(new TransformScriptCache(10));
+
+        Assert.assertEquals(TransformResponse.Status.SUCCESS, service.execute(request).getStatus());
+        Assert.assertEquals(TransformResponse.Status.SUCCESS, service.execute(request).getStatus());
+
+        // Test script was compiled once
+        Mockito.verify(engine, Mockito.times(1)).eval(service.toFactoryScript(request));
+        Assert.assertEquals(1, service.getScriptCache().stats().hitCount());
+        Assert.assertEquals(1, service.getScriptCache().stats().missCount());
+    }
+
     /**
      * Verify converting a transformation request to a Scala script.
      */
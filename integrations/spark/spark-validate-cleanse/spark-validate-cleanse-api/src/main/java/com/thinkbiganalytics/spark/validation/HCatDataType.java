@@ -342,4 +342,15 @@ public class HCatDataType implements Cloneable, Serializable {
     public boolean isUnchecked() {
         return unchecked;
     }
+
+    public boolean isString() {
+        return isstring;
+    }
+
+    /**
+     * Maximum length of a string value, if this is a string type
+     */
+    public long getMaxLength() {
+        return maxlength;
+    }
 }
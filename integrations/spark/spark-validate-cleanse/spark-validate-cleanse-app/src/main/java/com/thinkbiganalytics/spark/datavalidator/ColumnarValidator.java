@@ -0,0 +1,424 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.hive.util.HiveUtils;
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.standardization.LowercaseStandardizer;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.LengthValidator;
+import com.thinkbiganalytics.policy.validation.LookupValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RegexValidator;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.api.java.UDF1;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.apache.spark.sql.functions.callUDF;
+import static org.apache.spark.sql.functions.coalesce;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat;
+import static org.apache.spark.sql.functions.concat_ws;
+import static org.apache.spark.sql.functions.length;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.lower;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.regexp_replace;
+import static org.apache.spark.sql.functions.sum;
+import static org.apache.spark.sql.functions.upper;
+import static org.apache.spark.sql.functions.when;
+
+/**
+ * Cleanses and validates a data set with Spark SQL column expressions instead of processing one {@link Row} at a time.
+ *
+ * <p>The standard policies on string columns are compiled into expressions that Spark can optimize and generate code for. Columns with any other policy, or of any other type,
+ * are cleansed by a UDF that calls {@link Validator#standardizeAndValidateField}. The cleansed values, reject reasons, and counts are the same as for {@link Validator}, except that
+ * a {@code null} value is considered valid by the Length and Regex validators instead of failing the job.</p>
+ */
+public class ColumnarValidator implements Serializable {
+
+    private static final long serialVersionUID = 2585306617379556917L;
+
+    /** Column that indicates if a row is valid */
+    private static final String VALID_COL = "__valid";
+
+    /** Condition for selecting the valid rows */
+    private static final String VALID_CONDITION = "`" + VALID_COL + "`";
+
+    /** Column that indicates if a row is empty */
+    private static final String EMPTY_COL = "__empty";
+
+    /** Reject reason for empty rows */
+    private static final String EMPTY_REASON = ValidationResult.failRow("empty", "Row is empty").toJSON();
+
+    /** Matches any character not removed by {@link String#trim()} */
+    private static final String NON_TRIMMED_CHAR = "[^\\x00-\\x20]";
+
+    /** Matches any character that is not part of a surrogate pair */
+    private static final String NON_SUPPLEMENTARY_CHARS = "[^\\x{10000}-\\x{10FFFF}]";
+
+    /** Result type of the validation UDF */
+    private static final StructType FIELD_RESULT_TYPE = DataTypes.createStructType(new StructField[]{
+        DataTypes.createStructField("value", DataTypes.StringType, true),
+        DataTypes.createStructField("reason", DataTypes.StringType, true)
+    });
+
+    private final Validator validator;
+    private final FieldPolicy[] policies;
+    private final HCatDataType[] schema;
+
+    /** Prefix for the names of the UDFs, unique to this instance */
+    private final String functionPrefix = "validate_" + System.currentTimeMillis() + "_";
+
+    /** Compiled value and reason for each column, or {@code null} if the column uses a UDF */
+    private final Column[][] compiled;
+
+    /**
+     * Constructs a {@code ColumnarValidator} for the specified policies.
+     *
+     * @param validator the validator for the columns that cannot be compiled
+     * @param policies  the field policies
+     * @param schema    the data types of the target table
+     */
+    public ColumnarValidator(Validator validator, FieldPolicy[] policies, HCatDataType[] schema) {
+        this.validator = validator;
+        this.policies = policies;
+        this.schema = schema;
+        this.compiled = new Column[schema.length][];
+    }
+
+    /**
+     * Indicates if the specified source can be validated with column expressions. Every checked column must be a string, as in the feed table.
+     *
+     * @param sourceSchema the schema of the source data set
+     * @param schema       the data types of the target table
+     * @return {@code true} if supported, or {@code false} to validate row by row
+     */
+    public static boolean isSupported(StructType sourceSchema, HCatDataType[] schema) {
+        StructField[] fields = sourceSchema.fields();
+        for (int idx = 0; idx < schema.length && idx < fields.length; idx++) {
+            if (!schema[idx].isUnchecked() && !DataTypes.StringType.equals(fields[idx].dataType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cleanses and validates the specified data set. The columns that cannot be compiled are registered as UDFs with the specified context.
+     *
+     * <p>The result has a value and reject reason for each column, and should be persisted before calling {@link #toResults} and {@link #toCounts}.</p>
+     *
+     * @param context the SQL context
+     * @param source  the data set to validate
+     * @return the validated data set
+     */
+    public DataSet validate(SQLContext context, DataSet source) {
+        StructField[] fields = source.schema().fields();
+        List<Column> columns = new ArrayList<>();
+        Column nulls = lit(1);
+
+        for (int idx = 0; idx < schema.length; idx++) {
+            Column value = (idx < fields.length) ? col(HiveUtils.quoteIdentifier(fields[idx].name())) : lit(null).cast(DataTypes.StringType);
+            nulls = nulls.plus(when(value.isNull(), 1).otherwise(0));
+
+            if (schema[idx].isUnchecked()) {
+                compiled[idx] = new Column[]{value, null};
+            } else {
+                compiled[idx] = compile(policies[idx], schema[idx], value);
+            }
+
+            if (compiled[idx] != null) {
+                columns.add(compiled[idx][0].as("__v" + idx));
+                if (compiled[idx][1] != null) {
+                    columns.add(compiled[idx][1].as("__r" + idx));
+                }
+            } else {
+                context.udf().register(functionPrefix + idx, new ValidateField(validator, policies[idx], schema[idx]), FIELD_RESULT_TYPE);
+                columns.add(callUDF(functionPrefix + idx, value).as("__u" + idx));
+            }
+        }
+
+        columns.add(nulls.geq(schema.length).as(EMPTY_COL));
+        return source.select(columns.toArray(new Column[0]));
+    }
+
+    /**
+     * Selects the valid or invalid rows of a validated data set.
+     *
+     * @param validated    the result of {@link #validate}
+     * @param resultSchema the schema with the columns of the target table and the reject reason
+     * @param valid        {@code true} for the valid rows, or {@code false} for the invalid rows
+     * @return the rows matching the result schema
+     */
+    public DataSet toResults(DataSet validated, StructType resultSchema, boolean valid) {
+        StructField[] fields = resultSchema.fields();
+        Column[] columns = new Column[fields.length + 1];
+
+        // Values, then the reject reason, then the processing partition value last
+        for (int idx = 0; idx < schema.length; idx++) {
+            int pos = (idx < schema.length - 1) ? idx : fields.length - 1;
+            columns[pos] = valueOf(idx).cast(fields[pos].dataType()).as(fields[pos].name());
+        }
+
+        List<Column> reasons = new ArrayList<>();
+        Column isValid = not(col(EMPTY_COL));
+        for (int idx = 0; idx < schema.length; idx++) {
+            Column reason = reasonOf(idx);
+            if (reason != null) {
+                reasons.add(reason);
+                isValid = isValid.and(reason.isNull());
+            }
+        }
+        reasons.add(when(col(EMPTY_COL), EMPTY_REASON));
+
+        Column reason = concat(lit("["), concat_ws(",", reasons.toArray(new Column[0])), lit("]"));
+        columns[schema.length - 1] = when(isValid, "").otherwise(reason).as(fields[schema.length - 1].name());
+        columns[fields.length] = isValid.as(VALID_COL);
+
+        return validated.select(columns).filter(valid ? VALID_CONDITION : "NOT " + VALID_CONDITION).drop(VALID_COL);
+    }
+
+    /**
+     * Counts the invalid values of each column, and the total valid and invalid rows, of a validated data set.
+     *
+     * @param validated the result of {@link #validate}
+     * @return the invalid count for each column, followed by the valid and invalid counts
+     */
+    public long[] toCounts(DataSet validated) {
+        Column[] columns = new Column[schema.length + 2];
+        Column isValid = not(col(EMPTY_COL));
+
+        for (int idx = 0; idx < schema.length; idx++) {
+            Column reason = reasonOf(idx);
+            if (reason != null) {
+                columns[idx] = sum(when(reason.isNotNull(), 1).otherwise(0));
+                isValid = isValid.and(reason.isNull());
+            } else {
+                columns[idx] = lit(0L);
+            }
+        }
+        columns[schema.length] = sum(when(isValid, 1).otherwise(0));
+        columns[schema.length + 1] = sum(when(isValid, 0).otherwise(1));
+
+        Row row = validated.select(columns).collectAsList().get(0);
+        long[] counts = new long[columns.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = row.isNullAt(i) ? 0 : ((Number) row.get(i)).longValue();
+        }
+        return counts;
+    }
+
+    /**
+     * Compiles the policies of a string column.
+     *
+     * @return the value and reject reason, or {@code null} if the policies cannot be compiled
+     */
+    private Column[] compile(FieldPolicy fieldPolicy, HCatDataType dataType, Column source) {
+        if (!dataType.isString() || fieldPolicy.getAllPolicies() == null) {
+            return null;
+        }
+
+        Column current = source;
+        Column rules = null;
+
+        for (BaseFieldPolicy policy : fieldPolicy.getAllPolicies()) {
+            if (policy instanceof StandardizationPolicy) {
+                current = standardize((StandardizationPolicy) policy, source, current);
+                if (current == null) {
+                    return null;
+                }
+            }
+            if (policy instanceof ValidationPolicy) {
+                Column valid = isValid((ValidationPolicy) policy, current);
+                if (valid == null) {
+                    return null;
+                }
+
+                // Validation stops at the first failure but the final check still applies
+                Column failure = lit(ruleFailure(dataType, (ValidationPolicy) policy));
+                Column finalCheck = finalValidationCheck(fieldPolicy, dataType, current);
+                if (finalCheck != null) {
+                    failure = concat(failure, coalesce(concat(lit(","), finalCheck), lit("")));
+                }
+                rules = (rules == null) ? when(not(valid), failure) : rules.when(not(valid), failure);
+            }
+        }
+
+        Column finalCheck = finalValidationCheck(fieldPolicy, dataType, current);
+        Column reason = (rules == null) ? finalCheck : (finalCheck == null) ? rules : rules.otherwise(finalCheck);
+        Column value = (reason == null) ? current : when(reason.isNull(), current).otherwise(source);
+        return new Column[]{value, reason};
+    }
+
+    /**
+     * Compiles the equivalent of {@link Validator#finalValidationCheck}.
+     *
+     * @return the reject reason, or {@code null} if the value is always valid
+     */
+    private Column finalValidationCheck(FieldPolicy fieldPolicy, HCatDataType dataType, Column value) {
+        Column isEmpty = value.isNull().or(value.equalTo(""));
+        Column reason = null;
+
+        ValidationPolicy notNull = fieldPolicy.getNotNullValidator();
+        if (notNull != null) {
+            reason = when(isEmpty, when(not(isValid(notNull, value)), ruleFailure(dataType, notNull)));
+        }
+        if (!fieldPolicy.shouldSkipSchemaValidation() && dataType.getMaxLength() < Integer.MAX_VALUE) {
+            Column tooLong = not(isEmpty).and(javaLength(value).gt(dataType.getMaxLength()));
+            String failure = ValidationResult.failField("incompatible", dataType.getName(), "Not convertible to " + dataType.getNativeType()).toJSON();
+            reason = (reason == null) ? when(tooLong, failure) : reason.when(tooLong, failure);
+        }
+        return reason;
+    }
+
+    /**
+     * Compiles a standardizer.
+     *
+     * @return the standardized value, or {@code null} if the standardizer is not supported
+     */
+    private Column standardize(StandardizationPolicy policy, Column source, Column current) {
+        Column accepts = source.isNotNull().and(source.notEqual(""));
+        if (policy.getClass() == LowercaseStandardizer.class) {
+            return when(accepts, lower(current)).otherwise(current);
+        } else if (policy.getClass() == UppercaseStandardizer.class) {
+            return when(accepts, upper(current)).otherwise(current);
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a validator.
+     *
+     * @return the condition for a valid value, or {@code null} if the validator is not supported
+     */
+    private Column isValid(ValidationPolicy policy, Column value) {
+        if (policy.getClass() == NotNullValidator.class) {
+            NotNullValidator notNull = (NotNullValidator) policy;
+            if (notNull.isAllowEmptyString()) {
+                return value.isNotNull();
+            } else if (notNull.isTrimString()) {
+                return value.isNotNull().and(value.rlike(NON_TRIMMED_CHAR));
+            } else {
+                return value.isNotNull().and(value.notEqual(""));
+            }
+        } else if (policy.getClass() == LengthValidator.class) {
+            LengthValidator length = (LengthValidator) policy;
+            return value.isNull().or(javaLength(value).between(length.getMinLength(), length.getMaxLength()));
+        } else if (policy.getClass() == LookupValidator.class) {
+            LookupValidator lookup = (LookupValidator) policy;
+            return lookup.getLookupValues().isEmpty() ? lit(false) : coalesce(value.isin(lookup.getLookupValues().toArray()), lit(false));
+        } else if (policy.getClass() == RegexValidator.class) {
+            RegexValidator regex = (RegexValidator) policy;
+            if (regex.getPattern() == null) {
+                return lit(true);
+            }
+
+            // Anchor the pattern to match the whole value, unless the pattern could consume the anchors
+            String pattern = regex.getPattern().pattern();
+            if (pattern.contains("\\Q") || pattern.contains("#")) {
+                return null;
+            }
+            return value.isNull().or(value.rlike("^(?:" + pattern + ")\\z"));
+        }
+        return null;
+    }
+
+    /**
+     * Length of a string in UTF-16 code units, like {@link String#length()}, rather than the code points counted by Spark.
+     */
+    private Column javaLength(Column value) {
+        return length(value).plus(length(regexp_replace(value, NON_SUPPLEMENTARY_CHARS, "")));
+    }
+
+    private String ruleFailure(HCatDataType dataType, ValidationPolicy policy) {
+        return ValidationResult.failFieldRule("rule", dataType.getName(), policy.getClass().getSimpleName(), "Rule violation").toJSON();
+    }
+
+    /**
+     * Gets the cleansed value of the specified column in a validated data set.
+     */
+    private Column valueOf(int idx) {
+        return (compiled[idx] != null) ? col("__v" + idx) : col("__u" + idx).getField("value");
+    }
+
+    /**
+     * Gets the reject reason of the specified column in a validated data set.
+     *
+     * @return the reason, or {@code null} if the column is always valid
+     */
+    private Column reasonOf(int idx) {
+        if (compiled[idx] != null) {
+            return (compiled[idx][1] != null) ? col("__r" + idx) : null;
+        }
+        return col("__u" + idx).getField("reason");
+    }
+
+    /**
+     * Spark function to cleanse and validate a field whose policies cannot be compiled.
+     */
+    private static class ValidateField implements UDF1<String, Row> {
+
+        private static final long serialVersionUID = -2906398237766853307L;
+
+        private final Validator validator;
+        private final FieldPolicy fieldPolicy;
+        private final HCatDataType dataType;
+
+        ValidateField(Validator validator, FieldPolicy fieldPolicy, HCatDataType dataType) {
+            this.validator = validator;
+            this.fieldPolicy = fieldPolicy;
+            this.dataType = dataType;
+        }
+
+        @Override
+        public Row call(String value) throws Exception {
+            StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, value, dataType);
+            if (result.getFinalValidationResult().isValid()) {
+                return RowFactory.create(result.getFieldValueForValidation(), null);
+            }
+
+            List<String> reasons = new ArrayList<>();
+            for (ValidationResult validationResult : result.getValidationResults()) {
+                reasons.add(validationResult.toJSON());
+            }
+            return RowFactory.create(value, StringUtils.join(reasons, ","));
+        }
+    }
+}
@@ -43,6 +43,9 @@ public class CommandLineParams implements Serializable {
     @Parameter(names = "--numPartitions", description = "Number of RDD partitions")
     private Integer numPartitions = DEFAULT_NUM_PARTITIONS;
 
+    @Parameter(names = "--columnar", description = "Validate using Spark SQL expressions instead of row by row")
+    private boolean columnar = false;
+
     public List<Param> getHiveParams() {
         return hiveParams == null ? new ArrayList<Param>(0) : hiveParams;
     }
@@ -54,4 +57,8 @@ public class CommandLineParams implements Serializable {
     public Integer getNumPartitions() {
         return numPartitions;
     }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
 }
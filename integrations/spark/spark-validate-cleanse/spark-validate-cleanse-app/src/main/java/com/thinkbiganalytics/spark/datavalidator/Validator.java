@@ -144,6 +144,7 @@ public class Validator implements Serializable {
             System.out.println("You can optionally add: --hiveConf hive.setting=value --hiveConf hive.other.setting=value");
             System.out.println("You can optionally add: --storageLevel rdd_persistence_level_value");
             System.out.println("You can optionally add: --numPartitions number_of_rdd_partitions");
+            System.out.println("You can optionally add: --columnar");
             System.out.println("You provided " + args.length + " args which are (comma separated): " + StringUtils.join(args, ","));
             System.exit(1);
         }
@@ -211,58 +212,83 @@ public class Validator implements Serializable {
             log.info("Persistence level: {}", params.getStorageLevel());
 
             // Validate and cleanse input rows
-            JavaRDD<CleansedRowResult> cleansedRowResultRDD;
-            if (params.getNumPartitions() <= 0) {
-                cleansedRowResultRDD = sourceRDD.map(new Function<Row, CleansedRowResult>() {
-                    @Override
-                    public CleansedRowResult call(Row row) throws Exception {
-                        return cleanseAndValidateRow(row);
-                    }
-                }).persist(StorageLevel.fromString(params.getStorageLevel()));
-            } else {
-                log.info("Partition count: " + params.getNumPartitions());
-                cleansedRowResultRDD = sourceRDD.repartition(params.getNumPartitions()).map(new Function<Row, CleansedRowResult>() {
-                    @Override
-                    public CleansedRowResult call(Row row) throws Exception {
-                        return cleanseAndValidateRow(row);
-                    }
-                }).persist(StorageLevel.fromString(params.getStorageLevel()));
-            }
+            final DataSet invalidDF;
+            final DataSet validatedDF;
+            final long[] fieldInvalidCounts;
+            final DataSet columnarDF;
+            JavaRDD<CleansedRowResult> cleansedRowResultRDD = null;
+
+            if (params.isColumnar() && ColumnarValidator.isSupported(sourceDF.schema(), schema)) {
+                log.info("Validating with column expressions");
+                if (params.getNumPartitions() > 0) {
+                    log.info("Partition count: " + params.getNumPartitions());
+                    sourceDF = scs.toDataSet(getHiveContext(), sourceRDD.repartition(params.getNumPartitions()), sourceDF.schema());
+                }
 
+                ColumnarValidator columnarValidator = new ColumnarValidator(this, policies, schema);
+                columnarDF = columnarValidator.validate(getHiveContext(), sourceDF).persist(StorageLevel.fromString(params.getStorageLevel()));
 
-            // Return a new rdd based for Valid Results
-            JavaRDD<Row> validResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
-                @Override
-                public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.rowIsValid;
+                invalidDF = columnarValidator.toResults(columnarDF, invalidSchema, false);
+                validatedDF = columnarValidator.toResults(columnarDF, validSchema, true);
+                fieldInvalidCounts = columnarValidator.toCounts(columnarDF);
+            } else {
+                if (params.isColumnar()) {
+                    log.warn("Source table has columns that are not strings. Validating row by row.");
                 }
-            }).map(new Function<CleansedRowResult, Row>() {
-                @Override
-                public Row call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.row;
+                columnarDF = null;
+
+                if (params.getNumPartitions() <= 0) {
+                    cleansedRowResultRDD = sourceRDD.map(new Function<Row, CleansedRowResult>() {
+                        @Override
+                        public CleansedRowResult call(Row row) throws Exception {
+                            return cleanseAndValidateRow(row);
+                        }
+                    }).persist(StorageLevel.fromString(params.getStorageLevel()));
+                } else {
+                    log.info("Partition count: " + params.getNumPartitions());
+                    cleansedRowResultRDD = sourceRDD.repartition(params.getNumPartitions()).map(new Function<Row, CleansedRowResult>() {
+                        @Override
+                        public CleansedRowResult call(Row row) throws Exception {
+                            return cleanseAndValidateRow(row);
+                        }
+                    }).persist(StorageLevel.fromString(params.getStorageLevel()));
                 }
-            });
 
-            // Return a new rdd based for Invalid Results
-            JavaRDD<Row> invalidResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
-                @Override
-                public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.rowIsValid == false;
-                }
-            }).map(new Function<CleansedRowResult, Row>() {
-                @Override
-                public Row call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.row;
-                }
-            });
 
-            // Counts of invalid columns, total valid rows and total invalid rows
-            long[] fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
+                // Return a new rdd based for Valid Results
+                JavaRDD<Row> validResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
+                    @Override
+                    public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.rowIsValid;
+                    }
+                }).map(new Function<CleansedRowResult, Row>() {
+                    @Override
+                    public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.row;
+                    }
+                });
+
+                // Return a new rdd based for Invalid Results
+                JavaRDD<Row> invalidResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
+                    @Override
+                    public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.rowIsValid == false;
+                    }
+                }).map(new Function<CleansedRowResult, Row>() {
+                    @Override
+                    public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.row;
+                    }
+                });
 
-            //Create the 2 new Data Frames for the invalid and valid results
-            final DataSet invalidDF = scs.toDataSet(getHiveContext(), invalidResultRDD, invalidSchema);
+                // Counts of invalid columns, total valid rows and total invalid rows
+                fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
 
-            final DataSet validatedDF = scs.toDataSet(getHiveContext(), validResultRDD, validSchema);
+                //Create the 2 new Data Frames for the invalid and valid results
+                invalidDF = scs.toDataSet(getHiveContext(), invalidResultRDD, invalidSchema);
+
+                validatedDF = scs.toDataSet(getHiveContext(), validResultRDD, validSchema);
+            }
 
             DataSet invalidDataFrame = null;
             // ensure the dataframe matches the correct schema
@@ -290,7 +316,12 @@ public class Validator implements Serializable {
             long validCount = fieldInvalidCounts[schema.length];
             long invalidCount = fieldInvalidCounts[schema.length + 1];
 
-            cleansedRowResultRDD.unpersist();
+            if (cleansedRowResultRDD != null) {
+                cleansedRowResultRDD.unpersist();
+            }
+            if (columnarDF != null) {
+                columnarDF.unpersist();
+            }
 
             log.info("Valid count {} invalid count {}", validCount, invalidCount);
 
@@ -449,7 +480,7 @@ public class Validator implements Serializable {
     /**
      * Spark function to perform both cleansing and validation of a data row based on data policies and the target datatype
      */
-    private CleansedRowResult cleanseAndValidateRow(Row row) {
+    CleansedRowResult cleanseAndValidateRow(Row row) {
         int nulls = 1;
 
         // Create placeholder for the new values plus one columns for reject_reason
@@ -749,6 +780,14 @@ public class Validator implements Serializable {
         return pols.toArray(new FieldPolicy[0]);
     }
 
+    /**
+     * Sets the field policies and target data types, as resolved by {@link #doValidate()}.
+     */
+    void setPolicies(FieldPolicy[] policies, HCatDataType[] schema) {
+        this.policies = policies;
+        this.schema = schema;
+    }
+
     private void addParameters(CommandLineParams params) {
         this.params = params;
     }
@@ -0,0 +1,181 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * kylo-spark-validate-cleanse-spark-v1
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
+import com.thinkbiganalytics.policy.standardization.LowercaseStandardizer;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.LengthValidator;
+import com.thinkbiganalytics.policy.validation.LookupValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.RegexValidator;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.DataSet16;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Verifies that {@link ColumnarValidator} produces the same results as validating row by row.
+ */
+public class ColumnarValidatorV1Test {
+
+    private static JavaSparkContext sc;
+
+    private static SQLContext sqlContext;
+
+    @BeforeClass
+    public static void setUpClass() {
+        SparkConf conf = new SparkConf();
+        conf.setMaster("local[*]");
+        conf.setAppName("Columnar Validator Test - Spark 1");
+        sc = new JavaSparkContext(conf);
+        sqlContext = new SQLContext(sc);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        sc.stop();
+    }
+
+    @Test
+    public void testCompiledPolicies() {
+        FieldPolicy[] policies = new FieldPolicy[]{
+            policy("name", new NotNullValidator(false, true), LowercaseStandardizer.instance(), new LengthValidator(2, 6)),
+            policy("code", UppercaseStandardizer.instance(), new LookupValidator("AB,CD,\u00c9"), new RegexValidator("[A-Z]{2}|.")),
+            policy("comment", new NotNullValidator(true, false)),
+            FieldPolicyBuilder.SKIP_VALIDATION
+        };
+        HCatDataType[] schema = new HCatDataType[]{
+            HCatDataType.createFromDataType("name", "string"),
+            HCatDataType.createFromDataType("code", "varchar(2)"),
+            HCatDataType.createFromDataType("comment", "string"),
+            HCatDataType.createFromDataType("processing_dttm", "string")
+        };
+
+        assertSameResults(policies, schema, Arrays.asList(
+            RowFactory.create("Alice", "ab", "x", "1"),
+            RowFactory.create("  ", "cd", "", "1"),
+            RowFactory.create("Bartholomew", "EF", null, "1"),
+            RowFactory.create("\ud83d\ude00\ud83d\ude00\ud83d\ude00", "\u00e9", "y", "1"),
+            RowFactory.create("", "", "", "1"),
+            RowFactory.create(null, null, null, "1"),
+            RowFactory.create("Bob", "abc", "z", "1")
+        ));
+    }
+
+    @Test
+    public void testFunctionPolicies() {
+        FieldPolicy[] policies = new FieldPolicy[]{
+            policy("id", new RangeValidator(1, 100)),
+            policy("phone", new SimpleRegexReplacer("[^0-9]", ""), new NotNullValidator(false, false)),
+            policy("name", LowercaseStandardizer.instance()),
+            FieldPolicyBuilder.SKIP_VALIDATION
+        };
+        HCatDataType[] schema = new HCatDataType[]{
+            HCatDataType.createFromDataType("id", "int"),
+            HCatDataType.createFromDataType("phone", "string"),
+            HCatDataType.createFromDataType("name", "string"),
+            HCatDataType.createFromDataType("processing_dttm", "string")
+        };
+
+        assertSameResults(policies, schema, Arrays.asList(
+            RowFactory.create("5", "(555) 123-4567", "ALICE", "1"),
+            RowFactory.create("500", "555", "Bob", "1"),
+            RowFactory.create("abc", "---", "Carol", "1"),
+            RowFactory.create(null, null, null, "1")
+        ));
+    }
+
+    private void assertSameResults(FieldPolicy[] policies, HCatDataType[] schema, List<Row> rows) {
+        Validator validator = new Validator();
+        validator.setPolicies(policies, schema);
+
+        // Validate row by row
+        List<String> expectedValid = new ArrayList<>();
+        List<String> expectedInvalid = new ArrayList<>();
+        long[] expectedCounts = new long[schema.length + 2];
+        for (Row row : rows) {
+            CleansedRowResult result = validator.cleanseAndValidateRow(row);
+            (result.rowIsValid ? expectedValid : expectedInvalid).add(result.row.toString());
+            for (int i = 0; i < schema.length; i++) {
+                expectedCounts[i] += result.columnsValid[i] ? 0 : 1;
+            }
+            expectedCounts[schema.length + (result.rowIsValid ? 0 : 1)]++;
+        }
+
+        // Validate with column expressions
+        List<StructField> fields = new ArrayList<>();
+        for (HCatDataType dataType : schema) {
+            fields.add(DataTypes.createStructField(dataType.getName(), DataTypes.StringType, true));
+        }
+        StructType sourceSchema = DataTypes.createStructType(fields);
+        fields.add(fields.size() - 1, DataTypes.createStructField("dlp_reject_reason", DataTypes.StringType, true));
+        StructType resultSchema = DataTypes.createStructType(fields);
+
+        DataSet source = new DataSet16(sqlContext.createDataFrame(sc.parallelize(rows, 2), sourceSchema));
+        Assert.assertTrue(ColumnarValidator.isSupported(source.schema(), schema));
+
+        ColumnarValidator columnarValidator = new ColumnarValidator(validator, policies, schema);
+        DataSet validated = columnarValidator.validate(sqlContext, source);
+
+        Assert.assertEquals(sorted(expectedValid), sorted(toStrings(columnarValidator.toResults(validated, resultSchema, true))));
+        Assert.assertEquals(sorted(expectedInvalid), sorted(toStrings(columnarValidator.toResults(validated, resultSchema, false))));
+        Assert.assertArrayEquals(expectedCounts, columnarValidator.toCounts(validated));
+    }
+
+    private FieldPolicy policy(String name, BaseFieldPolicy... policies) {
+        return FieldPolicyBuilder.newBuilder().addPolicies(Arrays.asList(policies)).tableName("emp").fieldName(name).feedFieldName(name).build();
+    }
+
+    private List<String> toStrings(DataSet dataSet) {
+        List<String> strings = new ArrayList<>();
+        for (Row row : dataSet.collectAsList()) {
+            strings.add(row.toString());
+        }
+        return strings;
+    }
+
+    private List<String> sorted(List<String> strings) {
+        Collections.sort(strings);
+        return strings;
+    }
+}
@@ -0,0 +1,38 @@
+package com.thinkbiganalytics.metadata.api.sla;
+
+/*-
+ * #%L
+ * thinkbig-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+
+import org.joda.time.DateTime;
+
+/**
+ * A metric whose assessment can change by the passing of time alone, for example when the data for a feed has not arrived by a late time.
+ * The method is not a bean getter so it is not written out with the metric's JSON.
+ */
+public interface DeadlineMetric extends Metric {
+
+    /**
+     * @param time the time to start from
+     * @return the first time after {@code time} at which the metric should be assessed, or null if there is none
+     */
+    DateTime nextDeadline(DateTime time);
+}
@@ -22,42 +22,36 @@ package com.thinkbiganalytics.discovery.parsers.csv;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.QuoteMode;
-import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Vector;
-import java.util.stream.Collectors;
 
 /**
- * Infers CSV format for a sample file
+ * Infers CSV format for a sample file.
+ *
+ * The sample is read in a single pass that collects the delimiter and quote counts of each line, and the number of fields in each record for every combination of quote and delimiter, so the
+ * sample does not have to be parsed again for each candidate delimiter.
  */
-
 class CSVAutoDetect {
 
-    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(CSVFileSchemaParser.class);
-
-    private static <K, V extends Comparable<? super V>> Map<K, V> sortMapByValue(Map<K, V> map) {
-        return map.entrySet()
-            .stream()
-            .sorted(Map.Entry.comparingByValue(Collections.reverseOrder()))
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
-                (e1, e2) -> e1,
-                LinkedHashMap::new
-            ));
-    }
+    /**
+     * Candidate delimiters, in order of preference when the first line contains the same number of several delimiters
+     */
+    private static final char[] DELIMITERS = {',', '\t', '|', ';', ':', ' ', '+'};
+
+    /**
+     * Candidate quote characters, in order of preference
+     */
+    private static final char[] QUOTES = {'"', '\''};
+
+    /**
+     * Maximum number of lines used to compare delimiter and quote counts
+     */
+    private static final int MAX_STAT_LINES = 100;
 
     /**
      * Parses a sample file to allow schema specification when creating a new feed.
@@ -67,206 +61,282 @@ class CSVAutoDetect {
      * @throws IOException If there is an error parsing the sample file
      */
     public CSVFormat detectCSVFormat(String sampleText, boolean headerRow) throws IOException {
-        CSVFormat format = CSVFormat.DEFAULT.withAllowMissingColumnNames();
-        try (BufferedReader br = new BufferedReader(new StringReader(sampleText))) {
-            List<LineStats> lineStats = generateStats(br);
-            Character quote = guessQuote(lineStats);
-            Character delim = guessDelimiter(lineStats, sampleText, quote, headerRow);
-            if (delim == null) {
-                throw new IOException("Unrecognized format");
-            }
-            format = format.withDelimiter(delim);
-            format = format.withQuoteMode(QuoteMode.MINIMAL).withQuote(quote);
+        SampleStats stats = new SampleStats();
+        stats.scan(sampleText);
+        int quote = stats.guessQuote();
+        Character delim = stats.guessDelimiter(quote, headerRow);
+        if (delim == null) {
+            throw new IOException("Unrecognized format");
         }
-        return format;
-    }
-
-    private List<LineStats> generateStats(BufferedReader br) throws IOException {
-        List<LineStats> lineStats = new Vector<>();
-        String line;
-        int rows = 0;
-        br.mark(32765);
-        while ((line = br.readLine()) != null && rows < 100) {
-            LineStats stats = new LineStats(line);
-            rows++;
-            lineStats.add(stats);
+        if (headerRow) {
+            // reading the header rejects missing or duplicate column names
+            try (CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withDelimiter(delim).withQuote(QUOTES[quote]).parse(new StringReader(sampleText))) {
+                parser.getHeaderMap();
+            }
         }
-        br.reset();
-        return lineStats;
+        return CSVFormat.DEFAULT.withAllowMissingColumnNames().withDelimiter(delim).withQuoteMode(QuoteMode.MINIMAL).withQuote(QUOTES[quote]);
     }
 
-    private boolean hasEscapes(List<LineStats> lineStats) {
-        for (LineStats lineStat : lineStats) {
-            if (lineStat.escapes) {
-                return true;
+    private static int indexOf(char[] chars, char c) {
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) {
+                return i;
             }
         }
-        return false;
+        return -1;
     }
 
-    private Character guessQuote(List<LineStats> lineStats) {
-        Character[] quoteTypeSupported = {Character.valueOf('"'), Character.valueOf('\'')};
-        boolean match = false;
-        for (Character quoteType : quoteTypeSupported) {
-            boolean quoteTypeFound = lineStats.stream().anyMatch(lineStat -> lineStat.containsNoDelimCharOfType(quoteType));
-            if (quoteTypeFound) {
-                match = lineStats.stream().allMatch(lineStat -> lineStat.hasLegalQuotedStringOfChar(quoteType));
-            }
-            if (match) {
-                return quoteType;
+    /**
+     * Statistics collected from a single pass over the sample
+     */
+    static class SampleStats {
+
+        /**
+         * Number of lines counted, up to {@link #MAX_STAT_LINES}
+         */
+        int lines;
+
+        /**
+         * Delimiter counts of the first line
+         */
+        final int[] firstLineDelims = new int[DELIMITERS.length];
+
+        /**
+         * Whether each line has the same delimiter count as the first line
+         */
+        final boolean[] lineConsistent = new boolean[DELIMITERS.length];
+
+        /**
+         * Whether any line contains the quote, and whether every line contains an even number of them
+         */
+        final boolean[] quoteFound = new boolean[QUOTES.length];
+        final boolean[] quoteLegal = new boolean[QUOTES.length];
+
+        /**
+         * Field counters for each quote and delimiter
+         */
+        final RecordCounter[][] records = new RecordCounter[QUOTES.length][DELIMITERS.length];
+
+        private final int[] lineDelims = new int[DELIMITERS.length];
+        private final int[] lineQuotes = new int[QUOTES.length];
+        private char lastSpecial;
+        private boolean lineStarted;
+
+        SampleStats() {
+            Arrays.fill(lineConsistent, true);
+            Arrays.fill(quoteLegal, true);
+            for (int q = 0; q < QUOTES.length; q++) {
+                for (int d = 0; d < DELIMITERS.length; d++) {
+                    records[q][d] = new RecordCounter(QUOTES[q], DELIMITERS[d]);
+                }
             }
         }
-        return CSVFormat.DEFAULT.getQuoteCharacter();
-    }
 
-    private Character guessDelimiter(List<LineStats> lineStats, String value, Character quote, boolean headerRow) throws IOException {
-
-        // Assume delimiter exists in first line and compare to subsequent lines
-        if (lineStats.size() > 0) {
-            LineStats firstLineStat = lineStats.get(0);
-            Map<Character, Integer> firstLineDelimCounts = firstLineStat.calcDelimCountsOrdered();
-            if (firstLineDelimCounts != null && firstLineDelimCounts.size() > 0) {
-                List<Character> candidates = new ArrayList<>();
-                // Attempt to parse given delimiter
-                Set<Character> firstLineDelimKeys = firstLineDelimCounts.keySet();
-                for (Character delim : firstLineDelimKeys) {
-                    CSVFormat format;
-                    if (headerRow) {
-                        format = CSVFormat.DEFAULT.withFirstRecordAsHeader().withDelimiter(delim).withQuote(quote);
+        void scan(String sample) {
+            int length = sample.length();
+            for (int i = 0; i < length; i++) {
+                char c = sample.charAt(i);
+                for (RecordCounter[] counters : records) {
+                    for (RecordCounter counter : counters) {
+                        counter.accept(c);
                     }
-                    else {
-                        format = CSVFormat.DEFAULT.withDelimiter(delim).withQuote(quote);
-                    }
-                    try (StringReader sr = new StringReader(value)) {
-                        try (CSVParser parser = format.parse(sr)) {
-                            if (parser.getHeaderMap() != null) {
-                                int size = parser.getHeaderMap().size();
-                                List<CSVRecord> records = parser.getRecords();
-                                boolean match = records.stream().allMatch(record -> record.size() == size);
-                                if (match) {
-                                    return delim;
-                                }
+                }
+                if (c == '\r' || c == '\n') {
+                    endLine();
+                    if (c == '\r' && i + 1 < length && sample.charAt(i + 1) == '\n') {
+                        i++;
+                        for (RecordCounter[] counters : records) {
+                            for (RecordCounter counter : counters) {
+                                counter.accept('\n');
                             }
                         }
                     }
-                    Integer delimCount = firstLineDelimCounts.get(delim);
-                    boolean match = true;
-                    for (int i = 1; i < lineStats.size() && match; i++) {
-                        LineStats thisLine = lineStats.get(i);
-                        Integer rowDelimCount = thisLine.delimStats.get(delim);
-                        match = delimCount.equals(rowDelimCount);
-                    }
-                    if (match) {
-                        candidates.add(delim);
-                    }
+                } else {
+                    countLineChar(c);
                 }
-                if (candidates.size() > 0) {
-                    // All agree on a single delimiter
-                    if (candidates.size() == 1) {
-                        return candidates.get(0);
-                    } else {
-                        int count = 0;
-                        // Return highest delimiter from candidates
-                        for (Character delim : firstLineDelimKeys) {
-                            if (candidates.get(count++) != null) {
-                                return delim;
-                            }
-                        }
+            }
+            if (lineStarted) {
+                endLine();
+            }
+            for (RecordCounter[] counters : records) {
+                for (RecordCounter counter : counters) {
+                    counter.finish();
+                }
+            }
+        }
+
+        /**
+         * Count the delimiters and quotes in the line.  A delimiter following a backslash is treated as escaped.
+         */
+        private void countLineChar(char c) {
+            lineStarted = true;
+            if (lines >= MAX_STAT_LINES) {
+                return;
+            }
+            int delim = indexOf(DELIMITERS, c);
+            if (delim >= 0) {
+                if (lastSpecial != '\\') {
+                    lineDelims[delim]++;
+                }
+                lastSpecial = c;
+                return;
+            }
+            int quote = indexOf(QUOTES, c);
+            if (quote >= 0) {
+                lineQuotes[quote]++;
+                lastSpecial = c;
+            } else if (c == '<' || c == '>' || c == '\\') {
+                lastSpecial = c;
+            }
+        }
+
+        private void endLine() {
+            if (lines < MAX_STAT_LINES) {
+                for (int d = 0; d < DELIMITERS.length; d++) {
+                    if (lines == 0) {
+                        firstLineDelims[d] = lineDelims[d];
+                    } else if (lineDelims[d] != firstLineDelims[d]) {
+                        lineConsistent[d] = false;
                     }
                 }
+                for (int q = 0; q < QUOTES.length; q++) {
+                    quoteFound[q] |= lineQuotes[q] > 0;
+                    quoteLegal[q] &= lineQuotes[q] % 2 == 0;
+                }
+                lines++;
             }
+            Arrays.fill(lineDelims, 0);
+            Arrays.fill(lineQuotes, 0);
+            lastSpecial = 0;
+            lineStarted = false;
         }
-        return null;
-    }
 
-    static class LineStats {
-
-        Map<Character, Integer> delimStats = new HashMap<Character, Integer>();
-        Map<Character, Integer> nonDelimStats = new HashMap<Character, Integer>();
-        Character lastChar;
-        boolean escapes;
-        Character firstDelim;
-
-        public LineStats(String line) {
-            // Look for delimiters
-            char[] chars = line.toCharArray();
-            for (int i = 0; i < chars.length; i++) {
-                char c = chars[i];
-                switch (c) {
-                    case ' ':
-                        increment(' ', true);
-                        break;
-                    case ':':
-                        increment(':', true);
-                        break;
-                    case ';':
-                        increment(';', true);
-                        break;
-                    case ',':
-                        increment(',', true);
-                        break;
-                    case '|':
-                        increment('|', true);
-                        break;
-                    case '\t':
-                        increment('\t', true);
-                        break;
-                    case '+':
-                        increment('+', true);
-                        break;
-                    case '"':
-                        increment('"', false);
-                        break;
-                    case '\'':
-                        increment('\'', false);
-                        break;
-                    case '<':
-                        increment('<', false);
-                        break;
-                    case '>':
-                        increment('>', false);
-                        break;
-                    case '\\':
-                        increment('\\', false);
-                        break;
-                    default:
+        /**
+         * @return the index of the quote found with balanced quotes on every line, or the default quote
+         */
+        int guessQuote() {
+            for (int q = 0; q < QUOTES.length; q++) {
+                if (quoteFound[q] && quoteLegal[q]) {
+                    return q;
                 }
             }
+            return indexOf(QUOTES, CSVFormat.DEFAULT.getQuoteCharacter());
         }
 
-        boolean containsNoDelimCharOfType(Character quoteType) {
-            Integer count = nonDelimStats.get(quoteType);
-            return (count != null);
+        /**
+         * Choose a delimiter found in the first line.  With a header row, the delimiter giving every record the same number of fields as the header is preferred.  Otherwise a delimiter found the
+         * same number of times on every line is used.
+         *
+         * @return the delimiter or {@code null} if none match
+         */
+        Character guessDelimiter(int quote, boolean headerRow) {
+            if (lines == 0) {
+                return null;
+            }
+            List<Integer> ordered = new ArrayList<>();
+            for (int d = 0; d < DELIMITERS.length; d++) {
+                if (firstLineDelims[d] > 0) {
+                    ordered.add(d);
+                }
+            }
+            ordered.sort((d1, d2) -> Integer.compare(firstLineDelims[d2], firstLineDelims[d1]));
+
+            Character candidate = null;
+            for (int d : ordered) {
+                if (headerRow && records[quote][d].consistent) {
+                    return DELIMITERS[d];
+                }
+                if (candidate == null && lineConsistent[d]) {
+                    candidate = DELIMITERS[d];
+                }
+            }
+            return candidate;
         }
+    }
 
-        boolean hasLegalQuotedStringOfChar(Character quoteType) {
-            Integer count = nonDelimStats.get(quoteType);
-            return (count == null || count.intValue() % 2 == 0);
+    /**
+     * Counts the fields of each record for a quote and delimiter, following the rules of {@link CSVFormat#DEFAULT}, and checks every record has as many fields as the first
+     */
+    static class RecordCounter {
+
+        final char quote;
+        final char delim;
+
+        boolean consistent = true;
+        int firstRecordFields = -1;
+
+        private int fields = 1;
+        private boolean recordStarted;
+        private boolean fieldStart = true;
+        private boolean inQuote;
+        private boolean closingQuote;
+        private boolean afterQuote;
+
+        RecordCounter(char quote, char delim) {
+            this.quote = quote;
+            this.delim = delim;
         }
 
-        void increment(Character c, boolean delim) {
-            if (delim) {
-                if (lastChar == null || (lastChar != '\\') || (lastChar == '\\' && c == '\\')) {
-                    Integer val = delimStats.get(c);
-                    val = (val == null ? 1 : val.intValue() + 1);
-                    if (val == 1) {
-                        firstDelim = c;
-                    }
-                    delimStats.put(c, val);
-                } else {
-                    escapes = true;
+        void accept(char c) {
+            if (closingQuote) {
+                closingQuote = false;
+                if (c == quote) {
+                    // an escaped quote within the quoted value
+                    return;
+                }
+                inQuote = false;
+                afterQuote = true;
+            } else if (inQuote) {
+                if (c == quote) {
+                    closingQuote = true;
                 }
+                return;
+            }
+
+            if (c == '\n' || c == '\r') {
+                if (recordStarted) {
+                    endRecord();
+                }
+                return;
+            }
+            recordStarted = true;
+            if (c == delim) {
+                fields++;
+                fieldStart = true;
+                afterQuote = false;
+            } else if (afterQuote) {
+                // only whitespace may follow the closing quote
+                if (!Character.isWhitespace(c)) {
+                    consistent = false;
+                }
+            } else if (fieldStart && c == quote) {
+                inQuote = true;
+                fieldStart = false;
             } else {
-                Integer val = nonDelimStats.get(c);
-                val = (val == null ? 1 : val.intValue() + 1);
-                nonDelimStats.put(c, val);
+                fieldStart = false;
             }
-            lastChar = c;
         }
 
-        public Map<Character, Integer> calcDelimCountsOrdered() {
-            return sortMapByValue(delimStats);
+        void finish() {
+            if (inQuote && !closingQuote) {
+                // unterminated quote
+                consistent = false;
+            }
+            if (recordStarted) {
+                endRecord();
+            }
         }
 
+        private void endRecord() {
+            if (firstRecordFields < 0) {
+                firstRecordFields = fields;
+            } else if (fields != firstRecordFields) {
+                consistent = false;
+            }
+            fields = 1;
+            recordStarted = false;
+            fieldStart = true;
+            afterQuote = false;
+        }
     }
 }
@@ -0,0 +1,561 @@
+package com.thinkbiganalytics.discovery.parsers.hadoop;
+
+/*-
+ * #%L
+ * thinkbig-schema-discovery-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.model.DefaultQueryResult;
+import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn;
+import com.thinkbiganalytics.discovery.schema.QueryResult;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.codehaus.jackson.JsonNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the Hive schema of a file from the schema stored in the file itself, without sampling any records.
+ *
+ * Avro files store their schema in the file header, while ORC and Parquet files store it in the file footer.
+ * Formats without a stored schema, such as JSON, must be sampled by Spark instead.
+ */
+public class FileMetadataSchemaReader {
+
+    /**
+     * ORC compression kinds that can be read without a native codec
+     */
+    private static final int ORC_COMPRESSION_NONE = 0;
+    private static final int ORC_COMPRESSION_ZLIB = 1;
+
+    private static final String[] ORC_PRIMITIVE_TYPES = {"boolean", "tinyint", "smallint", "int", "bigint", "float", "double", "string", "binary", "timestamp"};
+
+    private static final int ORC_LIST = 10;
+    private static final int ORC_MAP = 11;
+    private static final int ORC_STRUCT = 12;
+    private static final int ORC_UNION = 13;
+    private static final int ORC_DECIMAL = 14;
+    private static final int ORC_DATE = 15;
+    private static final int ORC_VARCHAR = 16;
+    private static final int ORC_CHAR = 17;
+
+    private FileMetadataSchemaReader() {
+    }
+
+    /**
+     * Determine if the schema of files of the given type can be read from the file metadata
+     */
+    public static boolean isSupported(SparkFileSchemaParserService.SparkFileType fileType) {
+        return fileType == SparkFileSchemaParserService.SparkFileType.AVRO || fileType == SparkFileSchemaParserService.SparkFileType.ORC
+               || fileType == SparkFileSchemaParserService.SparkFileType.PARQUET;
+    }
+
+    /**
+     * Read the columns of the file from its metadata.
+     *
+     * @param file     the local file
+     * @param fileType the format of the file
+     * @return the columns with Hive data types and no rows, or {@code null} if the file metadata cannot be read locally
+     * @throws IOException if the file cannot be read or is not of the given format
+     */
+    public static QueryResult read(File file, SparkFileSchemaParserService.SparkFileType fileType) throws IOException {
+        List<QueryResultColumn> columns;
+        switch (fileType) {
+            case AVRO:
+                columns = readAvro(file);
+                break;
+            case PARQUET:
+                columns = readParquet(file);
+                break;
+            case ORC:
+                columns = readOrc(file);
+                break;
+            default:
+                columns = null;
+        }
+        if (columns == null) {
+            return null;
+        }
+        DefaultQueryResult result = new DefaultQueryResult(file.getName());
+        result.setColumns(columns);
+        return result;
+    }
+
+    private static QueryResultColumn newColumn(String name, String dataType) {
+        QueryResultColumn column = new DefaultQueryResultColumn();
+        column.setField(name);
+        column.setDisplayName(name);
+        column.setHiveColumnLabel(name);
+        column.setDataType(dataType);
+        return column;
+    }
+
+    // Avro
+
+    private static List<QueryResultColumn> readAvro(File file) throws IOException {
+        Schema schema;
+        try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+            schema = reader.getSchema();
+        }
+        if (schema.getType() != Schema.Type.RECORD) {
+            return null;
+        }
+        List<QueryResultColumn> columns = new ArrayList<>();
+        for (Schema.Field field : schema.getFields()) {
+            String type = toHiveType(field.schema());
+            if (type == null) {
+                return null;
+            }
+            columns.add(newColumn(field.name(), type));
+        }
+        return columns;
+    }
+
+    /**
+     * Convert the Avro schema to a Hive type, or {@code null} if there is no equivalent Hive type
+     */
+    static String toHiveType(Schema schema) {
+        String logicalType = schema.getProp("logicalType");
+        switch (schema.getType()) {
+            case BOOLEAN:
+                return "boolean";
+            case INT:
+                return "date".equals(logicalType) ? "date" : "int";
+            case LONG:
+                return "timestamp-millis".equals(logicalType) ? "timestamp" : "bigint";
+            case FLOAT:
+                return "float";
+            case DOUBLE:
+                return "double";
+            case STRING:
+            case ENUM:
+                return "string";
+            case BYTES:
+            case FIXED:
+                if ("decimal".equals(logicalType)) {
+                    return decimal(getIntProp(schema, "precision"), getIntProp(schema, "scale"));
+                }
+                return "binary";
+            case ARRAY:
+                return wrap("array", toHiveType(schema.getElementType()));
+            case MAP:
+                return wrap("map", "string", toHiveType(schema.getValueType()));
+            case RECORD:
+                List<String> fields = new ArrayList<>();
+                for (Schema.Field field : schema.getFields()) {
+                    String type = toHiveType(field.schema());
+                    if (type == null) {
+                        return null;
+                    }
+                    fields.add(field.name() + ":" + type);
+                }
+                return "struct<" + String.join(",", fields) + ">";
+            case UNION:
+                List<Schema> types = schema.getTypes().stream().filter(type -> type.getType() != Schema.Type.NULL).collect(Collectors.toList());
+                return types.size() == 1 ? toHiveType(types.get(0)) : null;
+            default:
+                return null;
+        }
+    }
+
+    private static int getIntProp(Schema schema, String name) {
+        JsonNode value = schema.getJsonProp(name);
+        return value != null ? value.getIntValue() : 0;
+    }
+
+    // Parquet
+
+    private static List<QueryResultColumn> readParquet(File file) throws IOException {
+        GroupType schema = ParquetFileReader.readFooter(new Configuration(), new Path(file.toURI()), ParquetMetadataConverter.SKIP_ROW_GROUPS).getFileMetaData().getSchema();
+        List<QueryResultColumn> columns = new ArrayList<>();
+        for (Type field : schema.getFields()) {
+            String type = toHiveType(field);
+            if (type == null) {
+                return null;
+            }
+            columns.add(newColumn(field.getName(), type));
+        }
+        return columns;
+    }
+
+    /**
+     * Convert the Parquet type to a Hive type, or {@code null} if there is no equivalent Hive type
+     */
+    static String toHiveType(Type type) {
+        String hiveType = toHiveElementType(type);
+        return type.isRepetition(Type.Repetition.REPEATED) ? wrap("array", hiveType) : hiveType;
+    }
+
+    private static String toHiveElementType(Type type) {
+        OriginalType originalType = type.getOriginalType();
+        if (type.isPrimitive()) {
+            PrimitiveType primitive = type.asPrimitiveType();
+            if (originalType == OriginalType.DECIMAL) {
+                return decimal(primitive.getDecimalMetadata().getPrecision(), primitive.getDecimalMetadata().getScale());
+            }
+            switch (primitive.getPrimitiveTypeName()) {
+                case BOOLEAN:
+                    return "boolean";
+                case INT32:
+                    if (originalType == OriginalType.DATE) {
+                        return "date";
+                    } else if (originalType == OriginalType.INT_8) {
+                        return "tinyint";
+                    } else if (originalType == OriginalType.INT_16) {
+                        return "smallint";
+                    }
+                    return "int";
+                case INT64:
+                    return originalType == OriginalType.TIMESTAMP_MILLIS ? "timestamp" : "bigint";
+                case INT96:
+                    return "timestamp";
+                case FLOAT:
+                    return "float";
+                case DOUBLE:
+                    return "double";
+                case BINARY:
+                    return (originalType == OriginalType.UTF8 || originalType == OriginalType.ENUM || originalType == OriginalType.JSON) ? "string" : "binary";
+                default:
+                    return "binary";
+            }
+        }
+
+        GroupType group = type.asGroupType();
+        if (originalType == OriginalType.LIST && group.getFieldCount() == 1) {
+            Type repeated = group.getType(0);
+            if (repeated.isPrimitive() || repeated.asGroupType().getFieldCount() > 1 || repeated.getName().equals("array") || repeated.getName().endsWith("_tuple")) {
+                return wrap("array", toHiveElementType(repeated));
+            }
+            return wrap("array", toHiveType(repeated.asGroupType().getType(0)));
+        }
+        if ((originalType == OriginalType.MAP || originalType == OriginalType.MAP_KEY_VALUE) && group.getFieldCount() == 1 && !group.getType(0).isPrimitive()
+            && group.getType(0).asGroupType().getFieldCount() == 2) {
+            GroupType keyValue = group.getType(0).asGroupType();
+            return wrap("map", toHiveType(keyValue.getType(0)), toHiveType(keyValue.getType(1)));
+        }
+        List<String> fields = new ArrayList<>();
+        for (Type field : group.getFields()) {
+            String fieldType = toHiveType(field);
+            if (fieldType == null) {
+                return null;
+            }
+            fields.add(field.getName() + ":" + fieldType);
+        }
+        return "struct<" + String.join(",", fields) + ">";
+    }
+
+    // ORC
+
+    /**
+     * Read the ORC postscript and footer.  Returns {@code null} if the footer uses a compression codec other than zlib.
+     */
+    private static List<QueryResultColumn> readOrc(File file) throws IOException {
+        byte[] tail;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+            if (length < 4) {
+                throw new IOException("Not an ORC file: " + file);
+            }
+            input.seek(length - 1);
+            int postScriptLength = input.readUnsignedByte();
+            byte[] postScript = new byte[postScriptLength];
+            input.seek(length - 1 - postScriptLength);
+            input.readFully(postScript);
+
+            long footerLength = -1;
+            int compression = ORC_COMPRESSION_NONE;
+            String magic = null;
+            ProtobufInput ps = new ProtobufInput(postScript);
+            while (ps.hasMore()) {
+                int tag = ps.readTag();
+                switch (tag >>> 3) {
+                    case 1:
+                        footerLength = ps.readVarint();
+                        break;
+                    case 2:
+                        compression = (int) ps.readVarint();
+                        break;
+                    case 8000:
+                        magic = new String(ps.readBytes(), StandardCharsets.UTF_8);
+                        break;
+                    default:
+                        ps.skip(tag);
+                }
+            }
+            if (!"ORC".equals(magic) || footerLength < 0 || footerLength > length - 1 - postScriptLength) {
+                throw new IOException("Not an ORC file: " + file);
+            }
+            if (compression != ORC_COMPRESSION_NONE && compression != ORC_COMPRESSION_ZLIB) {
+                return null;
+            }
+            tail = new byte[(int) footerLength];
+            input.seek(length - 1 - postScriptLength - footerLength);
+            input.readFully(tail);
+            if (compression == ORC_COMPRESSION_ZLIB) {
+                tail = inflateOrc(tail);
+            }
+        }
+
+        List<OrcType> types = new ArrayList<>();
+        ProtobufInput footer = new ProtobufInput(tail);
+        while (footer.hasMore()) {
+            int tag = footer.readTag();
+            if (tag >>> 3 == 4) {
+                types.add(OrcType.parse(footer.readBytes()));
+            } else {
+                footer.skip(tag);
+            }
+        }
+        if (types.isEmpty() || types.get(0).kind != ORC_STRUCT) {
+            throw new IOException("ORC file has no root struct: " + file);
+        }
+
+        OrcType root = types.get(0);
+        List<QueryResultColumn> columns = new ArrayList<>();
+        for (int i = 0; i < root.subtypes.size(); i++) {
+            columns.add(newColumn(root.fieldNames.get(i), toHiveType(types, root.subtypes.get(i))));
+        }
+        return columns;
+    }
+
+    private static String toHiveType(List<OrcType> types, int index) {
+        OrcType type = types.get(index);
+        switch (type.kind) {
+            case ORC_LIST:
+                return wrap("array", toHiveType(types, type.subtypes.get(0)));
+            case ORC_MAP:
+                return wrap("map", toHiveType(types, type.subtypes.get(0)), toHiveType(types, type.subtypes.get(1)));
+            case ORC_STRUCT:
+                List<String> fields = new ArrayList<>();
+                for (int i = 0; i < type.subtypes.size(); i++) {
+                    fields.add(type.fieldNames.get(i) + ":" + toHiveType(types, type.subtypes.get(i)));
+                }
+                return "struct<" + String.join(",", fields) + ">";
+            case ORC_UNION:
+                return "uniontype<" + type.subtypes.stream().map(subtype -> toHiveType(types, subtype)).collect(Collectors.joining(",")) + ">";
+            case ORC_DECIMAL:
+                // files written before Hive 0.13 have no precision
+                return type.precision > 0 ? decimal(type.precision, type.scale) : decimal(38, 18);
+            case ORC_DATE:
+                return "date";
+            case ORC_VARCHAR:
+                return "varchar(" + type.maximumLength + ")";
+            case ORC_CHAR:
+                return "char(" + type.maximumLength + ")";
+            default:
+                if (type.kind >= 0 && type.kind < ORC_PRIMITIVE_TYPES.length) {
+                    return ORC_PRIMITIVE_TYPES[type.kind];
+                }
+                throw new IllegalArgumentException("Unknown ORC type: " + type.kind);
+        }
+    }
+
+    /**
+     * Decompress a zlib compressed ORC stream.  Each chunk has a 3 byte header containing its length and whether it is stored uncompressed.
+     */
+    private static byte[] inflateOrc(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+        byte[] buffer = new byte[64 * 1024];
+        int offset = 0;
+        while (offset + 3 <= compressed.length) {
+            int header = (compressed[offset] & 0xff) | (compressed[offset + 1] & 0xff) << 8 | (compressed[offset + 2] & 0xff) << 16;
+            int chunkLength = header >>> 1;
+            offset += 3;
+            if (offset + chunkLength > compressed.length) {
+                throw new IOException("Truncated ORC footer");
+            }
+            if ((header & 1) == 1) {
+                out.write(compressed, offset, chunkLength);
+            } else {
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(compressed, offset, chunkLength);
+                    while (!inflater.finished() && !inflater.needsInput()) {
+                        out.write(buffer, 0, inflater.inflate(buffer));
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Invalid ORC footer", e);
+                } finally {
+                    inflater.end();
+                }
+            }
+            offset += chunkLength;
+        }
+        return out.toByteArray();
+    }
+
+    // Hive types
+
+    private static String decimal(int precision, int scale) {
+        return "decimal(" + precision + "," + scale + ")";
+    }
+
+    private static String wrap(String type, String... elementTypes) {
+        for (String elementType : elementTypes) {
+            if (elementType == null) {
+                return null;
+            }
+        }
+        return type + "<" + String.join(",", elementTypes) + ">";
+    }
+
+    /**
+     * A type from the ORC footer
+     */
+    private static class OrcType {
+
+        int kind;
+        List<Integer> subtypes = new ArrayList<>();
+        List<String> fieldNames = new ArrayList<>();
+        int maximumLength;
+        int precision;
+        int scale;
+
+        static OrcType parse(byte[] bytes) throws IOException {
+            OrcType type = new OrcType();
+            ProtobufInput input = new ProtobufInput(bytes);
+            while (input.hasMore()) {
+                int tag = input.readTag();
+                switch (tag >>> 3) {
+                    case 1:
+                        type.kind = (int) input.readVarint();
+                        break;
+                    case 2:
+                        if ((tag & 7) == ProtobufInput.LENGTH_DELIMITED) {
+                            ProtobufInput packed = new ProtobufInput(input.readBytes());
+                            while (packed.hasMore()) {
+                                type.subtypes.add((int) packed.readVarint());
+                            }
+                        } else {
+                            type.subtypes.add((int) input.readVarint());
+                        }
+                        break;
+                    case 3:
+                        type.fieldNames.add(new String(input.readBytes(), StandardCharsets.UTF_8));
+                        break;
+                    case 4:
+                        type.maximumLength = (int) input.readVarint();
+                        break;
+                    case 5:
+                        type.precision = (int) input.readVarint();
+                        break;
+                    case 6:
+                        type.scale = (int) input.readVarint();
+                        break;
+                    default:
+                        input.skip(tag);
+                }
+            }
+            return type;
+        }
+    }
+
+    /**
+     * Reads the protocol buffer wire format used by the ORC postscript and footer
+     */
+    private static class ProtobufInput {
+
+        static final int VARINT = 0;
+        static final int FIXED64 = 1;
+        static final int LENGTH_DELIMITED = 2;
+        static final int FIXED32 = 5;
+
+        private final byte[] bytes;
+        private int position;
+
+        ProtobufInput(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasMore() {
+            return position < bytes.length;
+        }
+
+        int readTag() throws IOException {
+            return (int) readVarint();
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IOException("Truncated protobuf message");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed protobuf varint");
+        }
+
+        byte[] readBytes() throws IOException {
+            int length = (int) readVarint();
+            if (length < 0 || position + length > bytes.length) {
+                throw new IOException("Truncated protobuf message");
+            }
+            byte[] value = new byte[length];
+            System.arraycopy(bytes, position, value, 0, length);
+            position += length;
+            return value;
+        }
+
+        void skip(int tag) throws IOException {
+            switch (tag & 7) {
+                case VARINT:
+                    readVarint();
+                    break;
+                case FIXED64:
+                    position += 8;
+                    break;
+                case LENGTH_DELIMITED:
+                    // read the length before updating the position, which readVarint advances
+                    int length = (int) readVarint();
+                    position += length;
+                    break;
+                case FIXED32:
+                    position += 4;
+                    break;
+                default:
+                    throw new IOException("Unsupported protobuf wire type " + (tag & 7));
+            }
+        }
+    }
+}
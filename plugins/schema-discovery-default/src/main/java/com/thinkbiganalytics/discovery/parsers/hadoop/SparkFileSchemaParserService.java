@@ -56,7 +56,7 @@ import java.util.regex.Pattern;
 import javax.inject.Inject;
 
 /**
- * Utilizes Spark's support to infer schema from a sample file
+ * Infers the schema of a sample file.  The schema of Avro, ORC and Parquet files is read from the file metadata, while other formats use Spark's support to infer the schema.
  */
 @Component
 public class SparkFileSchemaParserService {
@@ -75,12 +75,17 @@ public class SparkFileSchemaParserService {
     private SparkShellRestClient restClient;
 
     /**
-     * Delegate to spark shell service to load the file into a temporary table and loading it
+     * Read the schema from the file metadata if the format stores its schema, otherwise delegate to spark shell service to load the file into a temporary table and loading it
      */
     public Schema doParse(InputStream inputStream, SparkFileType fileType, TableSchemaType tableSchemaType) throws IOException {
 
         File tempFile = toFile(inputStream);
         try {
+            QueryResult metadata = readFileMetadata(tempFile, fileType);
+            if (metadata != null) {
+                return toSchema(metadata, fileType, tableSchemaType);
+            }
+
             SparkShellProcess shellProcess = shellProcessManager.getSystemProcess();
             TransformResponse response = restClient.transform(shellProcess, createTransformRequest(tempFile, fileType));
             while (response.getStatus() != TransformResponse.Status.SUCCESS) {
@@ -106,6 +111,20 @@ public class SparkFileSchemaParserService {
     }
     // Port: 8450
 
+    /**
+     * Read the schema stored in the file, returning {@code null} if Spark should be used instead
+     */
+    private QueryResult readFileMetadata(File localFile, SparkFileType fileType) {
+        if (FileMetadataSchemaReader.isSupported(fileType)) {
+            try {
+                return FileMetadataSchemaReader.read(localFile, fileType);
+            } catch (Exception e) {
+                log.debug("Unable to read the {} schema from file metadata, falling back to Spark: {}", fileType, e.getMessage());
+            }
+        }
+        return null;
+    }
+
     private TransformRequest createTransformRequest(File localFile, SparkFileType fileType) {
         TransformRequest transformRequest = new TransformRequest();
         transformRequest.setScript(toScript(localFile, fileType));
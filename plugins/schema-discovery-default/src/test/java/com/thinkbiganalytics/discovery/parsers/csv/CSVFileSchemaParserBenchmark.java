@@ -0,0 +1,88 @@
+package com.thinkbiganalytics.discovery.parsers.csv;
+
+/*-
+ * #%L
+ * thinkbig-schema-discovery-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.schema.Schema;
+import com.thinkbiganalytics.discovery.util.ParserHelper;
+import com.thinkbiganalytics.discovery.util.TableSchemaType;
+
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures schema detection of a generated 1000 column CSV file.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.thinkbiganalytics.discovery.parsers.csv.CSVFileSchemaParserBenchmark -Dexec.classpathScope=test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CSVFileSchemaParserBenchmark {
+
+    private byte[] file;
+
+    private String sample;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CSVFileSchemaParserBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        file = CSVTestData.wideFile(1000, 100).getBytes(StandardCharsets.UTF_8);
+        sample = ParserHelper.extractSampleLines(new ByteArrayInputStream(file), StandardCharsets.UTF_8, 100);
+    }
+
+    @Benchmark
+    public String extractSample() throws IOException {
+        return ParserHelper.extractSampleLines(new ByteArrayInputStream(file), StandardCharsets.UTF_8, 100);
+    }
+
+    @Benchmark
+    public CSVFormat detectFormat() throws IOException {
+        return new CSVAutoDetect().detectCSVFormat(sample, true);
+    }
+
+    @Benchmark
+    public Schema parseHiveSchema() throws IOException {
+        return new CSVFileSchemaParser().parse(new ByteArrayInputStream(file), StandardCharsets.UTF_8, TableSchemaType.HIVE);
+    }
+}
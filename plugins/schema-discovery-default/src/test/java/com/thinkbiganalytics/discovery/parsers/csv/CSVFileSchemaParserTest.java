@@ -259,6 +259,26 @@ public class CSVFileSchemaParserTest {
         }
     }
 
+    /**
+     * A wide file larger than the sample limit is detected from the complete lines within the limit, and its column types derived in parallel
+     */
+    @org.junit.Test
+    public void testWideFile() throws Exception {
+        parser.setAutoDetect(true);
+        try (InputStream is = toInputStream(CSVTestData.wideFile(1000, 100))) {
+            HiveTableSchema schema = toHiveTableSchema(is);
+            List<? extends Field> fields = schema.getFields();
+            assertEquals(1000, fields.size());
+            assertEquals(",", parser.getSeparatorChar());
+            assertEquals("\"", parser.getQuoteChar());
+
+            IntStream.range(0, fields.size()).forEach(idx -> {
+                assertEquals("column_" + idx, fields.get(idx).getName());
+                assertEquals(idx % 4 == 0 ? "int" : idx % 4 == 1 ? "double" : "string", fields.get(idx).getDerivedDataType());
+            });
+        }
+    }
+
     private void checkInvalidFormatException(IOException e) {
         assertTrue("Expecting unrecognized format exception", e.getLocalizedMessage().contains("Unrecognized format"));
     }
@@ -0,0 +1,67 @@
+package com.thinkbiganalytics.discovery.parsers.csv;
+
+/*-
+ * #%L
+ * thinkbig-schema-discovery-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Generates delimited sample files for tests and benchmarks
+ */
+public class CSVTestData {
+
+    /**
+     * Generate a comma delimited file with a header row.  Columns cycle through integer, double, plain string and quoted string values containing the delimiter.
+     *
+     * @param columns the number of columns
+     * @param rows    the number of rows after the header
+     * @return the file contents
+     */
+    public static String wideFile(int columns, int rows) {
+        StringBuilder sb = new StringBuilder();
+        for (int col = 0; col < columns; col++) {
+            if (col > 0) {
+                sb.append(',');
+            }
+            sb.append("column_").append(col);
+        }
+        sb.append('\n');
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                if (col > 0) {
+                    sb.append(',');
+                }
+                switch (col % 4) {
+                    case 0:
+                        sb.append(row * col);
+                        break;
+                    case 1:
+                        sb.append(row).append('.').append(col);
+                        break;
+                    case 2:
+                        sb.append("value").append(row);
+                        break;
+                    default:
+                        sb.append("\"city ").append(col).append(", state\"");
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
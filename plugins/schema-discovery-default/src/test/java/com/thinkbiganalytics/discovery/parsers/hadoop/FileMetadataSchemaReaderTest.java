@@ -0,0 +1,281 @@
+package com.thinkbiganalytics.discovery.parsers.hadoop;
+
+/*-
+ * #%L
+ * thinkbig-schema-discovery-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.schema.QueryResult;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.GroupWriteSupport;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+public class FileMetadataSchemaReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verify the Avro schema is read from the file header
+     */
+    @Test
+    public void testAvro() throws Exception {
+        Schema schema = SchemaBuilder.record("test").fields()
+            .requiredInt("id")
+            .optionalString("name")
+            .name("scores").type().array().items().longType().noDefault()
+            .name("tags").type().map().values().stringType().noDefault()
+            .endRecord();
+        File file = folder.newFile("test.avro");
+        try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+            writer.create(schema, file);
+        }
+
+        QueryResult result = FileMetadataSchemaReader.read(file, SparkFileSchemaParserService.SparkFileType.AVRO);
+        Assert.assertEquals(Arrays.asList("id int", "name string", "scores array<bigint>", "tags map<string,string>"), describe(result));
+    }
+
+    @Test
+    public void testAvroDecimal() {
+        Schema decimal = new Schema.Parser().parse("{\"type\": \"bytes\", \"logicalType\": \"decimal\", \"precision\": 10, \"scale\": 2}");
+        Assert.assertEquals("decimal(10,2)", FileMetadataSchemaReader.toHiveType(decimal));
+
+        Schema union = new Schema.Parser().parse("[\"int\", \"string\"]");
+        Assert.assertNull(FileMetadataSchemaReader.toHiveType(union));
+    }
+
+    /**
+     * Verify the Parquet schema is read from the file footer
+     */
+    @Test
+    public void testParquet() throws Exception {
+        MessageType schema = MessageTypeParser.parseMessageType("message test { required int32 id; optional binary name (UTF8); }");
+        File file = new File(folder.getRoot(), "test.parquet");
+        Configuration conf = new Configuration();
+        GroupWriteSupport.setSchema(schema, conf);
+        try (ParquetWriter<Group> writer = new ParquetWriter<>(new Path(file.toURI()), conf, new GroupWriteSupport())) {
+            writer.write(new SimpleGroupFactory(schema).newGroup().append("id", 1).append("name", "kylo"));
+        }
+
+        QueryResult result = FileMetadataSchemaReader.read(file, SparkFileSchemaParserService.SparkFileType.PARQUET);
+        Assert.assertEquals(Arrays.asList("id int", "name string"), describe(result));
+    }
+
+    /**
+     * Verify Parquet types, including the list and map layouts, are converted to Hive types
+     */
+    @Test
+    public void testParquetTypes() {
+        MessageType schema = MessageTypeParser.parseMessageType("message test {\n"
+                                                                + "  required int64 id;\n"
+                                                                + "  optional binary name (UTF8);\n"
+                                                                + "  optional binary data;\n"
+                                                                + "  optional int32 day (DATE);\n"
+                                                                + "  optional int96 ts;\n"
+                                                                + "  optional fixed_len_byte_array(8) amount (DECIMAL(17,2));\n"
+                                                                + "  optional group scores (LIST) {\n"
+                                                                + "    repeated group list {\n"
+                                                                + "      optional double element;\n"
+                                                                + "    }\n"
+                                                                + "  }\n"
+                                                                + "  repeated int32 legacy;\n"
+                                                                + "  optional group tags (MAP) {\n"
+                                                                + "    repeated group key_value {\n"
+                                                                + "      required binary key (UTF8);\n"
+                                                                + "      optional int32 value;\n"
+                                                                + "    }\n"
+                                                                + "  }\n"
+                                                                + "  optional group address {\n"
+                                                                + "    optional binary city (UTF8);\n"
+                                                                + "    optional boolean verified;\n"
+                                                                + "  }\n"
+                                                                + "}");
+        List<String> types = schema.getFields().stream().map(FileMetadataSchemaReader::toHiveType).collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("bigint", "string", "binary", "date", "timestamp", "decimal(17,2)", "array<double>", "array<int>", "map<string,int>",
+                                          "struct<city:string,verified:boolean>"), types);
+    }
+
+    /**
+     * Verify the ORC schema is read from an uncompressed footer
+     */
+    @Test
+    public void testOrc() throws Exception {
+        File file = writeOrcTail(orcFooter(), 0);
+
+        QueryResult result = FileMetadataSchemaReader.read(file, SparkFileSchemaParserService.SparkFileType.ORC);
+        Assert.assertEquals(Arrays.asList("id bigint", "name varchar(20)", "amount decimal(10,2)", "tags array<string>"), describe(result));
+    }
+
+    /**
+     * Verify the ORC schema is read from a zlib compressed footer
+     */
+    @Test
+    public void testOrcZlib() throws Exception {
+        byte[] footer = orcFooter();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(footer);
+        deflater.finish();
+        byte[] buffer = new byte[1024];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        int header = length << 1;
+        compressed.write(header & 0xff);
+        compressed.write((header >>> 8) & 0xff);
+        compressed.write((header >>> 16) & 0xff);
+        compressed.write(buffer, 0, length);
+
+        QueryResult result = FileMetadataSchemaReader.read(writeOrcTail(compressed.toByteArray(), 1), SparkFileSchemaParserService.SparkFileType.ORC);
+        Assert.assertEquals(4, result.getColumns().size());
+    }
+
+    /**
+     * Verify the ORC schema is read from a file written by the Hive ORC writer
+     */
+    @Test
+    public void testOrcFile() throws Exception {
+        File file = new File(FileMetadataSchemaReaderTest.class.getClassLoader().getResource("HiveTypes.orc").toURI());
+
+        QueryResult result = FileMetadataSchemaReader.read(file, SparkFileSchemaParserService.SparkFileType.ORC);
+        Assert.assertEquals(Arrays.asList("id int", "name string", "amount decimal(10,2)", "tags array<string>", "created timestamp", "flag boolean"), describe(result));
+    }
+
+    /**
+     * Snappy compressed ORC footers and JSON files are left to Spark
+     */
+    @Test
+    public void testFallback() throws Exception {
+        Assert.assertNull(FileMetadataSchemaReader.read(writeOrcTail(orcFooter(), 2), SparkFileSchemaParserService.SparkFileType.ORC));
+        Assert.assertFalse(FileMetadataSchemaReader.isSupported(SparkFileSchemaParserService.SparkFileType.JSON));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotOrc() throws Exception {
+        File file = folder.newFile("test.orc");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not an orc file".getBytes(StandardCharsets.UTF_8));
+        }
+        FileMetadataSchemaReader.read(file, SparkFileSchemaParserService.SparkFileType.ORC);
+    }
+
+    private List<String> describe(QueryResult result) {
+        return result.getColumns().stream().map(column -> column.getDisplayName() + " " + column.getDataType()).collect(Collectors.toList());
+    }
+
+    /**
+     * Footer with a struct of a bigint, varchar(20), decimal(10,2) and array of strings
+     */
+    private byte[] orcFooter() throws IOException {
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        writeBytes(footer, 4, orcType(12, new int[]{1, 2, 3, 4}, new String[]{"id", "name", "amount", "tags"}, 0, 0, 0));
+        writeBytes(footer, 4, orcType(4, new int[0], new String[0], 0, 0, 0));
+        writeBytes(footer, 4, orcType(16, new int[0], new String[0], 20, 0, 0));
+        writeBytes(footer, 4, orcType(14, new int[0], new String[0], 0, 10, 2));
+        writeBytes(footer, 4, orcType(10, new int[]{5}, new String[0], 0, 0, 0));
+        writeBytes(footer, 4, orcType(7, new int[0], new String[0], 0, 0, 0));
+        writeVarint(footer, 6 << 3);
+        writeVarint(footer, 100);
+        return footer.toByteArray();
+    }
+
+    private byte[] orcType(int kind, int[] subtypes, String[] fieldNames, int maximumLength, int precision, int scale) throws IOException {
+        ByteArrayOutputStream type = new ByteArrayOutputStream();
+        writeVarint(type, 1 << 3);
+        writeVarint(type, kind);
+        if (subtypes.length > 0) {
+            ByteArrayOutputStream packed = new ByteArrayOutputStream();
+            for (int subtype : subtypes) {
+                writeVarint(packed, subtype);
+            }
+            writeBytes(type, 2, packed.toByteArray());
+        }
+        for (String fieldName : fieldNames) {
+            writeBytes(type, 3, fieldName.getBytes(StandardCharsets.UTF_8));
+        }
+        if (maximumLength > 0) {
+            writeVarint(type, 4 << 3);
+            writeVarint(type, maximumLength);
+        }
+        if (precision > 0) {
+            writeVarint(type, 5 << 3);
+            writeVarint(type, precision);
+            writeVarint(type, 6 << 3);
+            writeVarint(type, scale);
+        }
+        return type.toByteArray();
+    }
+
+    private File writeOrcTail(byte[] footer, int compression) throws IOException {
+        ByteArrayOutputStream postScript = new ByteArrayOutputStream();
+        writeVarint(postScript, 1 << 3);
+        writeVarint(postScript, footer.length);
+        writeVarint(postScript, 2 << 3);
+        writeVarint(postScript, compression);
+        writeBytes(postScript, 8000, "ORC".getBytes(StandardCharsets.UTF_8));
+
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("ORC".getBytes(StandardCharsets.UTF_8));
+            out.write(footer);
+            out.write(postScript.toByteArray());
+            out.write(postScript.size());
+        }
+        return file;
+    }
+
+    private void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes) {
+        writeVarint(out, field << 3 | 2);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -31,7 +31,8 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.parser.CronParser;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
-import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.api.sla.DeadlineMetric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreementMetric;
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyRef;
@@ -39,10 +40,12 @@ import com.thinkbiganalytics.policy.PolicyPropertyTypes;
 import com.thinkbiganalytics.policy.PropertyLabelValue;
 import com.thinkbiganalytics.scheduler.util.TimerToCronExpression;
 
+import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.quartz.CronExpression;
 
 import java.text.ParseException;
+import java.util.Date;
 import java.util.Locale;
 
 /**
@@ -51,7 +54,7 @@ import java.util.Locale;
  */
 @ServiceLevelAgreementMetric(name = "Feed Processing deadline",
                              description = "Ensure a Feed processes data by a specified time")
-public class FeedOnTimeArrivalMetric implements Metric {
+public class FeedOnTimeArrivalMetric implements FeedMetric, DeadlineMetric {
 
     @PolicyProperty(name = "FeedName",
                     type = PolicyPropertyTypes.PROPERTY_TYPE.feedSelect,
@@ -147,6 +150,7 @@ public class FeedOnTimeArrivalMetric implements Metric {
             .toString();
     }
 
+    @Override
     public String getFeedName() {
         return feedName;
     }
@@ -178,6 +182,21 @@ public class FeedOnTimeArrivalMetric implements Metric {
         this.latePeriod = latePeriod;
     }
 
+    /**
+     * The data is late once the late period has passed after an expected time, so the next deadline is the first expected time
+     * whose late time is after the given time.
+     */
+    @Override
+    public DateTime nextDeadline(DateTime time) {
+        CronExpression expression = getExpectedExpression();
+        if (expression == null) {
+            return null;
+        }
+        Period period = latePeriod != null ? latePeriod : Period.ZERO;
+        Date expected = expression.getNextValidTimeAfter(time.minus(period).toDate());
+        return expected != null ? new DateTime(expected).plus(period) : null;
+    }
+
     private String generateCronDescription(String cronExp) {
         CronDefinition quartzDef = CronDefinitionBuilder.instanceDefinitionFor(CronType.QUARTZ);
         CronParser parser = new CronParser(quartzDef);
@@ -227,6 +227,18 @@ public class FeedOnTimeArrivalMetricAssessorTest {
         verify(this.builder).result(AssessmentResult.WARNING);
     }
 
+    /**
+     * The next deadline is the late time of the first expected time that is not yet late
+     */
+    @Test
+    public void testNextDeadline() {
+        DateTime beforeLate = new DateTime(2017, 1, 1, 15, 0);
+        Assert.assertEquals(this.metric.nextDeadline(beforeLate), new DateTime(2017, 1, 1, 16, 0));
+
+        DateTime afterLate = new DateTime(2017, 1, 1, 17, 0);
+        Assert.assertEquals(this.metric.nextDeadline(afterLate), new DateTime(2017, 1, 2, 16, 0));
+    }
+
 
     private BatchJobExecution createFeedJobExecution(DateTime endTime) {
         BatchJobExecution feed = mock(BatchJobExecution.class);
@@ -0,0 +1,243 @@
+package com.thinkbiganalytics.metadata.audit.core;
+
+/*-
+ * #%L
+ * thinkbig-audit-logging-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogProvider;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Buffers audit log entries and writes them from a background thread, many entries to a transaction.
+ *
+ * Entries keep the time they were submitted as their created time.  When the buffer is full the entry is handled according to
+ * {@code kylo.audit.log.buffer.overflow}: {@code BLOCK} waits for room, {@code WRITE_THROUGH} writes it in its own transaction on the
+ * calling thread, and {@code DISCARD} drops it with a warning.  Entries still buffered on shutdown are written before the writer stops.
+ */
+public class AuditLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    /**
+     * What to do with an entry when the buffer is full
+     */
+    public enum OverflowPolicy {
+        BLOCK, WRITE_THROUGH, DISCARD
+    }
+
+    @Inject
+    private AuditLogProvider provider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Value("${kylo.audit.log.buffer.size:10000}")
+    private int bufferSize;
+
+    @Value("${kylo.audit.log.batch.size:500}")
+    private int batchSize;
+
+    @Value("${kylo.audit.log.buffer.overflow:WRITE_THROUGH}")
+    private OverflowPolicy overflowPolicy;
+
+    /**
+     * How long to wait on shutdown for the writer thread to finish before the remaining entries are written from the shutdown thread
+     */
+    @Value("${kylo.audit.log.shutdown.timeout.seconds:30}")
+    private long shutdownTimeoutSeconds;
+
+    private final AtomicLong discarded = new AtomicLong();
+
+    private BlockingQueue<PendingEntry> buffer;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        running = true;
+        writer = new Thread(this::run, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(shutdownTimeoutSeconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Audit log writer did not finish within {} seconds, writing the remaining {} entries", shutdownTimeoutSeconds, buffer.size());
+        }
+        flush();
+    }
+
+    /**
+     * Submits a new audit log entry to be written
+     *
+     * @param user        a user attached to this audit entry
+     * @param type        the type of entry
+     * @param description a description about what happened
+     * @param entityId    an entity id associated with this audit entry
+     */
+    public void write(Principal user, String type, String description, String entityId) {
+        PendingEntry entry = new PendingEntry(user, type, description, entityId, DateTime.now());
+
+        if (!running || !enqueue(entry)) {
+            writeBatch(Collections.singletonList(entry));
+        } else if (!running) {
+            // The writer may have stopped while the entry was added
+            flush();
+        }
+    }
+
+    /**
+     * Adds the entry to the buffer, applying the overflow policy if it is full
+     *
+     * @return true if the entry was buffered or discarded, false if it should be written by the caller
+     */
+    private boolean enqueue(PendingEntry entry) {
+        if (buffer.offer(entry)) {
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    while (running) {
+                        if (buffer.offer(entry, 1, TimeUnit.SECONDS)) {
+                            return true;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            case DISCARD:
+                long count = discarded.incrementAndGet();
+                if (count == 1 || count % 1000 == 0) {
+                    log.warn("Audit log buffer of {} entries is full, {} entries have been discarded", bufferSize, count);
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void run() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingEntry first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - 1);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                log.warn("Audit log writer was interrupted with {} entries remaining", buffer.size());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered entries from the calling thread
+     */
+    private void flush() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the entries in a single transaction.  If the transaction fails the entries are retried one to a transaction so that
+     * one bad entry does not lose the others.
+     */
+    private void writeBatch(List<PendingEntry> batch) {
+        try {
+            metadataAccess.commit(() -> {
+                for (PendingEntry entry : batch) {
+                    provider.createEntry(entry.user, entry.type, entry.description, entry.entityId, entry.createdTime);
+                }
+            }, MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                log.warn("Failed to write {} audit log entries together, writing them separately", batch.size(), e);
+                for (PendingEntry entry : batch) {
+                    writeBatch(Collections.singletonList(entry));
+                }
+            } else {
+                log.error("Failed to write audit log entry: {}", batch.get(0), e);
+            }
+        }
+    }
+
+    /**
+     * An audit log entry waiting to be written
+     */
+    private static final class PendingEntry {
+
+        private final Principal user;
+        private final String type;
+        private final String description;
+        private final String entityId;
+        private final DateTime createdTime;
+
+        PendingEntry(Principal user, String type, String description, String entityId, DateTime createdTime) {
+            this.user = user;
+            this.type = type;
+            this.description = description;
+            this.entityId = entityId;
+            this.createdTime = createdTime;
+        }
+
+        @Override
+        public String toString() {
+            return type + " by " + (user != null ? user.getName() : null) + " at " + createdTime + ": " + description;
+        }
+    }
+}
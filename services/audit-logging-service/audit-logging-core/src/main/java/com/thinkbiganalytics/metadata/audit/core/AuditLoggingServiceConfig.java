@@ -34,6 +34,11 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class AuditLoggingServiceConfig {
 
+    @Bean
+    public AuditLogWriter auditLogWriter() {
+        return new AuditLogWriter();
+    }
+
     @Bean
     public AuditLoggingService auditLoggingService(MetadataEventService eventService) {
         AuditLoggingService auditService = new AuditLoggingService();
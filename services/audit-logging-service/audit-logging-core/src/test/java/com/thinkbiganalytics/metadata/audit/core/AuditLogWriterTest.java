@@ -0,0 +1,317 @@
+package com.thinkbiganalytics.metadata.audit.core;
+
+/*-
+ * #%L
+ * thinkbig-audit-logging-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogEntry;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogProvider;
+import com.thinkbiganalytics.security.UsernamePrincipal;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AuditLogWriterTest {
+
+    private static final Principal USER = new UsernamePrincipal("dladmin");
+
+    private final StubMetadataAccess metadataAccess = new StubMetadataAccess();
+
+    private final StubAuditLogProvider provider = new StubAuditLogProvider();
+
+    private AuditLogWriter writer;
+
+    @After
+    public void tearDown() {
+        metadataAccess.release.countDown();
+    }
+
+    /**
+     * Verify buffered entries are written together and all of them are written by stop.
+     */
+    @Test
+    public void testBatchesFlushedOnStop() {
+        start(100, 50, AuditLogWriter.OverflowPolicy.BLOCK);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add("entry-" + i);
+            writer.write(USER, "test", "entry-" + i, null);
+        }
+        writer.stop();
+
+        Assert.assertEquals(expected, provider.getDescriptions());
+        Assert.assertTrue(metadataAccess.transactions.get() < 1000);
+    }
+
+    /**
+     * Verify an entry written after stop is written immediately.
+     */
+    @Test
+    public void testWriteAfterStop() {
+        start(10, 10, AuditLogWriter.OverflowPolicy.BLOCK);
+        writer.stop();
+
+        writer.write(USER, "test", "late", null);
+        Assert.assertEquals(Collections.singletonList("late"), provider.getDescriptions());
+    }
+
+    /**
+     * Verify an entry is written on the calling thread when the buffer is full.
+     */
+    @Test
+    public void testWriteThroughWhenFull() throws Exception {
+        start(2, 1, AuditLogWriter.OverflowPolicy.WRITE_THROUGH);
+        fillBuffer();
+
+        writer.write(USER, "test", "overflow", null);
+        Assert.assertEquals(Collections.singletonList("overflow"), provider.getDescriptions());
+
+        metadataAccess.release.countDown();
+        writer.stop();
+        Assert.assertEquals(new HashSet<>(Arrays.asList("overflow", "first", "second", "third")), new HashSet<>(provider.getDescriptions()));
+    }
+
+    /**
+     * Verify an entry is dropped when the buffer is full.
+     */
+    @Test
+    public void testDiscardWhenFull() throws Exception {
+        start(2, 1, AuditLogWriter.OverflowPolicy.DISCARD);
+        fillBuffer();
+
+        writer.write(USER, "test", "overflow", null);
+
+        metadataAccess.release.countDown();
+        writer.stop();
+        Assert.assertEquals(Arrays.asList("first", "second", "third"), provider.getDescriptions());
+    }
+
+    /**
+     * Verify the caller waits for room when the buffer is full.
+     */
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        start(2, 1, AuditLogWriter.OverflowPolicy.BLOCK);
+        fillBuffer();
+
+        Thread caller = new Thread(() -> writer.write(USER, "test", "overflow", null));
+        caller.start();
+        caller.join(500);
+        Assert.assertTrue("caller did not wait for room in the buffer", caller.isAlive());
+        Assert.assertTrue(provider.getDescriptions().isEmpty());
+
+        metadataAccess.release.countDown();
+        caller.join(5000);
+        Assert.assertFalse(caller.isAlive());
+        writer.stop();
+        Assert.assertEquals(Arrays.asList("first", "second", "third", "overflow"), provider.getDescriptions());
+    }
+
+    /**
+     * Verify the entries of a failed batch are retried separately so only the bad entry is lost.
+     */
+    @Test
+    public void testFailedBatchRetriedPerEntry() throws Exception {
+        start(10, 10, AuditLogWriter.OverflowPolicy.BLOCK);
+        metadataAccess.gated = true;
+        writer.write(USER, "test", "first", null);
+        Assert.assertTrue(metadataAccess.writerBlocked.await(5, TimeUnit.SECONDS));
+
+        // Written as one batch once the writer is released
+        writer.write(USER, "test", "second", null);
+        writer.write(USER, "test", StubAuditLogProvider.BAD_ENTRY, null);
+        writer.write(USER, "test", "third", null);
+
+        metadataAccess.release.countDown();
+        writer.stop();
+        Assert.assertEquals(Arrays.asList("first", "second", "third"), provider.getDescriptions());
+    }
+
+    private void start(int bufferSize, int batchSize, AuditLogWriter.OverflowPolicy overflowPolicy) {
+        writer = new AuditLogWriter();
+        Whitebox.setInternalState(writer, "provider", provider);
+        Whitebox.setInternalState(writer, "metadataAccess", metadataAccess);
+        Whitebox.setInternalState(writer, "bufferSize", bufferSize);
+        Whitebox.setInternalState(writer, "batchSize", batchSize);
+        Whitebox.setInternalState(writer, "overflowPolicy", overflowPolicy);
+        Whitebox.setInternalState(writer, "shutdownTimeoutSeconds", 5L);
+        writer.start();
+    }
+
+    /**
+     * Holds the writer in the transaction for the first entry and fills a buffer of two entries behind it
+     */
+    private void fillBuffer() throws InterruptedException {
+        metadataAccess.gated = true;
+        writer.write(USER, "test", "first", null);
+        Assert.assertTrue(metadataAccess.writerBlocked.await(5, TimeUnit.SECONDS));
+        writer.write(USER, "test", "second", null);
+        writer.write(USER, "test", "third", null);
+    }
+
+    /**
+     * Runs each action as a transaction, holding the writer thread until released once gated
+     */
+    private class StubMetadataAccess implements MetadataAccess {
+
+        private volatile boolean gated;
+        private final CountDownLatch writerBlocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger transactions = new AtomicInteger();
+
+        @Override
+        public void commit(MetadataAction action, Principal... principals) {
+            if (gated && Thread.currentThread().getName().equals("audit-log-writer")) {
+                writerBlocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            provider.begin();
+            try {
+                action.execute();
+                provider.commit();
+                transactions.incrementAndGet();
+            } catch (Exception e) {
+                provider.rollback();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void read(MetadataAction cmd, Principal... principals) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Keeps the descriptions of the entries created in committed transactions, failing on {@link #BAD_ENTRY}
+     */
+    private static class StubAuditLogProvider implements AuditLogProvider {
+
+        static final String BAD_ENTRY = "bad";
+
+        private final ThreadLocal<List<String>> transaction = new ThreadLocal<>();
+        private final List<String> descriptions = new ArrayList<>();
+
+        void begin() {
+            transaction.set(new ArrayList<>());
+        }
+
+        synchronized void commit() {
+            descriptions.addAll(transaction.get());
+            transaction.remove();
+        }
+
+        void rollback() {
+            transaction.remove();
+        }
+
+        synchronized List<String> getDescriptions() {
+            return new ArrayList<>(descriptions);
+        }
+
+        @Override
+        public AuditLogEntry createEntry(Principal user, String type, String description, String entityId, DateTime createdTime) {
+            if (BAD_ENTRY.equals(description)) {
+                throw new IllegalArgumentException("Bad entry");
+            }
+            transaction.get().add(description);
+            return null;
+        }
+
+        @Override
+        public AuditLogEntry createEntry(Principal user, String type, String description, String entityId) {
+            return createEntry(user, type, description, entityId, DateTime.now());
+        }
+
+        @Override
+        public AuditLogEntry createEntry(Principal user, String type, String description) {
+            return createEntry(user, type, description, null);
+        }
+
+        @Override
+        public AuditLogEntry.ID resolveId(Serializable id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AuditLogEntry> list() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AuditLogEntry> list(int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<AuditLogEntry> findById(AuditLogEntry.ID id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AuditLogEntry> findByUser(Principal user) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.thinkbiganalytics.metadata.persistence.MetadataPersistenceConfig;
 import com.thinkbiganalytics.security.UsernamePrincipal;
 import com.thinkbiganalytics.testing.jpa.TestPersistenceConfiguration;
 
+import org.joda.time.DateTime;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
@@ -144,4 +145,20 @@ public class JpaAuditLogProviderTest extends AbstractTestNGSpringContextTests {
 
         assertThat(found).isEqualTo(id);
     }
+
+    @Test(dependsOnMethods = {"testListAll", "testList3", "testFindByAdmin", "testFindByUser", "testFindById"})
+    public void testAddEntryWithCreatedTime() {
+        final DateTime createdTime = new DateTime(2017, 1, 1, 12, 0, 0);
+        final AuditLogEntry.ID id = this.metadataAccess.commit(() -> {
+            return provider.createEntry(USER, "entity", "User: Earlier entity entry", UUID.randomUUID().toString(), createdTime).getId();
+        }, MetadataAccess.SERVICE);
+
+        Long found = this.metadataAccess.read(() -> {
+            return provider.findById(id)
+                .map(entry -> entry.getCreatedTime().getMillis())
+                .orElseThrow(() -> new AssertionError("Entry not found with id: " + id));
+        }, MetadataAccess.SERVICE);
+
+        assertThat(found).isEqualTo(createdTime.getMillis());
+    }
 }
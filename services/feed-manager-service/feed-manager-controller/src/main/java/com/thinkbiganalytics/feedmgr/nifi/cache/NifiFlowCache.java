@@ -164,6 +164,16 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
      */
     private Map<String, DateTime> lastSyncTimeMap = new ConcurrentHashMap<>();
 
+    /**
+     * Map with the sync Id and the version of the cache it last received
+     */
+    private Map<String, Long> syncVersionMap = new ConcurrentHashMap<>();
+
+    /**
+     * Log of the changes made to the cache so each sync only receives what changed since its last version
+     */
+    private NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
+
     private DateTime lastUpdated = null;
 
     @PostConstruct
@@ -221,6 +231,7 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         NiFiFlowCacheSync sync = getSync(syncId);
         if (!sync.isUnavailable()) {
             sync.reset();
+            syncVersionMap.remove(sync.getSyncId());
             return syncAndReturnUpdates(sync, false);
         } else {
             return NiFiFlowCacheSync.UNAVAILABLE;
@@ -269,6 +280,11 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
      */
     public NiFiFlowCacheSync getCache(String syncId) {
         NiFiFlowCacheSync sync = getSync(syncId);
+        if (!sync.isUnavailable()) {
+            NiFiFlowCacheSync cache = new NiFiFlowCacheSync(sync.getSyncId(), latestSnapshot());
+            cache.setLastSync(sync.getLastSync());
+            return cache;
+        }
         return sync;
     }
 
@@ -319,6 +335,8 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
                 this.connectionIdToConnectionMap.putAll(toConnectionIdMap(nifiFlowProcessGroup.getConnectionIdMap().values()));
             }
         });
+        //the whole cache was replaced so every sync needs a full snapshot
+        changeLog.reset();
         lastUpdated = DateTime.now();
         loaded = true;
 
@@ -446,58 +464,57 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
             applyClusterUpdates();
         }
 
-
-        if (sync.needsUpdate(lastUpdated)) {
-            Map<String, String> processorIdToFeedNameMapCopy = ImmutableMap.copyOf(processorIdToFeedNameMap);
-            Map<String, String> processorIdToFeedProcessGroupIdCopy = ImmutableMap.copyOf(processorIdToFeedProcessGroupId);
-            Map<String, String> processorIdToProcessorNameCopy = ImmutableMap.copyOf(processorIdToProcessorName);
-            Set<String> streamingFeedsCopy = ImmutableSet.copyOf(streamingFeeds);
-            Set<String> allFeedsCopy = ImmutableSet.copyOf(allFeeds);
-            Map<String, NiFiFlowCacheConnectionData> connectionDataMapCopy = ImmutableMap.copyOf(connectionIdToConnectionMap);
-
-            //get feeds updated since last sync
-            NifiFlowCacheSnapshot latest = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(processorIdToFeedNameMapCopy)
-                .withProcessorIdToFeedProcessGroupId(processorIdToFeedProcessGroupIdCopy)
-                .withProcessorIdToProcessorName(processorIdToProcessorNameCopy)
-                .withStreamingFeeds(streamingFeedsCopy)
-                .withFeeds(allFeedsCopy)
-                .withConnections(connectionDataMapCopy)
-                .withSnapshotDate(lastUpdated).build();
-            return syncAndReturnUpdates(sync, latest, preview);
-        } else {
+        long currentVersion = changeLog.getVersion();
+        Long syncVersion = syncVersionMap.get(sync.getSyncId());
+        if (syncVersion != null && syncVersion == currentVersion) {
             return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
         }
-    }
-
 
-    private NiFiFlowCacheSync syncAndReturnUpdates(NiFiFlowCacheSync sync, NifiFlowCacheSnapshot latest, boolean preview) {
-        if (latest != null && sync.needsUpdate(latest.getSnapshotDate())) {
-
-            NifiFlowCacheSnapshot updated = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(sync.getProcessorIdToFeedNameMapUpdatedSinceLastSync(latest.getProcessorIdToFeedNameMap()))
-                .withProcessorIdToFeedProcessGroupId(sync.getProcessorIdToProcessGroupIdUpdatedSinceLastSync(latest.getProcessorIdToFeedProcessGroupId()))
-                .withProcessorIdToProcessorName(sync.getProcessorIdToProcessorNameUpdatedSinceLastSync(latest.getProcessorIdToProcessorName()))
-                .withStreamingFeeds(latest.getAllStreamingFeeds())
-                .withConnections(sync.getConnectionIdToConnectionUpdatedSinceLastSync(latest.getConnectionIdToConnectionName(), latest.getConnectionIdToConnection()))
-                .withFeeds(sync.getFeedsUpdatedSinceLastSync(latest.getAllFeeds()))
+        NifiFlowCacheSnapshot updated = null;
+        NifiFlowCacheChangeLog.Changes changes = syncVersion != null ? changeLog.changesSince(syncVersion) : null;
+        if (changes != null) {
+            //only send what changed since this sync last received updates
+            updated = new NifiFlowCacheSnapshot.Builder()
+                .withProcessorIdToFeedNameMap(changes.getProcessorIdToFeedNameMap())
+                .withProcessorIdToFeedProcessGroupId(changes.getProcessorIdToFeedProcessGroupId())
+                .withProcessorIdToProcessorName(changes.getProcessorIdToProcessorName())
+                .withStreamingFeeds(ImmutableSet.copyOf(streamingFeeds))
+                .withConnections(changes.getConnectionIdToConnection())
+                .withFeeds(changes.getFeeds())
+                .withSnapshotDate(lastUpdated)
                 .build();
-            //reset the pointers on this sync to be the latest
-            if (!preview) {
-                sync.setSnapshot(latest);
-                sync.setLastSync(latest.getSnapshotDate());
-
-            }
-            NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
-            updatedSync.setUpdated(true);
-            if (!preview) {
-                updatedSync.setLastSync(latest.getSnapshotDate());
-            }
-            return updatedSync;
+            currentVersion = changes.getVersion();
+        } else {
+            //new sync, or one that has fallen behind the change log
+            updated = latestSnapshot();
+        }
 
+        if (!preview) {
+            syncVersionMap.put(sync.getSyncId(), currentVersion);
+            sync.setLastSync(lastUpdated);
+        }
+        NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
+        updatedSync.setUpdated(true);
+        if (!preview) {
+            updatedSync.setLastSync(lastUpdated);
         }
+        return updatedSync;
+    }
 
-        return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
+    /**
+     * Copy the entire cache
+     *
+     * @return a snapshot of everything in the cache
+     */
+    private NifiFlowCacheSnapshot latestSnapshot() {
+        return new NifiFlowCacheSnapshot.Builder()
+            .withProcessorIdToFeedNameMap(ImmutableMap.copyOf(processorIdToFeedNameMap))
+            .withProcessorIdToFeedProcessGroupId(ImmutableMap.copyOf(processorIdToFeedProcessGroupId))
+            .withProcessorIdToProcessorName(ImmutableMap.copyOf(processorIdToProcessorName))
+            .withStreamingFeeds(ImmutableSet.copyOf(streamingFeeds))
+            .withFeeds(ImmutableSet.copyOf(allFeeds))
+            .withConnections(ImmutableMap.copyOf(connectionIdToConnectionMap))
+            .withSnapshotDate(lastUpdated).build();
     }
 
 
@@ -622,6 +639,7 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         } else {
             streamingFeeds.removeAll(feedNames);
         }
+        changeLog.recordChange();
         if(notifyClusterMembers) {
             //mark the persistent table that this was updated
             if(nifiFlowCacheClusterManager.isClustered()) {
@@ -664,6 +682,7 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         });
 
         this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_NAME, processorIdToProcessorName);
 
         if(notifyClusterMembers) {
             if(nifiFlowCacheClusterManager.isClustered()) {
@@ -694,7 +713,9 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
 
             });
         }
-        this.connectionIdToConnectionMap.putAll(toConnectionIdMap(connectionIdToConnectionMap.values()));
+        Map<String, NiFiFlowCacheConnectionData> connectionData = toConnectionIdMap(connectionIdToConnectionMap.values());
+        this.connectionIdToConnectionMap.putAll(connectionData);
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.CONNECTION, connectionData);
 
         if(notifyClusterMembers) {
             if(nifiFlowCacheClusterManager.isClustered()) {
@@ -744,16 +765,10 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         feedProcessorIdProcessorMap.put(feedName, toProcessorIdProcessorMap(processors));
 
         updateProcessorIdMaps(feedProcessGroupId, processors);
-        Map<String, String> processorIdToProcessGroupId = new HashMap<>();
-        Map<String, String> processorIdToProcessorName = new HashMap<>();
-        processors.stream().forEach(flowProcessor -> {
-            processorIdToProcessGroupId.put(flowProcessor.getId(), feedProcessGroupId);
-            processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
-        });
-        this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
 
-        connectionIdToConnectionMap.putAll(toConnectionIdMap(connections));
+        Map<String, NiFiFlowCacheConnectionData> connectionData = toConnectionIdMap(connections);
+        connectionIdToConnectionMap.putAll(connectionData);
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.CONNECTION, connectionData);
 
         if (connections != null) {
             Map<String, String> connectionIdToNameMap = connections.stream().collect(Collectors.toMap(conn -> conn.getConnectionIdentifier(), conn -> conn.getName()));
@@ -761,12 +776,15 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         }
 
         processorIdMap.putAll(toProcessorIdMap(processors));
-        processorIdToFeedNameMap.putAll(toProcessorIdFeedNameMap(processors, feedName));
+        Map<String, String> processorIdToFeedName = toProcessorIdFeedNameMap(processors, feedName);
+        processorIdToFeedNameMap.putAll(processorIdToFeedName);
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_FEED_NAME, processorIdToFeedName);
 
         if (isStream) {
             streamingFeeds.add(feedName);
         }
         allFeeds.add(feedName);
+        changeLog.recordFeeds(Collections.singleton(feedName));
 
         Long lastUpdatedTime = DateTimeUtil.getNowUTCTime().getMillis();
 
@@ -790,7 +808,8 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         });
         this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
         this.processorIdToProcessorName.putAll(processorIdToProcessorName);
-
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_PROCESS_GROUP, processorIdToProcessGroupId);
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_NAME, processorIdToProcessorName);
     }
 
     private Map<String, NiFiFlowCacheConnectionData> toConnectionIdMap(Collection<NifiFlowConnection> connections) {
@@ -827,7 +846,7 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
     }
 
     public CacheSummary cacheSummary() {
-        return CacheSummary.build(syncMap);
+        return CacheSummary.build(syncMap.keySet(), syncVersionMap, changeLog.getVersion(), processorIdToFeedNameMap.size());
     }
 
     private void initExpireTimerThread() {
@@ -856,7 +875,10 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
                 itemsRemoved.add(entry.getKey());
                 log.info("Expiring Cache {}.  This cache has not been used in over {} minutes", entry.getKey(), minutes);
             });
-            itemsRemoved.stream().forEach(item -> lastSyncTimeMap.remove(item));
+            itemsRemoved.stream().forEach(item -> {
+                lastSyncTimeMap.remove(item);
+                syncVersionMap.remove(item);
+            });
 
         } catch (Exception e) {
             log.error("Error attempting to invalidate flow cache for items not touched in {} or more minutes", minutes, e);
@@ -867,22 +889,35 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
 
         private Map<String, Integer> summary = new HashMap<>();
         private Integer cachedSyncIds;
+        private Map<String, Long> versionsBehind = new HashMap<>();
+        private Long version;
 
         public CacheSummary() {
 
         }
 
-        private CacheSummary(Map<String, Integer> cacheIds) {
+        private CacheSummary(Map<String, Integer> cacheIds, Map<String, Long> versionsBehind, Long version) {
             this.summary = cacheIds;
             this.cachedSyncIds = cacheIds.keySet().size();
-        }
-
-        public static CacheSummary build(Map<String, NiFiFlowCacheSync> syncMap) {
-            Map<String, Integer>
-                cacheIds =
-                syncMap.entrySet().stream().collect(Collectors.toMap(stringNiFiFlowCacheSyncEntry -> stringNiFiFlowCacheSyncEntry.getKey(),
-                                                                     stringNiFiFlowCacheSyncEntry1 -> stringNiFiFlowCacheSyncEntry1.getValue().getSnapshot().getProcessorIdToFeedNameMap().size()));
-            return new CacheSummary(cacheIds);
+            this.versionsBehind = versionsBehind;
+            this.version = version;
+        }
+
+        /**
+         * @param syncIds          the registered sync ids
+         * @param syncVersions     the version of the cache each sync id last received
+         * @param version          the current version of the cache
+         * @param cachedProcessors the number of processors in the cache
+         */
+        public static CacheSummary build(Set<String> syncIds, Map<String, Long> syncVersions, long version, int cachedProcessors) {
+            Map<String, Integer> cacheIds = new HashMap<>();
+            Map<String, Long> versionsBehind = new HashMap<>();
+            for (String syncId : syncIds) {
+                Long syncVersion = syncVersions.get(syncId);
+                cacheIds.put(syncId, syncVersion != null ? cachedProcessors : 0);
+                versionsBehind.put(syncId, syncVersion != null ? version - syncVersion : version);
+            }
+            return new CacheSummary(cacheIds, versionsBehind, version);
         }
 
         public Map<String, Integer> getSummary() {
@@ -900,5 +935,27 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         public void setCachedSyncIds(Integer cachedSyncIds) {
             this.cachedSyncIds = cachedSyncIds;
         }
+
+        /**
+         * @return the number of changes each sync id has yet to receive
+         */
+        public Map<String, Long> getVersionsBehind() {
+            return versionsBehind;
+        }
+
+        public void setVersionsBehind(Map<String, Long> versionsBehind) {
+            this.versionsBehind = versionsBehind;
+        }
+
+        /**
+         * @return the current version of the cache
+         */
+        public Long getVersion() {
+            return version;
+        }
+
+        public void setVersion(Long version) {
+            this.version = version;
+        }
     }
 }
@@ -0,0 +1,259 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded, versioned log of the changes made to the {@link NifiFlowCache}.
+ *
+ * Every change to the cache increments the version.  Each sync id remembers the version it last received so only the entries changed since then need to be sent.
+ * If a sync has fallen further behind than the log holds it needs a full snapshot instead.
+ */
+public class NifiFlowCacheChangeLog {
+
+    /**
+     * The default number of entries to keep in the log
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 20000;
+
+    public enum ChangeType {
+        PROCESSOR_FEED_NAME, PROCESSOR_PROCESS_GROUP, PROCESSOR_NAME, CONNECTION, FEED
+    }
+
+    private final int maxEntries;
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+    /**
+     * The current version of the cache
+     */
+    private long version = 0L;
+
+    /**
+     * All changes made after this version are still in the log
+     */
+    private long floorVersion = 0L;
+
+    public NifiFlowCacheChangeLog() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public NifiFlowCacheChangeLog(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the current version of the cache
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Record that the supplied entries were added or updated in the cache
+     *
+     * @param type    the part of the cache that changed
+     * @param changed the entries that changed
+     * @return the new version
+     */
+    public synchronized long record(ChangeType type, Map<String, ?> changed) {
+        version++;
+        if (changed != null) {
+            for (Map.Entry<String, ?> change : changed.entrySet()) {
+                entries.addLast(new Entry(version, type, change.getKey(), change.getValue()));
+            }
+            trim();
+        }
+        return version;
+    }
+
+    /**
+     * Record that the supplied feeds were added to the cache
+     *
+     * @param feedNames the category.feed names
+     * @return the new version
+     */
+    public synchronized long recordFeeds(Collection<String> feedNames) {
+        version++;
+        for (String feedName : feedNames) {
+            entries.addLast(new Entry(version, ChangeType.FEED, feedName, feedName));
+        }
+        trim();
+        return version;
+    }
+
+    /**
+     * Record a change that isn't tracked by key, such as the set of streaming feeds, which is always sent in full.
+     *
+     * @return the new version
+     */
+    public synchronized long recordChange() {
+        return ++version;
+    }
+
+    /**
+     * Discard the log.  Every sync will need a full snapshot after this.
+     *
+     * @return the new version
+     */
+    public synchronized long reset() {
+        entries.clear();
+        version++;
+        floorVersion = version;
+        return version;
+    }
+
+    /**
+     * Find the changes made after the given version
+     *
+     * @param sinceVersion the last version a sync received
+     * @return the changes, or {@code null} if the log no longer holds all of the changes since that version
+     */
+    public synchronized Changes changesSince(long sinceVersion) {
+        if (sinceVersion < floorVersion || sinceVersion > version) {
+            return null;
+        }
+        Changes changes = new Changes(version);
+        // walk back from the newest entry so the latest value for each key wins
+        Iterator<Entry> iterator = entries.descendingIterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.version <= sinceVersion) {
+                break;
+            }
+            changes.add(entry);
+        }
+        return changes;
+    }
+
+    /**
+     * @return the number of entries in the log
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void trim() {
+        while (entries.size() > maxEntries) {
+            floorVersion = entries.removeFirst().version;
+        }
+    }
+
+    private static class Entry {
+
+        private final long version;
+        private final ChangeType type;
+        private final String key;
+        private final Object value;
+
+        Entry(long version, ChangeType type, String key, Object value) {
+            this.version = version;
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The latest value of each entry changed since a given version
+     */
+    public static class Changes {
+
+        private final long version;
+        private Map<String, String> processorIdToFeedNameMap = Collections.emptyMap();
+        private Map<String, String> processorIdToFeedProcessGroupId = Collections.emptyMap();
+        private Map<String, String> processorIdToProcessorName = Collections.emptyMap();
+        private Map<String, NiFiFlowCacheConnectionData> connectionIdToConnection = Collections.emptyMap();
+        private Set<String> feeds = Collections.emptySet();
+
+        Changes(long version) {
+            this.version = version;
+        }
+
+        private void add(Entry entry) {
+            switch (entry.type) {
+                case PROCESSOR_FEED_NAME:
+                    processorIdToFeedNameMap = putIfAbsent(processorIdToFeedNameMap, entry.key, (String) entry.value);
+                    break;
+                case PROCESSOR_PROCESS_GROUP:
+                    processorIdToFeedProcessGroupId = putIfAbsent(processorIdToFeedProcessGroupId, entry.key, (String) entry.value);
+                    break;
+                case PROCESSOR_NAME:
+                    processorIdToProcessorName = putIfAbsent(processorIdToProcessorName, entry.key, (String) entry.value);
+                    break;
+                case CONNECTION:
+                    connectionIdToConnection = putIfAbsent(connectionIdToConnection, entry.key, (NiFiFlowCacheConnectionData) entry.value);
+                    break;
+                case FEED:
+                    if (feeds.isEmpty()) {
+                        feeds = new HashSet<>();
+                    }
+                    feeds.add(entry.key);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static <V> Map<String, V> putIfAbsent(Map<String, V> map, String key, V value) {
+            Map<String, V> updated = map.isEmpty() ? new HashMap<>() : map;
+            updated.putIfAbsent(key, value);
+            return updated;
+        }
+
+        /**
+         * @return the version of the cache these changes bring a sync up to
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<String, String> getProcessorIdToFeedNameMap() {
+            return processorIdToFeedNameMap;
+        }
+
+        public Map<String, String> getProcessorIdToFeedProcessGroupId() {
+            return processorIdToFeedProcessGroupId;
+        }
+
+        public Map<String, String> getProcessorIdToProcessorName() {
+            return processorIdToProcessorName;
+        }
+
+        public Map<String, NiFiFlowCacheConnectionData> getConnectionIdToConnection() {
+            return connectionIdToConnection;
+        }
+
+        public Set<String> getFeeds() {
+            return feeds;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for the {@link NifiFlowCacheChangeLog}
+ */
+public class NifiFlowCacheChangeLogTest {
+
+    @Test
+    public void testChangesSinceVersion() {
+        NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog(100);
+        long start = changeLog.getVersion();
+
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_NAME, ImmutableMap.of("p1", "Processor 1", "p2", "Processor 2"));
+        long afterFirst = changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_FEED_NAME, ImmutableMap.of("p1", "cat.feed"));
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_NAME, ImmutableMap.of("p1", "Renamed"));
+        NiFiFlowCacheConnectionData connection = new NiFiFlowCacheConnectionData("c1", "success", "p1", "p2");
+        changeLog.record(NifiFlowCacheChangeLog.ChangeType.CONNECTION, ImmutableMap.of("c1", connection));
+        changeLog.recordFeeds(Arrays.asList("cat.feed"));
+
+        NifiFlowCacheChangeLog.Changes all = changeLog.changesSince(start);
+        Assert.assertNotNull(all);
+        Assert.assertEquals(changeLog.getVersion(), all.getVersion());
+        Assert.assertEquals("Renamed", all.getProcessorIdToProcessorName().get("p1"));
+        Assert.assertEquals("Processor 2", all.getProcessorIdToProcessorName().get("p2"));
+        Assert.assertEquals("cat.feed", all.getProcessorIdToFeedNameMap().get("p1"));
+        Assert.assertEquals(connection, all.getConnectionIdToConnection().get("c1"));
+        Assert.assertTrue(all.getFeeds().contains("cat.feed"));
+
+        NifiFlowCacheChangeLog.Changes recent = changeLog.changesSince(afterFirst);
+        Assert.assertNotNull(recent);
+        Assert.assertEquals(1, recent.getProcessorIdToProcessorName().size());
+        Assert.assertTrue(recent.getProcessorIdToFeedNameMap().isEmpty());
+
+        NifiFlowCacheChangeLog.Changes none = changeLog.changesSince(changeLog.getVersion());
+        Assert.assertNotNull(none);
+        Assert.assertTrue(none.getProcessorIdToProcessorName().isEmpty());
+        Assert.assertTrue(none.getFeeds().isEmpty());
+    }
+
+    @Test
+    public void testBoundedLog() {
+        NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog(10);
+        long start = changeLog.getVersion();
+        long lastVersion = start;
+        for (int i = 0; i < 20; i++) {
+            Map<String, String> names = new HashMap<>();
+            names.put("p" + i, "Processor " + i);
+            lastVersion = changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_NAME, names);
+        }
+        Assert.assertEquals(10, changeLog.size());
+        // fell off the log
+        Assert.assertNull(changeLog.changesSince(start));
+        // still covered by the log
+        NifiFlowCacheChangeLog.Changes changes = changeLog.changesSince(lastVersion - 5);
+        Assert.assertNotNull(changes);
+        Assert.assertEquals(5, changes.getProcessorIdToProcessorName().size());
+    }
+
+    @Test
+    public void testResetRequiresFullSnapshot() {
+        NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog(10);
+        long version = changeLog.record(NifiFlowCacheChangeLog.ChangeType.PROCESSOR_NAME, ImmutableMap.of("p1", "Processor 1"));
+        changeLog.reset();
+        Assert.assertNull(changeLog.changesSince(version));
+        Assert.assertNotNull(changeLog.changesSince(changeLog.getVersion()));
+
+        // untracked changes still move the version forward
+        long before = changeLog.getVersion();
+        changeLog.recordChange();
+        Assert.assertEquals(before + 1, changeLog.getVersion());
+        Assert.assertNotNull(changeLog.changesSince(before));
+    }
+}
@@ -0,0 +1,46 @@
+package com.thinkbiganalytics.activemq;
+
+/*-
+ * #%L
+ * thinkbig-activemq-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Decodes the body of a JMS BytesMessage that was sent with a codec name in the {@link com.thinkbiganalytics.activemq.config.ActiveMqConstants#CODEC_PROPERTY} property.
+ * Spring beans of this type are registered with the {@link CodecMessageConverter} used by the JMS listeners.
+ */
+public interface BytesMessageDecoder {
+
+    /**
+     * Check to see if this decoder is able to decode messages sent with the given codec
+     *
+     * @param codec the name of the codec from the message property
+     * @return {@code true} if this decoder handles the codec, {@code false} if not
+     */
+    boolean canDecode(String codec);
+
+    /**
+     * Decode the message body
+     *
+     * @param codec   the name of the codec from the message property
+     * @param payload the bytes of the message
+     * @return the decoded object that will be passed to the JMS listener
+     * @throws Exception if the payload cannot be decoded
+     */
+    Object decode(String codec, byte[] payload) throws Exception;
+}
@@ -0,0 +1,66 @@
+package com.thinkbiganalytics.activemq;
+
+/*-
+ * #%L
+ * thinkbig-activemq-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.activemq.config.ActiveMqConstants;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Message converter that decodes BytesMessages sent with a {@link ActiveMqConstants#CODEC_PROPERTY} using the matching {@link BytesMessageDecoder}.
+ * All other messages (i.e. Java serialized ObjectMessages) are converted using the {@link SimpleMessageConverter}.
+ */
+public class CodecMessageConverter extends SimpleMessageConverter {
+
+    private final List<BytesMessageDecoder> decoders = new ArrayList<>();
+
+    public CodecMessageConverter(List<BytesMessageDecoder> decoders) {
+        if (decoders != null) {
+            this.decoders.addAll(decoders);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        if (message instanceof BytesMessage && !decoders.isEmpty()) {
+            String codec = message.getStringProperty(ActiveMqConstants.CODEC_PROPERTY);
+            if (codec != null) {
+                BytesMessageDecoder decoder = decoders.stream().filter(d -> d.canDecode(codec)).findFirst()
+                    .orElseThrow(() -> new MessageConversionException("No decoder is registered for the JMS codec " + codec));
+                byte[] payload = extractByteArrayFromMessage((BytesMessage) message);
+                try {
+                    return decoder.decode(codec, payload);
+                } catch (Exception e) {
+                    throw new MessageConversionException("Unable to decode JMS message using codec " + codec, e);
+                }
+            }
+        }
+        return super.fromMessage(message);
+    }
+}
@@ -20,6 +20,8 @@ package com.thinkbiganalytics.activemq;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.config.ActiveMqConstants;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +34,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Session;
 import javax.jms.TextMessage;
@@ -61,6 +64,23 @@ public class SendJmsMessage {
         jmsMessagingTemplate.convertAndSend(queueName, obj);
     }
 
+    /**
+     * Send an already encoded payload to the queue as a BytesMessage.
+     * The receiver decodes the payload using the {@link BytesMessageDecoder} registered for the codec.
+     *
+     * @param queueName the queue
+     * @param payload   the encoded payload
+     * @param codec     the name of the codec used to encode the payload
+     */
+    public void sendBytesToQueue(String queueName, final byte[] payload, final String codec) throws JmsException {
+        this.jmsMessagingTemplate.getJmsTemplate().send(queueName, session -> {
+            BytesMessage message = session.createBytesMessage();
+            message.setStringProperty(ActiveMqConstants.CODEC_PROPERTY, codec);
+            message.writeBytes(payload);
+            return message;
+        });
+    }
+
 
     private void sendObjectToQueue(String queueName, final Object obj, final String objectClassType) throws JmsException {
         log.info("Sending ActiveMQ message [" + obj + "] to queue [" + queueName + "]");
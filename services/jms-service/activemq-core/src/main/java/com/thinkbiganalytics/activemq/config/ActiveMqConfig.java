@@ -20,6 +20,8 @@ package com.thinkbiganalytics.activemq.config;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.BytesMessageDecoder;
+import com.thinkbiganalytics.activemq.CodecMessageConverter;
 import com.thinkbiganalytics.activemq.ObjectMapperSerializer;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
@@ -39,9 +41,10 @@ import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
 import org.springframework.jms.connection.UserCredentialsConnectionFactoryAdapter;
 import org.springframework.jms.core.JmsMessagingTemplate;
-import org.springframework.jms.support.converter.SimpleMessageConverter;
 import org.springframework.util.StringUtils;
 
+import java.util.List;
+
 import javax.jms.ConnectionFactory;
 
 
@@ -61,6 +64,12 @@ public class ActiveMqConfig {
     @Autowired
     private Environment env;
 
+    /**
+     * Decoders for messages that were not sent using Java serialization
+     */
+    @Autowired(required = false)
+    private List<BytesMessageDecoder> bytesMessageDecoders;
+
     @Bean
     public ConnectionFactory connectionFactory() {
         ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(env.getProperty("jms.activemq.broker.url"));
@@ -86,7 +95,7 @@ public class ActiveMqConfig {
         }
         factory.setConcurrency(concurrency);
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(new SimpleMessageConverter());
+        factory.setMessageConverter(new CodecMessageConverter(bytesMessageDecoders));
         factory.setSessionTransacted(true);
         return factory;
     }
@@ -26,4 +26,9 @@ public interface ActiveMqConstants {
 
     String JMS_CONTAINER_FACTORY = "jmsContainerFactory";
 
+    /**
+     * Message property holding the name of the codec used to encode a BytesMessage
+     */
+    String CODEC_PROPERTY = "kylo_codec";
+
 }
@@ -29,4 +29,9 @@ public interface MetadataTopics {
      * Indicates changes to a data source
      */
     String DATASOURCE_CHANGE = "datasourceChange";
+
+    /**
+     * Indicates changes to feeds or data sources that may be cached by NiFi
+     */
+    String METADATA_CHANGE = "metadataChange";
 }
@@ -24,11 +24,14 @@ import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
 import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
 import com.thinkbiganalytics.metadata.api.event.feed.CleanupTriggerEvent;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChangeEvent;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedPropertyChangeEvent;
 import com.thinkbiganalytics.metadata.api.event.feed.PreconditionTriggerEvent;
 import com.thinkbiganalytics.metadata.api.feed.Feed;
 import com.thinkbiganalytics.metadata.api.feed.FeedProvider;
 import com.thinkbiganalytics.metadata.rest.model.event.FeedCleanupTriggerEvent;
 import com.thinkbiganalytics.metadata.rest.model.event.FeedPreconditionTriggerEvent;
+import com.thinkbiganalytics.metadata.rest.model.event.MetadataChangeEvent;
 
 import org.springframework.jms.core.JmsMessagingTemplate;
 
@@ -38,6 +41,7 @@ import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.jms.Queue;
+import javax.jms.Topic;
 
 /**
  * Listens for metadata events that should be transferred to a JMS topic.
@@ -49,6 +53,16 @@ public class JmsChangeEventDispatcher {
      */
     private final MetadataEventListener<CleanupTriggerEvent> cleanupListener = new CleanupTriggerDispatcher();
 
+    /**
+     * Event listener for feed changes
+     */
+    private final MetadataEventListener<FeedChangeEvent> feedChangeListener = new FeedChangeDispatcher();
+
+    /**
+     * Event listener for feed property changes
+     */
+    private final MetadataEventListener<FeedPropertyChangeEvent> feedPropertyChangeListener = new FeedPropertyChangeDispatcher();
+
     /**
      * Event listener for precondition events
      */
@@ -76,6 +90,12 @@ public class JmsChangeEventDispatcher {
     @Inject
     @Named("metadataMessagingTemplate")
     private JmsMessagingTemplate jmsMessagingTemplate;
+    /**
+     * JMS topic for feed and data source changes
+     */
+    @Inject
+    @Named("metadataChangeTopic")
+    private Topic metadataChangeTopic;
     /**
      * Metadata transaction wrapper
      */
@@ -94,6 +114,8 @@ public class JmsChangeEventDispatcher {
     @PostConstruct
     public void addEventListener() {
         eventService.addListener(cleanupListener);
+        eventService.addListener(feedChangeListener);
+        eventService.addListener(feedPropertyChangeListener);
         eventService.addListener(preconditionListener);
     }
 
@@ -103,6 +125,8 @@ public class JmsChangeEventDispatcher {
     @PreDestroy
     public void removeEventListener() {
         eventService.removeListener(cleanupListener);
+        eventService.removeListener(feedChangeListener);
+        eventService.removeListener(feedPropertyChangeListener);
         eventService.removeListener(preconditionListener);
     }
 
@@ -126,6 +150,31 @@ public class JmsChangeEventDispatcher {
         }
     }
 
+    /**
+     * Transfers feed changes to JMS.
+     */
+    private class FeedChangeDispatcher implements MetadataEventListener<FeedChangeEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedChangeEvent event) {
+            final String description = event.getData().getDescription();
+            final String name = (description != null && !description.isEmpty()) ? description : null;
+            jmsMessagingTemplate.convertAndSend(metadataChangeTopic, new MetadataChangeEvent(MetadataChangeEvent.Type.FEED, event.getData().getFeedId().toString(), name));
+        }
+    }
+
+    /**
+     * Transfers feed property changes to JMS.
+     */
+    private class FeedPropertyChangeDispatcher implements MetadataEventListener<FeedPropertyChangeEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedPropertyChangeEvent event) {
+            final String name = event.getData().getFeedCategorySystemName() + "." + event.getData().getFeedSystemName();
+            jmsMessagingTemplate.convertAndSend(metadataChangeTopic, new MetadataChangeEvent(MetadataChangeEvent.Type.FEED, event.getData().getFeedId(), name));
+        }
+    }
+
     /**
      * Transfers precondition events to JMS.
      */
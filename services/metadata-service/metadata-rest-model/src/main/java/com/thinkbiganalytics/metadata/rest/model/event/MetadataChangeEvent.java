@@ -0,0 +1,137 @@
+package com.thinkbiganalytics.metadata.rest.model.event;
+
+/*-
+ * #%L
+ * thinkbig-metadata-rest-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An event indicating that a feed or data source has changed and any cached copies should be discarded.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MetadataChangeEvent implements Serializable {
+
+    private static final long serialVersionUID = -3409178467210237544L;
+
+    /**
+     * Object id
+     */
+    private String id;
+
+    /**
+     * Data source name, or feed category and system name as {@code category.feed}
+     */
+    private String name;
+
+    /**
+     * Type of object that changed
+     */
+    private Type type;
+
+    /**
+     * Constructs a {@code MetadataChangeEvent}.
+     */
+    public MetadataChangeEvent() {
+    }
+
+    /**
+     * Constructs a {@code MetadataChangeEvent} for the specified object.
+     *
+     * @param type the object type
+     * @param id   the object id
+     * @param name the object name
+     */
+    public MetadataChangeEvent(@Nonnull final Type type, final String id, final String name) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Gets the id of the changed object.
+     *
+     * @return the object id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the changed object.
+     *
+     * @param id the object id
+     */
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the name of the changed object. Feeds are named {@code category.feed}.
+     *
+     * @return the object name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the changed object.
+     *
+     * @param name the object name
+     */
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the type of the changed object.
+     *
+     * @return the object type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Sets the type of the changed object.
+     *
+     * @param type the object type
+     */
+    public void setType(@Nonnull final Type type) {
+        this.type = type;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + type + " " + (id != null ? id : name);
+    }
+
+    /**
+     * Types of objects that may change.
+     */
+    public enum Type {
+        DATASOURCE, FEED
+    }
+}
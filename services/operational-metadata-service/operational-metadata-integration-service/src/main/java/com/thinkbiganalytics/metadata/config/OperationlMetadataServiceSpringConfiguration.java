@@ -21,8 +21,13 @@ package com.thinkbiganalytics.metadata.config;
  */
 
 import com.thinkbiganalytics.alerts.api.AlertProvider;
+import com.thinkbiganalytics.metadata.jobrepo.feed.FeedHealthRepairScheduler;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsJmsReceiver;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsRollupScheduler;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.ProvenanceCodecMessageDecoder;
+import com.thinkbiganalytics.metadata.jobrepo.retention.JobRepositoryRetentionScheduler;
 import com.thinkbiganalytics.metadata.sla.DefaultServiceLevelAgreementScheduler;
+import com.thinkbiganalytics.metadata.sla.EventDrivenServiceLevelAgreementEvaluator;
 import com.thinkbiganalytics.metadata.sla.JpaJcrServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.ServiceLevelAgreementActionAlertResponderFactory;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
@@ -43,11 +48,36 @@ public class OperationlMetadataServiceSpringConfiguration {
         return new NifiStatsJmsReceiver();
     }
 
+    @Bean
+    public ProvenanceCodecMessageDecoder provenanceCodecMessageDecoder() {
+        return new ProvenanceCodecMessageDecoder();
+    }
+
     @Bean
     public ServiceLevelAgreementScheduler serviceLevelAgreementScheduler() {
         return new DefaultServiceLevelAgreementScheduler();
     }
 
+    @Bean
+    public EventDrivenServiceLevelAgreementEvaluator eventDrivenServiceLevelAgreementEvaluator() {
+        return new EventDrivenServiceLevelAgreementEvaluator();
+    }
+
+    @Bean
+    public FeedHealthRepairScheduler feedHealthRepairScheduler() {
+        return new FeedHealthRepairScheduler();
+    }
+
+    @Bean
+    public NifiStatsRollupScheduler nifiStatsRollupScheduler() {
+        return new NifiStatsRollupScheduler();
+    }
+
+    @Bean
+    public JobRepositoryRetentionScheduler jobRepositoryRetentionScheduler() {
+        return new JobRepositoryRetentionScheduler();
+    }
+
     @Bean
     public ServiceLevelAgreementChecker serviceLevelAgreementChecker() {
         return new JpaJcrServiceLevelAgreementChecker();
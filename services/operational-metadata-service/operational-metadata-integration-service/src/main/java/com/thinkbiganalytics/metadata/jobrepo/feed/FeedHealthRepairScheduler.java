@@ -0,0 +1,90 @@
+package com.thinkbiganalytics.metadata.jobrepo.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.PostMetadataConfigAction;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedHealthCountsProvider;
+import com.thinkbiganalytics.scheduler.JobIdentifier;
+import com.thinkbiganalytics.scheduler.JobScheduler;
+import com.thinkbiganalytics.scheduler.JobSchedulerException;
+import com.thinkbiganalytics.scheduler.QuartzScheduler;
+import com.thinkbiganalytics.scheduler.model.DefaultJobIdentifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Set;
+
+import javax.inject.Inject;
+
+/**
+ * Schedules a job that rebuilds the feed health counts from the job history.
+ *
+ * The counts are updated as each job changes status.  This repairs any drift from jobs that are changed directly in the database.
+ */
+public class FeedHealthRepairScheduler implements PostMetadataConfigAction {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedHealthRepairScheduler.class);
+
+    private static final JobIdentifier JOB_IDENTIFIER = new DefaultJobIdentifier("Feed Health Repair", "OPS_MANAGER");
+
+    @Value("${kylo.ops.mgr.feed.health.repair.cron:0 0 2 * * ? *}")
+    private String cronExpression;
+
+    @Inject
+    private JobScheduler jobScheduler;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private FeedHealthCountsProvider feedHealthCountsProvider;
+
+    /**
+     * Called on startup as part of the PostMetadataConfigAction.
+     */
+    @Override
+    public void run() {
+        try {
+            if (!((QuartzScheduler) jobScheduler).jobExists(JOB_IDENTIFIER)) {
+                jobScheduler.scheduleWithCronExpression(JOB_IDENTIFIER, this::repair, cronExpression);
+            }
+        } catch (JobSchedulerException e) {
+            log.error("Unable to schedule the feed health repair job with the cron expression {} ", cronExpression, e);
+        }
+    }
+
+    /**
+     * Rebuild the feed health counts for all feeds.  Each feed is rebuilt in its own transaction so its counts are only locked while it is rebuilt.
+     */
+    public void repair() {
+        long start = System.currentTimeMillis();
+        Set<OpsManagerFeed.ID> feedIds = metadataAccess.read(() -> feedHealthCountsProvider.getFeedIds(), MetadataAccess.SERVICE);
+        for (OpsManagerFeed.ID feedId : feedIds) {
+            metadataAccess.commit(() -> feedHealthCountsProvider.rebuild(feedId), MetadataAccess.SERVICE);
+        }
+        metadataAccess.commit(() -> feedHealthCountsProvider.deleteRemovedFeeds(), MetadataAccess.SERVICE);
+        log.info("Repaired the health counts for {} feeds in {} ms", feedIds.size(), (System.currentTimeMillis() - start));
+    }
+}
@@ -0,0 +1,125 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.PostMetadataConfigAction;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Level;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiFeedProcessorStatisticsRollupProvider;
+import com.thinkbiganalytics.scheduler.JobIdentifier;
+import com.thinkbiganalytics.scheduler.JobScheduler;
+import com.thinkbiganalytics.scheduler.JobSchedulerException;
+import com.thinkbiganalytics.scheduler.QuartzScheduler;
+import com.thinkbiganalytics.scheduler.model.DefaultJobIdentifier;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.inject.Inject;
+
+/**
+ * Schedules a job that rolls the NiFi feed processor stats up into minute, hour and day buckets, and deletes the stats that are older than their retention period.
+ * A retention of 0 days keeps the stats for that level forever.
+ */
+public class NifiStatsRollupScheduler implements PostMetadataConfigAction {
+
+    private static final Logger log = LoggerFactory.getLogger(NifiStatsRollupScheduler.class);
+
+    private static final JobIdentifier JOB_IDENTIFIER = new DefaultJobIdentifier("NiFi Stats Rollup", "OPS_MANAGER");
+
+    @Value("${kylo.ops.mgr.stats.rollup.cron:0 0/1 * * * ? *}")
+    private String cronExpression;
+
+    /**
+     * How long to wait for stats to arrive from NiFi before rolling up a minute.  Stats arriving later are added to the existing buckets on the next run.
+     */
+    @Value("${kylo.ops.mgr.stats.rollup.delay.minutes:5}")
+    private int delayMinutes = 5;
+
+    @Value("${kylo.ops.mgr.stats.retention.raw.days:0}")
+    private int rawRetentionDays = 0;
+
+    @Value("${kylo.ops.mgr.stats.retention.minute.days:14}")
+    private int minuteRetentionDays = 14;
+
+    @Value("${kylo.ops.mgr.stats.retention.hour.days:180}")
+    private int hourRetentionDays = 180;
+
+    @Value("${kylo.ops.mgr.stats.retention.day.days:0}")
+    private int dayRetentionDays = 0;
+
+    @Inject
+    private JobScheduler jobScheduler;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private NifiFeedProcessorStatisticsRollupProvider rollupProvider;
+
+    /**
+     * Called on startup as part of the PostMetadataConfigAction.
+     */
+    @Override
+    public void run() {
+        try {
+            if (!((QuartzScheduler) jobScheduler).jobExists(JOB_IDENTIFIER)) {
+                jobScheduler.scheduleWithCronExpression(JOB_IDENTIFIER, this::rollup, cronExpression);
+            }
+        } catch (JobSchedulerException e) {
+            log.error("Unable to schedule the NiFi stats rollup job with the cron expression {} ", cronExpression, e);
+        }
+    }
+
+    /**
+     * Roll up each level in turn, then purge the expired stats.  Each set of buckets is rolled up in its own transaction.
+     */
+    public void rollup() {
+        long start = System.currentTimeMillis();
+        DateTime now = DateTime.now();
+        DateTime until = now.minusMinutes(delayMinutes);
+        int rollups = 0;
+        for (Level level : Level.values()) {
+            while (metadataAccess.commit(() -> rollupProvider.rollup(level, until), MetadataAccess.SERVICE)) {
+                rollups++;
+            }
+        }
+
+        metadataAccess.commit(() -> {
+            if (rawRetentionDays > 0) {
+                rollupProvider.purgeRaw(now.minusDays(rawRetentionDays));
+            }
+            purge(Level.MINUTE, now, minuteRetentionDays);
+            purge(Level.HOUR, now, hourRetentionDays);
+            purge(Level.DAY, now, dayRetentionDays);
+            return null;
+        }, MetadataAccess.SERVICE);
+        log.debug("Rolled up {} sets of NiFi stats in {} ms", rollups, (System.currentTimeMillis() - start));
+    }
+
+    private void purge(Level level, DateTime now, int retentionDays) {
+        if (retentionDays > 0) {
+            rollupProvider.purge(level, now.minusDays(retentionDays));
+        }
+    }
+}
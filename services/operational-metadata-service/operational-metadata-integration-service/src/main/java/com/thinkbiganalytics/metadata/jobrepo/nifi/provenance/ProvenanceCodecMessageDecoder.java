@@ -0,0 +1,47 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.activemq.BytesMessageDecoder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.CompactProvenanceCodec;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceCodec;
+
+/**
+ * Decodes the ProvenanceEventRecordDTOHolder and AggregatedFeedProcessorStatisticsHolder messages sent by the KyloProvenanceEventReportingTask
+ * when it is configured to use a {@link ProvenanceCodec} rather than Java serialization.
+ */
+public class ProvenanceCodecMessageDecoder implements BytesMessageDecoder {
+
+    /**
+     * The compression is part of the encoded header so a single instance decodes all variations
+     */
+    private final ProvenanceCodec compactCodec = new CompactProvenanceCodec();
+
+    @Override
+    public boolean canDecode(String codec) {
+        return compactCodec.getName().equalsIgnoreCase(codec);
+    }
+
+    @Override
+    public Object decode(String codec, byte[] payload) throws Exception {
+        return compactCodec.decode(payload);
+    }
+}
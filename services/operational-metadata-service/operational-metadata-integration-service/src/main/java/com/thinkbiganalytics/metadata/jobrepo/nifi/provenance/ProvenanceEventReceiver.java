@@ -39,6 +39,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecutionProvider;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.FailedStepExecutionListener;
 import com.thinkbiganalytics.metadata.api.op.FeedOperation;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiEvent;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiEventProvider;
 import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
@@ -51,11 +52,17 @@ import org.hibernate.exception.LockAcquisitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -112,6 +119,11 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
     LoadingCache<String, OpsManagerFeed> opsManagerFeedCache = null;
     @Value("${kylo.ops.mgr.query.nifi.bulletins:false}")
     private boolean queryForNiFiBulletins;
+    /**
+     * If true the events in a JMS message are persisted together in a single transaction, otherwise each event is persisted in its own transaction
+     */
+    @Value("${kylo.ops.mgr.provenance.batch.persist:true}")
+    private boolean batchPersistEvents;
     @Inject
     private NifiEventProvider nifiEventProvider;
     @Inject
@@ -183,10 +195,91 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
     @JmsListener(destination = Queues.FEED_MANAGER_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY, concurrency = "3-10")
     public void receiveEvents(ProvenanceEventRecordDTOHolder events) {
         log.info("About to process batch: {},  {} events from the {} queue ", events.getBatchId(),events.getEvents().size(), Queues.FEED_MANAGER_QUEUE);
-        events.getEvents().stream()
-            .filter(this::isRegisteredWithFeedManager)
-            .filter(this::ensureNewEvent)
-            .forEach(event -> processEvent(event, 0));
+        if (batchPersistEvents) {
+            List<ProvenanceEventRecordDTO> registeredEvents = events.getEvents().stream()
+                .filter(this::isRegisteredWithFeedManager)
+                .collect(Collectors.toList());
+            processEvents(filterNewEvents(registeredEvents));
+        } else {
+            events.getEvents().stream()
+                .filter(this::isRegisteredWithFeedManager)
+                .filter(this::ensureNewEvent)
+                .forEach(event -> processEvent(event, 0));
+        }
+    }
+
+    /**
+     * Persist the events, their jobs and steps in a single transaction.
+     * If that transaction fails the events are retried one job at a time so a single bad job doesn't prevent the others from being recorded.
+     *
+     * @param events the new events to process
+     */
+    private void processEvents(List<ProvenanceEventRecordDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<String, List<ProvenanceEventRecordDTO>> eventsByJob = groupByJob(events);
+        try {
+            metadataAccess.commit(() -> {
+                eventsByJob.values().forEach(this::persistEvents);
+            }, MetadataAccess.SERVICE);
+            events.stream().filter(ProvenanceEventRecordDTO::isFinalJobEvent).forEach(this::notifyJobFinished);
+        } catch (Exception e) {
+            log.warn("Unable to persist {} events for {} jobs in a single transaction.  Retrying each job separately. ", events.size(), eventsByJob.size(), e);
+            eventsByJob.values().forEach(this::processJobEvents);
+        }
+    }
+
+    /**
+     * Persist the events for a single job in one transaction, falling back to processing each event individually if that fails
+     *
+     * @param jobEvents the events belonging to the same job
+     */
+    private void processJobEvents(List<ProvenanceEventRecordDTO> jobEvents) {
+        try {
+            metadataAccess.commit(() -> {
+                persistEvents(jobEvents);
+            }, MetadataAccess.SERVICE);
+            jobEvents.stream().filter(ProvenanceEventRecordDTO::isFinalJobEvent).forEach(this::notifyJobFinished);
+        } catch (Exception e) {
+            log.warn("Unable to persist the {} events for job flow file {} in a single transaction.  Retrying each event separately. ", jobEvents.size(), jobEvents.get(0).getJobFlowFileId(), e);
+            jobEvents.forEach(event -> processEvent(event, 0));
+        }
+    }
+
+    /**
+     * Persist the events and create or update their job and step executions.  This must be called within a transaction.
+     *
+     * @param events the events to persist
+     */
+    private void persistEvents(List<ProvenanceEventRecordDTO> events) {
+        List<NifiEvent> nifiEvents = nifiEventProvider.createAll(events);
+        for (int i = 0; i < events.size(); i++) {
+            ProvenanceEventRecordDTO event = events.get(i);
+            if (event.isBatchJob()) {
+                BatchJobExecution jobExecution = batchJobExecutionProvider.getOrCreateJobExecution(event);
+                BatchJobExecution job = batchJobExecutionProvider.save(jobExecution, event, nifiEvents.get(i));
+                if (job == null) {
+                    log.error(" Detected a Batch event, but could not find related Job record. for event: {}  is end of Job: {}.  is ending flowfile:{}, isBatch: {}", event, event.isEndOfJob(),
+                              event.isEndingFlowFileEvent(), event.isBatchJob());
+                }
+            }
+        }
+    }
+
+    /**
+     * Group the events by the job flow file they belong to, keeping the order the events were received in
+     *
+     * @param events the events to group
+     * @return a map of the job flow file id to its events
+     */
+    private Map<String, List<ProvenanceEventRecordDTO>> groupByJob(List<ProvenanceEventRecordDTO> events) {
+        Map<String, List<ProvenanceEventRecordDTO>> eventsByJob = new LinkedHashMap<>();
+        for (ProvenanceEventRecordDTO event : events) {
+            String jobFlowFileId = StringUtils.isNotBlank(event.getJobFlowFileId()) ? event.getJobFlowFileId() : event.getFlowFileUuid();
+            eventsByJob.computeIfAbsent(jobFlowFileId, key -> new ArrayList<>()).add(event);
+        }
+        return eventsByJob;
     }
 
     /**
@@ -210,8 +303,8 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
             if (event.isFinalJobEvent()) {
                 notifyJobFinished(event);
             }
-        } catch (LockAcquisitionException lae) {
-            //safeguard against LockAcquisitionException if MySQL has a problem locking the table during its processing of the Event.
+        } catch (LockAcquisitionException | CannotAcquireLockException lae) {
+            //safeguard against LockAcquisitionException if MySQL has a problem locking the table during its processing of the Event, or if the job is locked by another thread for too long.
 
             if (retryAttempt < lockAcquisitionRetryAmount) {
                 retryAttempt++;
@@ -393,6 +486,22 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
         return metadataAccess.read(() -> !nifiEventProvider.exists(event), MetadataAccess.SERVICE);
     }
 
+    /**
+     * Remove the events that have already been processed, or that appear more than once, using a single query for the whole group.
+     *
+     * @param events the events to check
+     * @return the events that haven't been processed yet
+     */
+    private List<ProvenanceEventRecordDTO> filterNewEvents(Collection<ProvenanceEventRecordDTO> events) {
+        if (events.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<JpaNifiEvent.NiFiEventPK> seen = metadataAccess.read(() -> new HashSet<>(nifiEventProvider.findExistingEvents(events)), MetadataAccess.SERVICE);
+        return events.stream()
+            .filter(event -> seen.add(new JpaNifiEvent.NiFiEventPK(event.getEventId(), event.getFlowFileUuid())))
+            .collect(Collectors.toList());
+    }
+
     /**
      * When a feed is deleted remove it from the cache of feed names
      *
@@ -0,0 +1,75 @@
+package com.thinkbiganalytics.metadata.jobrepo.retention;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.PostMetadataConfigAction;
+import com.thinkbiganalytics.metadata.jpa.retention.JobRepositoryRetentionService;
+import com.thinkbiganalytics.scheduler.JobIdentifier;
+import com.thinkbiganalytics.scheduler.JobScheduler;
+import com.thinkbiganalytics.scheduler.JobSchedulerException;
+import com.thinkbiganalytics.scheduler.QuartzScheduler;
+import com.thinkbiganalytics.scheduler.model.DefaultJobIdentifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.inject.Inject;
+
+/**
+ * Schedules a job that applies the job repository retention policies, purging or archiving the expired job executions and NiFi events.
+ */
+public class JobRepositoryRetentionScheduler implements PostMetadataConfigAction {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRepositoryRetentionScheduler.class);
+
+    private static final JobIdentifier JOB_IDENTIFIER = new DefaultJobIdentifier("Job Repository Retention", "OPS_MANAGER");
+
+    @Value("${kylo.ops.mgr.retention.cron:0 30 1 * * ? *}")
+    private String cronExpression;
+
+    @Inject
+    private JobScheduler jobScheduler;
+
+    @Inject
+    private JobRepositoryRetentionService retentionService;
+
+    /**
+     * Called on startup as part of the PostMetadataConfigAction.
+     */
+    @Override
+    public void run() {
+        try {
+            if (!((QuartzScheduler) jobScheduler).jobExists(JOB_IDENTIFIER)) {
+                jobScheduler.scheduleWithCronExpression(JOB_IDENTIFIER, this::purge, cronExpression);
+            }
+        } catch (JobSchedulerException e) {
+            log.error("Unable to schedule the job repository retention job with the cron expression {} ", cronExpression, e);
+        }
+    }
+
+    /**
+     * Apply the retention policies.  Each chunk is committed in its own transaction by the retention service.
+     */
+    public void purge() {
+        retentionService.purge();
+    }
+}
@@ -81,6 +81,9 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
     @Inject
     private ClusterService clusterService;
 
+    @Inject
+    private EventDrivenServiceLevelAgreementEvaluator eventEvaluator;
+
     private Map<ServiceLevelAgreement.ID, String> scheduledJobNames = new ConcurrentHashMap<>();
 
     /**
@@ -96,7 +99,12 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
                      for (ServiceLevelAgreement agreement : agreements) {
                          JobIdentifier jobIdentifier = slaJobName(agreement);
                          QuartzScheduler scheduler = (QuartzScheduler)jobScheduler;
-                         if(!scheduler.jobExists(jobIdentifier)) {
+                         if (eventEvaluator.isEnabled() && eventEvaluator.register(agreement, false)) {
+                             //assessed from events. remove any job left from running in the quartz mode
+                             if (scheduler.jobExists(jobIdentifier)) {
+                                 deleteSlaJob(jobIdentifier);
+                             }
+                         } else if(!scheduler.jobExists(jobIdentifier)) {
                              scheduleServiceLevelAgreement(agreement);
                          }
                      }
@@ -158,7 +166,7 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
      * @return true if we were able to remove the SLA from the scheduler
      */
     public boolean unscheduleServiceLevelAgreement(ServiceLevelAgreement.ID slaId) {
-        boolean unscheduled = false;
+        boolean unscheduled = eventEvaluator.isEnabled() && eventEvaluator.unregister(slaId, true);
         JobIdentifier scheduledJobId = null;
         try {
             if (scheduledJobNames.containsKey(slaId)) {
@@ -265,7 +273,23 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
 
 
     /**
-     * Schedules an SLA to be run
+     * Delete a quartz job that is not tracked in the scheduledJobNames
+     * @param jobIdentifier the job identifier
+     */
+    private void deleteSlaJob(JobIdentifier jobIdentifier) {
+        try {
+            log.info("Removing the quartz job {} since the SLA is assessed from events", jobIdentifier.getName());
+            jobScheduler.deleteJob(jobIdentifier);
+        } catch (JobSchedulerException e) {
+            log.error("Unable to delete the SLA Job " + jobIdentifier);
+        }
+    }
+
+
+    /**
+     * Schedules an SLA to be run.
+     * When running in the event evaluation mode and all of the SLA metrics can be assessed from feed events and deadlines, the SLA is
+     * indexed by the {@link EventDrivenServiceLevelAgreementEvaluator} instead of getting its own quartz job.
      *
      * @param sla The SLA to schedule
      */
@@ -273,6 +297,10 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
             if (scheduledJobNames.containsKey(sla.getId())) {
                 unscheduleServiceLevelAgreement(sla);
             }
+            if (eventEvaluator.isEnabled() && eventEvaluator.register(sla, true)) {
+                log.debug("SLA {} will be assessed from feed events", sla.getName());
+                return;
+            }
             JobIdentifier jobIdentifier = slaJobName(sla);
             ServiceLevelAgreement.ID slaId = sla.getId();
             //schedule the job
@@ -0,0 +1,446 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.cluster.ClusterMessage;
+import com.thinkbiganalytics.cluster.ClusterService;
+import com.thinkbiganalytics.cluster.ClusterServiceMessageReceiver;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.sla.DeadlineMetric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.Obligation;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Assesses service level agreements when something they depend on changes instead of polling each one with its own Quartz job.
+ *
+ * Agreements whose metrics all implement {@link FeedMetric} or {@link DeadlineMetric} are indexed by the feeds they reference.
+ * A {@link FeedOperationStatusEvent} for a feed re-assesses only the agreements indexed under that feed, and a single timer wheel
+ * re-assesses agreements as their deadlines pass.  Agreements with any other kind of metric are left to the {@link DefaultServiceLevelAgreementScheduler}.
+ *
+ * This is enabled by setting {@code sla.evaluation.mode=event}.
+ */
+public class EventDrivenServiceLevelAgreementEvaluator implements ClusterServiceMessageReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(EventDrivenServiceLevelAgreementEvaluator.class);
+
+    public static final String EVENT_MODE = "event";
+
+    public static final String SLA_INDEXED_MESSAGE_TYPE = "SLA_EVENT_INDEXED";
+
+    public static final String SLA_UNINDEXED_MESSAGE_TYPE = "SLA_EVENT_UNINDEXED";
+
+    @Value("${sla.evaluation.mode:quartz}")
+    private String evaluationMode;
+
+    /**
+     * Resolution of the deadline timer.  Deadlines are rounded up to the next tick so agreements due together are assessed together.
+     */
+    @Value("${sla.events.tick.seconds:30}")
+    private long tickSeconds;
+
+    @Value("${sla.events.threads:2}")
+    private int assessorThreads;
+
+    @Inject
+    private ServiceLevelAgreementProvider slaProvider;
+
+    @Inject
+    private ServiceLevelAgreementChecker slaChecker;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private MetadataEventService eventService;
+
+    @Inject
+    private ClusterService clusterService;
+
+    private final MetadataEventListener<FeedOperationStatusEvent> feedOperationListener = new FeedOperationStatusListener();
+
+    /**
+     * The indexed agreements by id
+     */
+    private final Map<ServiceLevelAgreement.ID, IndexedAgreement> agreements = new ConcurrentHashMap<>();
+
+    /**
+     * The agreement ids by the category.feed name referenced by their metrics
+     */
+    private final Map<String, Set<ServiceLevelAgreement.ID>> feedIndex = new ConcurrentHashMap<>();
+
+    /**
+     * The timer wheel.  Agreement ids keyed by the tick they are next due on.  Guarded by itself.
+     */
+    private final TreeMap<Long, Set<ServiceLevelAgreement.ID>> deadlines = new TreeMap<>();
+
+    /**
+     * The tick each agreement is currently on in the {@link #deadlines} wheel.  Guarded by {@link #deadlines}.
+     */
+    private final Map<ServiceLevelAgreement.ID, Long> scheduledDeadlines = new HashMap<>();
+
+    /**
+     * Agreements waiting to be assessed.  Events for an agreement that is already waiting are coalesced into its one assessment.
+     */
+    private final Set<ServiceLevelAgreement.ID> pending = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService timer;
+
+    private ExecutorService assessorExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            assessorExecutor = Executors.newFixedThreadPool(Math.max(1, assessorThreads), new ThreadFactoryBuilder().setNameFormat("sla-event-assessor-%d").setDaemon(true).build());
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("sla-deadline-timer").setDaemon(true).build());
+            timer.scheduleWithFixedDelay(this::tick, tickSeconds, tickSeconds, TimeUnit.SECONDS);
+            eventService.addListener(feedOperationListener);
+            clusterService.subscribe(this);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (isEnabled()) {
+            eventService.removeListener(feedOperationListener);
+            timer.shutdownNow();
+            assessorExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true if agreements are assessed from events rather than Quartz jobs
+     */
+    public boolean isEnabled() {
+        return EVENT_MODE.equalsIgnoreCase(evaluationMode);
+    }
+
+    /**
+     * Indexes the agreement for event driven assessment.  Must be called inside a metadata access wrapper.
+     *
+     * @param sla           the agreement
+     * @param notifyCluster true to index the agreement on the other nodes in the cluster as well
+     * @return true if the agreement was indexed, false if it has a metric that cannot be assessed from events and needs to be scheduled
+     */
+    public boolean register(ServiceLevelAgreement sla, boolean notifyCluster) {
+        IndexedAgreement indexed = IndexedAgreement.create(sla);
+        if (indexed == null) {
+            unregister(sla.getId(), notifyCluster);
+            return false;
+        }
+        index(indexed);
+        if (notifyCluster && clusterService.isClustered()) {
+            clusterService.sendMessageToOthers(SLA_INDEXED_MESSAGE_TYPE, indexed);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the agreement from the index so it is no longer assessed from events
+     *
+     * @param slaId         the agreement id
+     * @param notifyCluster true to remove the agreement on the other nodes in the cluster as well
+     * @return true if the agreement was indexed
+     */
+    public boolean unregister(ServiceLevelAgreement.ID slaId, boolean notifyCluster) {
+        boolean removed = unindex(slaId);
+        if (removed && notifyCluster && clusterService.isClustered()) {
+            clusterService.sendMessageToOthers(SLA_UNINDEXED_MESSAGE_TYPE, slaId);
+        }
+        return removed;
+    }
+
+    public boolean isRegistered(ServiceLevelAgreement.ID slaId) {
+        return agreements.containsKey(slaId);
+    }
+
+    /**
+     * Keep the index in sync across the cluster.  The index is sent with the message so the other nodes do not need to read the agreement.
+     *
+     * @param from    cluster address sending the message
+     * @param message the message
+     */
+    @Override
+    public void onMessageReceived(String from, ClusterMessage message) {
+        if (SLA_INDEXED_MESSAGE_TYPE.equalsIgnoreCase(message.getType())) {
+            index((IndexedAgreement) message.getMessage());
+        } else if (SLA_UNINDEXED_MESSAGE_TYPE.equalsIgnoreCase(message.getType())) {
+            unindex((ServiceLevelAgreement.ID) message.getMessage());
+        }
+    }
+
+    private void index(IndexedAgreement indexed) {
+        ServiceLevelAgreement.ID slaId = indexed.getSlaId();
+        unindex(slaId);
+        agreements.put(slaId, indexed);
+        indexed.getFeedNames().forEach(feedName -> feedIndex.computeIfAbsent(feedName, name -> ConcurrentHashMap.newKeySet()).add(slaId));
+        scheduleNextDeadline(indexed, DateTime.now());
+        log.debug("Indexed SLA {} for feeds {}", indexed.getName(), indexed.getFeedNames());
+    }
+
+    private boolean unindex(ServiceLevelAgreement.ID slaId) {
+        IndexedAgreement indexed = agreements.remove(slaId);
+        if (indexed == null) {
+            return false;
+        }
+        for (String feedName : indexed.getFeedNames()) {
+            feedIndex.computeIfPresent(feedName, (name, ids) -> {
+                ids.remove(slaId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        synchronized (deadlines) {
+            removeDeadline(slaId);
+        }
+        return true;
+    }
+
+    /**
+     * Puts the agreement on the wheel at the tick of its earliest deadline after the given time
+     */
+    private void scheduleNextDeadline(IndexedAgreement indexed, DateTime after) {
+        DateTime next = null;
+        for (DeadlineMetric metric : indexed.getDeadlineMetrics()) {
+            DateTime deadline = metric.nextDeadline(after);
+            if (deadline != null && (next == null || deadline.isBefore(next))) {
+                next = deadline;
+            }
+        }
+        synchronized (deadlines) {
+            removeDeadline(indexed.getSlaId());
+            if (next != null && agreements.get(indexed.getSlaId()) == indexed) {
+                long tickMillis = TimeUnit.SECONDS.toMillis(Math.max(1, tickSeconds));
+                long tick = ((next.getMillis() + tickMillis - 1) / tickMillis) * tickMillis;
+                deadlines.computeIfAbsent(tick, t -> new HashSet<>()).add(indexed.getSlaId());
+                scheduledDeadlines.put(indexed.getSlaId(), tick);
+            }
+        }
+    }
+
+    /**
+     * Must be called holding the {@link #deadlines} lock
+     */
+    private void removeDeadline(ServiceLevelAgreement.ID slaId) {
+        Long tick = scheduledDeadlines.remove(slaId);
+        if (tick != null) {
+            Set<ServiceLevelAgreement.ID> ids = deadlines.get(tick);
+            if (ids != null) {
+                ids.remove(slaId);
+                if (ids.isEmpty()) {
+                    deadlines.remove(tick);
+                }
+            }
+        }
+    }
+
+    /**
+     * Assess the agreements whose deadlines have passed and move them to their next deadline.
+     * Only one node in a cluster assesses deadlines, the others keep their wheel turning so they can take over.
+     */
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            boolean assess = ownsDeadlines();
+            Map.Entry<Long, Set<ServiceLevelAgreement.ID>> due;
+            while ((due = pollDue(now)) != null) {
+                for (ServiceLevelAgreement.ID slaId : due.getValue()) {
+                    IndexedAgreement indexed = agreements.get(slaId);
+                    if (indexed != null) {
+                        if (assess) {
+                            submit(slaId);
+                        }
+                        scheduleNextDeadline(indexed, new DateTime(due.getKey()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error checking SLA deadlines", e);
+        }
+    }
+
+    private Map.Entry<Long, Set<ServiceLevelAgreement.ID>> pollDue(long now) {
+        synchronized (deadlines) {
+            Map.Entry<Long, Set<ServiceLevelAgreement.ID>> first = deadlines.firstEntry();
+            if (first == null || first.getKey() > now) {
+                return null;
+            }
+            deadlines.remove(first.getKey());
+            first.getValue().forEach(scheduledDeadlines::remove);
+            return first;
+        }
+    }
+
+    private boolean ownsDeadlines() {
+        if (!clusterService.isClustered()) {
+            return true;
+        }
+        List<String> members = clusterService.getMembersAsString();
+        return members == null || members.isEmpty() || members.get(0).equals(clusterService.getAddressAsString());
+    }
+
+    /**
+     * Queue the agreement for assessment unless it is already waiting
+     */
+    private void submit(ServiceLevelAgreement.ID slaId) {
+        if (pending.add(slaId)) {
+            assessorExecutor.execute(() -> {
+                pending.remove(slaId);
+                assess(slaId);
+            });
+        }
+    }
+
+    private void assess(ServiceLevelAgreement.ID slaId) {
+        try {
+            metadataAccess.commit(() -> {
+                ServiceLevelAgreement sla = slaProvider.getAgreement(slaId);
+                if (sla == null) {
+                    log.info("Removing SLA {} from the event index since it no longer exists", slaId);
+                    unindex(slaId);
+                } else if (sla.isEnabled()) {
+                    slaChecker.checkAgreement(sla);
+                } else {
+                    log.debug("SLA {} will not be assessed since it is disabled ", sla.getName());
+                }
+            }, MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            log.error("Error assessing SLA {}", slaId, e);
+        }
+    }
+
+    /**
+     * The parts of an agreement needed to decide when it should be assessed
+     */
+    public static class IndexedAgreement implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private ServiceLevelAgreement.ID slaId;
+
+        private String name;
+
+        private Set<String> feedNames;
+
+        private List<DeadlineMetric> deadlineMetrics;
+
+        public IndexedAgreement() {
+
+        }
+
+        public IndexedAgreement(ServiceLevelAgreement.ID slaId, String name, Set<String> feedNames, List<DeadlineMetric> deadlineMetrics) {
+            this.slaId = slaId;
+            this.name = name;
+            this.feedNames = feedNames;
+            this.deadlineMetrics = deadlineMetrics;
+        }
+
+        /**
+         * @return the index for the agreement, or null if any of its metrics cannot be assessed from events
+         */
+        public static IndexedAgreement create(ServiceLevelAgreement sla) {
+            Set<String> feedNames = new HashSet<>();
+            List<DeadlineMetric> deadlineMetrics = new ArrayList<>();
+            for (Obligation obligation : sla.getObligations()) {
+                for (Metric metric : obligation.getMetrics()) {
+                    boolean indexed = false;
+                    if (metric instanceof FeedMetric && ((FeedMetric) metric).getFeedName() != null) {
+                        feedNames.add(((FeedMetric) metric).getFeedName());
+                        indexed = true;
+                    }
+                    if (metric instanceof DeadlineMetric) {
+                        deadlineMetrics.add((DeadlineMetric) metric);
+                        indexed = true;
+                    }
+                    if (!indexed) {
+                        return null;
+                    }
+                }
+            }
+            if (feedNames.isEmpty() && deadlineMetrics.isEmpty()) {
+                return null;
+            }
+            return new IndexedAgreement(sla.getId(), sla.getName(), feedNames, deadlineMetrics);
+        }
+
+        public ServiceLevelAgreement.ID getSlaId() {
+            return slaId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Set<String> getFeedNames() {
+            return feedNames != null ? feedNames : Collections.emptySet();
+        }
+
+        public List<DeadlineMetric> getDeadlineMetrics() {
+            return deadlineMetrics != null ? deadlineMetrics : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Re-assess the agreements that reference the feed of a finished job
+     */
+    private class FeedOperationStatusListener implements MetadataEventListener<FeedOperationStatusEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedOperationStatusEvent event) {
+            String feedName = event.getData().getFeedName();
+            Set<ServiceLevelAgreement.ID> slaIds = feedName != null ? feedIndex.get(feedName) : null;
+            if (slaIds != null) {
+                slaIds.forEach(EventDrivenServiceLevelAgreementEvaluator.this::submit);
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.cluster.ClusterService;
+import com.thinkbiganalytics.cluster.StandardClusterMessage;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.event.feed.OperationStatus;
+import com.thinkbiganalytics.metadata.api.op.FeedOperation;
+import com.thinkbiganalytics.metadata.api.sla.DeadlineMetric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.Obligation;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+public class EventDrivenServiceLevelAgreementEvaluatorTest {
+
+    private static final long TICK_MILLIS = 30000L;
+
+    /**
+     * Assessments submitted to the assessor executor, run by the tests when they choose
+     */
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private final ServiceLevelAgreementProvider slaProvider = Mockito.mock(ServiceLevelAgreementProvider.class);
+
+    private final ServiceLevelAgreementChecker slaChecker = Mockito.mock(ServiceLevelAgreementChecker.class);
+
+    private final ClusterService clusterService = Mockito.mock(ClusterService.class);
+
+    private EventDrivenServiceLevelAgreementEvaluator evaluator;
+
+    @Before
+    public void setUp() {
+        evaluator = newEvaluator();
+    }
+
+    /**
+     * Verify agreements are indexed by the feeds their metrics reference and removed from the index when unregistered.
+     */
+    @Test
+    public void testIndexByFeed() {
+        ServiceLevelAgreement first = agreement("first", new TestMetric("category.a"), new TestMetric("category.b"));
+        ServiceLevelAgreement second = agreement("second", new TestMetric("category.b"));
+
+        Assert.assertTrue(evaluator.register(first, false));
+        Assert.assertTrue(evaluator.register(second, false));
+        Assert.assertTrue(evaluator.isRegistered(first.getId()));
+        Assert.assertEquals(Collections.singleton(first.getId()), getFeedIndex().get("category.a"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(first.getId(), second.getId())), getFeedIndex().get("category.b"));
+
+        Assert.assertTrue(evaluator.unregister(first.getId(), false));
+        Assert.assertFalse(evaluator.unregister(first.getId(), false));
+        Assert.assertFalse(evaluator.isRegistered(first.getId()));
+        Assert.assertNull(getFeedIndex().get("category.a"));
+        Assert.assertEquals(Collections.singleton(second.getId()), getFeedIndex().get("category.b"));
+
+        evaluator.unregister(second.getId(), false);
+        Assert.assertTrue(getFeedIndex().isEmpty());
+    }
+
+    /**
+     * Verify an agreement with a metric that cannot be assessed from events is not indexed, and is removed if it was indexed before.
+     */
+    @Test
+    public void testNotIndexed() {
+        ServiceLevelAgreement sla = agreement("sla", new TestMetric("category.a"));
+        Assert.assertTrue(evaluator.register(sla, false));
+
+        ServiceLevelAgreement changed = agreement(sla.getId(), "sla", new TestMetric("category.a"), Mockito.mock(Metric.class));
+        Assert.assertFalse(evaluator.register(changed, false));
+        Assert.assertFalse(evaluator.isRegistered(sla.getId()));
+        Assert.assertTrue(getFeedIndex().isEmpty());
+    }
+
+    /**
+     * Verify repeated events for an agreement waiting to be assessed are coalesced into one assessment.
+     */
+    @Test
+    public void testEventsCoalesced() {
+        ServiceLevelAgreement first = agreement("first", new TestMetric("category.a"));
+        ServiceLevelAgreement second = agreement("second", new TestMetric("category.a"));
+        ServiceLevelAgreement other = agreement("other", new TestMetric("category.b"));
+        evaluator.register(first, false);
+        evaluator.register(second, false);
+        evaluator.register(other, false);
+
+        for (int i = 0; i < 3; i++) {
+            feedFinished("category.a");
+        }
+        feedFinished("category.unknown");
+        Assert.assertEquals(2, queued.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(first.getId(), second.getId())), getPending());
+
+        runQueued();
+        Mockito.verify(slaChecker).checkAgreement(first);
+        Mockito.verify(slaChecker).checkAgreement(second);
+        Mockito.verify(slaChecker, Mockito.never()).checkAgreement(other);
+        Assert.assertTrue(getPending().isEmpty());
+
+        // Once assessed, the next event queues another assessment
+        feedFinished("category.a");
+        Assert.assertEquals(2, queued.size());
+    }
+
+    /**
+     * Verify an agreement that no longer exists is removed from the index when it is assessed.
+     */
+    @Test
+    public void testDeletedAgreementUnindexed() {
+        ServiceLevelAgreement sla = agreement("sla", new TestMetric("category.a"));
+        evaluator.register(sla, false);
+        Mockito.when(slaProvider.getAgreement(sla.getId())).thenReturn(null);
+
+        feedFinished("category.a");
+        runQueued();
+
+        Mockito.verify(slaChecker, Mockito.never()).checkAgreement(Mockito.any(ServiceLevelAgreement.class));
+        Assert.assertFalse(evaluator.isRegistered(sla.getId()));
+    }
+
+    /**
+     * Verify agreements are placed on the deadline wheel at the tick of their earliest deadline.
+     */
+    @Test
+    public void testScheduleNextDeadline() {
+        DateTime deadline = DateTime.now().plusHours(1);
+        ServiceLevelAgreement sla = agreement("sla", new TestMetric(null, deadline.plusMinutes(5)), new TestMetric(null, deadline));
+        evaluator.register(sla, false);
+
+        Assert.assertEquals(Collections.singletonMap(roundUp(deadline), Collections.singleton(sla.getId())), getDeadlines());
+        Assert.assertEquals(Collections.singletonMap(sla.getId(), roundUp(deadline)), getScheduledDeadlines());
+    }
+
+    /**
+     * Verify an agreement registered again with a new deadline is moved on the wheel rather than added a second time.
+     */
+    @Test
+    public void testReregisteredDeadline() {
+        DateTime oldDeadline = DateTime.now().plusHours(1);
+        DateTime newDeadline = DateTime.now().plusHours(2);
+        ServiceLevelAgreement sla = agreement("sla", new TestMetric(null, oldDeadline));
+        ServiceLevelAgreement other = agreement("other", new TestMetric(null, oldDeadline));
+        evaluator.register(sla, false);
+        evaluator.register(other, false);
+
+        evaluator.register(agreement(sla.getId(), "sla", new TestMetric(null, newDeadline)), false);
+
+        Map<Long, Set<ServiceLevelAgreement.ID>> expected = new TreeMap<>();
+        expected.put(roundUp(oldDeadline), Collections.singleton(other.getId()));
+        expected.put(roundUp(newDeadline), Collections.singleton(sla.getId()));
+        Assert.assertEquals(expected, getDeadlines());
+        Assert.assertEquals(roundUp(newDeadline), getScheduledDeadlines().get(sla.getId()));
+
+        // Removing the agreement leaves no empty tick behind
+        evaluator.unregister(other.getId(), false);
+        Assert.assertEquals(Collections.singleton(roundUp(newDeadline)), getDeadlines().keySet());
+    }
+
+    /**
+     * Verify a tick assesses the agreements whose deadlines have passed and moves them to their next deadline.
+     */
+    @Test
+    public void testTick() {
+        DateTime passed = DateTime.now().minusMinutes(1);
+        DateTime next = DateTime.now().plusHours(1);
+        TestMetric metric = new TestMetric(null, passed, next);
+        ServiceLevelAgreement due = agreement("due", metric);
+        ServiceLevelAgreement later = agreement("later", new TestMetric(null, next.plusHours(1)));
+        evaluator.register(due, false);
+        evaluator.register(later, false);
+
+        evaluator.tick();
+
+        Assert.assertEquals(1, queued.size());
+        Assert.assertEquals(Collections.singleton(due.getId()), getPending());
+        Assert.assertEquals(roundUp(next), getScheduledDeadlines().get(due.getId()));
+        Assert.assertFalse(getDeadlines().containsKey(roundUp(passed)));
+        Assert.assertEquals(new DateTime(roundUp(passed)), metric.times.get(1));
+
+        runQueued();
+        Mockito.verify(slaChecker).checkAgreement(due);
+
+        // Nothing else is due
+        evaluator.tick();
+        Assert.assertTrue(queued.isEmpty());
+    }
+
+    /**
+     * Verify only the first member of a cluster assesses deadlines, while the others keep their wheels turning.
+     */
+    @Test
+    public void testTickNotOwner() {
+        Mockito.when(clusterService.isClustered()).thenReturn(true);
+        Mockito.when(clusterService.getMembersAsString()).thenReturn(Arrays.asList("node1", "node2"));
+        Mockito.when(clusterService.getAddressAsString()).thenReturn("node2");
+        DateTime next = DateTime.now().plusHours(1);
+        ServiceLevelAgreement sla = agreement("sla", new TestMetric(null, DateTime.now().minusMinutes(1), next));
+        evaluator.register(sla, false);
+
+        evaluator.tick();
+
+        Assert.assertTrue(queued.isEmpty());
+        Assert.assertEquals(roundUp(next), getScheduledDeadlines().get(sla.getId()));
+    }
+
+    /**
+     * Verify the index is sent to the other nodes and applied from the cluster messages they receive.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testClusterMessages() {
+        Mockito.when(clusterService.isClustered()).thenReturn(true);
+        DateTime deadline = DateTime.now().plusHours(1);
+        // the index is shared rather than serialized, so each node reads the next deadline from the same metric
+        ServiceLevelAgreement sla = agreement("sla", new TestMetric("category.a", deadline, deadline));
+
+        Assert.assertTrue(evaluator.register(sla, true));
+        EventDrivenServiceLevelAgreementEvaluator.IndexedAgreement indexed = ((Map<ServiceLevelAgreement.ID, EventDrivenServiceLevelAgreementEvaluator.IndexedAgreement>)
+            Whitebox.getInternalState(evaluator, "agreements")).get(sla.getId());
+        Mockito.verify(clusterService).sendMessageToOthers(EventDrivenServiceLevelAgreementEvaluator.SLA_INDEXED_MESSAGE_TYPE, indexed);
+
+        EventDrivenServiceLevelAgreementEvaluator other = newEvaluator();
+        other.onMessageReceived("node1", new StandardClusterMessage(EventDrivenServiceLevelAgreementEvaluator.SLA_INDEXED_MESSAGE_TYPE, indexed));
+        Assert.assertTrue(other.isRegistered(sla.getId()));
+        Assert.assertEquals(Collections.singleton(sla.getId()), getFeedIndex(other).get("category.a"));
+        Assert.assertEquals(roundUp(deadline), getScheduledDeadlines(other).get(sla.getId()));
+
+        Assert.assertTrue(evaluator.unregister(sla.getId(), true));
+        Mockito.verify(clusterService).sendMessageToOthers(EventDrivenServiceLevelAgreementEvaluator.SLA_UNINDEXED_MESSAGE_TYPE, sla.getId());
+
+        other.onMessageReceived("node1", new StandardClusterMessage(EventDrivenServiceLevelAgreementEvaluator.SLA_UNINDEXED_MESSAGE_TYPE, sla.getId()));
+        Assert.assertFalse(other.isRegistered(sla.getId()));
+        Assert.assertTrue(getFeedIndex(other).isEmpty());
+        Assert.assertTrue(getDeadlines(other).isEmpty());
+    }
+
+    /**
+     * Creates an evaluator with the mock services that queues its assessments instead of running them
+     */
+    private EventDrivenServiceLevelAgreementEvaluator newEvaluator() {
+        MetadataAccess metadataAccess = Mockito.mock(MetadataAccess.class);
+        Mockito.doAnswer(invocation -> {
+            ((MetadataAction) invocation.getArguments()[0]).execute();
+            return null;
+        }).when(metadataAccess).commit(Mockito.any(MetadataAction.class), Mockito.<Principal>anyVararg());
+
+        ExecutorService executor = Mockito.mock(ExecutorService.class);
+        Mockito.doAnswer(invocation -> queued.add((Runnable) invocation.getArguments()[0])).when(executor).execute(Mockito.any(Runnable.class));
+
+        EventDrivenServiceLevelAgreementEvaluator evaluator = new EventDrivenServiceLevelAgreementEvaluator();
+        Whitebox.setInternalState(evaluator, "evaluationMode", EventDrivenServiceLevelAgreementEvaluator.EVENT_MODE);
+        Whitebox.setInternalState(evaluator, "tickSeconds", TICK_MILLIS / 1000);
+        Whitebox.setInternalState(evaluator, "slaProvider", slaProvider);
+        Whitebox.setInternalState(evaluator, "slaChecker", slaChecker);
+        Whitebox.setInternalState(evaluator, "metadataAccess", metadataAccess);
+        Whitebox.setInternalState(evaluator, "clusterService", clusterService);
+        Whitebox.setInternalState(evaluator, "assessorExecutor", executor);
+        return evaluator;
+    }
+
+    private ServiceLevelAgreement agreement(String name, Metric... metrics) {
+        return agreement(new TestId(name), name, metrics);
+    }
+
+    private ServiceLevelAgreement agreement(ServiceLevelAgreement.ID id, String name, Metric... metrics) {
+        Obligation obligation = Mockito.mock(Obligation.class);
+        Mockito.when(obligation.getMetrics()).thenReturn(new HashSet<>(Arrays.asList(metrics)));
+
+        ServiceLevelAgreement sla = Mockito.mock(ServiceLevelAgreement.class);
+        Mockito.when(sla.getId()).thenReturn(id);
+        Mockito.when(sla.getName()).thenReturn(name);
+        Mockito.when(sla.isEnabled()).thenReturn(true);
+        Mockito.when(sla.getObligations()).thenReturn(Collections.singletonList(obligation));
+        Mockito.when(slaProvider.getAgreement(id)).thenReturn(sla);
+        return sla;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void feedFinished(String feedName) {
+        MetadataEventListener<FeedOperationStatusEvent> listener = (MetadataEventListener<FeedOperationStatusEvent>) Whitebox.getInternalState(evaluator, "feedOperationListener");
+        listener.notify(new FeedOperationStatusEvent(new OperationStatus(feedName, null, FeedOperation.State.SUCCESS, "finished")));
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private Long roundUp(DateTime time) {
+        return ((time.getMillis() + TICK_MILLIS - 1) / TICK_MILLIS) * TICK_MILLIS;
+    }
+
+    private Map<String, Set<ServiceLevelAgreement.ID>> getFeedIndex() {
+        return getFeedIndex(evaluator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Set<ServiceLevelAgreement.ID>> getFeedIndex(EventDrivenServiceLevelAgreementEvaluator evaluator) {
+        return (Map<String, Set<ServiceLevelAgreement.ID>>) Whitebox.getInternalState(evaluator, "feedIndex");
+    }
+
+    private Map<Long, Set<ServiceLevelAgreement.ID>> getDeadlines() {
+        return getDeadlines(evaluator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Set<ServiceLevelAgreement.ID>> getDeadlines(EventDrivenServiceLevelAgreementEvaluator evaluator) {
+        return (Map<Long, Set<ServiceLevelAgreement.ID>>) Whitebox.getInternalState(evaluator, "deadlines");
+    }
+
+    private Map<ServiceLevelAgreement.ID, Long> getScheduledDeadlines() {
+        return getScheduledDeadlines(evaluator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<ServiceLevelAgreement.ID, Long> getScheduledDeadlines(EventDrivenServiceLevelAgreementEvaluator evaluator) {
+        return (Map<ServiceLevelAgreement.ID, Long>) Whitebox.getInternalState(evaluator, "scheduledDeadlines");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ServiceLevelAgreement.ID> getPending() {
+        return (Set<ServiceLevelAgreement.ID>) Whitebox.getInternalState(evaluator, "pending");
+    }
+
+    private static class TestId implements ServiceLevelAgreement.ID {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        TestId(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestId && Objects.equals(id, ((TestId) o).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(id);
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    /**
+     * A feed metric that returns its deadlines in order, one for each call to {@link #nextDeadline(DateTime)}
+     */
+    private static class TestMetric implements FeedMetric, DeadlineMetric {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String feedName;
+
+        private final LinkedList<DateTime> deadlines;
+
+        /**
+         * The times passed to {@link #nextDeadline(DateTime)}
+         */
+        private final List<DateTime> times = new ArrayList<>();
+
+        TestMetric(String feedName, DateTime... deadlines) {
+            this.feedName = feedName;
+            this.deadlines = new LinkedList<>(Arrays.asList(deadlines));
+        }
+
+        @Override
+        public String getFeedName() {
+            return feedName;
+        }
+
+        @Override
+        public DateTime nextDeadline(DateTime time) {
+            times.add(time);
+            return deadlines.poll();
+        }
+
+        @Override
+        public String getDescription() {
+            return "test metric for " + feedName;
+        }
+    }
+}
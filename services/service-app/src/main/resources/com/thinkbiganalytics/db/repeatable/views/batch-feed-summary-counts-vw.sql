@@ -18,16 +18,17 @@
 -- #L%
 -- -
 /**
-Get the health of the feed merging the Check data job health into the correct feed for summarizing the counts
+Get the health of the feed merging the Check data job health into the correct feed for summarizing the counts.
+The counts for each feed are maintained in the FEED_HEALTH table as jobs change status
  */
 CREATE OR REPLACE VIEW BATCH_FEED_SUMMARY_COUNTS_VW AS
 SELECT f.FEED_ID as FEED_ID,f.FEED_NAME as FEED_NAME,
-       count(e2.JOB_EXECUTION_ID) as ALL_COUNT,
-       count(case when e2.status <>'ABANDONED' AND (e2.status = 'FAILED' or e2.EXIT_CODE = 'FAILED') then 1 else null end) as FAILED_COUNT,
-       count(case when e2.status <>'ABANDONED' AND (e2.EXIT_CODE = 'COMPLETED') then 1 else null end) as COMPLETED_COUNT,
-       count(case when e2.status = 'ABANDONED'then 1 else null end) as ABANDONED_COUNT,
-        count(case when e2.status IN('STARTING','STARTED')then 1 else null end) as RUNNING_COUNT
-FROM   BATCH_JOB_EXECUTION e2
-INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e2.JOB_INSTANCE_ID
-INNER JOIN CHECK_DATA_TO_FEED_VW f on f.KYLO_FEED_ID = i.FEED_ID
-group by f.feed_id, f.feed_name;
+       SUM(h.ALL_COUNT) as ALL_COUNT,
+       SUM(h.FAILED_COUNT) as FAILED_COUNT,
+       SUM(h.COMPLETED_COUNT) as COMPLETED_COUNT,
+       SUM(h.ABANDONED_COUNT) as ABANDONED_COUNT,
+       SUM(h.RUNNING_COUNT) as RUNNING_COUNT
+FROM   FEED_HEALTH h
+INNER JOIN CHECK_DATA_TO_FEED_VW f on f.KYLO_FEED_ID = h.FEED_ID
+group by f.feed_id, f.feed_name
+HAVING SUM(h.ALL_COUNT) > 0;
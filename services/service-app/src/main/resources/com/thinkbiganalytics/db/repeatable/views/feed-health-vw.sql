@@ -32,9 +32,7 @@ SELECT summary.FEED_ID as FEED_ID,
        summary.ABANDONED_COUNT,
        summary.ALL_COUNT,
        summary.RUNNING_COUNT
-FROM   BATCH_JOB_EXECUTION e
-INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID
-inner join BATCH_FEED_SUMMARY_COUNTS_VW summary on summary.FEED_ID = i.FEED_ID
-inner JOIN LATEST_FEED_JOB_VW maxJobs
-                             on maxJobs.FEED_ID = summary.FEED_ID
-                             and maxJobs.JOB_EXECUTION_ID =e.JOB_EXECUTION_ID;
+FROM   BATCH_FEED_SUMMARY_COUNTS_VW summary
+INNER JOIN FEED_HEALTH h on h.FEED_ID = summary.FEED_ID
+INNER JOIN BATCH_JOB_EXECUTION e on e.JOB_EXECUTION_ID = h.LATEST_JOB_EXECUTION_ID
+INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID;
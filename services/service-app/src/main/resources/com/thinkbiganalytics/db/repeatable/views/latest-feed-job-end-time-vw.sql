@@ -22,9 +22,6 @@
 Get the feed and the last time it completed
  */
 CREATE OR REPLACE  VIEW LATEST_FEED_JOB_END_TIME_VW AS
-    SELECT f.id as FEED_ID, MAX(e.END_TIME) END_TIME
-    FROM
-       BATCH_JOB_EXECUTION e
-       INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID
-       INNER JOIN FEED f on f.id = i.FEED_ID
-       GROUP by f.id;
+    SELECT h.FEED_ID as FEED_ID, h.LATEST_FINISHED_END_TIME END_TIME
+    FROM FEED_HEALTH h
+    WHERE h.LATEST_FINISHED_END_TIME IS NOT NULL;
@@ -22,10 +22,7 @@
 Latest JOB EXECUTION grouped by Feed
  */
 CREATE OR REPLACE VIEW LATEST_FEED_JOB_VW AS
-          SELECT f.id as FEED_ID, MAX(e.JOB_EXECUTION_ID) JOB_EXECUTION_ID
-    FROM
-       BATCH_JOB_EXECUTION e
-       INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID
-       INNER JOIN FEED f on f.id = i.FEED_ID
-       GROUP by f.id;
+          SELECT h.FEED_ID as FEED_ID, h.LATEST_JOB_EXECUTION_ID JOB_EXECUTION_ID
+    FROM FEED_HEALTH h
+    WHERE h.LATEST_JOB_EXECUTION_ID IS NOT NULL;
 
@@ -31,9 +31,7 @@ SELECT f.ID as FEED_ID,f.NAME as FEED_NAME,
        e.STATUS,
        e.EXIT_CODE,
        e.EXIT_MESSAGE
-FROM   BATCH_JOB_EXECUTION e
-INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID
-INNER JOIN FEED f on f.ID = i.FEED_ID
-inner JOIN LATEST_FEED_JOB_END_TIME_VW maxJobs
-                             on maxJobs.FEED_ID = f.ID
-                             and maxJobs.END_TIME =e.END_TIME;
+FROM   FEED_HEALTH h
+INNER JOIN FEED f on f.ID = h.FEED_ID
+INNER JOIN BATCH_JOB_EXECUTION e on e.JOB_EXECUTION_ID = h.LATEST_FINISHED_JOB_EXECUTION_ID
+INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID;
@@ -20,39 +20,68 @@ package com.thinkbiganalytics.servicemonitor;
  * #L%
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.servicemonitor.check.ServiceStatusCheck;
 import com.thinkbiganalytics.servicemonitor.check.ServicesStatusCheck;
+import com.thinkbiganalytics.servicemonitor.model.DefaultServiceComponent;
+import com.thinkbiganalytics.servicemonitor.model.DefaultServiceStatusResponse;
+import com.thinkbiganalytics.servicemonitor.model.ServiceComponent;
 import com.thinkbiganalytics.servicemonitor.model.ServiceStatusResponse;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Application Bean that looks for all beans implementing either ServiceStatusCheck or ServicesStatusCheck
+ * and runs each of them on a shared scheduler, keeping the latest statuses they returned as a snapshot.
+ *
+ * Each check runs every {@code kylo.service.monitor.check.interval.seconds} and is cancelled if it takes longer than
+ * {@code kylo.service.monitor.check.timeout.seconds}.  Both can be overridden for a single check by inserting the check's bean name,
+ * as in {@code kylo.service.monitor.check.ambariServicesStatusCheck.timeout.seconds}.  A check never runs more than once at a time,
+ * so a check that ignores cancellation only holds up its own next run.
  */
 @Configuration
-public class ServiceMonitorManager implements ApplicationContextAware, InitializingBean {
+public class ServiceMonitorManager implements ApplicationContextAware, InitializingBean, DisposableBean {
 
-    private List<ServiceStatusCheck> services;
-    private List<ServicesStatusCheck> servicesHealth;
+    private static final Logger log = LoggerFactory.getLogger(ServiceMonitorManager.class);
+
+    private static final String PROPERTY_PREFIX = "kylo.service.monitor.check.";
+
+    @Value("${kylo.service.monitor.check.interval.seconds:30}")
+    private long defaultIntervalSeconds;
+
+    @Value("${kylo.service.monitor.check.timeout.seconds:30}")
+    private long defaultTimeoutSeconds;
+
+    private List<ScheduledCheck> checks;
     private ApplicationContext applicationContext;
-    private int totalServices;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService checkExecutor;
 
     public ServiceMonitorManager() {
-        this.services = new ArrayList<>();
-        this.servicesHealth = new ArrayList<>();
+        this.checks = new ArrayList<>();
 
     }
 
@@ -66,14 +95,28 @@ public class ServiceMonitorManager implements ApplicationContextAware, Initializ
     public void afterPropertiesSet() throws Exception {
         Map<String, ServiceStatusCheck> map = applicationContext.getBeansOfType(ServiceStatusCheck.class);
         if (map != null) {
-            this.services.addAll(map.values());
+            map.forEach((name, check) -> checks.add(new ScheduledCheck(name, serviceCheckAsCallable(check))));
         }
         Map<String, ServicesStatusCheck> servicesMap = applicationContext.getBeansOfType(ServicesStatusCheck.class);
         if (servicesMap != null) {
-            this.servicesHealth.addAll(servicesMap.values());
+            servicesMap.forEach((name, check) -> checks.add(new ScheduledCheck(name, servicesCheckAsCallable(check))));
         }
-        totalServices = this.services.size() + this.servicesHealth.size();
 
+        if (!checks.isEmpty()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("service-monitor-scheduler").setDaemon(true).build());
+            checkExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("service-monitor-check-%d").setDaemon(true).build());
+            for (ScheduledCheck check : checks) {
+                scheduler.scheduleWithFixedDelay(check::start, 0, check.intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            checkExecutor.shutdownNow();
+        }
     }
 
 
@@ -95,51 +138,105 @@ public class ServiceMonitorManager implements ApplicationContextAware, Initializ
         };
     }
 
+    private long getCheckProperty(String checkName, String property, long defaultValue) {
+        Environment environment = applicationContext.getEnvironment();
+        return environment.getProperty(PROPERTY_PREFIX + checkName + "." + property, Long.class, defaultValue);
+    }
+
 
     /**
-     * Run a service check on the system.
-     * Each service will run in a separate thread and return status back
+     * Get the latest status of the services on the system.
+     * Each service is checked on its own schedule so this returns immediately with the statuses from the last completed checks.
+     * A status is marked as stale if its check has failed, timed out or has not yet completed since the status was returned.
      *
      * @return a list of service status objects
      */
     public List<ServiceStatusResponse> doServiceCheck() {
         List<ServiceStatusResponse> serviceHealthResponseList = new ArrayList<ServiceStatusResponse>();
-        if (totalServices > 0) {
-            ExecutorService pool = Executors.newFixedThreadPool(totalServices);
-            List<Callable<List<ServiceStatusResponse>>> tasks = new ArrayList<>();
-            for (ServiceStatusCheck serviceHealth : services) {
-                tasks.add(serviceCheckAsCallable(serviceHealth));
-            }
-            for (ServicesStatusCheck serviceHealth : servicesHealth) {
-                tasks.add(servicesCheckAsCallable(serviceHealth));
+        long now = System.currentTimeMillis();
+        for (ScheduledCheck check : checks) {
+            serviceHealthResponseList.addAll(check.getSnapshot(now));
+        }
+        return serviceHealthResponseList;
+    }
+
+
+    /**
+     * A service check with its schedule and the statuses from its last successful run
+     */
+    private class ScheduledCheck {
+
+        private final String name;
+        private final Callable<List<ServiceStatusResponse>> check;
+        private final long intervalMillis;
+        private final long timeoutMillis;
+
+        /**
+         * The current run, only accessed by the scheduler thread
+         */
+        private Future<?> running;
+
+        /**
+         * Whether the check is executing, which remains true after a timed out run is cancelled until the check itself returns
+         */
+        private volatile boolean executing;
+
+        private volatile List<ServiceStatusResponse> responses;
+        private volatile long lastCompleted;
+        private volatile String lastError;
+
+        ScheduledCheck(String name, Callable<List<ServiceStatusResponse>> check) {
+            this.name = name;
+            this.check = check;
+            this.intervalMillis = TimeUnit.SECONDS.toMillis(getCheckProperty(name, "interval.seconds", defaultIntervalSeconds));
+            this.timeoutMillis = TimeUnit.SECONDS.toMillis(getCheckProperty(name, "timeout.seconds", defaultTimeoutSeconds));
+        }
+
+        /**
+         * Starts a run of the check unless the previous run is still going, and cancels the run if it exceeds the timeout
+         */
+        void start() {
+            if (executing || (running != null && !running.isDone())) {
+                log.debug("Skipping service check {} as its previous run has not completed", name);
+                return;
             }
+            Future<?> run = checkExecutor.submit(this::run);
+            running = run;
+            scheduler.schedule(() -> {
+                if (run.cancel(true)) {
+                    lastError = "Service check did not complete within " + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " seconds";
+                    log.warn("Service check {} did not complete within {} ms and was cancelled", name, timeoutMillis);
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
 
+        private void run() {
+            executing = true;
             try {
-                List<Future<List<ServiceStatusResponse>>> results = pool.invokeAll(tasks);
-
-                for (Future<List<ServiceStatusResponse>> result : results) {
-                    try {
-                        List<ServiceStatusResponse> responses = result.get();
-                        if (responses != null) {
-                            for (ServiceStatusResponse response : responses) {
-                                if (response != null) {
-                                    serviceHealthResponseList.add(response);
-                                }
-                            }
-                        }
-
-                    } catch (Exception e) {
-
-                    }
-                }
+                List<ServiceStatusResponse> result = check.call();
+                responses = result != null ? result.stream().filter(Objects::nonNull).collect(Collectors.toList()) : Collections.emptyList();
+                lastCompleted = System.currentTimeMillis();
+                lastError = null;
             } catch (Exception e) {
-
+                lastError = "Service check failed: " + e.getMessage();
+                log.warn("Service check {} failed", name, e);
+            } finally {
+                executing = false;
             }
-            pool.shutdown();
+        }
 
+        /**
+         * Gets the statuses from the last successful run, or a placeholder status if the check has never completed
+         */
+        List<ServiceStatusResponse> getSnapshot(long now) {
+            List<ServiceStatusResponse> current = responses;
+            if (current == null) {
+                String message = lastError != null ? lastError : "Service check has not completed yet";
+                ServiceComponent component = new DefaultServiceComponent.Builder(name, ServiceComponent.STATE.UNKNOWN).message(message).build();
+                return Collections.singletonList(new ServiceStatusSnapshot(new DefaultServiceStatusResponse(name, Collections.singletonList(component)), true));
+            }
+            boolean stale = lastError != null || now - lastCompleted > intervalMillis + timeoutMillis;
+            return current.stream().map(response -> new ServiceStatusSnapshot(response, stale)).collect(Collectors.toList());
         }
-        return serviceHealthResponseList;
     }
-
-
 }
@@ -0,0 +1,100 @@
+package com.thinkbiganalytics.servicemonitor;
+
+/*-
+ * #%L
+ * thinkbig-service-monitor-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.servicemonitor.model.ServiceAlert;
+import com.thinkbiganalytics.servicemonitor.model.ServiceComponent;
+import com.thinkbiganalytics.servicemonitor.model.ServiceStatusResponse;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The last status returned by a service check, as held by the {@link ServiceMonitorManager}.
+ * The status is stale if the check has not completed successfully since its last scheduled run was due.
+ */
+public class ServiceStatusSnapshot implements ServiceStatusResponse {
+
+    private final ServiceStatusResponse status;
+    private final boolean stale;
+
+    public ServiceStatusSnapshot(ServiceStatusResponse status, boolean stale) {
+        this.status = status;
+        this.stale = stale;
+    }
+
+    /**
+     * @return true if the check that returned this status has since failed, timed out or not yet completed
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    @Override
+    public String getServiceName() {
+        return status.getServiceName();
+    }
+
+    @Override
+    public List<ServiceComponent> getComponents() {
+        return status.getComponents();
+    }
+
+    @Override
+    public List<ServiceComponent> getHealthyComponents() {
+        return status.getHealthyComponents();
+    }
+
+    @Override
+    public List<ServiceComponent> getUnhealthyComponents() {
+        return status.getUnhealthyComponents();
+    }
+
+    @Override
+    public Date getCheckDate() {
+        return status.getCheckDate();
+    }
+
+    @Override
+    public List<ServiceAlert> getAlerts() {
+        return status.getAlerts();
+    }
+
+    @Override
+    public List<ServiceAlert> getAlertsWithoutComponent() {
+        return status.getAlertsWithoutComponent();
+    }
+
+    @Override
+    public STATE getState() {
+        return status.getState();
+    }
+
+    @Override
+    public Date getLatestAlertTimestamp() {
+        return status.getLatestAlertTimestamp();
+    }
+
+    @Override
+    public Date getEarliestAlertTimestamp() {
+        return status.getEarliestAlertTimestamp();
+    }
+}
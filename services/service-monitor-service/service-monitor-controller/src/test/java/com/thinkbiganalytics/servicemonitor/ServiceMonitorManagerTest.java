@@ -0,0 +1,171 @@
+package com.thinkbiganalytics.servicemonitor;
+
+/*-
+ * #%L
+ * thinkbig-service-monitor-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.servicemonitor.check.ServiceStatusCheck;
+import com.thinkbiganalytics.servicemonitor.model.DefaultServiceComponent;
+import com.thinkbiganalytics.servicemonitor.model.DefaultServiceStatusResponse;
+import com.thinkbiganalytics.servicemonitor.model.ServiceComponent;
+import com.thinkbiganalytics.servicemonitor.model.ServiceStatusResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ServiceMonitorManagerTest.Config.class)
+@TestPropertySource(properties = {"kylo.service.monitor.check.interval.seconds=1",
+                                  "kylo.service.monitor.check.timeout.seconds=1",
+                                  "kylo.service.monitor.check.slowCheck.timeout.seconds=60"})
+public class ServiceMonitorManagerTest {
+
+    /**
+     * Holds the hung and slow checks until the test completes
+     */
+    private static final CountDownLatch release = new CountDownLatch(1);
+
+    private static final AtomicBoolean hungCheckInterrupted = new AtomicBoolean();
+
+    @Inject
+    private ServiceMonitorManager serviceMonitorManager;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    /**
+     * Verify a hung check is cancelled and reported stale without holding up the other checks or the caller.
+     */
+    @Test
+    public void testHungCheck() throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!hungCheckInterrupted.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue("hung check was not cancelled", hungCheckInterrupted.get());
+
+        long start = System.nanoTime();
+        Map<String, ServiceStatusResponse> statuses = serviceMonitorManager.doServiceCheck().stream()
+            .collect(Collectors.toMap(ServiceStatusResponse::getServiceName, Function.identity()));
+        Assert.assertTrue("service check was not immediate", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        Assert.assertEquals(3, statuses.size());
+
+        // Fast check keeps returning fresh statuses
+        ServiceStatusSnapshot fast = (ServiceStatusSnapshot) statuses.get("fast");
+        Assert.assertEquals(ServiceStatusResponse.STATE.UP, fast.getState());
+        Assert.assertFalse(fast.isStale());
+
+        // Hung check keeps the status from its first run
+        ServiceStatusSnapshot hung = (ServiceStatusSnapshot) statuses.get("hung");
+        Assert.assertEquals(ServiceStatusResponse.STATE.UP, hung.getState());
+        Assert.assertTrue(hung.isStale());
+
+        // Slow check has not completed its first run
+        ServiceStatusSnapshot slow = (ServiceStatusSnapshot) statuses.get("slowCheck");
+        Assert.assertEquals(ServiceStatusResponse.STATE.WARNING, slow.getState());
+        Assert.assertTrue(slow.isStale());
+        Assert.assertEquals(ServiceComponent.STATE.UNKNOWN, slow.getComponents().get(0).getState());
+        Assert.assertEquals("Service check has not completed yet", slow.getComponents().get(0).getMessage());
+    }
+
+    private static ServiceStatusResponse up(String serviceName) {
+        List<ServiceComponent> components = Collections.singletonList(new DefaultServiceComponent.Builder(serviceName, ServiceComponent.STATE.UP).build());
+        return new DefaultServiceStatusResponse(serviceName, components);
+    }
+
+    /**
+     * Waits until the test completes, ignoring interrupts like a check stuck in a blocking call
+     */
+    private static void awaitRelease(AtomicBoolean interrupted) {
+        while (true) {
+            try {
+                release.await();
+                return;
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        }
+    }
+
+    @Configuration
+    public static class Config {
+
+        @Bean
+        public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+            return new PropertySourcesPlaceholderConfigurer();
+        }
+
+        @Bean
+        public ServiceMonitorManager serviceMonitorManager() {
+            return new ServiceMonitorManager();
+        }
+
+        @Bean
+        public ServiceStatusCheck fastCheck() {
+            return () -> up("fast");
+        }
+
+        /**
+         * Completes its first run and hangs on every run after
+         */
+        @Bean
+        public ServiceStatusCheck hungCheck() {
+            AtomicInteger runs = new AtomicInteger();
+            return () -> {
+                if (runs.getAndIncrement() > 0) {
+                    awaitRelease(hungCheckInterrupted);
+                }
+                return up("hung");
+            };
+        }
+
+        /**
+         * Never completes within the test
+         */
+        @Bean
+        public ServiceStatusCheck slowCheck() {
+            return () -> {
+                awaitRelease(new AtomicBoolean());
+                return up("slow");
+            };
+        }
+    }
+}
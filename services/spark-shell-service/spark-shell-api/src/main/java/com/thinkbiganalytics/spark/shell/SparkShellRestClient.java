@@ -22,16 +22,31 @@ package com.thinkbiganalytics.spark.shell;
 
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage;
 
+import java.util.List;
 import java.util.Optional;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Communicates with a Spark Shell process.
  */
 public interface SparkShellRestClient {
 
+    /**
+     * Fetches a page of rows from the results of a transformation on the specified Spark Shell process.
+     *
+     * @param table   the destination table name
+     * @param offset  the index of the first row
+     * @param limit   the maximum number of rows
+     * @param columns the names of the columns to include, or {@code null} for all columns
+     * @return the page of rows if the table exists
+     */
+    @Nonnull
+    Optional<TransformResultPage> getRows(@Nonnull SparkShellProcess process, @Nonnull String table, long offset, int limit, @Nullable List<String> columns);
+
     /**
      * Fetches the status of a transformation running on the specified Spark Shell process.
      *
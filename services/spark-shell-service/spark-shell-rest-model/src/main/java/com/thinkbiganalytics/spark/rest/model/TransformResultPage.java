@@ -0,0 +1,178 @@
+package com.thinkbiganalytics.spark.rest.model;
+
+/*-
+ * #%L
+ * Spark Shell Service REST Model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import java.util.List;
+
+/**
+ * A page of rows from the results of a Spark transformation.
+ *
+ * <p>The values are stored by column rather than by row, so that field names are not repeated for every row.</p>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransformResultPage {
+
+    /**
+     * Columns in this page
+     */
+    @JsonDeserialize(contentAs = DefaultQueryResultColumn.class)
+    private List<QueryResultColumn> columns;
+
+    /**
+     * Values of each column
+     */
+    private List<List<Object>> data;
+
+    /**
+     * Indicates that there are rows after this page
+     */
+    private boolean hasMore;
+
+    /**
+     * Index of the first row in this page
+     */
+    private long offset;
+
+    /**
+     * Number of rows in this page
+     */
+    private int rowCount;
+
+    /**
+     * Table name with the results
+     */
+    private String table;
+
+    /**
+     * Gets the columns in this page.
+     *
+     * @return the columns
+     */
+    public List<QueryResultColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Sets the columns in this page.
+     *
+     * @param columns the columns
+     */
+    public void setColumns(List<QueryResultColumn> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Gets the values of each column. The list at index {@code i} has the values of column {@code i} for each row.
+     *
+     * @return the column values
+     */
+    public List<List<Object>> getData() {
+        return data;
+    }
+
+    /**
+     * Sets the values of each column.
+     *
+     * @param data the column values
+     */
+    public void setData(List<List<Object>> data) {
+        this.data = data;
+    }
+
+    /**
+     * Indicates if there are rows after this page.
+     *
+     * @return {@code true} if there are more rows
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Sets whether there are rows after this page.
+     *
+     * @param hasMore {@code true} if there are more rows
+     */
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Gets the index of the first row in this page.
+     *
+     * @return the row offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the index of the first row in this page.
+     *
+     * @param offset the row offset
+     */
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the number of rows in this page.
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Sets the number of rows in this page.
+     *
+     * @param rowCount the row count
+     */
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Gets the table with the results.
+     *
+     * @return the table name
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Sets the table with the results.
+     *
+     * @param table the table name
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+}